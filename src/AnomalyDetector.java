@@ -0,0 +1,191 @@
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+// Online burst detection over the ingest stream. Every stored entry is counted, at its own timestamp, into a
+// sliding window of per-second buckets for its level and one for its root cause. Seconds leaving a window are
+// folded into an EWMA baseline of that series' per-second rate, so a burst is measured against the rate before
+// it rather than against itself. A series alerts when its window holds at least minEvents entries and factor
+// times its baseline, and again only after its rate has fallen back under that. Memory is constant: a ring of
+// window ints per series and at most MAX_SERIES series.
+public final class AnomalyDetector {
+
+    static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("logiq.anomaly", "true"));
+    private static final int MAX_SERIES = 256;
+    // A series whose stream jumps back further than this (a new, older file) starts a new window
+    private static final long RESTART_SECONDS = 3_600;
+    private static final Metrics.Counter ALERTS = Metrics.counter("logiq_anomaly_alerts_total",
+        "Bursts flagged by the anomaly detector.");
+
+    private final int windowSeconds;
+    private final double factor;
+    private final int minEvents;
+    // Per-second weight of the newest second in the baseline, from its half-life
+    private final double alpha;
+    private final long warmupSeconds;
+    private final PrintStream alerts;
+    private final Set<String> watchedLevels = new LinkedHashSet<>();
+    // Series are added as levels and root causes appear
+    private final Map<String, Series> levels = new HashMap<>();
+    private final Map<String, Series> rootCauses = new HashMap<>();
+    private long firstSecond = Long.MIN_VALUE;
+    private long alertCount;
+
+    
+    // levels are the levels watched, e.g. WARN and ERROR; the baseline halves its memory every baselineMinutes,
+    // and a series only alerts once the stream is that old
+    public AnomalyDetector(int windowSeconds, double factor, int minEvents, int baselineMinutes, String[] levels,
+                           PrintStream alerts) {
+        this.windowSeconds = windowSeconds;
+        this.factor = factor;
+        this.minEvents = minEvents;
+        this.alpha = 1 - Math.pow(0.5, 1.0 / (baselineMinutes * 60.0));
+        this.warmupSeconds = baselineMinutes * 60L;
+        this.alerts = alerts;
+        for (String level : levels) {
+            watchedLevels.add(level.trim());
+        }
+    }
+
+    // From -Dlogiq.anomaly.*; null when -Dlogiq.anomaly=false. Alerts go to the console, or are appended to the
+    // file named by -Dlogiq.anomaly.alerts.
+    public static AnomalyDetector fromSystemProperties() {
+        if (!ENABLED) {
+            return null;
+        }
+        String target = System.getProperty("logiq.anomaly.alerts", "console");
+        PrintStream alerts = System.out;
+        if (!target.equals("console")) {
+            try {
+                alerts = new PrintStream(new FileOutputStream(target, true), true, StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                System.out.println("⚠️ Could not open anomaly alert file " + target + "; alerts go to the console.");
+            }
+        }
+        return new AnomalyDetector(
+            Integer.getInteger("logiq.anomaly.window.seconds", 60),
+            Double.parseDouble(System.getProperty("logiq.anomaly.factor", "4")),
+            Integer.getInteger("logiq.anomaly.min.events", 20),
+            Integer.getInteger("logiq.anomaly.baseline.minutes", 10),
+            System.getProperty("logiq.anomaly.levels", "WARN,ERROR").split(","),
+            alerts);
+    }
+
+    
+    // Called by the writers for each entry they store
+    public synchronized void observe(LogEntry entry) {
+        long second = Math.floorDiv(entry.getTimestampMillis(), 1000);
+        if (firstSecond == Long.MIN_VALUE) {
+            firstSecond = second;
+        }
+        if (watchedLevels.contains(entry.getLevel())) {
+            levels.computeIfAbsent(entry.getLevel(), level -> new Series("Level " + level)).add(second);
+        }
+        String rootCause = entry.getRootCause();
+        if (rootCause != null) {
+            Series series = rootCauses.get(rootCause);
+            // The watched levels keep their places, so root causes stop at what MAX_SERIES leaves
+            if (series == null && rootCauses.size() + watchedLevels.size() < MAX_SERIES) {
+                series = new Series("Root cause " + rootCause);
+                rootCauses.put(rootCause, series);
+            }
+            if (series != null) {
+                series.add(second);
+            }
+        }
+    }
+
+    public synchronized long getAlertCount() {
+        return alertCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format(Locale.ROOT, "%s and %d root cause(s), %ds window, alert at %.1fx baseline, %d alert(s)",
+            String.join("/", watchedLevels), rootCauses.size(), windowSeconds, factor, alertCount);
+    }
+
+    
+    // Counts of one level or root cause: the last windowSeconds seconds up to head, and the baseline before them
+    private final class Series {
+        private final String name;
+        private final int[] buckets = new int[windowSeconds];
+        private long head;
+        private int windowCount;
+        // Events per second, and how many seconds it has seen
+        private double baseline;
+        private long history;
+        // Set by an alert and cleared once the rate falls back under the threshold, so a burst alerts once
+        private boolean bursting;
+
+        // A series starts with the stream: it saw no events before its first one
+        Series(String name) {
+            this.name = name;
+            this.head = firstSecond;
+        }
+
+        void add(long second) {
+            if (second > head) {
+                advance(second);
+            } else if (second <= head - windowSeconds) {
+                if (head - second <= RESTART_SECONDS) {
+                    return; // Too late to count; the window has moved on
+                }
+                restart(second);
+            }
+            buckets[Math.floorMod(second, windowSeconds)]++;
+            windowCount++;
+            check();
+        }
+
+        // Slides the window to end at second, folding the seconds that leave it into the baseline in order
+        private void advance(long second) {
+            long gap = second - head;
+            long leaving = Math.min(gap, windowSeconds);
+            for (long s = head - windowSeconds + 1; s < head - windowSeconds + 1 + leaving; s++) {
+                int i = Math.floorMod(s, windowSeconds);
+                baseline += alpha * (buckets[i] - baseline);
+                windowCount -= buckets[i];
+                buckets[i] = 0;
+            }
+            // Seconds that passed without a single event, folded in one step
+            if (gap > windowSeconds) {
+                baseline *= Math.pow(1 - alpha, gap - windowSeconds);
+            }
+            history += gap;
+            head = second;
+        }
+
+        // The baseline, learned from later logs, is kept; the window starts over
+        private void restart(long second) {
+            Arrays.fill(buckets, 0);
+            windowCount = 0;
+            head = second;
+        }
+
+        private void check() {
+            double expected = baseline * windowSeconds;
+            // At least one event per window, so a series that was silent still needs factor events to alert
+            double ratio = windowCount / Math.max(expected, 1.0);
+            if (windowCount < minEvents || ratio < factor) {
+                bursting = false;
+                return;
+            }
+            if (bursting || history < warmupSeconds) {
+                return;
+            }
+            bursting = true;
+            alertCount++;
+            ALERTS.increment();
+            alerts.printf(Locale.ROOT, "🚨 %s rate %.1fx baseline in the last %ds: %d events, %.1f expected (up to %s)%n",
+                name, ratio, windowSeconds, windowCount, expected, LogTimestamps.format(head * 1000));
+        }
+    }
+}
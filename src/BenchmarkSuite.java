@@ -0,0 +1,343 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Benchmarks for the hot paths: line tokenizing, root cause classification, batch insertion and every paginated
+// search. Results are appended to a JSON Lines file, one object per benchmark. The database is fixed per JVM
+// by -Dlogiq.db, so each database benchmark runs in a forked JVM against its own file under bench/; generated
+// databases are kept and reused by later runs.
+// Usage: java -cp ... BenchmarkSuite [results.jsonl] [rows,...]   e.g. BenchmarkSuite bench/results.jsonl 1000000,10000000
+public class BenchmarkSuite {
+
+    private static final Path DIR = Paths.get("bench");
+    private static final String SAMPLE = "logs/sample.log";
+    private static final int DAYS = 30;
+    private static final int MICRO_LINES = 1_000_000;
+    private static final int[] BATCH_SIZES = { 1_000, 10_000, 100_000 };
+    private static final int INSERT_ROWS = 300_000;
+    private static final int QUERY_WARMUPS = 20;
+    private static final int QUERY_ITERATIONS = 200;
+    private static final int PAGE_SIZE = 50;
+
+    public interface Operation {
+        // Runs one iteration and returns how many operations it did
+        long run() throws Exception;
+    }
+
+    
+    public static void main(String[] args) throws Exception {
+        if (args.length == 4 && args[0].equals("--fork")) {
+            runFork(args[1], Long.parseLong(args[2]), Paths.get(args[3]));
+            return;
+        }
+        Path results = Paths.get(args.length > 0 ? args[0] : "bench/results.jsonl");
+        long[] databaseRows = Arrays.stream((args.length > 1 ? args[1] : "1000000").split(","))
+            .mapToLong(Long::parseLong).toArray();
+        Files.createDirectories(DIR);
+        if (results.getParent() != null) {
+            Files.createDirectories(results.getParent());
+        }
+        Files.deleteIfExists(results);
+
+        runMicroBenchmarks(results);
+        for (int batchSize : BATCH_SIZES) {
+            Path db = DIR.resolve("insert-" + batchSize + ".db");
+            for (String suffix : new String[] { "", "-wal", "-shm" }) {
+                Files.deleteIfExists(Paths.get(db + suffix));
+            }
+            fork("insert", batchSize, db, results);
+        }
+        for (long rows : databaseRows) {
+            fork("search", rows, DIR.resolve("logiq-" + rows + ".db"), results);
+        }
+        System.out.println("📄 Results: " + results.toAbsolutePath());
+    }
+
+    
+    // In this JVM: the tokenizers (the fixed-layout one and the original regex), the root cause classifier and the
+    // anomaly detector
+    private static void runMicroBenchmarks(Path results) throws IOException {
+        SyntheticLogGenerator generator = new SyntheticLogGenerator(Files.readAllLines(Paths.get(SAMPLE)), 1);
+        long start = SyntheticLogGenerator.START.toEpochSecond(java.time.ZoneOffset.UTC) * 1000;
+        String[] lines = new String[MICRO_LINES];
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = generator.line(start + i * 1000L);
+        }
+
+        int[] starts = new int[lines.length];
+        int[] ends = new int[lines.length];
+        ByteBuffer buffer = toBuffer(lines, starts, ends);
+        for (LineTokenizer tokenizer : new LineTokenizer[] { new RegexLineTokenizer(), new FixedLayoutTokenizer() }) {
+            LineTokens tokens = new LineTokens();
+            record(results, measure("tokenize", tokenizer.getClass().getSimpleName(), 0, 3, 10, () -> {
+                for (int i = 0; i < starts.length; i++) {
+                    tokenizer.tokenize(buffer, starts[i], ends[i], tokens);
+                }
+                return starts.length;
+            }));
+        }
+
+        RootCauseClassifier classifier = RootCauseClassifier.loadDefault();
+        String[] messages = new String[lines.length];
+        for (int i = 0; i < lines.length; i++) {
+            messages[i] = lines[i].substring(LogTimestamps.LENGTH).trim();
+        }
+        record(results, measure("extractRootCause", classifier.getRuleCount() + " rules", 0, 3, 10, () -> {
+            for (String message : messages) {
+                classifier.classify(message);
+            }
+            return messages.length;
+        }));
+
+        // What the anomaly detector adds to every stored entry; a fresh detector per iteration
+        LogAnalyzer analyzer = new LogAnalyzer();
+        List<LogEntry> entries = new ArrayList<>(lines.length);
+        for (int i = 0; i < starts.length; i++) {
+            LogEntry entry = analyzer.parseLine(buffer, starts[i], ends[i]);
+            if (entry != null) {
+                entries.add(entry);
+            }
+        }
+        PrintStream noAlerts = new PrintStream(OutputStream.nullOutputStream());
+        record(results, measure("anomalyDetector", "observe", 0, 3, 10, () -> {
+            AnomalyDetector detector = new AnomalyDetector(60, 4, 20, 10, new String[] { "WARN", "ERROR" }, noAlerts);
+            for (LogEntry entry : entries) {
+                detector.observe(entry);
+            }
+            return entries.size();
+        }));
+    }
+
+    private static ByteBuffer toBuffer(String[] lines, int[] starts, int[] ends) {
+        byte[][] bytes = new byte[lines.length][];
+        int total = 0;
+        for (int i = 0; i < lines.length; i++) {
+            bytes[i] = lines[i].getBytes(StandardCharsets.UTF_8);
+            total += bytes[i].length + 1;
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(total);
+        for (int i = 0; i < bytes.length; i++) {
+            starts[i] = buffer.position();
+            buffer.put(bytes[i]);
+            ends[i] = buffer.position();
+            buffer.put((byte) '\n');
+        }
+        return buffer;
+    }
+
+    
+    private static void fork(String kind, long size, Path db, Path results) throws IOException, InterruptedException {
+        System.out.println("⏱️ Running " + kind + " benchmarks (" + size + ") against " + db);
+        Path output = DIR.resolve(kind + "-" + size + ".out");
+        Process process = new ProcessBuilder(
+                Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"),
+                "-Dfile.encoding=UTF-8",
+                "-Dlogiq.db=" + db,
+                "-Dlogiq.cache.mb=0", // measure the queries, not the result cache
+                BenchmarkSuite.class.getName(), "--fork", kind, Long.toString(size), results.toString())
+            .redirectOutput(output.toFile())
+            .redirectError(ProcessBuilder.Redirect.INHERIT)
+            .start();
+        if (process.waitFor() != 0) {
+            System.out.println("⚠️ " + kind + " benchmarks (" + size + ") failed; see " + output);
+        }
+    }
+
+    private static void runFork(String kind, long size, Path results) throws Exception {
+        DatabaseManager.createLogsTable();
+        try {
+            if (kind.equals("insert")) {
+                runInsertBenchmarks((int) size, results);
+            } else {
+                runSearchBenchmarks(size, results);
+            }
+        } finally {
+            DatabaseManager.shutdown();
+        }
+    }
+
+    
+    // insertLogsBatch into an empty database; each iteration is one batch
+    private static void runInsertBenchmarks(int batchSize, Path results) throws IOException {
+        List<String> sample = Files.readAllLines(Paths.get(SAMPLE));
+        SyntheticLogGenerator generator = new SyntheticLogGenerator(sample, batchSize);
+        LogAnalyzer analyzer = new LogAnalyzer();
+        long start = SyntheticLogGenerator.START.toEpochSecond(java.time.ZoneOffset.UTC) * 1000;
+        List<LogEntry> entries = new ArrayList<>(INSERT_ROWS);
+        for (int i = 0; entries.size() < INSERT_ROWS; i++) {
+            ByteBuffer line = ByteBuffer.wrap(generator.line(start + i * 1000L).getBytes(StandardCharsets.UTF_8));
+            LogEntry entry = analyzer.parseLine(line, 0, line.limit());
+            if (entry != null) {
+                entries.add(entry);
+            }
+        }
+        int batches = INSERT_ROWS / batchSize;
+        int warmups = Math.max(1, batches / 10);
+        int[] next = { 0 };
+        record(results, measure("insertLogsBatch", "batch=" + batchSize, 0, warmups, batches - warmups, () -> {
+            int from = next[0]++ * batchSize;
+            DatabaseManager.insertLogsBatch(entries.subList(from, from + batchSize));
+            return batchSize;
+        }));
+    }
+
+    // Every paginated search: the first page, the page after it and the page before that one
+    private static void runSearchBenchmarks(long rows, Path results) throws Exception {
+        long stored;
+        try (Connection conn = DatabaseManager.connect()) {
+            stored = LogPartitions.rowCount(conn);
+        }
+        if (stored == 0) {
+            Path log = DIR.resolve("synthetic-" + rows + ".log");
+            if (!Files.exists(log)) {
+                SyntheticLogGenerator.write(log, Files.readAllLines(Paths.get(SAMPLE)), rows, DAYS, rows);
+            }
+            try (Connection conn = DatabaseManager.connect()) {
+                new LogAnalyzer().parseAndInsertLogs(log.toString(), conn);
+                stored = LogPartitions.rowCount(conn);
+            }
+        }
+        int topTemplate;
+        try (Connection conn = DatabaseManager.connect();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id FROM log_templates ORDER BY count DESC LIMIT 1")) {
+            topTemplate = rs.next() ? rs.getInt(1) : 0;
+        }
+        String day = SyntheticLogGenerator.START.plusDays(DAYS / 2).toLocalDate().toString();
+        LogQuery combined = LogQuery.builder().level("ERROR").rootCause("Timeout")
+            .between(LogTimestamps.parse(day + " 10:00:00"), LogTimestamps.parse(day + " 11:00:00")).build();
+
+        Object[][] searches = {
+            { "fetchLogsPaginated", (Page.Query) DatabaseManager::fetchLogsPaginated },
+            { "searchLogsByLevelPaginated", (Page.Query) (limit, token) -> DatabaseManager.searchLogsByLevelPaginated("ERROR", limit, token) },
+            { "searchLogsByMessagePaginated", (Page.Query) (limit, token) -> DatabaseManager.searchLogsByMessagePaginated("ConnectionTimeout", limit, token) },
+            { "searchLogsByRootCausePaginated", (Page.Query) (limit, token) -> DatabaseManager.searchLogsByRootCausePaginated("Timeout", limit, token) },
+            { "searchLogsByDateRangePaginated", (Page.Query) (limit, token) -> DatabaseManager.searchLogsByDateRangePaginated(day + " 10:00:00", day + " 11:00:00", limit, token) },
+            { "searchLogsByTemplatePaginated", (Page.Query) (limit, token) -> DatabaseManager.searchLogsByTemplatePaginated(topTemplate, limit, token) },
+            { "searchPaginated", (Page.Query) (limit, token) -> DatabaseManager.searchPaginated(combined, limit, token) },
+        };
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            for (Object[] search : searches) {
+                String name = (String) search[0];
+                Page.Query query = (Page.Query) search[1];
+                Page first = query.fetch(PAGE_SIZE, null);
+                Page second = first.getNextToken() == null ? first : query.fetch(PAGE_SIZE, first.getNextToken());
+                String[][] pages = {
+                    { "first page", null },
+                    { "next page", first.getNextToken() },
+                    { "previous page", second.getPrevToken() },
+                };
+                for (String[] page : pages) {
+                    record(results, measure(name, page[0], stored, QUERY_WARMUPS, QUERY_ITERATIONS, () -> {
+                        query.fetch(PAGE_SIZE, page[1]);
+                        return 1;
+                    }));
+                }
+            }
+        } finally {
+            System.setOut(console);
+        }
+        runAggregateBenchmarks(stored, day, results);
+    }
+
+    // Rows per level and root cause over one day and one hour of it: GROUP BY on the day's partition against
+    // the same day written to a scratch segment, the form it takes once sealed (see LogSegments)
+    private static void runAggregateBenchmarks(long stored, String date, Path results) throws Exception {
+        int day = LogPartitions.toDay(java.time.LocalDate.parse(date));
+        long dayStart = LogTimestamps.parse(date + " 00:00:00");
+        long[][] ranges = { { dayStart, dayStart + 86_400_000L - 1 }, { dayStart + 36_000_000L, dayStart + 39_600_000L - 1 } };
+        String[] names = { "day", "hour" };
+        Path file = DIR.resolve("aggregate-" + day + ".seg");
+        try (Connection conn = DatabaseManager.connect()) {
+            LogSegment segment;
+            try (LogSegment.Writer writer = new LogSegment.Writer(file, day)) {
+                LogSegments.copyPartition(conn, day, writer);
+                segment = writer.finish();
+            }
+            String sql = "SELECT level_id, root_cause_id, COUNT(*) FROM " + LogPartitions.table(day)
+                + " WHERE ts >= ? AND ts <= ? GROUP BY level_id, root_cause_id";
+            for (int i = 0; i < ranges.length; i++) {
+                long[] range = ranges[i];
+                record(results, measure("aggregateByLevelAndRootCause", "sqlite " + names[i], stored, 5, 50, () -> {
+                    try (java.sql.PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                        pstmt.setLong(1, range[0]);
+                        pstmt.setLong(2, range[1]);
+                        ResultSet rs = pstmt.executeQuery();
+                        long groups = 0;
+                        while (rs.next()) {
+                            groups += rs.getLong(3) > 0 ? 1 : 0;
+                        }
+                        return Math.min(groups, 1);
+                    }
+                }));
+                record(results, measure("aggregateByLevelAndRootCause", "segment " + names[i], stored, 5, 50, () ->
+                    Math.min(segment.countByLevelAndRootCause(range[0], range[1]).size(), 1)));
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    
+    public record Result(String benchmark, String param, long rows, int iterations, long operations,
+                         double opsPerSecond, double meanMicros, double p50Micros, double p99Micros) {
+
+        String toJson() {
+            return String.format(java.util.Locale.ROOT,
+                "{\"benchmark\":\"%s\",\"param\":\"%s\",\"rows\":%d,\"iterations\":%d,\"operations\":%d,"
+                    + "\"opsPerSecond\":%.1f,\"meanMicros\":%.3f,\"p50Micros\":%.3f,\"p99Micros\":%.3f}",
+                benchmark, param, rows, iterations, operations, opsPerSecond, meanMicros, p50Micros, p99Micros);
+        }
+    }
+
+    // Runs warmups untimed, then times each iteration; latencies are per operation
+    public static Result measure(String benchmark, String param, long rows, int warmups, int iterations,
+                                 Operation operation) {
+        try {
+            for (int i = 0; i < warmups; i++) {
+                operation.run();
+            }
+            double[] micros = new double[iterations];
+            long operations = 0;
+            long totalNanos = 0;
+            for (int i = 0; i < iterations; i++) {
+                long start = System.nanoTime();
+                long ops = Math.max(1, operation.run());
+                long nanos = System.nanoTime() - start;
+                micros[i] = nanos / 1000.0 / ops;
+                operations += ops;
+                totalNanos += nanos;
+            }
+            Arrays.sort(micros);
+            return new Result(benchmark, param, rows, iterations, operations,
+                operations / (Math.max(totalNanos, 1) / 1_000_000_000.0), totalNanos / 1000.0 / operations,
+                micros[iterations / 2], micros[Math.min(iterations - 1, (int) Math.ceil(iterations * 0.99) - 1)]);
+        } catch (Exception e) {
+            throw new IllegalStateException(benchmark + " (" + param + ") failed", e);
+        }
+    }
+
+    private static synchronized void record(Path results, Result result) throws IOException {
+        Files.writeString(results, result.toJson() + System.lineSeparator(), StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        // Forks print to their .out file; the console copy is for runs in this JVM
+        System.out.printf("%-32s %-22s %,16.1f ops/s  p50 %,12.3f us  p99 %,12.3f us%n",
+            result.benchmark(), result.param(), result.opsPerSecond(), result.p50Micros(), result.p99Micros());
+    }
+}
@@ -0,0 +1,209 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Loads entries into their day partitions in large transactions. Partitions the load creates get their secondary
+// indexes once it finishes, which is cheaper than maintaining them row by row; unique indexes stay because
+// INSERT OR IGNORE relies on them.
+public class BulkLoader implements AutoCloseable {
+
+    public static final int DEFAULT_COMMIT_SIZE = 50_000;
+    private static final int STATEMENT_BATCH_SIZE = 1_000;
+    private static final int CACHE_SIZE_KIB = 64 * 1024;
+    private static final Metrics.Histogram COMMIT_LATENCY = DatabaseManager.commitLatency("bulk");
+
+    private final Connection conn;
+    private final LogDictionary dictionary;
+    private final DuplicateFilter filter;
+    private final AnomalyDetector detector;
+    private final int commitSize;
+    // Entries bound to each partition's insert statement since its last executeBatch
+    private final Map<PreparedStatement, List<LogEntry>> batched = new LinkedHashMap<>();
+    private final SummaryRollups rollups = new SummaryRollups();
+    private final long startNanos = System.nanoTime();
+
+    private int pendingStatements;
+    private int uncommittedRows;
+    private long inserted;
+    private long duplicates;
+    private long filteredDuplicates;
+    private long falsePositives;
+    private long expired;
+    // Timestamp span of the rows inserted since the last commit
+    private long uncommittedFrom = Long.MAX_VALUE;
+    private long uncommittedTo = Long.MIN_VALUE;
+    private boolean finished;
+
+    
+    // filter may be null; without it every entry is sent to INSERT OR IGNORE. detector, which may also be null,
+    // sees each entry once it is inserted.
+    public BulkLoader(Connection conn, int commitSize, DuplicateFilter filter, AnomalyDetector detector)
+            throws SQLException {
+        this.conn = conn;
+        this.filter = filter;
+        this.detector = detector;
+        this.commitSize = Math.max(1, commitSize);
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA journal_mode=WAL");
+            stmt.execute("PRAGMA synchronous=NORMAL");
+            stmt.execute("PRAGMA cache_size=-" + CACHE_SIZE_KIB);
+            stmt.execute("PRAGMA temp_store=MEMORY");
+        }
+        conn.setAutoCommit(false);
+        this.dictionary = new LogDictionary(conn, true);
+    }
+
+    
+    public void add(LogEntry entry) throws SQLException {
+        int day = dictionary.partitionOf(entry);
+        if (day == 0) {
+            expired++;
+            return;
+        }
+        if (filter != null && filter.mightContain(entry.getContentHash())) {
+            // Probably stored already: one probe on the hash index instead of an insert attempt
+            if (dictionary.isStored(day, entry)) {
+                filteredDuplicates++;
+                return;
+            }
+            falsePositives++;
+        } else if (filter == null && dictionary.isSealed(day, entry)) {
+            duplicates++;
+            return;
+        }
+        PreparedStatement insert = dictionary.bindInsert(day, entry);
+        insert.addBatch();
+        batched.computeIfAbsent(insert, k -> new ArrayList<>()).add(entry);
+        if (++pendingStatements >= STATEMENT_BATCH_SIZE) {
+            executePending();
+        }
+        if (++uncommittedRows >= commitSize) {
+            commit();
+        }
+    }
+
+    public void addAll(List<LogEntry> entries) throws SQLException {
+        for (LogEntry entry : entries) {
+            add(entry);
+        }
+    }
+
+    // Commits the rows added so far together with the manifest entry of the file they came from, so a file is
+    // never recorded without its rows
+    public void commitSource(IngestManifestEntry source) throws SQLException {
+        executePending();
+        DatabaseManager.recordManifestEntry(conn, source);
+        commit();
+    }
+
+    
+    // Commits the remaining rows, builds deferred indexes, applies retention and sealing and prints the load report
+    public void finish() throws SQLException {
+        commit();
+        createDeferredIndexes();
+        LogPartitions.applyRetention(conn);
+        LogSegments.applySealPolicy(conn);
+        finished = true;
+
+        double seconds = Math.max(System.nanoTime() - startNanos, 1) / 1_000_000_000.0;
+        System.out.printf("✅ Bulk load: %d inserted, %d duplicates skipped in %.2fs (%.0f rows/s inserted)%n",
+            inserted, getDuplicates(), seconds, inserted / seconds);
+        if (expired > 0) {
+            System.out.println("🗑️ Skipped " + expired + " entries older than the retention period.");
+        }
+        if (filter != null) {
+            System.out.printf("🧮 Duplicates caught by the filter: %d, by the database: %d | filter false positives: %d | %s%n",
+                filteredDuplicates, duplicates, falsePositives, filter);
+        }
+    }
+
+    public long getInserted() {
+        return inserted;
+    }
+
+    public long getDuplicates() {
+        return filteredDuplicates + duplicates;
+    }
+
+    public long getFilteredDuplicates() {
+        return filteredDuplicates;
+    }
+
+    // Entries skipped because they are older than the retention period
+    public long getExpired() {
+        return expired;
+    }
+
+    
+    private void executePending() throws SQLException {
+        if (pendingStatements == 0) {
+            return;
+        }
+        for (Map.Entry<PreparedStatement, List<LogEntry>> batch : batched.entrySet()) {
+            List<LogEntry> entries = batch.getValue();
+            if (entries.isEmpty()) {
+                continue;
+            }
+            int[] counts = batch.getKey().executeBatch();
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] > 0) {
+                    inserted += counts[i];
+                    uncommittedFrom = Math.min(uncommittedFrom, entries.get(i).getTimestampMillis());
+                    uncommittedTo = Math.max(uncommittedTo, entries.get(i).getTimestampMillis());
+                    rollups.add(entries.get(i));
+                    if (filter != null) {
+                        filter.add(entries.get(i).getContentHash());
+                    }
+                    if (detector != null) {
+                        detector.observe(entries.get(i));
+                    }
+                } else {
+                    duplicates++;
+                }
+            }
+            entries.clear();
+        }
+        pendingStatements = 0;
+    }
+
+    private void commit() throws SQLException {
+        long started = Metrics.startTimer();
+        executePending();
+        rollups.flush(conn);
+        dictionary.syncFullTextIndex();
+        conn.commit();
+        COMMIT_LATENCY.observeSince(started);
+        uncommittedRows = 0;
+        if (uncommittedFrom <= uncommittedTo) {
+            DatabaseManager.getResultCache().invalidate(uncommittedFrom, uncommittedTo);
+            uncommittedFrom = Long.MAX_VALUE;
+            uncommittedTo = Long.MIN_VALUE;
+        }
+    }
+
+    private void createDeferredIndexes() throws SQLException {
+        dictionary.createDeferredIndexes();
+        conn.commit();
+    }
+
+    
+    @Override
+    public void close() throws SQLException {
+        try {
+            if (!finished) {
+                // Keep what was loaded and never leave a partition without its indexes
+                commit();
+                createDeferredIndexes();
+            }
+            dictionary.close();
+        } finally {
+            conn.setAutoCommit(true);
+            conn.close();
+        }
+    }
+}
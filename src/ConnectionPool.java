@@ -0,0 +1,359 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class ConnectionPool implements AutoCloseable {
+
+    private static final int STATEMENT_CACHE_SIZE = 64;
+    private static final long BORROW_TIMEOUT_MS = 30_000;
+    // How long a statement waits for another connection's write lock before failing with SQLITE_BUSY
+    private static final int BUSY_TIMEOUT_MS = 5_000;
+    private static final Metrics.Histogram OPEN_LATENCY =
+        Metrics.histogram("logiq_connection_open_seconds", "Time to open a physical database connection.");
+
+    private final String url;
+    private final int maxSize;
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private final List<PooledConnection> all = new ArrayList<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private boolean closed;
+
+    private final LongAdder borrows = new LongAdder();
+    private final LongAdder waits = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+
+    
+    public ConnectionPool(String url, int maxSize) {
+        this.url = url;
+        this.maxSize = Math.max(1, maxSize);
+    }
+
+    
+    // The returned connection goes back to the pool on close()
+    public Connection borrow() throws SQLException {
+        PooledConnection pooled = acquire();
+        borrows.increment();
+        return (Connection) Proxy.newProxyInstance(
+            Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, new ConnectionHandler(pooled));
+    }
+
+    
+    private PooledConnection acquire() throws SQLException {
+        lock.lock();
+        try {
+            boolean waited = false;
+            long remaining = TimeUnit.MILLISECONDS.toNanos(BORROW_TIMEOUT_MS);
+            while (true) {
+                if (closed) {
+                    throw new SQLException("Connection pool is closed");
+                }
+                PooledConnection pooled = idle.pollFirst();
+                if (pooled != null) {
+                    if (!pooled.physical.isClosed()) {
+                        return pooled;
+                    }
+                    all.remove(pooled);
+                    continue;
+                }
+                if (all.size() < maxSize) {
+                    long started = Metrics.startTimer();
+                    pooled = new PooledConnection(open());
+                    OPEN_LATENCY.observeSince(started);
+                    all.add(pooled);
+                    return pooled;
+                }
+                if (!waited) {
+                    waits.increment();
+                    waited = true;
+                }
+                if (remaining <= 0) {
+                    throw new SQLException("Timed out waiting for a database connection");
+                }
+                remaining = available.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Connection open() throws SQLException {
+        Connection conn = DriverManager.getConnection(url);
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA busy_timeout = " + BUSY_TIMEOUT_MS);
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+        return conn;
+    }
+
+    private void release(PooledConnection pooled) {
+        try {
+            if (!pooled.physical.getAutoCommit()) {
+                pooled.physical.rollback();
+                pooled.physical.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            discard(pooled);
+            return;
+        }
+        lock.lock();
+        try {
+            if (closed) {
+                pooled.closeQuietly();
+                return;
+            }
+            idle.addFirst(pooled);
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void discard(PooledConnection pooled) {
+        pooled.closeQuietly();
+        lock.lock();
+        try {
+            all.remove(pooled);
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    
+    public long getBorrows() {
+        return borrows.sum();
+    }
+
+    public long getWaits() {
+        return waits.sum();
+    }
+
+    public long getStatementCacheHits() {
+        return cacheHits.sum();
+    }
+
+    public long getStatementCacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    public int getOpenConnections() {
+        lock.lock();
+        try {
+            return all.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("connections=%d/%d borrows=%d waits=%d statementCacheHits=%d statementCacheMisses=%d",
+            getOpenConnections(), maxSize, getBorrows(), getWaits(), getStatementCacheHits(), getStatementCacheMisses());
+    }
+
+    
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            for (PooledConnection pooled : idle) {
+                pooled.closeQuietly();
+            }
+            idle.clear();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    
+    private class PooledConnection {
+        final Connection physical;
+        // Access-ordered so the least recently used statement is evicted first
+        final Map<String, PreparedStatement> statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() > STATEMENT_CACHE_SIZE && !inUse.containsKey(eldest.getValue())) {
+                    closeQuietly(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+        final Map<PreparedStatement, StatementHandler> inUse = new IdentityHashMap<>();
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        // connection is the borrower's proxy, which the statement hands out from getConnection()
+        PreparedStatement prepare(String sql, Connection connection) throws SQLException {
+            PreparedStatement cached = statements.get(sql);
+            if (cached != null && !inUse.containsKey(cached)) {
+                cacheHits.increment();
+            } else {
+                cacheMisses.increment();
+                PreparedStatement fresh = physical.prepareStatement(sql);
+                if (cached != null) {
+                    // Same SQL already open in this borrow: hand out an uncached statement
+                    return fresh;
+                }
+                statements.put(sql, fresh);
+                cached = fresh;
+            }
+            StatementHandler handler = new StatementHandler(this, cached, connection);
+            inUse.put(cached, handler);
+            return (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(), new Class<?>[] { PreparedStatement.class }, handler);
+        }
+
+        void closeQuietly() {
+            for (PreparedStatement stmt : statements.values()) {
+                closeQuietly(stmt);
+            }
+            statements.clear();
+            try {
+                physical.close();
+            } catch (SQLException ignored) {
+                // already unusable
+            }
+        }
+
+        void closeQuietly(Statement stmt) {
+            try {
+                stmt.close();
+            } catch (SQLException ignored) {
+                // already unusable
+            }
+        }
+    }
+
+    
+    private class ConnectionHandler implements InvocationHandler {
+        private final PooledConnection pooled;
+        private boolean returned;
+
+        ConnectionHandler(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("close")) {
+                if (!returned) {
+                    returned = true;
+                    // Statements left open by the caller are reset for the next borrower
+                    for (StatementHandler handler : new ArrayList<>(pooled.inUse.values())) {
+                        handler.giveBack();
+                    }
+                    release(pooled);
+                }
+                return null;
+            }
+            if (name.equals("isClosed")) {
+                return returned || pooled.physical.isClosed();
+            }
+            if (returned) {
+                throw new SQLException("Connection has been returned to the pool");
+            }
+            if (name.equals("prepareStatement") && args.length == 1) {
+                return pooled.prepare((String) args[0], (Connection) proxy);
+            }
+            try {
+                return method.invoke(pooled.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    
+    private class StatementHandler implements InvocationHandler {
+        private final PooledConnection pooled;
+        private final PreparedStatement target;
+        private final Connection connection;
+        private ResultSet lastResult;
+        private boolean closed;
+
+        StatementHandler(PooledConnection pooled, PreparedStatement target, Connection connection) {
+            this.pooled = pooled;
+            this.target = target;
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("close")) {
+                giveBack();
+                return null;
+            }
+            if (name.equals("isClosed")) {
+                return closed;
+            }
+            if (closed) {
+                throw new SQLException("Statement is closed");
+            }
+            if (name.equals("getConnection")) {
+                // Not the physical connection, which the caller could close or keep using after returning it
+                return connection;
+            }
+            try {
+                Object result = method.invoke(target, args);
+                if (result instanceof ResultSet) {
+                    lastResult = (ResultSet) result;
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        // Closes the open result and returns the statement to the cache instead of closing it
+        void giveBack() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                if (lastResult != null) {
+                    lastResult.close();
+                }
+                target.clearBatch();
+                target.clearParameters();
+            } catch (SQLException e) {
+                pooled.statements.values().remove(target);
+                pooled.closeQuietly(target);
+            }
+            lastResult = null;
+            pooled.inUse.remove(target);
+        }
+    }
+}
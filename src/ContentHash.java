@@ -0,0 +1,58 @@
+// 64-bit hash of a log entry's content, stored in logs.content_hash as the deduplication key.
+// The value is persisted, so the definition must never change: MurmurHash3-style mixing of the
+// timestamp and of each text field as UTF-16 code units, four per word, followed by its length.
+// With 64 bits the chance of any collision stays below 1 in 300,000 up to 10 million rows.
+public final class ContentHash {
+
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+    private static final long SEED = 0x9e3779b97f4a7c15L;
+    private static final long NULL_FIELD = -1L;
+
+    private ContentHash() {
+    }
+
+    
+    public static long of(long timestampMillis, String level, String message, String rootCause) {
+        long h = mix(SEED, timestampMillis);
+        h = mix(h, level);
+        h = mix(h, message);
+        h = rootCause == null ? mix(h, NULL_FIELD) : mix(h, rootCause);
+        return finish(h);
+    }
+
+    
+    private static long mix(long h, String field) {
+        int length = field.length();
+        int i = 0;
+        for (; i + 4 <= length; i += 4) {
+            h = mix(h, field.charAt(i)
+                | (long) field.charAt(i + 1) << 16
+                | (long) field.charAt(i + 2) << 32
+                | (long) field.charAt(i + 3) << 48);
+        }
+        long tail = 0;
+        for (int shift = 0; i < length; i++, shift += 16) {
+            tail |= (long) field.charAt(i) << shift;
+        }
+        // The length ends the field, so ("ab", "c") and ("a", "bc") hash differently
+        return mix(mix(h, tail), length);
+    }
+
+    private static long mix(long h, long k) {
+        k *= C1;
+        k = Long.rotateLeft(k, 31);
+        k *= C2;
+        h ^= k;
+        return Long.rotateLeft(h, 27) * 5 + 0x52dce729;
+    }
+
+    private static long finish(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -1,5 +1,6 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.Statement;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -28,229 +29,416 @@ public class DatabaseManager {
         if (e != null) LOGGER.severe(e.toString());
     }
     
-    private static final String ANSI_RESET = "\u001B[0m";
-    private static final String ANSI_GREEN = "\u001B[32m";
-    private static final String ANSI_YELLOW = "\u001B[33m";
-    private static final String ANSI_RED = "\u001B[31m";
+    // Pages are small, so they are gathered into rows first; see printLogs for streaming
+    private static void printRows(java.util.List<LogRow> rows) {
+        try (LogSink sink = LogSink.console()) {
+            for (LogRow row : rows) {
+                writeRow(sink, row);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // System.out records errors instead of throwing
+        }
+    }
+
+    private record CachedPage(java.util.List<LogRow> rows, Page page) {
+    }
 
     
-    private static String colorLevel(String level) {
-        switch (level) {
-            case "INFO": return ANSI_GREEN + level + ANSI_RESET;
-            case "WARN": return ANSI_YELLOW + level + ANSI_RESET;
-            case "ERROR": return ANSI_RED + level + ANSI_RESET;
-            default: return level;
-        }
+    // Streams the rows of query in its key order (see LogQuery); the caller closes the cursor, which holds a
+    // pooled connection until then
+    public static LogCursor openCursor(LogQuery query) throws SQLException {
+        return new LogCursor(connect(), query, null, Integer.MAX_VALUE);
     }
 
     
-    private static void printLogEntry(ResultSet rs) throws SQLException {
-    int id = rs.getInt("id");
-    String timestamp = rs.getString("timestamp");
-    String level = rs.getString("level");
-    String message = rs.getString("message");
-    String rootCause = rs.getString("root_cause");
-    System.out.printf("ID: %d | Time: %s | Level: %s | Msg: %s | RootCause: %s%n",
-        id, timestamp, colorLevel(level), message, rootCause);
+    public static Page searchPaginated(LogQuery query, int limit, String pageToken) {
+        return queryPage(SEARCH_PAGINATED, query, limit, pageToken,
+            "🔎 Logs where " + query.describe() + " (page):",
+            "Could not search logs. Please try again or check your database connection.");
     }
 
     
-    public static int fetchLogsPaginated(int limit, int offset) {
-        String selectSQL = "SELECT * FROM logs LIMIT ? OFFSET ?";
-        int count = 0;
-        try (Connection conn = connect();
-             PreparedStatement pstmt = conn.prepareStatement(selectSQL)) {
-            pstmt.setInt(1, limit);
-            pstmt.setInt(2, offset);
-            ResultSet rs = pstmt.executeQuery();
-            System.out.println("📜 Logs (page):");
-            while (rs.next()) {
-                printLogEntry(rs);
-                count++;
-            }
-        } catch (SQLException e) {
-            handleError("Could not fetch logs. Please try again or check your database connection.", e);
+    public static Page fetchLogsPaginated(int limit, String pageToken) {
+        return queryPage(FETCH_LOGS_PAGINATED, LogQuery.ALL, limit, pageToken,
+            "📜 Logs (page):",
+            "Could not fetch logs. Please try again or check your database connection.");
+    }
+
+    
+    public static Page searchLogsByLevelPaginated(String level, int limit, String pageToken) {
+        return queryPage(LEVEL_PAGINATED, LogQuery.builder().level(level).build(), limit, pageToken,
+            "📌 Logs with level = " + level + " (page):",
+            "Could not search logs by level. Please try again or check your database connection.");
+    }
+
+    
+    public static Page searchLogsByMessagePaginated(String keyword, int limit, String pageToken) {
+        LogQuery query = LogQuery.builder().message(keyword).build();
+        if (query.isEmpty()) {
+            return fetchLogsPaginated(limit, pageToken);
         }
-        return count;
+        return queryPage(MESSAGE_PAGINATED, query, limit, pageToken,
+            "🔍 Logs with message containing '" + keyword + "' (page):",
+            "Could not search logs by message. Please try again or check your database connection.");
     }
 
     
-    public static int searchLogsByLevelPaginated(String level, int limit, int offset) {
-        String searchSQL = "SELECT * FROM logs WHERE level = ? LIMIT ? OFFSET ?";
-        int count = 0;
-        try (Connection conn = connect();
-             PreparedStatement pstmt = conn.prepareStatement(searchSQL)) {
-            pstmt.setString(1, level);
-            pstmt.setInt(2, limit);
-            pstmt.setInt(3, offset);
-            ResultSet rs = pstmt.executeQuery();
-            System.out.println("📌 Logs with level = " + level + " (page):");
-            while (rs.next()) {
-                printLogEntry(rs);
-                count++;
-            }
-        } catch (SQLException e) {
-            handleError("Could not search logs by level. Please try again or check your database connection.", e);
+    public static Page searchLogsByRootCausePaginated(String rootCauseKeyword, int limit, String pageToken) {
+        LogQuery query = LogQuery.builder().rootCause(rootCauseKeyword).build();
+        if (query.isEmpty()) {
+            return fetchLogsPaginated(limit, pageToken);
         }
-        return count;
+        return queryPage(ROOT_CAUSE_PAGINATED, query, limit, pageToken,
+            "🔍 Logs with root cause containing '" + rootCauseKeyword + "' (page):",
+            "Could not search logs by root cause. Please try again or check your database connection.");
     }
 
     
-    public static int searchLogsByMessagePaginated(String keyword, int limit, int offset) {
-        String searchSQL = "SELECT * FROM logs WHERE message LIKE ? LIMIT ? OFFSET ?";
-        int count = 0;
-        try (Connection conn = connect();
-             PreparedStatement pstmt = conn.prepareStatement(searchSQL)) {
-            pstmt.setString(1, "%" + keyword + "%");
-            pstmt.setInt(2, limit);
-            pstmt.setInt(3, offset);
-            ResultSet rs = pstmt.executeQuery();
-            System.out.println("🔍 Logs with message containing '" + keyword + "' (page):");
-            while (rs.next()) {
-                printLogEntry(rs);
-                count++;
-            }
-        } catch (SQLException e) {
-            handleError("Could not search logs by message. Please try again or check your database connection.", e);
+    public static Page searchLogsByDateRangePaginated(String start, String end, int limit, String pageToken) {
+        LogQuery query = dateRange(start, end);
+        if (query == null) {
+            return new Page(0, null, null);
         }
-        return count;
+        return queryPage(DATE_RANGE_PAGINATED, query, limit, pageToken,
+            "🔍 Logs from " + start + " to " + end + " (page):",
+            "Could not search logs by date range. Please try again or check your database connection.");
     }
 
     
-    public static int searchLogsByRootCausePaginated(String rootCauseKeyword, int limit, int offset) {
-        String searchSQL = "SELECT * FROM logs WHERE root_cause LIKE ? LIMIT ? OFFSET ?";
-        int count = 0;
-        try (Connection conn = connect();
-             PreparedStatement pstmt = conn.prepareStatement(searchSQL)) {
-            pstmt.setString(1, "%" + rootCauseKeyword + "%");
-            pstmt.setInt(2, limit);
-            pstmt.setInt(3, offset);
-            ResultSet rs = pstmt.executeQuery();
-            System.out.println("🔍 Logs with root cause containing '" + rootCauseKeyword + "' (page):");
-            while (rs.next()) {
-                printLogEntry(rs);
-                count++;
+    public static Page searchLogsByTemplatePaginated(int templateId, int limit, String pageToken) {
+        return queryPage(TEMPLATE_PAGINATED, LogQuery.builder().template(templateId).build(), limit, pageToken,
+            "🧬 Logs with template #" + templateId + " (page):",
+            "Could not search logs by template. Please try again or check your database connection.");
+    }
+
+    // Null, after telling the user, if either bound is not a timestamp
+    private static LogQuery dateRange(String start, String end) {
+        try {
+            return LogQuery.builder().between(LogTimestamps.parse(start), LogTimestamps.parse(end)).build();
+        } catch (IllegalArgumentException e) {
+            handleError("Invalid date range. Use YYYY-MM-DD HH:MM:SS or YYYY-MM-DD.", e);
+            return null;
+        }
+    }
+
+    
+    // Reads the counts kept in log_templates, so the cost depends on the number of templates, not of rows
+    public static void printTopTemplates(int limit) {
+        long started = Metrics.startTimer();
+        try {
+            try (Connection conn = connect();
+                 PreparedStatement pstmt = conn.prepareStatement(TOP_TEMPLATES_SQL)) {
+                pstmt.setInt(1, limit);
+                ResultSet rs = pstmt.executeQuery();
+                System.out.println("🧬 Top " + limit + " message templates:");
+                while (rs.next()) {
+                    System.out.printf("  #%-6d %8d  %s%n", rs.getInt("id"), rs.getLong("count"), rs.getString("template"));
+                }
+            } catch (SQLException e) {
+                handleError("Could not list message templates. Please try again or check your database connection.", e);
             }
-        } catch (SQLException e) {
-            handleError("Could not search logs by root cause. Please try again or check your database connection.", e);
+        } finally {
+            TOP_TEMPLATES.observeSince(started);
         }
-        return count;
     }
 
+    static final String TOP_TEMPLATES_SQL = "SELECT id, template, count FROM log_templates ORDER BY count DESC, id LIMIT ?";
+
     
-    public static int searchLogsByDateRangePaginated(String start, String end, int limit, int offset) {
-        String searchSQL = "SELECT * FROM logs WHERE timestamp >= ? AND timestamp <= ? ORDER BY timestamp LIMIT ? OFFSET ?";
-        int count = 0;
-        try (Connection conn = connect();
-             PreparedStatement pstmt = conn.prepareStatement(searchSQL)) {
-            pstmt.setString(1, start);
-            pstmt.setString(2, end);
-            pstmt.setInt(3, limit);
-            pstmt.setInt(4, offset);
-            ResultSet rs = pstmt.executeQuery();
-            System.out.println("🔍 Logs from " + start + " to " + end + " (page):");
-            while (rs.next()) {
-                printLogEntry(rs);
-                count++;
+    // Keyset pagination: seeks past the token's (timestamp, id) key instead of counting OFFSET rows, reading
+    // days in key order from the cursor's day until the page is full (see LogCursor)
+    private static Page queryPage(Metrics.Histogram latency, LogQuery query, int limit, String pageToken, String header,
+                                  String errorMessage) {
+        long started = Metrics.startTimer();
+        try {
+            Page.Cursor cursor;
+            try {
+                cursor = Page.decodeToken(pageToken);
+            } catch (IllegalArgumentException e) {
+                handleError("Invalid page token. Starting from the first page.", e);
+                cursor = null;
             }
-        } catch (SQLException e) {
-            handleError("Could not search logs by date range. Please try again or check your database connection.", e);
+            boolean forward = cursor == null || cursor.forward;
+
+            // The query's predicates with the limit and the decoded cursor name the page
+            String cacheKey = query.cacheKey() + "|" + limit + "|"
+                + (cursor == null ? "" : (forward ? "a" : "b") + cursor.timestamp + "," + cursor.id);
+            CachedPage cached = RESULT_CACHE.get(cacheKey);
+            if (cached != null) {
+                System.out.println(header);
+                printRows(cached.rows());
+                return cached.page();
+            }
+            long generation = RESULT_CACHE.generation();
+
+            java.util.LinkedList<LogRow> rows = new java.util.LinkedList<>();
+            try (LogCursor logs = new LogCursor(connect(), query, cursor, limit)) {
+                while (logs.hasNext()) {
+                    // Backward, rows come nearest the cursor first
+                    if (forward) {
+                        rows.addLast(logs.next());
+                    } else {
+                        rows.addFirst(logs.next());
+                    }
+                }
+                System.out.println(header);
+                printRows(rows);
+            } catch (SQLException | IllegalStateException e) {
+                handleError(errorMessage, e);
+                return rows.isEmpty() ? new Page(0, null, null) : toPage(rows, cursor, forward, limit);
+            }
+
+            Page page = toPage(rows, cursor, forward, limit);
+            long bytes = rows.stream().mapToLong(LogRow::estimatedBytes).sum();
+            RESULT_CACHE.put(cacheKey, new CachedPage(java.util.List.copyOf(rows), page), bytes,
+                query.getFrom() == null ? ResultCache.ALL_FROM : query.getFrom(),
+                query.getTo() == null ? ResultCache.ALL_TO : query.getTo(), generation);
+            return page;
+        } finally {
+            latency.observeSince(started);
         }
-        return count;
     }
 
+    private static Page toPage(java.util.LinkedList<LogRow> rows, Page.Cursor cursor, boolean forward, int limit) {
+        if (rows.isEmpty()) {
+            return new Page(0, null, null);
+        }
+        // A short backward page means the start has been reached
+        boolean hasPrev = cursor != null && (forward || rows.size() == limit);
+        LogRow first = rows.getFirst();
+        LogRow last = rows.getLast();
+        return new Page(rows.size(),
+            Page.encodeToken(true, last.ts(), last.id()),
+            hasPrev ? Page.encodeToken(false, first.ts(), first.id()) : null);
+    }
 
+    
+    public static void fetchLogs() {
+        printLogs(FETCH_LOGS, LogQuery.ALL, "📜 All Logs:", null,
+            "Could not fetch logs. Please try again or check your database connection.");
+    }
+
+    
+    public static void searchLogsByLevel(String level) {
+        printLogs(LEVEL_SEARCH, LogQuery.builder().level(level).build(), "📌 Logs with level = " + level + ":",
+            "⚠️ No logs found for level: " + level,
+            "Could not search logs by level. Please try again or check your database connection.");
+    }
 
     
     public static void searchLogsByMessage(String keyword) {
-        String searchSQL = "SELECT * FROM logs WHERE message LIKE ?";
-        try (Connection conn = connect();
-             PreparedStatement pstmt = conn.prepareStatement(searchSQL)) {
-            pstmt.setString(1, "%" + keyword + "%");
-            ResultSet rs = pstmt.executeQuery();
-            System.out.println("🔍 Logs with message containing '" + keyword + "':");
-            boolean found = false;
-            while (rs.next()) {
-                found = true;
-                int id = rs.getInt("id");
-                String timestamp = rs.getString("timestamp");
-                String level = rs.getString("level");
-                String message = rs.getString("message");
-                String rootCause = rs.getString("root_cause");
-        System.out.printf("ID: %d | Time: %s | Level: %s | Msg: %s | RootCause: %s%n",
-            id, timestamp, colorLevel(level), message, rootCause);
-            }
-            if (!found) {
-                System.out.println("⚠️ No logs found containing: " + keyword);
-            }
-        } catch (SQLException e) {
-            System.err.println("Error searching logs by message: " + e.getMessage());
+        LogQuery query = LogQuery.builder().message(keyword).build();
+        if (query.isEmpty()) {
+            fetchLogs();
+            return;
         }
+        printLogs(MESSAGE_SEARCH, query, "🔍 Logs with message containing '" + keyword + "':",
+            "⚠️ No logs found containing: " + keyword,
+            "Could not search logs by message. Please try again or check your database connection.");
     }
 
     
     public static void searchLogsByRootCause(String rootCauseKeyword) {
-        String searchSQL = "SELECT * FROM logs WHERE root_cause LIKE ?";
-        try (Connection conn = connect();
-             PreparedStatement pstmt = conn.prepareStatement(searchSQL)) {
-            pstmt.setString(1, "%" + rootCauseKeyword + "%");
-            ResultSet rs = pstmt.executeQuery();
-            System.out.println("🔍 Logs with root cause containing '" + rootCauseKeyword + "':");
-            boolean found = false;
-            while (rs.next()) {
-                found = true;
-                int id = rs.getInt("id");
-                String timestamp = rs.getString("timestamp");
-                String level = rs.getString("level");
-                String message = rs.getString("message");
-                String rootCause = rs.getString("root_cause");
-        System.out.printf("ID: %d | Time: %s | Level: %s | Msg: %s | RootCause: %s%n",
-            id, timestamp, colorLevel(level), message, rootCause);
+        LogQuery query = LogQuery.builder().rootCause(rootCauseKeyword).build();
+        if (query.isEmpty()) {
+            fetchLogs();
+            return;
+        }
+        printLogs(ROOT_CAUSE_SEARCH, query, "🔍 Logs with root cause containing '" + rootCauseKeyword + "':",
+            "⚠️ No logs found for root cause: " + rootCauseKeyword,
+            "Could not search logs by root cause. Please try again or check your database connection.");
+    }
+
+    
+    public static void searchLogsByDateRange(String start, String end) {
+        LogQuery query = dateRange(start, end);
+        if (query == null) {
+            return;
+        }
+        printLogs(DATE_RANGE_SEARCH, query, "🔍 Logs from " + start + " to " + end + ":",
+            "⚠️ No logs found in the specified date range.",
+            "Could not search logs by date range. Please try again or check your database connection.");
+    }
+
+    
+    // Streams every row of query to the console; emptyMessage, unless null, is printed if there were none
+    private static void printLogs(Metrics.Histogram latency, LogQuery query, String header, String emptyMessage,
+                                  String errorMessage) {
+        long started = Metrics.startTimer();
+        try (LogCursor logs = openCursor(query)) {
+            System.out.println(header);
+            long rows;
+            try (LogSink sink = LogSink.console()) {
+                while (logs.hasNext()) {
+                    writeRow(sink, logs.next());
+                }
+                rows = sink.getRows();
             }
-            if (!found) {
-                System.out.println("⚠️ No logs found for root cause: " + rootCauseKeyword);
+            if (rows == 0 && emptyMessage != null) {
+                System.out.println(emptyMessage);
             }
-        } catch (SQLException e) {
-            System.err.println("Error searching logs by root cause: " + e.getMessage());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // System.out records errors instead of throwing
+        } catch (SQLException | IllegalStateException e) {
+            handleError(errorMessage, e);
+        } finally {
+            latency.observeSince(started);
         }
     }
 
+    private static void writeRow(LogSink sink, LogRow row) throws IOException {
+        sink.write(row.id(), row.ts(), row.level(), row.message(), row.rootCause());
+    }
+
+    private static void writeSealed(LogSink sink, LogSegment segment, int row) throws IOException {
+        sink.write(segment.id(row), segment.ts(row), segment.level(row), segment.message(row), segment.rootCause(row));
+    }
+
+    // Days with a partition, a sealed segment or both, in ascending order
+    private static java.util.List<Integer> allDays(Connection conn, int fromDay, int toDay) throws SQLException {
+        java.util.TreeSet<Integer> days = new java.util.TreeSet<>(LogPartitions.days(conn, fromDay, toDay));
+        days.addAll(LogSegments.days(conn, fromDay, toDay));
+        return new java.util.ArrayList<>(days);
+    }
+
     
-    public static void searchLogsByDateRange(String start, String end) {
-        String searchSQL = "SELECT * FROM logs WHERE timestamp >= ? AND timestamp <= ? ORDER BY timestamp";
+    // Streams every log in id order to a file in the given format. Partitions are read straight from their tables
+    // and levels and root causes decoded from dictionaries loaded once, so no row goes through the views' joins.
+    // A sealed day's segment comes before its partition, whose ids start after the segment's.
+    public static void exportLogs(String path, LogSink.Format format) {
+        long started = Metrics.startTimer();
+        long rows;
         try (Connection conn = connect();
-             PreparedStatement pstmt = conn.prepareStatement(searchSQL)) {
-            pstmt.setString(1, start);
-            pstmt.setString(2, end);
-            ResultSet rs = pstmt.executeQuery();
-            System.out.println("🔍 Logs from " + start + " to " + end + ":");
-            boolean found = false;
-            while (rs.next()) {
-                found = true;
-                int id = rs.getInt("id");
-                String timestamp = rs.getString("timestamp");
-                String level = rs.getString("level");
-                String message = rs.getString("message");
-                String rootCause = rs.getString("root_cause");
-        System.out.printf("ID: %d | Time: %s | Level: %s | Msg: %s | RootCause: %s%n",
-            id, timestamp, colorLevel(level), message, rootCause);
+             LogSink sink = LogSink.open(java.nio.file.Paths.get(path), format)) {
+            String[] levels = loadNames(conn, "log_levels");
+            String[] rootCauses = loadNames(conn, "root_causes");
+            java.util.Set<Integer> partitions = new java.util.HashSet<>(LogPartitions.days(conn));
+            for (int day : allDays(conn, 0, Integer.MAX_VALUE)) {
+                LogSegment segment = LogSegments.get(conn, day);
+                for (int row = 0; segment != null && row < segment.getRows(); row++) {
+                    writeSealed(sink, segment, row);
+                }
+                if (!partitions.contains(day)) {
+                    continue;
+                }
+                try (PreparedStatement pstmt = conn.prepareStatement("SELECT id, ts, level_id, message, root_cause_id FROM "
+                         + LogPartitions.table(day) + " ORDER BY id")) {
+                    ResultSet rs = pstmt.executeQuery();
+                    while (rs.next()) {
+                        // A NULL root_cause_id reads as 0, which no root cause uses
+                        sink.write(rs.getLong(1), rs.getLong(2), levels[rs.getInt(3)], rs.getString(4),
+                            rootCauses[rs.getInt(5)]);
+                    }
+                }
             }
-            if (!found) {
-                System.out.println("⚠️ No logs found in the specified date range.");
+            rows = sink.getRows();
+        } catch (SQLException | IOException e) {
+            handleError("Could not export logs. Please check the file path and your database connection.", e);
+            return;
+        } finally {
+            EXPORT_LOGS.observeSince(started);
+        }
+        // After the sink is closed, so the time includes writing out its last buffer
+        double seconds = Math.max(System.nanoTime() - started, 1) / 1_000_000_000.0;
+        System.out.printf("✅ Exported %d logs to %s in %.2fs (%.0f rows/s)%n", rows, path, seconds, rows / seconds);
+    }
+
+    // Names of a dictionary table indexed by id
+    static String[] loadNames(Connection conn, String table) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            ResultSet rs = stmt.executeQuery("SELECT IFNULL(MAX(id), 0) FROM " + table);
+            String[] names = new String[rs.getInt(1) + 1];
+            rs = stmt.executeQuery("SELECT id, name FROM " + table);
+            while (rs.next()) {
+                names[rs.getInt(1)] = rs.getString(2);
             }
-        } catch (SQLException e) {
-            System.err.println("Error searching logs by date range: " + e.getMessage());
+            return names;
         }
     }
 
-    private static final String DB_URL = "jdbc:sqlite:db/logiq.db";
+    private static final String DB_URL = "jdbc:sqlite:" + System.getProperty("logiq.db", "db/logiq.db");
+    private static final int POOL_SIZE = 8;
+    private static final ConnectionPool POOL = new ConnectionPool(DB_URL, POOL_SIZE);
+    // Loaded by createLogsTable; null until then, which leaves deduplication to the database alone
+    private static volatile DuplicateFilter duplicateFilter;
+    // Also loaded by createLogsTable; until then entries are stored without a template
+    private static volatile TemplateMiner templateMiner;
+    // Watches the entries the writers store for bursts; created by createLogsTable, null if turned off
+    private static volatile AnomalyDetector anomalyDetector;
+    // Pages of the paginated searches; writers invalidate it after each commit (0 MB disables it)
+    private static final ResultCache<CachedPage> RESULT_CACHE =
+        new ResultCache<>(Long.getLong("logiq.cache.mb", 16) * 1024 * 1024);
+
+    // Latency per query method, cache hits included
+    private static final Metrics.Histogram SEARCH_PAGINATED = queryLatency("searchPaginated");
+    private static final Metrics.Histogram FETCH_LOGS_PAGINATED = queryLatency("fetchLogsPaginated");
+    private static final Metrics.Histogram LEVEL_PAGINATED = queryLatency("searchLogsByLevelPaginated");
+    private static final Metrics.Histogram MESSAGE_PAGINATED = queryLatency("searchLogsByMessagePaginated");
+    private static final Metrics.Histogram ROOT_CAUSE_PAGINATED = queryLatency("searchLogsByRootCausePaginated");
+    private static final Metrics.Histogram DATE_RANGE_PAGINATED = queryLatency("searchLogsByDateRangePaginated");
+    private static final Metrics.Histogram TEMPLATE_PAGINATED = queryLatency("searchLogsByTemplatePaginated");
+    private static final Metrics.Histogram FETCH_LOGS = queryLatency("fetchLogs");
+    private static final Metrics.Histogram LEVEL_SEARCH = queryLatency("searchLogsByLevel");
+    private static final Metrics.Histogram MESSAGE_SEARCH = queryLatency("searchLogsByMessage");
+    private static final Metrics.Histogram ROOT_CAUSE_SEARCH = queryLatency("searchLogsByRootCause");
+    private static final Metrics.Histogram DATE_RANGE_SEARCH = queryLatency("searchLogsByDateRange");
+    private static final Metrics.Histogram TOP_TEMPLATES = queryLatency("printTopTemplates");
+    private static final Metrics.Histogram LOAD_CHECKPOINT = queryLatency("loadCheckpoint");
+    private static final Metrics.Histogram LOAD_MANIFEST_ENTRY = queryLatency("loadManifestEntry");
+    private static final Metrics.Histogram EXPORT_LOGS = queryLatency("exportLogs");
+    private static final Metrics.Histogram SINGLE_COMMIT = commitLatency("single");
+    private static final Metrics.Histogram FOLLOW_COMMIT = commitLatency("follow");
+
+    private static Metrics.Histogram queryLatency(String method) {
+        return Metrics.histogram("logiq_query_seconds", "Latency of DatabaseManager queries, by method.", "method", method);
+    }
+
+    // writer is bulk (BulkLoader), follow (insertLogsBatch with a checkpoint) or single (insertLog)
+    static Metrics.Histogram commitLatency(String writer) {
+        return Metrics.histogram("logiq_commit_seconds", "Latency of write transactions, from first write to commit.",
+            "writer", writer);
+    }
 
     
+    // Pooled; closing the connection returns it to the pool with its prepared statements cached
     public static Connection connect() throws SQLException {
-        return DriverManager.getConnection(DB_URL);
+        return POOL.borrow();
     }
 
     
+    public static ConnectionPool getPool() {
+        return POOL;
+    }
+
+    public static DuplicateFilter getDuplicateFilter() {
+        return duplicateFilter;
+    }
+
+    public static TemplateMiner getTemplateMiner() {
+        return templateMiner;
+    }
+
+    public static AnomalyDetector getAnomalyDetector() {
+        return anomalyDetector;
+    }
+
+    public static ResultCache<?> getResultCache() {
+        return RESULT_CACHE;
+    }
+
+    public static void shutdown() {
+        System.out.println("🔌 Connection pool: " + POOL);
+        System.out.println("🗃️ Result cache: " + RESULT_CACHE);
+        if (anomalyDetector != null) {
+            System.out.println("🚨 Anomaly detector: " + anomalyDetector);
+        }
+        POOL.close();
+        Metrics.exportOnExit();
+    }
+
+    
+    // Creates the original (version 0) schema unless the database is already partitioned; SchemaMigrator then
+    // brings it up to date
     public static void createLogsTable() {
         String createTableSQL = """
             CREATE TABLE IF NOT EXISTS logs (
@@ -263,10 +451,73 @@ public class DatabaseManager {
             );
         """;
 
+        String createCheckpointsSQL = """
+            CREATE TABLE IF NOT EXISTS ingest_checkpoints (
+                path TEXT PRIMARY KEY,
+                file_key TEXT NOT NULL,
+                byte_offset INTEGER NOT NULL,
+                updated_at TEXT NOT NULL
+            );
+        """;
+
+        // Contentless full-text index over message and root_cause, keyed by logs.id. Inserts are indexed by
+        // syncFullTextIndex in each writing transaction; updates and deletes are kept in sync by triggers.
+        String createFtsSQL =
+            "CREATE VIRTUAL TABLE logs_fts USING fts5(message, root_cause, content='', contentless_delete=1)";
+        String[] ftsTriggersSQL = {
+            """
+            CREATE TRIGGER IF NOT EXISTS logs_fts_delete AFTER DELETE ON logs BEGIN
+                DELETE FROM logs_fts WHERE rowid = old.id;
+            END;
+            """,
+            """
+            CREATE TRIGGER IF NOT EXISTS logs_fts_update AFTER UPDATE OF message, root_cause ON logs BEGIN
+                DELETE FROM logs_fts WHERE rowid = old.id;
+                INSERT INTO logs_fts (rowid, message, root_cause) VALUES (new.id, new.message, new.root_cause);
+            END;
+            """
+        };
+
         try (Connection conn = connect();
              Statement stmt = conn.createStatement()) {
-            stmt.execute(createTableSQL);
-            System.out.println("✅ logs table is ready.");
+            stmt.execute(createCheckpointsSQL);
+            if (SchemaMigrator.currentVersion(conn) < SchemaMigrator.PARTITIONED_VERSION) {
+                // The partitioning migration indexes every row, including any stored before logs_fts existed
+                stmt.execute(createTableSQL);
+                boolean ftsExists;
+                try (ResultSet rs = stmt.executeQuery("SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = 'logs_fts'")) {
+                    ftsExists = rs.next();
+                }
+                conn.setAutoCommit(false);
+                if (!ftsExists) {
+                    stmt.execute(createFtsSQL);
+                }
+                for (String triggerSQL : ftsTriggersSQL) {
+                    stmt.execute(triggerSQL);
+                }
+                conn.commit();
+                conn.setAutoCommit(true);
+            }
+            SchemaMigrator.migrate(conn);
+            java.util.List<Integer> days = LogPartitions.days(conn);
+            for (int day : days) {
+                // Partitions whose bulk load was interrupted before their indexes were built
+                LogPartitions.createSecondaryIndexes(conn, day);
+            }
+            LogPartitions.applyRetention(conn);
+            LogSegments.applySealPolicy(conn);
+            System.out.println("✅ logs table is ready (" + LogPartitions.days(conn).size() + " day partitions, "
+                + LogSegments.all(conn).size() + " sealed days).");
+            duplicateFilter = DuplicateFilter.load(conn);
+            System.out.println("🧮 Duplicate filter loaded: " + duplicateFilter);
+            templateMiner = TemplateMiner.load(conn);
+            System.out.println("🧬 Template miner loaded: " + templateMiner.size() + " templates");
+            if (anomalyDetector == null) {
+                anomalyDetector = AnomalyDetector.fromSystemProperties();
+            }
+            for (String problem : QueryPlanCheck.run(conn)) {
+                handleError("Query plan check: " + problem, null);
+            }
         } catch (SQLException e) {
             handleError("Could not create logs table. Please check your database setup and permissions.", e);
         }
@@ -274,15 +525,40 @@ public class DatabaseManager {
 
     
     public static void insertLog(LogEntry entry) {
-        String insertSQL = "INSERT OR IGNORE INTO logs (timestamp, level, message, root_cause) VALUES (?, ?, ?, ?)";
         try (Connection conn = connect();
-             PreparedStatement pstmt = conn.prepareStatement(insertSQL)) {
-            pstmt.setString(1, entry.getTimestamp());
-            pstmt.setString(2, entry.getLevel());
-            pstmt.setString(3, entry.getMessage());
-            pstmt.setString(4, entry.getRootCause());
-            int affected = pstmt.executeUpdate();
+             LogDictionary dictionary = new LogDictionary(conn)) {
+            int day = dictionary.partitionOf(entry);
+            if (day == 0) {
+                System.out.println("⚠️ Log entry is older than the retention period; skipped.");
+                return;
+            }
+            conn.setAutoCommit(false);
+            long started = Metrics.startTimer();
+            int affected;
+            try {
+                affected = dictionary.isSealed(day, entry) ? 0 : dictionary.bindInsert(day, entry).executeUpdate();
+                if (affected > 0) {
+                    if (duplicateFilter != null) {
+                        duplicateFilter.add(entry.getContentHash());
+                    }
+                    SummaryRollups rollups = new SummaryRollups();
+                    rollups.add(entry);
+                    rollups.flush(conn);
+                    if (anomalyDetector != null) {
+                        anomalyDetector.observe(entry);
+                    }
+                    dictionary.syncFullTextIndex();
+                }
+                conn.commit();
+                SINGLE_COMMIT.observeSince(started);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
             if (affected > 0) {
+                RESULT_CACHE.invalidate(entry.getTimestampMillis(), entry.getTimestampMillis());
                 System.out.println("✅ Log inserted successfully.");
             } else {
                 System.out.println("⚠️ Duplicate log entry skipped.");
@@ -294,81 +570,132 @@ public class DatabaseManager {
 
     
     public static void insertLogsBatch(java.util.List<LogEntry> entries) {
-        String insertSQL = "INSERT OR IGNORE INTO logs (timestamp, level, message, root_cause) VALUES (?, ?, ?, ?)";
-        try (Connection conn = connect();
-             PreparedStatement pstmt = conn.prepareStatement(insertSQL)) {
-            int batchSize = 0;
-            for (LogEntry entry : entries) {
-                pstmt.setString(1, entry.getTimestamp());
-                pstmt.setString(2, entry.getLevel());
-                pstmt.setString(3, entry.getMessage());
-                pstmt.setString(4, entry.getRootCause());
-                pstmt.addBatch();
-                batchSize++;
-                if (batchSize % 100 == 0) {
-                    pstmt.executeBatch();
-                }
-            }
-            pstmt.executeBatch();
-            System.out.println("✅ Batch log insert completed (duplicates skipped)." );
+        try (BulkLoader loader = openBulkLoader(BulkLoader.DEFAULT_COMMIT_SIZE)) {
+            loader.addAll(entries);
+            loader.finish();
         } catch (SQLException e) {
             handleError("Could not perform batch log insert. Please check your input and database connection.", e);
         }
     }
 
     
-    public static void fetchLogs() {
-        String selectSQL = "SELECT * FROM logs";
-        try (Connection conn = connect();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(selectSQL)) {
+    // Caller must close the loader; it owns its connection
+    public static BulkLoader openBulkLoader(int commitSize) throws SQLException {
+        Connection conn = connect();
+        try {
+            return new BulkLoader(conn, commitSize, duplicateFilter, anomalyDetector);
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+    }
 
-            System.out.println("📜 All Logs:");
-            while (rs.next()) {
-                int id = rs.getInt("id");
-                String timestamp = rs.getString("timestamp");
-                String level = rs.getString("level");
-                String message = rs.getString("message");
-                String rootCause = rs.getString("root_cause");
-
-        System.out.printf("ID: %d | Time: %s | Level: %s | Msg: %s | RootCause: %s%n",
-            id, timestamp, colorLevel(level), message, rootCause);
+    
+    // Inserts the batch and advances the follow-mode checkpoint in one transaction; returns rows inserted or -1
+    public static int insertLogsBatch(java.util.List<LogEntry> entries, IngestCheckpoint checkpoint) {
+        String checkpointSQL = "INSERT OR REPLACE INTO ingest_checkpoints (path, file_key, byte_offset, updated_at) VALUES (?, ?, ?, datetime('now'))";
+        try (Connection conn = connect()) {
+            conn.setAutoCommit(false);
+            long started = Metrics.startTimer();
+            int inserted = 0;
+            long from = Long.MAX_VALUE;
+            long to = Long.MIN_VALUE;
+            try (LogDictionary dictionary = new LogDictionary(conn);
+                 PreparedStatement cstmt = conn.prepareStatement(checkpointSQL)) {
+                SummaryRollups rollups = new SummaryRollups();
+                for (LogEntry entry : entries) {
+                    int day = dictionary.partitionOf(entry);
+                    // Entries older than the retention period are skipped, but the checkpoint still moves past them
+                    if (day != 0 && !dictionary.isSealed(day, entry) && dictionary.bindInsert(day, entry).executeUpdate() > 0) {
+                        inserted++;
+                        from = Math.min(from, entry.getTimestampMillis());
+                        to = Math.max(to, entry.getTimestampMillis());
+                        rollups.add(entry);
+                        if (duplicateFilter != null) {
+                            duplicateFilter.add(entry.getContentHash());
+                        }
+                        if (anomalyDetector != null) {
+                            anomalyDetector.observe(entry);
+                        }
+                    }
+                }
+                rollups.flush(conn);
+                dictionary.syncFullTextIndex();
+                cstmt.setString(1, checkpoint.getPath());
+                cstmt.setString(2, checkpoint.getFileKey());
+                cstmt.setLong(3, checkpoint.getOffset());
+                cstmt.executeUpdate();
+                conn.commit();
+                FOLLOW_COMMIT.observeSince(started);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
             }
-
+            if (inserted > 0) {
+                RESULT_CACHE.invalidate(from, to);
+            }
+            return inserted;
         } catch (SQLException e) {
-            handleError("Could not fetch logs. Please try again or check your database connection.", e);
+            handleError("Could not insert log batch and checkpoint. Please check your database connection.", e);
+            return -1;
         }
     }
 
     
-    public static void searchLogsByLevel(String level) {
-        String searchSQL = "SELECT * FROM logs WHERE level = ?";
-        try (Connection conn = connect();
-             PreparedStatement pstmt = conn.prepareStatement(searchSQL)) {
-
-            pstmt.setString(1, level);
-            ResultSet rs = pstmt.executeQuery();
-
-            System.out.println("📌 Logs with level = " + level + ":");
-            boolean found = false;
-
-            while (rs.next()) {
-                found = true;
-                int id = rs.getInt("id");
-                String timestamp = rs.getString("timestamp");
-                String message = rs.getString("message");
-                String rootCause = rs.getString("root_cause");
-
-        System.out.printf("ID: %d | Time: %s | Level: %s | Msg: %s | RootCause: %s%n",
-            id, timestamp, colorLevel(level), message, rootCause);
+    public static IngestCheckpoint loadCheckpoint(String path) {
+        long started = Metrics.startTimer();
+        try {
+            String selectSQL = "SELECT file_key, byte_offset FROM ingest_checkpoints WHERE path = ?";
+            try (Connection conn = connect();
+                 PreparedStatement pstmt = conn.prepareStatement(selectSQL)) {
+                pstmt.setString(1, path);
+                ResultSet rs = pstmt.executeQuery();
+                if (rs.next()) {
+                    return new IngestCheckpoint(path, rs.getString("file_key"), rs.getLong("byte_offset"));
+                }
+            } catch (SQLException e) {
+                handleError("Could not load ingest checkpoint. Follow mode will start from the beginning of the file.", e);
             }
+            return null;
+        } finally {
+            LOAD_CHECKPOINT.observeSince(started);
+        }
+    }
 
-            if (!found) {
-                System.out.println("⚠️ No logs found for level: " + level);
+    
+    // The manifest entry of the file with this fingerprint (see LogSource), or null if it was never ingested
+    public static IngestManifestEntry loadManifestEntry(String fingerprint) {
+        long started = Metrics.startTimer();
+        try {
+            String selectSQL = "SELECT path, compressed, bytes, entries FROM ingest_manifest WHERE fingerprint = ?";
+            try (Connection conn = connect();
+                 PreparedStatement pstmt = conn.prepareStatement(selectSQL)) {
+                pstmt.setString(1, fingerprint);
+                ResultSet rs = pstmt.executeQuery();
+                if (rs.next()) {
+                    return new IngestManifestEntry(fingerprint, rs.getString("path"), rs.getBoolean("compressed"),
+                        rs.getLong("bytes"), rs.getLong("entries"));
+                }
+            } catch (SQLException e) {
+                handleError("Could not read the ingest manifest. Files will be read from the beginning.", e);
             }
+            return null;
+        } finally {
+            LOAD_MANIFEST_ENTRY.observeSince(started);
+        }
+    }
 
-        } catch (SQLException e) {
-            handleError("Could not search logs by level. Please try again or check your database connection.", e);
+    // Part of the caller's transaction, so a file is recorded together with its last rows; see BulkLoader
+    static void recordManifestEntry(Connection conn, IngestManifestEntry entry) throws SQLException {
+        String upsertSQL = "INSERT OR REPLACE INTO ingest_manifest (fingerprint, path, compressed, bytes, entries, ingested_at) "
+            + "VALUES (?, ?, ?, ?, ?, datetime('now'))";
+        try (PreparedStatement pstmt = conn.prepareStatement(upsertSQL)) {
+            pstmt.setString(1, entry.getFingerprint());
+            pstmt.setString(2, entry.getPath());
+            pstmt.setBoolean(3, entry.isCompressed());
+            pstmt.setLong(4, entry.getBytes());
+            pstmt.setLong(5, entry.getEntries());
+            pstmt.executeUpdate();
         }
     }
 
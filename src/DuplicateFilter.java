@@ -0,0 +1,107 @@
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+// Bloom filter over logs.content_hash. mightContain == false means the entry is certainly new; true means it was
+// probably stored before and is confirmed with an index probe. When a layer reaches its capacity a new layer of
+// twice the size is added, so the false-positive rate stays near 1% per layer as the table grows.
+public class DuplicateFilter {
+
+    private static final int HASHES = 7;
+    private static final double BITS_PER_ENTRY = 9.6; // 1% false positives with 7 hashes
+    private static final long MIN_CAPACITY = 1 << 20;
+
+    private final List<long[]> layers = new ArrayList<>();
+    private long capacity;
+    private long count;
+    private long size;
+
+    
+    public DuplicateFilter(long expectedEntries) {
+        addLayer(Math.max(MIN_CAPACITY, expectedEntries * 2));
+    }
+
+    // Loads every stored hash through the content_hash index of each partition and from the hash column of each
+    // sealed segment, sized from the all-time rollups
+    public static DuplicateFilter load(Connection conn) throws SQLException {
+        DuplicateFilter filter = new DuplicateFilter(LogPartitions.rowCount(conn));
+        for (LogSegment segment : LogSegments.all(conn)) {
+            for (int i = 0; i < segment.getRows(); i++) {
+                filter.add(segment.sortedHash(i));
+            }
+        }
+        try (Statement stmt = conn.createStatement()) {
+            for (int day : LogPartitions.days(conn)) {
+                try (ResultSet rs = stmt.executeQuery("SELECT content_hash FROM " + LogPartitions.table(day))) {
+                    while (rs.next()) {
+                        filter.add(rs.getLong(1));
+                    }
+                }
+            }
+        }
+        return filter;
+    }
+
+    
+    public synchronized void add(long hash) {
+        if (count >= capacity) {
+            addLayer(capacity * 2);
+        }
+        long[] bits = layers.get(layers.size() - 1);
+        long m = bits.length * 64L;
+        long h1 = hash;
+        long h2 = (hash >>> 32) | 1;
+        for (int i = 0; i < HASHES; i++) {
+            long bit = Math.floorMod(h1 + i * h2, m);
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+        count++;
+        size++;
+    }
+
+    public synchronized boolean mightContain(long hash) {
+        long h1 = hash;
+        long h2 = (hash >>> 32) | 1;
+        for (long[] bits : layers) {
+            long m = bits.length * 64L;
+            boolean all = true;
+            for (int i = 0; i < HASHES && all; i++) {
+                long bit = Math.floorMod(h1 + i * h2, m);
+                all = (bits[(int) (bit >>> 6)] & (1L << bit)) != 0;
+            }
+            if (all) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    
+    public synchronized long size() {
+        return size;
+    }
+
+    public synchronized long memoryBytes() {
+        long bytes = 0;
+        for (long[] bits : layers) {
+            bytes += bits.length * 8L;
+        }
+        return bytes;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d hashes in %d layer(s), %.1f MB", size, layers.size(), memoryBytes() / (1024.0 * 1024.0));
+    }
+
+    
+    private void addLayer(long layerCapacity) {
+        long words = Math.max(1, (long) Math.ceil(layerCapacity * BITS_PER_ENTRY / 64));
+        layers.add(new long[(int) Math.min(words, Integer.MAX_VALUE - 8)]);
+        capacity = layerCapacity;
+        count = 0;
+    }
+}
@@ -0,0 +1,160 @@
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+// Assembles the lines of one input stream into events. A line with a timestamp and level opens an event; the
+// continuation lines after it (indented stack frames, "at ...", "Caused by: ...", "... 12 more" and exception
+// headers such as "java.lang.IllegalStateException: ...") are appended to its message, so the root cause
+// classifier sees the whole trace. Other lines are rejected as before. Only the open event is held, and its
+// message is capped at logiq.max.event.chars characters, so memory stays flat on traces of any length.
+public class EventAssembler {
+
+    public static final int MAX_EVENT_CHARS = Integer.getInteger("logiq.max.event.chars", 64 * 1024);
+    // How far a reader may look past a chunk boundary for the end of the event open there; characters take up
+    // to 4 bytes, and anything further would be truncated anyway
+    static final long MAX_EVENT_BYTES = 4L * MAX_EVENT_CHARS;
+
+    private static final String[] CONTINUATION_PREFIXES = { "at ", "Caused by:", "Suppressed:", "..." };
+    private static final String[] EXCEPTION_SUFFIXES = { "Exception", "Error", "Throwable" };
+
+    private static final Metrics.Counter LINES_READ =
+        Metrics.counter("logiq_lines_read_total", "Log lines read for parsing.");
+    private static final Metrics.Counter LINES_PARSED =
+        Metrics.counter("logiq_lines_parsed_total", "Log lines that start an event.");
+    private static final Metrics.Counter LINES_CONTINUED =
+        Metrics.counter("logiq_lines_continued_total", "Continuation lines attached to the event before them.");
+    private static final Metrics.Counter LINES_REJECTED =
+        Metrics.counter("logiq_lines_rejected_total", "Log lines that neither start nor continue an event.");
+    private static final Metrics.Counter EVENTS_TRUNCATED =
+        Metrics.counter("logiq_events_truncated_total", "Events cut at the maximum event size.");
+
+    private final LogAnalyzer analyzer;
+    private final Consumer<LogEntry> events;
+    private final int maxEventChars;
+    private final LineTokens tokens = new LineTokens();
+    // The open event; firstLine is null when there is none. message holds it once a line has been appended.
+    private final StringBuilder message = new StringBuilder();
+    private long timestamp;
+    private String level;
+    private String firstLine;
+    private boolean truncated;
+
+    
+    public EventAssembler(LogAnalyzer analyzer, Consumer<LogEntry> events) {
+        this(analyzer, events, MAX_EVENT_CHARS);
+    }
+
+    public EventAssembler(LogAnalyzer analyzer, Consumer<LogEntry> events, int maxEventChars) {
+        this.analyzer = analyzer;
+        this.events = events;
+        this.maxEventChars = Math.max(1, maxEventChars);
+    }
+
+    
+    // Takes the next line of the stream; returns true when it opened an event, after emitting the previous one
+    public boolean accept(ByteBuffer buffer, int start, int end) {
+        LINES_READ.increment();
+        long lineTimestamp = analyzer.parseHeader(buffer, start, end, tokens);
+        if (lineTimestamp != LogAnalyzer.NO_EVENT) {
+            finish();
+            timestamp = lineTimestamp;
+            level = tokens.getLevel();
+            firstLine = tokens.message(buffer);
+            LINES_PARSED.increment();
+            return true;
+        }
+        if (firstLine != null && isContinuation(buffer, start, end)) {
+            append(buffer, start, end);
+            LINES_CONTINUED.increment();
+        } else {
+            LINES_REJECTED.increment();
+        }
+        return false;
+    }
+
+    // Emits the open event, if any; call it at the end of the stream
+    public void finish() {
+        if (firstLine == null) {
+            return;
+        }
+        String text = message.length() == 0 ? firstLine : message.toString();
+        events.accept(analyzer.toEntry(timestamp, level, firstLine, text));
+        firstLine = null;
+        level = null;
+        message.setLength(0);
+        truncated = false;
+    }
+
+    public boolean hasOpenEvent() {
+        return firstLine != null;
+    }
+
+    private void append(ByteBuffer buffer, int start, int end) {
+        if (message.length() == 0) {
+            message.append(firstLine);
+        }
+        // A character takes at least one byte, so decoding at most room bytes never overshoots the cap
+        int room = maxEventChars - message.length() - 1;
+        int length = Math.min(end - start, Math.max(room, 0));
+        if (length < end - start && !truncated) {
+            truncated = true;
+            EVENTS_TRUNCATED.increment();
+        }
+        if (length > 0) {
+            message.append('\n').append(tokens.decode(buffer, start, start + length, LineTokens.LINE_CHARSET));
+        }
+    }
+
+    
+    // Whether the line reads as part of a multi-line event rather than as noise; looks at its start only
+    static boolean isContinuation(ByteBuffer buffer, int start, int end) {
+        if (start >= end) {
+            return false;
+        }
+        byte first = buffer.get(start);
+        if (first == ' ' || first == '\t') {
+            return true;
+        }
+        for (String prefix : CONTINUATION_PREFIXES) {
+            if (regionMatches(buffer, start, end, prefix)) {
+                return true;
+            }
+        }
+        return isExceptionHeader(buffer, start, end);
+    }
+
+    // A qualified class name ending in Exception, Error or Throwable, alone or followed by ':'
+    private static boolean isExceptionHeader(ByteBuffer buffer, int start, int end) {
+        int i = start;
+        boolean qualified = false;
+        while (i < end) {
+            byte b = buffer.get(i);
+            if (b == '.') {
+                qualified = true;
+            } else if (!(b >= 'a' && b <= 'z' || b >= 'A' && b <= 'Z' || b >= '0' && b <= '9' || b == '_' || b == '$')) {
+                break;
+            }
+            i++;
+        }
+        if (!qualified || i < end && buffer.get(i) != ':') {
+            return false;
+        }
+        for (String suffix : EXCEPTION_SUFFIXES) {
+            if (i - start >= suffix.length() && regionMatches(buffer, i - suffix.length(), i, suffix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean regionMatches(ByteBuffer buffer, int start, int end, String text) {
+        if (end - start < text.length()) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (buffer.get(start + i) != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
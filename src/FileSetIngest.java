@@ -0,0 +1,290 @@
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Ingests a set of files, such as a directory of rotated and compressed archives, through one BulkLoader. Up to
+// parallelism files are decompressed and parsed at once, each on a thread of its own, while the calling thread
+// writes them one after another in the order given, so each file's rows are stored in file order. Files in the
+// ingest manifest are skipped and a file that has grown since is read from where its last ingestion ended. A
+// single plain file goes through IngestPipeline instead, which splits it between parser threads.
+public class FileSetIngest {
+
+    private static final int BATCH_SIZE = 10_000;
+    // Batches queued per file; with parallelism files in flight this bounds memory whatever the file sizes
+    private static final int QUEUED_BATCHES = 2;
+    private static final long POLL_MS = 100;
+    // Marks the end of a file's batches
+    private static final List<LogEntry> END = new ArrayList<>(0);
+
+    private static final Metrics.Counter FILES_READ =
+        Metrics.counter("logiq_ingest_files_total", "Files considered for ingestion, by outcome.", "outcome", "read");
+    private static final Metrics.Counter FILES_SKIPPED =
+        Metrics.counter("logiq_ingest_files_total", "Files considered for ingestion, by outcome.", "outcome", "skipped");
+    private static final Metrics.Counter FILES_FAILED =
+        Metrics.counter("logiq_ingest_files_total", "Files considered for ingestion, by outcome.", "outcome", "failed");
+
+    private final LogAnalyzer analyzer;
+    private final int parallelism;
+    private volatile boolean draining;
+    private volatile boolean cancelled;
+    // Set while a single file is loaded through it, so a drain reaches its reader
+    private volatile IngestPipeline pipeline;
+
+    private int skipped;
+    private int completed;
+    private int failed;
+    private long bytesRead;
+    private long entriesRead;
+
+    
+    public FileSetIngest(LogAnalyzer analyzer, int parallelism) {
+        this.analyzer = analyzer;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    
+    // Stops reading; what was already read is written and committed, and files read only in part are not recorded
+    public void drain() {
+        draining = true;
+        IngestPipeline current = pipeline;
+        if (current != null) {
+            current.drain();
+        }
+    }
+
+    
+    public void ingest(List<LogSource> sources) throws IOException, SQLException {
+        long startNanos = System.nanoTime();
+        List<FileTask> tasks = plan(sources);
+        if (tasks.isEmpty()) {
+            System.out.println("✅ All " + sources.size() + " file(s) were already ingested; nothing to read.");
+            return;
+        }
+        System.out.println("📚 Reading " + tasks.size() + " file(s), " + skipped + " already ingested.");
+
+        CountDownLatch done = new CountDownLatch(1);
+        // Ctrl+C drains, as in IngestPipeline; the JVM exits once the writer has committed
+        Thread drainOnExit = new Thread(() -> {
+            drain();
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        Runtime.getRuntime().addShutdownHook(drainOnExit);
+
+        try (BulkLoader loader = DatabaseManager.openBulkLoader(BulkLoader.DEFAULT_COMMIT_SIZE)) {
+            if (tasks.size() == 1 && !tasks.get(0).source.isCompressed()) {
+                ingestSplit(tasks.get(0), loader);
+            } else {
+                ingestConcurrently(tasks, loader);
+            }
+            loader.finish();
+        } finally {
+            done.countDown();
+            try {
+                Runtime.getRuntime().removeShutdownHook(drainOnExit);
+            } catch (IllegalStateException e) {
+                // Already shutting down; the hook is waiting on done
+            }
+        }
+
+        printReport(System.nanoTime() - startNanos, tasks.size());
+    }
+
+    
+    // The files still to read, each with the offset to start at
+    private List<FileTask> plan(List<LogSource> sources) throws IOException {
+        List<FileTask> tasks = new ArrayList<>();
+        for (LogSource source : sources) {
+            String fingerprint = source.fingerprint();
+            IngestManifestEntry recorded = DatabaseManager.loadManifestEntry(fingerprint);
+            if (recorded == null) {
+                tasks.add(new FileTask(source, fingerprint, 0, 0));
+                continue;
+            }
+            long size = source.getSizeHint();
+            // The gzip trailer keeps the size modulo 2^32 only
+            long recordedSize = source.isCompressed() ? recorded.getBytes() & 0xFFFFFFFFL : recorded.getBytes();
+            if (size == recordedSize) {
+                skipped++;
+                FILES_SKIPPED.increment();
+            } else if (source.isCompressed() || size > recordedSize) {
+                // Same first 4 KB, more content: the file grew after it was read, then may have been compressed
+                System.out.println("↪️ " + source + " grew since it was ingested; resuming at byte " + recorded.getBytes());
+                tasks.add(new FileTask(source, fingerprint, recorded.getBytes(), recorded.getEntries()));
+            } else {
+                // Shorter than what was read: rewritten in place, so read it again
+                tasks.add(new FileTask(source, fingerprint, 0, 0));
+            }
+        }
+        return tasks;
+    }
+
+    
+    private void ingestSplit(FileTask task, BulkLoader loader) throws IOException, SQLException {
+        IngestPipeline split = new IngestPipeline(analyzer, parallelism);
+        pipeline = split;
+        if (draining) {
+            return;
+        }
+        long startNanos = System.nanoTime();
+        long end = split.ingest(task.source.getPath(), task.from, loader);
+        split.printReport(System.nanoTime() - startNanos);
+        task.end = end;
+        task.written = split.getStages().get(2).getItems();
+        record(task, loader);
+    }
+
+    private void ingestConcurrently(List<FileTask> tasks, BulkLoader loader) throws IOException, SQLException {
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(parallelism, tasks.size()));
+        try {
+            // Tasks start in submission order, so the file being written always has a thread
+            for (FileTask task : tasks) {
+                pool.execute(() -> read(task));
+            }
+            for (FileTask task : tasks) {
+                write(task, loader);
+            }
+        } finally {
+            // Releases readers still blocked after a failure
+            cancelled = true;
+            pool.shutdownNow();
+        }
+    }
+
+    // Runs on a pool thread: decompresses and parses one file into batches
+    private void read(FileTask task) {
+        EventAssembler assembler = new EventAssembler(analyzer, task::add);
+        try {
+            if (!draining) {
+                long end = task.source.read(task.from, assembler::accept, () -> draining || cancelled);
+                task.end = draining || cancelled ? -1 : end;
+            }
+        } catch (IOException | RuntimeException e) {
+            task.failure = e;
+        }
+        try {
+            // Events parsed before an error, such as a corrupt gzip block, are still written
+            assembler.finish();
+            task.flush();
+        } catch (RuntimeException e) {
+            if (task.failure == null) {
+                task.failure = e;
+            }
+        } finally {
+            task.put(END);
+        }
+    }
+
+    private void write(FileTask task, BulkLoader loader) throws IOException, SQLException {
+        List<LogEntry> batch;
+        while ((batch = task.take()) != END) {
+            loader.addAll(batch);
+            task.written += batch.size();
+        }
+        if (task.failure != null) {
+            failed++;
+            FILES_FAILED.increment();
+            System.out.println("⚠️ Could not read " + task.source + ": " + task.failure.getMessage()
+                + "; the entries read before the error are kept and the file will be read again next time.");
+            return;
+        }
+        record(task, loader);
+    }
+
+    // Records a file read to its end in the manifest, in the same commit as its last rows
+    private void record(FileTask task, BulkLoader loader) throws SQLException {
+        if (task.end < 0) {
+            return;
+        }
+        loader.commitSource(new IngestManifestEntry(task.fingerprint, task.source.getPath().toString(),
+            task.source.isCompressed(), task.end, task.previousEntries + task.written));
+        completed++;
+        bytesRead += task.end - task.from;
+        entriesRead += task.written;
+        FILES_READ.increment();
+        System.out.println("📄 " + task.source + ": " + task.written + " entries");
+    }
+
+    
+    private void printReport(long elapsedNanos, int files) {
+        double seconds = Math.max(elapsedNanos, 1) / 1_000_000_000.0;
+        System.out.printf("📚 Files: %d read, %d already ingested, %d failed, %d not finished | %d entries from %.2f MB in %.2fs | %.2f MB/s | %d file(s) at a time%n",
+            completed, skipped, failed, files - completed - failed, entriesRead, bytesRead / (1024.0 * 1024.0),
+            seconds, bytesRead / (1024.0 * 1024.0) / seconds, parallelism);
+    }
+
+    
+    // One file: the reader fills batches, the writer takes them in order
+    private class FileTask {
+        final LogSource source;
+        final String fingerprint;
+        final long from;
+        final long previousEntries;
+        final BlockingQueue<List<LogEntry>> batches = new ArrayBlockingQueue<>(QUEUED_BATCHES);
+        List<LogEntry> batch = new ArrayList<>(BATCH_SIZE);
+        // Set by the reader before it queues END: the offset read up to, -1 when stopped early
+        volatile long end = -1;
+        volatile Exception failure;
+        // Writer only
+        long written;
+
+        FileTask(LogSource source, String fingerprint, long from, long previousEntries) {
+            this.source = source;
+            this.fingerprint = fingerprint;
+            this.from = from;
+            this.previousEntries = previousEntries;
+        }
+
+        void add(LogEntry entry) {
+            batch.add(entry);
+            if (batch.size() >= BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            if (!put(batch)) {
+                throw new CancellationException("Ingestion cancelled");
+            }
+            batch = new ArrayList<>(BATCH_SIZE);
+        }
+
+        // Blocks while the writer is behind; false once ingestion is cancelled
+        boolean put(List<LogEntry> entries) {
+            try {
+                while (!batches.offer(entries, POLL_MS, TimeUnit.MILLISECONDS)) {
+                    if (cancelled) {
+                        return false;
+                    }
+                }
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        List<LogEntry> take() throws IOException {
+            try {
+                return batches.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Ingestion interrupted", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class FixedLayoutTokenizer implements LineTokenizer {
+
+    private static final String TIMESTAMP_LAYOUT = "dddd-dd-dd dd:dd:dd";
+    private static final int TIMESTAMP_LENGTH = TIMESTAMP_LAYOUT.length();
+    private static final boolean UTF8 = StandardCharsets.UTF_8.equals(LineTokens.LINE_CHARSET);
+
+    
+    // Single pass over "yyyy-MM-dd HH:mm:ss<ws>LEVEL<ws>message", accepting exactly what LOG_REGEX accepts
+    @Override
+    public boolean tokenize(ByteBuffer buffer, int start, int end, LineTokens tokens) {
+        if (end - start < TIMESTAMP_LENGTH + 1) {
+            return false;
+        }
+        for (int i = 0; i < TIMESTAMP_LENGTH; i++) {
+            byte b = buffer.get(start + i);
+            char expected = TIMESTAMP_LAYOUT.charAt(i);
+            if (expected == 'd' ? (b < '0' || b > '9') : b != expected) {
+                return false;
+            }
+        }
+
+        int pos = start + TIMESTAMP_LENGTH;
+        int levelStart = skipWhitespace(buffer, pos, end);
+        if (levelStart == pos || levelStart == end) {
+            return false;
+        }
+
+        String level;
+        switch (buffer.get(levelStart)) {
+            case 'I': level = "INFO"; break;
+            case 'W': level = "WARN"; break;
+            case 'E': level = "ERROR"; break;
+            default: return false;
+        }
+        if (levelStart + level.length() > end) {
+            return false;
+        }
+        for (int i = 1; i < level.length(); i++) {
+            if (buffer.get(levelStart + i) != level.charAt(i)) {
+                return false;
+            }
+        }
+
+        pos = levelStart + level.length();
+        int messageStart = skipWhitespace(buffer, pos, end);
+        if (messageStart == pos) {
+            return false;
+        }
+        tokens.set(start, start + TIMESTAMP_LENGTH, level, messageStart, end);
+
+        // '.' in LOG_REGEX does not match U+0085, U+2028 or U+2029
+        for (int i = messageStart; i < end; i++) {
+            if (buffer.get(i) < 0) {
+                return UTF8 ? !containsUtf8LineSeparator(buffer, i, end) : !containsLineSeparator(tokens.message(buffer));
+            }
+        }
+        return true;
+    }
+
+    
+    private static int skipWhitespace(ByteBuffer buffer, int pos, int end) {
+        while (pos < end) {
+            byte b = buffer.get(pos);
+            if (b != ' ' && b != '\t' && b != 0x0B && b != '\f' && b != '\n' && b != '\r') {
+                break;
+            }
+            pos++;
+        }
+        return pos;
+    }
+
+    private static boolean containsUtf8LineSeparator(ByteBuffer buffer, int from, int end) {
+        for (int i = from; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b == (byte) 0xC2 && i + 1 < end && buffer.get(i + 1) == (byte) 0x85) {
+                return true;
+            }
+            if (b == (byte) 0xE2 && i + 2 < end && buffer.get(i + 1) == (byte) 0x80
+                    && (buffer.get(i + 2) == (byte) 0xA8 || buffer.get(i + 2) == (byte) 0xA9)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean containsLineSeparator(String message) {
+        for (int i = 0; i < message.length(); i++) {
+            char c = message.charAt(i);
+            if (c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,132 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Predicate;
+
+public class FullTextQuery {
+
+    // A term or "quoted phrase" of the input; prefix when it ends in *
+    private record Part(String text, boolean prefix) {
+    }
+
+    private FullTextQuery() {
+    }
+
+
+    // Turns user input into an FTS5 MATCH expression restricted to one column.
+    // Words are terms, "quoted text" is a phrase and a trailing * makes a prefix query;
+    // every part must match. Returns null if the input has no searchable text.
+    public static String toMatchExpression(String input, String column, boolean prefixTerms) {
+        List<String> phrases = new ArrayList<>();
+        for (Part part : parse(input, prefixTerms)) {
+            phrases.add("\"" + part.text().replace("\"", "\"\"") + "\"" + (part.prefix() ? "*" : ""));
+        }
+        if (phrases.isEmpty()) {
+            return null;
+        }
+        return column + " : (" + String.join(" ", phrases) + ")";
+    }
+
+    // The same query as a predicate on text, for sealed segments, which have no full-text index. Text is split
+    // into tokens the way FTS5's default unicode61 tokenizer does, without its diacritic folding. Returns null
+    // if the input has no searchable text.
+    public static Predicate<String> toMatcher(String input, boolean prefixTerms) {
+        List<String[]> phrases = new ArrayList<>();
+        List<Boolean> prefixes = new ArrayList<>();
+        for (Part part : parse(input, prefixTerms)) {
+            List<String> tokens = tokenize(part.text());
+            if (!tokens.isEmpty()) {
+                phrases.add(tokens.toArray(new String[0]));
+                prefixes.add(part.prefix());
+            }
+        }
+        if (phrases.isEmpty()) {
+            return null;
+        }
+        return text -> {
+            if (text == null) {
+                return false;
+            }
+            List<String> tokens = tokenize(text);
+            for (int i = 0; i < phrases.size(); i++) {
+                if (!containsPhrase(tokens, phrases.get(i), prefixes.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        };
+    }
+
+    private static List<Part> parse(String input, boolean prefixTerms) {
+        List<Part> parts = new ArrayList<>();
+        int i = 0;
+        int length = input.length();
+        while (i < length) {
+            char c = input.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+                continue;
+            }
+            String text;
+            boolean phrase = c == '"';
+            if (phrase) {
+                int close = input.indexOf('"', i + 1);
+                int end = close < 0 ? length : close;
+                text = input.substring(i + 1, end);
+                i = end + 1;
+            } else {
+                int end = i;
+                while (end < length && !Character.isWhitespace(input.charAt(end)) && input.charAt(end) != '"') {
+                    end++;
+                }
+                text = input.substring(i, end);
+                i = end;
+            }
+            boolean prefix = (!phrase && prefixTerms) || (i < length && input.charAt(i) == '*');
+            if (text.endsWith("*")) {
+                text = text.substring(0, text.length() - 1);
+                prefix = true;
+            }
+            if (i < length && input.charAt(i) == '*') {
+                i++;
+            }
+            if (text.isBlank()) {
+                continue;
+            }
+            parts.add(new Part(text, prefix));
+        }
+        return parts;
+    }
+
+
+    // Lower-cased runs of letters and digits
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean tokenChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (tokenChar && start < 0) {
+                start = i;
+            } else if (!tokenChar && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    // Consecutive tokens equal to the phrase's; with prefix the last one only has to start with it, as in FTS5
+    private static boolean containsPhrase(List<String> tokens, String[] phrase, boolean prefix) {
+        for (int start = 0; start + phrase.length <= tokens.size(); start++) {
+            boolean match = true;
+            for (int j = 0; j < phrase.length && match; j++) {
+                String token = tokens.get(start + j);
+                match = prefix && j == phrase.length - 1 ? token.startsWith(phrase[j]) : token.equals(phrase[j]);
+            }
+            if (match) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,31 @@
+public class IngestCheckpoint {
+    private final String path;
+    private final String fileKey;
+    private final long offset;
+
+    
+    public IngestCheckpoint(String path, String fileKey, long offset) {
+        this.path = path;
+        this.fileKey = fileKey;
+        this.offset = offset;
+    }
+
+    
+    public String getPath() {
+        return path;
+    }
+
+    public String getFileKey() {
+        return fileKey;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    
+    @Override
+    public String toString() {
+        return String.format("%s @ %d (%s)", path, offset, fileKey);
+    }
+}
@@ -0,0 +1,45 @@
+// A file recorded in ingest_manifest: read up to bytes (uncompressed) as of its last ingestion
+public class IngestManifestEntry {
+    private final String fingerprint;
+    private final String path;
+    private final boolean compressed;
+    private final long bytes;
+    private final long entries;
+
+    
+    public IngestManifestEntry(String fingerprint, String path, boolean compressed, long bytes, long entries) {
+        this.fingerprint = fingerprint;
+        this.path = path;
+        this.compressed = compressed;
+        this.bytes = bytes;
+        this.entries = entries;
+    }
+
+    
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    // Events parsed from the file over all of its ingestions
+    public long getEntries() {
+        return entries;
+    }
+
+    
+    @Override
+    public String toString() {
+        return String.format("%s: %d bytes, %d entries (%s)", path, bytes, entries, fingerprint);
+    }
+}
@@ -0,0 +1,341 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Staged ingestion: a reader thread splits the file into line-aligned chunks, parser threads assemble chunks into
+// entries, and the calling thread writes them through a single BulkLoader in file order, so ids match a serial
+// load. Both queues are bounded: when the writer falls behind the reader blocks, and at most two chunks per
+// parser are in memory whatever the size of the file.
+public class IngestPipeline {
+
+    static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+    private static final long POLL_MS = 100;
+
+    private final LogAnalyzer analyzer;
+    private final int parsers;
+    private final int chunkSize;
+    private final Stage read;
+    private final Stage parse;
+    private final Stage write;
+    private volatile boolean draining;
+    private volatile boolean cancelled;
+    private volatile long readEnd = -1;
+
+    
+    public IngestPipeline(LogAnalyzer analyzer, int parsers) {
+        this(analyzer, parsers, DEFAULT_CHUNK_SIZE);
+    }
+
+    public IngestPipeline(LogAnalyzer analyzer, int parsers, int chunkSize) {
+        this.analyzer = analyzer;
+        this.parsers = Math.max(1, parsers);
+        this.chunkSize = Math.max(1, chunkSize);
+        int capacity = this.parsers * 2;
+        this.read = new Stage("read", "bytes", null);
+        this.parse = new Stage("parse", "lines", new ArrayBlockingQueue<>(capacity));
+        this.write = new Stage("write", "entries", new ArrayBlockingQueue<>(capacity));
+    }
+
+    
+    // Stops reading; chunks already read are still parsed, written and committed
+    public void drain() {
+        draining = true;
+    }
+
+    // Stops every stage; queued chunks are dropped, and rows already handed to the loader are committed
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public List<Stage> getStages() {
+        return List.of(read, parse, write);
+    }
+
+    
+    public void ingest(String filePath) throws IOException, SQLException {
+        long startNanos = System.nanoTime();
+        CountDownLatch done = new CountDownLatch(1);
+        // Ctrl+C drains instead of dropping the chunks in flight; the JVM exits once the writer has committed
+        Thread drainOnExit = new Thread(() -> {
+            drain();
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        Runtime.getRuntime().addShutdownHook(drainOnExit);
+
+        try (BulkLoader loader = DatabaseManager.openBulkLoader(BulkLoader.DEFAULT_COMMIT_SIZE)) {
+            ingest(Paths.get(filePath), 0, loader);
+            loader.finish();
+        } finally {
+            done.countDown();
+            try {
+                Runtime.getRuntime().removeShutdownHook(drainOnExit);
+            } catch (IllegalStateException e) {
+                // Already shutting down; the hook is waiting on done
+            }
+        }
+
+        printReport(System.nanoTime() - startNanos);
+    }
+
+    // Loads file from byte offset from, which must start a line, through loader; the caller finishes and closes
+    // the loader. Returns the size of the file as read, or -1 if it was drained or cancelled before its end.
+    public long ingest(Path file, long from, BulkLoader loader) throws IOException, SQLException {
+        ExecutorService pool = Executors.newFixedThreadPool(parsers + 1);
+        try (MappedLogReader reader = new MappedLogReader(file)) {
+            pool.execute(() -> readChunks(reader, from));
+            for (int i = 0; i < parsers; i++) {
+                pool.execute(() -> parseChunks(reader));
+            }
+            writeChunks(loader);
+            return cancelled ? -1 : readEnd;
+        } finally {
+            // Releases any stage still blocked after a failure
+            cancel();
+            pool.shutdownNow();
+        }
+    }
+
+    
+    private void readChunks(MappedLogReader reader, long from) {
+        long start = from;
+        try {
+            long size = reader.size();
+            while (start < size && !draining) {
+                long busyStart = System.nanoTime();
+                // Continuation lines stay in the chunk of the event they belong to
+                long end = start + chunkSize >= size ? size
+                    : reader.nextLineStart(start + chunkSize, EventAssembler::isContinuation, EventAssembler.MAX_EVENT_BYTES);
+                Chunk chunk = new Chunk(start, end);
+                read.busy(System.nanoTime() - busyStart);
+                // The write queue fixes the order in which chunks are written
+                if (!put(write, chunk) || !put(parse, chunk)) {
+                    return;
+                }
+                read.add(end - start);
+                start = end;
+            }
+            if (draining && start < reader.size()) {
+                System.out.println("⏸️ Stopped reading at offset " + start + "; writing what was already read.");
+            } else {
+                readEnd = start;
+            }
+            put(write, Chunk.END);
+        } catch (IOException e) {
+            Chunk failed = new Chunk(start, start);
+            failed.entries.completeExceptionally(e);
+            put(write, failed);
+        } finally {
+            for (int i = 0; i < parsers; i++) {
+                put(parse, Chunk.END);
+            }
+        }
+    }
+
+    private void parseChunks(MappedLogReader reader) {
+        Chunk chunk;
+        while ((chunk = take(parse)) != null && chunk != Chunk.END) {
+            long busyStart = System.nanoTime();
+            try {
+                List<LogEntry> entries = new ArrayList<>();
+                EventAssembler assembler = new EventAssembler(analyzer, entries::add);
+                long lines = reader.forEachLine(chunk.start, chunk.end, assembler::accept);
+                assembler.finish();
+                parse.add(lines);
+                chunk.entries.complete(entries);
+            } catch (IOException | RuntimeException e) {
+                chunk.entries.completeExceptionally(e);
+            } finally {
+                parse.busy(System.nanoTime() - busyStart);
+            }
+        }
+    }
+
+    private void writeChunks(BulkLoader loader) throws IOException, SQLException {
+        Chunk chunk;
+        while ((chunk = take(write)) != null && chunk != Chunk.END) {
+            List<LogEntry> entries = await(chunk);
+            if (entries == null) {
+                break;
+            }
+            long busyStart = System.nanoTime();
+            loader.addAll(entries);
+            write.busy(System.nanoTime() - busyStart);
+            write.add(entries.size());
+        }
+        if (cancelled) {
+            System.out.println("🛑 Ingestion cancelled; entries already written are kept.");
+        }
+    }
+
+    
+    // Blocks while the consumer's queue is full; false once the pipeline is cancelled
+    private boolean put(Stage consumer, Chunk chunk) {
+        long waitStart = System.nanoTime();
+        try {
+            while (!consumer.input.offer(chunk, POLL_MS, TimeUnit.MILLISECONDS)) {
+                if (cancelled) {
+                    return false;
+                }
+            }
+            consumer.recordDepth();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            read.waiting(System.nanoTime() - waitStart);
+        }
+    }
+
+    // Next chunk for consumer, or null once the pipeline is cancelled
+    private Chunk take(Stage consumer) {
+        long waitStart = System.nanoTime();
+        try {
+            Chunk chunk;
+            while ((chunk = consumer.input.poll(POLL_MS, TimeUnit.MILLISECONDS)) == null) {
+                if (cancelled) {
+                    return null;
+                }
+            }
+            return chunk;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            consumer.waiting(System.nanoTime() - waitStart);
+        }
+    }
+
+    private List<LogEntry> await(Chunk chunk) throws IOException {
+        long waitStart = System.nanoTime();
+        try {
+            while (true) {
+                try {
+                    return chunk.entries.get(POLL_MS, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    if (cancelled) {
+                        return null;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Ingestion interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Failed to parse log chunk", e.getCause());
+        } finally {
+            write.waiting(System.nanoTime() - waitStart);
+        }
+    }
+
+    
+    void printReport(long elapsedNanos) {
+        double seconds = Math.max(elapsedNanos, 1) / 1_000_000_000.0;
+        System.out.printf("📈 Throughput: %d lines (%d parsed) in %.2fs | %.0f lines/s | %.2f MB/s | %d parser thread(s)%n",
+            parse.getItems(), write.getItems(), seconds, parse.getItems() / seconds,
+            read.getItems() / (1024.0 * 1024.0) / seconds, parsers);
+        for (Stage stage : getStages()) {
+            System.out.println("   " + stage.report(seconds));
+        }
+    }
+
+    
+    // Counters for one stage; busy and waiting times are summed over the stage's threads
+    public static class Stage {
+        private final String name;
+        private final String unit;
+        private final BlockingQueue<Chunk> input;
+        private final AtomicLong items = new AtomicLong();
+        private final AtomicLong busyNanos = new AtomicLong();
+        private final AtomicLong waitingNanos = new AtomicLong();
+        private final AtomicInteger maxDepth = new AtomicInteger();
+
+        private Stage(String name, String unit, BlockingQueue<Chunk> input) {
+            this.name = name;
+            this.unit = unit;
+            this.input = input;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getItems() {
+            return items.get();
+        }
+
+        public double getBusySeconds() {
+            return busyNanos.get() / 1_000_000_000.0;
+        }
+
+        public double getWaitingSeconds() {
+            return waitingNanos.get() / 1_000_000_000.0;
+        }
+
+        // Chunks queued for this stage; 0 for the reader, which has no input queue
+        public int getQueueDepth() {
+            return input == null ? 0 : input.size();
+        }
+
+        public int getMaxQueueDepth() {
+            return maxDepth.get();
+        }
+
+        private void add(long count) {
+            items.addAndGet(count);
+        }
+
+        private void busy(long nanos) {
+            busyNanos.addAndGet(nanos);
+        }
+
+        private void waiting(long nanos) {
+            waitingNanos.addAndGet(nanos);
+        }
+
+        private void recordDepth() {
+            maxDepth.accumulateAndGet(input.size(), Math::max);
+        }
+
+        private String report(double seconds) {
+            String queue = input == null ? "" : String.format(" | queue max %d/%d",
+                maxDepth.get(), input.size() + input.remainingCapacity());
+            return String.format("%-5s %d %s (%.0f/s) | busy %.2fs | waiting %.2fs%s",
+                name, items.get(), unit, items.get() / seconds, getBusySeconds(), getWaitingSeconds(), queue);
+        }
+    }
+
+    private static class Chunk {
+        static final Chunk END = new Chunk(-1, -1);
+
+        final long start;
+        final long end;
+        final CompletableFuture<List<LogEntry>> entries = new CompletableFuture<>();
+
+        Chunk(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+    }
+}
@@ -0,0 +1,8 @@
+import java.nio.ByteBuffer;
+
+public interface LineTokenizer {
+
+    
+    // Fills tokens and returns true if the line [start, end) is a log event
+    boolean tokenize(ByteBuffer buffer, int start, int end, LineTokens tokens);
+}
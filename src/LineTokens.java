@@ -0,0 +1,67 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+public class LineTokens {
+
+    // FileReader used the platform charset, so messages are decoded the same way
+    static final Charset LINE_CHARSET = Charset.defaultCharset();
+
+    private int timestampStart;
+    private int timestampEnd;
+    private String level;
+    private int messageStart;
+    private int messageEnd;
+
+    // Set instead of the offsets by tokenizers that decode the line themselves
+    private String decodedTimestamp;
+    private String decodedMessage;
+
+    private byte[] scratch = new byte[1024];
+
+    
+    public void set(int timestampStart, int timestampEnd, String level, int messageStart, int messageEnd) {
+        this.timestampStart = timestampStart;
+        this.timestampEnd = timestampEnd;
+        this.level = level;
+        this.messageStart = messageStart;
+        this.messageEnd = messageEnd;
+        this.decodedTimestamp = null;
+        this.decodedMessage = null;
+    }
+
+    public void setDecoded(String timestamp, String level, String message) {
+        this.level = level;
+        this.decodedTimestamp = timestamp;
+        this.decodedMessage = message;
+    }
+
+    
+    public String getLevel() {
+        return level;
+    }
+
+    // Throws IllegalArgumentException when the timestamp is not a valid date and time
+    public long timestampMillis(ByteBuffer buffer) {
+        if (decodedTimestamp != null) {
+            return LogTimestamps.parse(decodedTimestamp);
+        }
+        return LogTimestamps.parse(buffer, timestampStart, timestampEnd);
+    }
+
+    public String message(ByteBuffer buffer) {
+        if (decodedMessage != null) {
+            return decodedMessage;
+        }
+        return decode(buffer, messageStart, messageEnd, LINE_CHARSET);
+    }
+
+    
+    String decode(ByteBuffer buffer, int start, int end, Charset charset) {
+        int length = end - start;
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        buffer.get(start, scratch, 0, length);
+        return new String(scratch, 0, length, charset);
+    }
+}
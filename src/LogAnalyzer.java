@@ -1,93 +1,178 @@
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
 
-
-
-
-import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class LogAnalyzer {
 
     
-    private static final String LOG_REGEX =
-            "(\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2})\\s+(INFO|WARN|ERROR)\\s+(.*)";
+    private static final int TOP_TEMPLATES = 5;
+    // Returned by parseHeader for a line that does not start an event
+    static final long NO_EVENT = Long.MIN_VALUE;
+
+    private final LineTokenizer tokenizer;
+    private final RootCauseClassifier classifier;
+    private final ThreadLocal<LineTokens> lineTokens = ThreadLocal.withInitial(LineTokens::new);
+
+    
+    public LogAnalyzer() {
+        this(new FixedLayoutTokenizer(), RootCauseClassifier.loadDefault());
+    }
 
-    private static final Pattern logPattern = Pattern.compile(LOG_REGEX);
+    public LogAnalyzer(LineTokenizer tokenizer, RootCauseClassifier classifier) {
+        this.tokenizer = tokenizer;
+        this.classifier = classifier;
+    }
 
     
+    // Parsing runs on one thread alongside the database writer; see IngestPipeline and FileSetIngest
     public void parseAndInsertLogs(String filePath, Connection conn) {
-        java.util.List<LogEntry> batch = new java.util.ArrayList<>();
-        try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                Matcher matcher = logPattern.matcher(line);
-                if (matcher.matches()) {
-                    String timestamp = matcher.group(1);
-                    String level = matcher.group(2);
-                    String message = matcher.group(3);
-                    String rootCause = extractRootCause(message);
-                    LogEntry entry = new LogEntry(timestamp, level, message, rootCause);
-                    batch.add(entry);
-                }
-            }
-            if (!batch.isEmpty()) {
-                DatabaseManager.insertLogsBatch(batch);
+        parseAndInsertLogsParallel(filePath, conn, 1);
+    }
+
+    
+    // filePath may also be a directory or a glob (see LogSource.expand); threads parse one file between them, or
+    // read that many files at once
+    public void parseAndInsertLogsParallel(String filePath, Connection conn, int threads) {
+        try {
+            List<LogSource> sources = LogSource.expand(filePath);
+            if (sources.isEmpty()) {
+                System.out.println("⚠️ No log files match " + filePath);
+                return;
             }
+            new FileSetIngest(this, threads).ingest(sources);
             System.out.println("Logs inserted successfully from file: " + filePath);
-        } catch (IOException e) {
+            classifier.printHitReport();
+        } catch (IOException | SQLException e) {
             e.printStackTrace();
         }
     }
 
     
-    private String extractRootCause(String message) {
-        if (message.contains("NullPointer")) {
-            return "NullPointer";
-        } else if (message.contains("Timeout")) {
-            return "Timeout";
-        } else if (message.contains("IndexOutOfBounds")) {
-            return "IndexOutOfBounds";
+    // The line as a single-line event, or null; files and follow mode go through an EventAssembler instead
+    LogEntry parseLine(ByteBuffer buffer, int start, int end) {
+        LineTokens tokens = lineTokens.get();
+        long timestamp = parseHeader(buffer, start, end, tokens);
+        if (timestamp == NO_EVENT) {
+            return null;
+        }
+        String message = tokens.message(buffer);
+        return toEntry(timestamp, tokens.getLevel(), message, message);
+    }
+
+    // Timestamp of the event the line starts, with its level and message offsets in tokens; NO_EVENT otherwise
+    long parseHeader(ByteBuffer buffer, int start, int end, LineTokens tokens) {
+        if (!tokenizer.tokenize(buffer, start, end, tokens)) {
+            return NO_EVENT;
+        }
+        try {
+            return tokens.timestampMillis(buffer);
+        } catch (IllegalArgumentException e) {
+            return NO_EVENT; // well-formed but impossible date, such as month 13
         }
-        return null; // No known root cause
+    }
+
+    // The classifier sees the whole event, but the template is mined from its first line, so a stack trace does
+    // not make every event a template of its own
+    LogEntry toEntry(long timestamp, String level, String firstLine, String message) {
+        String rootCause = extractRootCause(message);
+        TemplateMiner miner = DatabaseManager.getTemplateMiner();
+        int templateId = miner == null ? 0 : miner.match(firstLine);
+        return new LogEntry(timestamp, level, message, rootCause, templateId);
+    }
+
+    
+    private String extractRootCause(String message) {
+        return classifier.classify(message); // null when no rule matches
     }
 
     
+    // Summaries read the rollup tables, so their cost depends on the number of buckets, not on the logs table
+    private static final String ALL_TIME_WHERE = "granularity = 'all'";
+    // Whole hours come from hour buckets; the partial hour at the start of the window from minute buckets
+    private static final String WINDOW_WHERE =
+        "((granularity = 'minute' AND bucket >= ? AND bucket < ?) OR (granularity = 'hour' AND bucket >= ?))";
+
+    private static String totalSQL(String where) {
+        return "SELECT IFNULL(SUM(count), 0) FROM log_rollups WHERE " + where;
+    }
+
+    private static String levelCountsSQL(String where) {
+        return "SELECT level, SUM(count) FROM log_rollups WHERE " + where + " GROUP BY level ORDER BY level";
+    }
+
+    private static String topRootCausesSQL(String where) {
+        return "SELECT root_cause, SUM(count) AS cnt FROM log_rollups WHERE " + where
+            + " AND root_cause <> '' GROUP BY root_cause ORDER BY cnt DESC LIMIT 3";
+    }
+
+    static Map<String, String> summaryQueries() {
+        Map<String, String> queries = new LinkedHashMap<>();
+        queries.put("generateSummary (total)", totalSQL(ALL_TIME_WHERE));
+        queries.put("generateSummary (by level)", levelCountsSQL(ALL_TIME_WHERE));
+        queries.put("generateSummary (top root causes)", topRootCausesSQL(ALL_TIME_WHERE));
+        queries.put("generateSummary (top templates)", DatabaseManager.TOP_TEMPLATES_SQL);
+        queries.put("generateSummary last N hours (total)", totalSQL(WINDOW_WHERE));
+        queries.put("generateSummary last N hours (by level)", levelCountsSQL(WINDOW_WHERE));
+        queries.put("generateSummary last N hours (top root causes)", topRootCausesSQL(WINDOW_WHERE));
+        return queries;
+    }
+
+    // Template counts are kept for all time only, so the windowed summary has no template section
     public void generateSummary(Connection conn) {
-        try (Statement stmt = conn.createStatement()) {
+        printSummary(conn, ALL_TIME_WHERE);
+        System.out.println();
+        DatabaseManager.printTopTemplates(TOP_TEMPLATES);
+    }
+
+    
+    // Summary of entries whose timestamps fall within the last hours hours of the local clock
+    public void generateSummary(Connection conn, int hours) {
+        DateTimeFormatter minuteFormat = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+        LocalDateTime from = LocalDateTime.now().minusHours(hours).truncatedTo(ChronoUnit.MINUTES);
+        LocalDateTime firstWholeHour = from.truncatedTo(ChronoUnit.HOURS);
+        if (firstWholeHour.isBefore(from)) {
+            firstWholeHour = firstWholeHour.plusHours(1);
+        }
+        String hourStart = firstWholeHour.format(minuteFormat).substring(0, 13);
+        System.out.println("Window: since " + from.format(minuteFormat));
+        printSummary(conn, WINDOW_WHERE, from.format(minuteFormat), hourStart, hourStart);
+    }
+
+    private void printSummary(Connection conn, String where, String... params) {
+        try (PreparedStatement total = prepare(conn, totalSQL(where), params);
+             PreparedStatement levels = prepare(conn, levelCountsSQL(where), params);
+             PreparedStatement rootCauses = prepare(conn, topRootCausesSQL(where), params)) {
 
             // Total logs
-            ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM logs");
+            ResultSet rs = total.executeQuery();
             if (rs.next()) {
-                System.out.println("Total log entries: " + rs.getInt(1));
+                System.out.println("Total log entries: " + rs.getLong(1));
             }
 
             // Count by level
-            rs = stmt.executeQuery("SELECT level, COUNT(*) FROM logs GROUP BY level");
+            rs = levels.executeQuery();
             System.out.println("\nLog count by level:");
             while (rs.next()) {
-                System.out.println(rs.getString(1) + ": " + rs.getInt(2));
+                System.out.println(rs.getString(1) + ": " + rs.getLong(2));
             }
 
             // Top 3 root causes
-            rs = stmt.executeQuery(
-                    "SELECT root_cause, COUNT(*) as cnt FROM logs " +
-                    "WHERE root_cause IS NOT NULL " +
-                    "GROUP BY root_cause ORDER BY cnt DESC LIMIT 3"
-            );
+            rs = rootCauses.executeQuery();
 
             System.out.println("\nTop 3 root causes:");
             while (rs.next()) {
-                System.out.println(rs.getString("root_cause") + " → " + rs.getInt("cnt"));
+                System.out.println(rs.getString("root_cause") + " → " + rs.getLong("cnt"));
             }
 
         } catch (SQLException e) {
@@ -95,6 +180,14 @@ public class LogAnalyzer {
         }
     }
 
+    private static PreparedStatement prepare(Connection conn, String sql, String... params) throws SQLException {
+        PreparedStatement stmt = conn.prepareStatement(sql);
+        for (int i = 0; i < params.length; i++) {
+            stmt.setString(i + 1, params[i]);
+        }
+        return stmt;
+    }
+
     
     public static void main(String[] args) {
         String logFilePath = "application.log"; // replace with your log file path
@@ -0,0 +1,203 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeSet;
+
+// Streams the rows of a LogQuery in its key order (see LogQuery.byTimestamp), or in reverse when backward, from
+// a start key if given and up to a limit. Days are read one at a time: a day's partition through one statement
+// whose result set is consumed as the iterator advances, its sealed segment (see LogSegments) through the
+// query's LogSegment.Filter, and a day in both tiers merged by key. Nothing is read past the last row asked for.
+// The cursor holds a connection until closed; database errors while iterating surface as an
+// IllegalStateException wrapping the SQLException.
+public final class LogCursor implements Iterator<LogRow>, AutoCloseable {
+
+    private final Connection conn;
+    private final boolean forward;
+    private final boolean byTimestamp;
+    private final boolean hasStart;
+    private final long startTs;
+    private final long startId;
+    private final String sql;
+    private final Object[] parameters;
+    private final LogSegment.Filter sealed;
+    private final Deque<Integer> days;
+    private final Set<Integer> partitions;
+    private final boolean limited;
+    private int remaining;
+
+    // The current day: its partition's open result with the row at its head, and its segment rows
+    private PreparedStatement pstmt;
+    private ResultSet rs;
+    private LogRow hot;
+    private LogSegment segment;
+    private int[] sealedRows = new int[0];
+    private int nextSealed;
+    private LogRow next;
+    private boolean closed;
+
+    // Takes ownership of conn, which close() closes (returning it to the pool); start is a page cursor whose
+    // direction the rows follow, or null to read forward from the beginning
+    LogCursor(Connection conn, LogQuery query, Page.Cursor start, int limit) throws SQLException {
+        this.conn = conn;
+        this.forward = start == null || start.forward;
+        this.byTimestamp = query.byTimestamp();
+        this.hasStart = start != null;
+        this.startTs = start == null ? 0 : start.timestamp;
+        this.startId = start == null ? 0 : start.id;
+        this.limited = limit != Integer.MAX_VALUE;
+        this.remaining = limit;
+        try {
+            List<Integer> rootCauseIds = query.rootCauseIds(conn);
+            int rootCauseMatches = rootCauseIds == null ? 1 : rootCauseIds.size();
+            this.sql = query.sql(rootCauseMatches, hasStart, forward, limited);
+            this.parameters = query.parameters(rootCauseIds);
+            this.sealed = query.sealedFilter();
+
+            int fromDay = query.fromDay();
+            int toDay = query.toDay();
+            if (hasStart && forward) {
+                fromDay = Math.max(fromDay, LogPartitions.dayOfId(startId));
+            } else if (hasStart) {
+                toDay = Math.min(toDay, LogPartitions.dayOfId(startId));
+            }
+            List<Integer> partitionDays = LogPartitions.days(conn, fromDay, toDay);
+            this.partitions = new HashSet<>(partitionDays);
+            // Days with a partition, a sealed segment or both, in the direction of travel
+            TreeSet<Integer> all = new TreeSet<>(partitionDays);
+            all.addAll(LogSegments.days(conn, fromDay, toDay));
+            this.days = new ArrayDeque<>(forward ? all : all.descendingSet());
+        } catch (SQLException | RuntimeException e) {
+            conn.close();
+            throw e;
+        }
+    }
+
+    
+    @Override
+    public boolean hasNext() {
+        if (next == null && !closed) {
+            try {
+                next = advance();
+            } catch (SQLException e) {
+                throw new IllegalStateException("Could not read logs", e);
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public LogRow next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        LogRow row = next;
+        next = null;
+        return row;
+    }
+
+    // The next row of the current day, moving on to later (or, backward, earlier) days as each runs out
+    private LogRow advance() throws SQLException {
+        while (remaining > 0) {
+            boolean sealedLeft = nextSealed < sealedRows.length;
+            if (hot != null || sealedLeft) {
+                LogRow row;
+                if (hot != null && (!sealedLeft || comesFirst(hot, sealedRow()))) {
+                    row = hot;
+                    hot = rs.next() ? LogRow.from(rs) : null;
+                } else {
+                    row = LogRow.from(segment, sealedRow());
+                    nextSealed++;
+                }
+                remaining--;
+                return row;
+            }
+            closeDay();
+            if (days.isEmpty()) {
+                return null;
+            }
+            openDay(days.poll());
+        }
+        return null;
+    }
+
+    private void openDay(int day) throws SQLException {
+        segment = LogSegments.get(conn, day);
+        sealedRows = segment == null ? new int[0]
+            : segment.select(sealed, byTimestamp, forward, hasStart, startTs, startId, remaining);
+        // select returns ascending keys; backward they are read from the end
+        nextSealed = 0;
+        if (!forward) {
+            for (int i = 0, j = sealedRows.length - 1; i < j; i++, j--) {
+                int swap = sealedRows[i];
+                sealedRows[i] = sealedRows[j];
+                sealedRows[j] = swap;
+            }
+        }
+        if (!partitions.contains(day)) {
+            return;
+        }
+        pstmt = conn.prepareStatement(LogPartitions.forPartition(sql, day));
+        int index = 1;
+        for (Object parameter : parameters) {
+            pstmt.setObject(index++, parameter);
+        }
+        if (hasStart) {
+            if (byTimestamp) {
+                pstmt.setLong(index++, startTs);
+            }
+            pstmt.setLong(index++, startId);
+        }
+        if (limited) {
+            pstmt.setInt(index, remaining);
+        }
+        rs = pstmt.executeQuery();
+        hot = rs.next() ? LogRow.from(rs) : null;
+    }
+
+    private int sealedRow() {
+        return sealedRows[nextSealed];
+    }
+
+    // Whether the partition row comes before the segment row in the direction of travel
+    private boolean comesFirst(LogRow row, int sealedRow) {
+        int cmp = byTimestamp ? LogSegment.compareKey(row.ts(), row.id(), segment.ts(sealedRow), segment.id(sealedRow))
+            : Long.compare(row.id(), segment.id(sealedRow));
+        return forward ? cmp < 0 : cmp > 0;
+    }
+
+    private void closeDay() throws SQLException {
+        hot = null;
+        segment = null;
+        sealedRows = new int[0];
+        nextSealed = 0;
+        if (pstmt != null) {
+            PreparedStatement done = pstmt;
+            pstmt = null;
+            rs = null;
+            done.close();
+        }
+    }
+
+    
+    @Override
+    public void close() throws SQLException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        next = null;
+        try {
+            closeDay();
+        } finally {
+            conn.close();
+        }
+    }
+}
@@ -0,0 +1,175 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+// Encodes entries as compact partition rows: epoch-millis ts, level and root cause codes from the log_levels and
+// root_causes dictionaries, the content hash and the template id. Each entry goes to the partition of its day
+// (see LogPartitions), which is created on first use. New names and partitions are added on the caller's
+// connection, inside its transaction, so an instance belongs to one connection and must be dropped if that
+// connection rolls back.
+public class LogDictionary implements AutoCloseable {
+
+    private final Connection conn;
+    private final boolean deferIndexes;
+    private final int horizonDay = LogPartitions.horizonDay();
+    private final Map<String, Integer> levels = new HashMap<>();
+    private final Map<String, Integer> rootCauses = new HashMap<>();
+    private final Map<Integer, PreparedStatement> inserts = new HashMap<>();
+    private final Map<Integer, PreparedStatement> probes = new HashMap<>();
+    // Partitions written since the last syncFullTextIndex, and those created without secondary indexes
+    private final Set<Integer> unsynced = new LinkedHashSet<>();
+    private final Set<Integer> unindexed = new LinkedHashSet<>();
+    private long lastEpochDay = Long.MIN_VALUE;
+    private int lastDay;
+
+    
+    public LogDictionary(Connection conn) {
+        this(conn, false);
+    }
+
+    // With deferIndexes, partitions this instance creates get their secondary indexes from createDeferredIndexes
+    public LogDictionary(Connection conn, boolean deferIndexes) {
+        this.conn = conn;
+        this.deferIndexes = deferIndexes;
+    }
+
+    
+    static String insertSQL(int day) {
+        return "INSERT OR IGNORE INTO " + LogPartitions.table(day)
+            + " (ts, level_id, message, root_cause_id, content_hash, template_id) VALUES (?, ?, ?, ?, ?, ?)";
+    }
+
+    // Day of entry's partition, or 0 when the entry is older than the retention period
+    public int partitionOf(LogEntry entry) {
+        long epochDay = Math.floorDiv(entry.getTimestampMillis(), 86_400_000L);
+        if (epochDay != lastEpochDay) {
+            lastDay = LogPartitions.dayOf(entry.getTimestampMillis());
+            lastEpochDay = epochDay;
+        }
+        return lastDay < horizonDay ? 0 : lastDay;
+    }
+
+    // Insert statement of day's partition with entry bound to it; the partition must come from partitionOf
+    public PreparedStatement bindInsert(int day, LogEntry entry) throws SQLException {
+        PreparedStatement insert = inserts.get(day);
+        if (insert == null) {
+            ensurePartition(day);
+            insert = conn.prepareStatement(insertSQL(day));
+            inserts.put(day, insert);
+        }
+        bind(insert, entry);
+        unsynced.add(day);
+        return insert;
+    }
+
+    // Whether a row with entry's content hash is stored in day's partition or sealed segment
+    public boolean isStored(int day, LogEntry entry) throws SQLException {
+        if (isSealed(day, entry)) {
+            return true;
+        }
+        PreparedStatement probe = probes.get(day);
+        if (probe == null) {
+            ensurePartition(day);
+            probe = conn.prepareStatement("SELECT 1 FROM " + LogPartitions.table(day) + " WHERE content_hash = ?");
+            probes.put(day, probe);
+        }
+        probe.setLong(1, entry.getContentHash());
+        try (ResultSet rs = probe.executeQuery()) {
+            return rs.next();
+        }
+    }
+
+    // Whether a row with entry's content hash is in day's sealed segment, which INSERT OR IGNORE cannot see
+    public boolean isSealed(int day, LogEntry entry) throws SQLException {
+        LogSegment segment = LogSegments.get(conn, day);
+        return segment != null && segment.contains(entry.getContentHash());
+    }
+
+    // Indexes the rows inserted since the last call in the full-text index of their partitions
+    public void syncFullTextIndex() throws SQLException {
+        for (int day : unsynced) {
+            LogPartitions.syncFullTextIndex(conn, day);
+        }
+        unsynced.clear();
+    }
+
+    public void createDeferredIndexes() throws SQLException {
+        for (int day : unindexed) {
+            LogPartitions.createSecondaryIndexes(conn, day);
+        }
+        unindexed.clear();
+    }
+
+    
+    private void ensurePartition(int day) throws SQLException {
+        if (LogPartitions.create(conn, day, !deferIndexes) && deferIndexes) {
+            unindexed.add(day);
+        }
+    }
+
+    private void bind(PreparedStatement insert, LogEntry entry) throws SQLException {
+        insert.setLong(1, entry.getTimestampMillis());
+        insert.setInt(2, code("log_levels", levels, entry.getLevel()));
+        insert.setString(3, entry.getMessage());
+        if (entry.getRootCause() == null) {
+            insert.setNull(4, Types.INTEGER);
+        } else {
+            insert.setInt(4, code("root_causes", rootCauses, entry.getRootCause()));
+        }
+        insert.setLong(5, entry.getContentHash());
+        if (entry.getTemplateId() == 0) {
+            insert.setNull(6, Types.INTEGER);
+        } else {
+            insert.setInt(6, entry.getTemplateId());
+        }
+    }
+
+    private int code(String table, Map<String, Integer> cache, String name) throws SQLException {
+        Integer id = cache.get(name);
+        if (id == null) {
+            id = lookupOrAdd(table, name);
+            cache.put(name, id);
+        }
+        return id;
+    }
+
+    private int lookupOrAdd(String table, String name) throws SQLException {
+        Integer id = lookup(table, name);
+        if (id == null) {
+            try (PreparedStatement insert = conn.prepareStatement("INSERT OR IGNORE INTO " + table + " (name) VALUES (?)")) {
+                insert.setString(1, name);
+                insert.executeUpdate();
+            }
+            id = lookup(table, name);
+        }
+        return id;
+    }
+
+    private Integer lookup(String table, String name) throws SQLException {
+        try (PreparedStatement select = conn.prepareStatement("SELECT id FROM " + table + " WHERE name = ?")) {
+            select.setString(1, name);
+            try (ResultSet rs = select.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : null;
+            }
+        }
+    }
+
+    
+    @Override
+    public void close() throws SQLException {
+        for (PreparedStatement pstmt : inserts.values()) {
+            pstmt.close();
+        }
+        for (PreparedStatement pstmt : probes.values()) {
+            pstmt.close();
+        }
+        inserts.clear();
+        probes.clear();
+    }
+}
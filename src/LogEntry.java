@@ -1,20 +1,39 @@
-public class LogEntry {
-    private String timestamp;
-    private String level;
-    private String message;
-    private String rootCause;
+// Immutable, so parsed entries can be handed between threads and reused without copying
+public final class LogEntry {
+    private final long timestampMillis;
+    private final String level;
+    private final String message;
+    private final String rootCause;
+    private final long contentHash;
+    private final int templateId;
 
     
-    public LogEntry(String timestamp, String level, String message, String rootCause) {
-        this.timestamp = timestamp;
+    public LogEntry(long timestampMillis, String level, String message, String rootCause) {
+        this(timestampMillis, level, message, rootCause, 0);
+    }
+
+    // templateId comes from TemplateMiner; 0 when the message was not mined
+    public LogEntry(long timestampMillis, String level, String message, String rootCause, int templateId) {
+        this.timestampMillis = timestampMillis;
         this.level = level;
         this.message = message;
         this.rootCause = rootCause;
+        this.contentHash = ContentHash.of(timestampMillis, level, message, rootCause);
+        this.templateId = templateId;
+    }
+
+    // timestamp is "yyyy-MM-dd HH:mm:ss"; see LogTimestamps
+    public LogEntry(String timestamp, String level, String message, String rootCause) {
+        this(LogTimestamps.parse(timestamp), level, message, rootCause);
     }
 
     
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
     public String getTimestamp() {
-        return timestamp;
+        return LogTimestamps.format(timestampMillis);
     }
 
     public String getLevel() {
@@ -29,21 +48,13 @@ public class LogEntry {
         return rootCause;
     }
 
-    
-    public void setTimestamp(String timestamp) {
-        this.timestamp = timestamp;
-    }
-
-    public void setLevel(String level) {
-        this.level = level;
+    // Deduplication key; equal for entries with the same timestamp, level, message and root cause
+    public long getContentHash() {
+        return contentHash;
     }
 
-    public void setMessage(String message) {
-        this.message = message;
-    }
-
-    public void setRootCause(String rootCause) {
-        this.rootCause = rootCause;
+    public int getTemplateId() {
+        return templateId;
     }
 
     
@@ -51,7 +62,7 @@ public class LogEntry {
     public String toString() {
         return String.format(
             "[%s] %-5s | %s | Root Cause: %s",
-            timestamp, level, message, (rootCause != null ? rootCause : "N/A")
+            getTimestamp(), level, message, (rootCause != null ? rootCause : "N/A")
         );
     }
 }
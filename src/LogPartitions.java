@@ -0,0 +1,245 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+// Logs are stored in one table per day, logs_yyyyMMdd, listed in log_partitions. Each partition carries its
+// own indexes, full-text index (logs_fts_yyyyMMdd) and decoding view (log_entries_yyyyMMdd), so a query only
+// touches the days it needs and dropping a day is a few DROP statements whatever its size. Ids are
+// day * IDS_PER_DAY + a per-partition sequence, so id order and partition order agree.
+public final class LogPartitions {
+
+    static final long IDS_PER_DAY = 10_000_000_000L;
+    static final String CREATE_CATALOG_SQL = "CREATE TABLE IF NOT EXISTS log_partitions (day INTEGER PRIMARY KEY)";
+    // Days of logs to keep, counted back from today on the local clock; 0 keeps everything
+    private static final int RETENTION_DAYS = Integer.getInteger("logiq.retention.days", 0);
+
+    private LogPartitions() {
+    }
+
+    
+    // yyyyMMdd of the day the timestamp falls on; timestamps are wall-clock times (see LogTimestamps)
+    public static int dayOf(long timestampMillis) {
+        return toDay(LocalDate.ofEpochDay(Math.floorDiv(timestampMillis, 86_400_000L)));
+    }
+
+    public static int dayOfId(long id) {
+        return (int) (id / IDS_PER_DAY);
+    }
+
+    static int toDay(LocalDate date) {
+        return date.getYear() * 10_000 + date.getMonthValue() * 100 + date.getDayOfMonth();
+    }
+
+    static LocalDate toDate(int day) {
+        return LocalDate.of(day / 10_000, day / 100 % 100, day % 100);
+    }
+
+    static String table(int day) {
+        return "logs_" + day;
+    }
+
+    static String ftsTable(int day) {
+        return "logs_fts_" + day;
+    }
+
+    static String view(int day) {
+        return "log_entries_" + day;
+    }
+
+    // SQL written against {p} (see LogQuery), for day's partition
+    static String forPartition(String sql, int day) {
+        return sql.replace("{p}", Integer.toString(day));
+    }
+
+    
+    // Partition days in ascending order
+    public static List<Integer> days(Connection conn) throws SQLException {
+        return days(conn, 0, Integer.MAX_VALUE);
+    }
+
+    // Partition days in ascending order from fromDay to toDay, inclusive
+    public static List<Integer> days(Connection conn, int fromDay, int toDay) throws SQLException {
+        List<Integer> days = new ArrayList<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                 "SELECT day FROM log_partitions WHERE day BETWEEN ? AND ? ORDER BY day")) {
+            pstmt.setInt(1, fromDay);
+            pstmt.setInt(2, toDay);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    days.add(rs.getInt(1));
+                }
+            }
+        }
+        return days;
+    }
+
+    
+    // Creates the partition for day unless it exists; returns whether it was created. Without secondary
+    // indexes the partition only has the unique content_hash index; see createSecondaryIndexes.
+    public static boolean create(Connection conn, int day, boolean secondaryIndexes) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT 1 FROM log_partitions WHERE day = ?")) {
+            pstmt.setInt(1, day);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return false;
+                }
+            }
+        }
+        String logs = table(day);
+        String fts = ftsTable(day);
+        // A sealed day starts again after its segment, so ids stay unique and in order across both
+        LogSegment sealed = LogSegments.get(conn, day);
+        long lastId = sealed != null ? sealed.getMaxId() : day * IDS_PER_DAY;
+        SchemaMigrator.execute(conn,
+            "CREATE TABLE " + logs + " ("
+                + "id INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + "ts INTEGER NOT NULL, "
+                + "level_id INTEGER NOT NULL REFERENCES log_levels (id), "
+                + "message TEXT NOT NULL, "
+                + "root_cause_id INTEGER REFERENCES root_causes (id), "
+                + "content_hash INTEGER NOT NULL, "
+                + "template_id INTEGER REFERENCES log_templates (id))",
+            "CREATE UNIQUE INDEX " + logs + "_content_hash ON " + logs + " (content_hash)",
+            "INSERT INTO sqlite_sequence (name, seq) VALUES ('" + logs + "', " + lastId + ")",
+            // Contentless full-text index keyed by id; inserts are indexed by syncFullTextIndex
+            "CREATE VIRTUAL TABLE " + fts + " USING fts5(message, root_cause, content='', contentless_delete=1)",
+            "CREATE TRIGGER " + logs + "_fts_delete AFTER DELETE ON " + logs + " BEGIN "
+                + "DELETE FROM " + fts + " WHERE rowid = old.id; END",
+            "CREATE TRIGGER " + logs + "_fts_update AFTER UPDATE OF message, root_cause_id ON " + logs + " BEGIN "
+                + "DELETE FROM " + fts + " WHERE rowid = old.id; "
+                + "INSERT INTO " + fts + " (rowid, message, root_cause) "
+                + "VALUES (new.id, new.message, (SELECT name FROM root_causes WHERE id = new.root_cause_id)); END",
+            "CREATE VIEW " + view(day) + " AS "
+                + "SELECT logs.id AS id, "
+                + "strftime('%Y-%m-%d %H:%M:%S', logs.ts / 1000, 'unixepoch') AS timestamp, "
+                + "log_levels.name AS level, "
+                + "logs.message AS message, "
+                + "root_causes.name AS root_cause, "
+                + "logs.ts AS ts, "
+                + "logs.level_id AS level_id, "
+                + "logs.root_cause_id AS root_cause_id, "
+                + "logs.template_id AS template_id, "
+                + "log_templates.template AS template "
+                + "FROM " + logs + " AS logs "
+                + "LEFT JOIN log_levels ON log_levels.id = logs.level_id "
+                + "LEFT JOIN root_causes ON root_causes.id = logs.root_cause_id "
+                + "LEFT JOIN log_templates ON log_templates.id = logs.template_id",
+            "INSERT INTO log_partitions (day) VALUES (" + day + ")");
+        if (secondaryIndexes) {
+            createSecondaryIndexes(conn, day);
+        }
+        return true;
+    }
+
+    // Idempotent, so it also repairs a partition whose bulk load was interrupted before its indexes were built
+    public static void createSecondaryIndexes(Connection conn, int day) throws SQLException {
+        String logs = table(day);
+        SchemaMigrator.execute(conn,
+            "CREATE INDEX IF NOT EXISTS " + logs + "_level_timestamp ON " + logs + " (level_id, ts)",
+            "CREATE INDEX IF NOT EXISTS " + logs + "_root_cause_timestamp ON " + logs + " (root_cause_id, ts)",
+            "CREATE INDEX IF NOT EXISTS " + logs + "_timestamp ON " + logs + " (ts)",
+            "CREATE INDEX IF NOT EXISTS " + logs + "_template_timestamp ON " + logs + " (template_id, ts)");
+    }
+
+    // Indexes rows added to the partition since its last sync. Call it inside the transaction that inserted them:
+    // FTS5 flushes its pending terms at every statement savepoint, so a per-row trigger wrote one segment per row.
+    public static void syncFullTextIndex(Connection conn, int day) throws SQLException {
+        String fts = ftsTable(day);
+        SchemaMigrator.execute(conn, "INSERT INTO " + fts + " (rowid, message, root_cause) "
+            + "SELECT id, message, root_cause FROM " + view(day)
+            + " WHERE id > (SELECT IFNULL(MAX(rowid), " + day * IDS_PER_DAY + ") FROM " + fts + ")");
+    }
+
+    
+    // Drops the partition and takes its rows out of the all-time rollups and template counts; the day's own
+    // minute, hour and day buckets go with it. Call it inside a transaction.
+    public static void drop(Connection conn, int day) throws SQLException {
+        subtractRollups(conn, day);
+        SchemaMigrator.execute(conn,
+            "UPDATE log_templates SET count = count - c.n FROM "
+                + "(SELECT template_id, COUNT(*) AS n FROM " + table(day) + " WHERE template_id IS NOT NULL GROUP BY template_id) AS c "
+                + "WHERE log_templates.id = c.template_id");
+        dropTables(conn, day);
+    }
+
+    // Takes the day out of the all-time rollups and deletes its buckets; a no-op once they are gone. Rollups
+    // cover the day whether its rows are in the partition, a sealed segment or both.
+    static void subtractRollups(Connection conn, int day) throws SQLException {
+        String bucket = toDate(day).toString();
+        String nextBucket = toDate(day).plusDays(1).toString();
+        SchemaMigrator.execute(conn,
+            "UPDATE log_rollups AS total SET count = total.count - d.count FROM log_rollups AS d "
+                + "WHERE d.granularity = 'day' AND d.bucket = '" + bucket + "' "
+                + "AND total.granularity = 'all' AND total.bucket = '' "
+                + "AND total.level = d.level AND total.root_cause = d.root_cause",
+            "DELETE FROM log_rollups WHERE granularity = 'all' AND count <= 0",
+            "DELETE FROM log_rollups WHERE granularity IN ('minute', 'hour', 'day') "
+                + "AND bucket >= '" + bucket + "' AND bucket < '" + nextBucket + "'");
+    }
+
+    // Drops the partition's tables and catalog entry and nothing else, as when it is sealed
+    static void dropTables(Connection conn, int day) throws SQLException {
+        String logs = table(day);
+        SchemaMigrator.execute(conn,
+            "DROP VIEW " + view(day),
+            "DROP TABLE " + logs,
+            "DROP TABLE " + ftsTable(day),
+            "DELETE FROM sqlite_sequence WHERE name = '" + logs + "'",
+            "DELETE FROM log_partitions WHERE day = " + day);
+    }
+
+    
+    // First day kept by the retention policy, or 0 when it keeps everything
+    public static int horizonDay() {
+        if (RETENTION_DAYS <= 0) {
+            return 0;
+        }
+        return toDay(LocalDate.now().minusDays(RETENTION_DAYS - 1));
+    }
+
+    // Drops every partition and sealed segment older than the retention period, one transaction per day;
+    // returns how many days
+    public static int applyRetention(Connection conn) throws SQLException {
+        int horizon = horizonDay();
+        if (horizon == 0) {
+            return 0;
+        }
+        List<Integer> expired = days(conn, 0, horizon - 1);
+        boolean autoCommit = conn.getAutoCommit();
+        try {
+            conn.setAutoCommit(false);
+            for (int day : expired) {
+                try {
+                    drop(conn, day);
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+                long from = toDate(day).toEpochDay() * 86_400_000L;
+                DatabaseManager.getResultCache().invalidate(from, from + 86_400_000L - 1);
+            }
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+        int sealed = LogSegments.applyRetention(conn, horizon);
+        if (!expired.isEmpty() || sealed > 0) {
+            System.out.println("🗑️ Retention (" + RETENTION_DAYS + " days): dropped " + expired.size()
+                + " partition(s) and " + sealed + " sealed segment(s) before " + toDate(horizon) + ".");
+        }
+        return expired.size() + sealed;
+    }
+
+    // Rows stored across every partition; the all-time rollups hold the same number without reading any partition
+    public static long rowCount(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT IFNULL(SUM(count), 0) FROM log_rollups WHERE granularity = 'all'")) {
+            return rs.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,366 @@
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+// A search over stored logs: any combination of level, time range, message text, root cause and template, all of
+// which must match. A query compiles to one parameterized statement, written against {p}, the day of a partition
+// (see LogPartitions), and the statement is cached by the query's shape: which predicates it has, not their
+// values. Queries of the same shape share the SQL text, and with it the plan SQLite prepared for it on each
+// pooled connection. Every predicate runs on an index: level, template and time through the (column, ts) and ts
+// indexes, root cause through the root_causes dictionary and the (root_cause_id, ts) index, and message text
+// through the partition's full-text index. Sealed days (see LogSegments) get the same predicates as a
+// LogSegment.Filter.
+public final class LogQuery {
+
+    public static final LogQuery ALL = builder().build();
+
+    private static final String PARTITION_VIEW = "log_entries_{p}";
+    // Message text alone is driven by the full-text index in rowid order, then each row is looked up by id
+    private static final String FTS_SOURCE = "logs_fts_{p} JOIN log_entries_{p} ON log_entries_{p}.id = logs_fts_{p}.rowid";
+    private static final String FTS_WHERE = "logs_fts_{p} MATCH ?";
+    // With other predicates the matching ids are collected first and checked as rows come off another index
+    private static final String MESSAGE_WHERE = "id IN (SELECT rowid FROM logs_fts_{p} WHERE logs_fts_{p} MATCH ?)";
+    private static final String LEVEL_WHERE = "level_id = (SELECT id FROM log_levels WHERE name = ?)";
+    private static final String FROM_WHERE = "ts >= ?";
+    private static final String TO_WHERE = "ts <= ?";
+    // One matching root cause keeps the (root_cause_id, ts) index in key order; several need a sort
+    private static final String ROOT_CAUSE_WHERE = "root_cause_id = ?";
+    private static final String ROOT_CAUSES_WHERE = "root_cause_id IN (SELECT value FROM json_each(?))";
+    private static final String TEMPLATE_WHERE = "template_id = ?";
+    // Sort keys for keyset pagination; the last column is always the row id
+    private static final String[] ID_KEY = { "id" };
+    private static final String[] TIMESTAMP_KEY = { "ts", "id" };
+    private static final String[] FTS_KEY = { "logs_fts_{p}.rowid" };
+
+    private static final Map<String, String> SQL_BY_SHAPE = new ConcurrentHashMap<>();
+
+    private final String level;
+    private final Long from;
+    private final Long to;
+    private final String message;
+    private final String messageMatch;
+    private final Predicate<String> messageMatcher;
+    private final String rootCause;
+    private final Predicate<String> rootCauseMatcher;
+    private final Integer templateId;
+
+    private LogQuery(Builder builder) {
+        this.level = builder.level;
+        this.from = builder.from;
+        this.to = builder.to;
+        this.message = builder.message;
+        // Bare words match the start of a word, so "connection" still finds ConnectionTimeout as the LIKE search
+        // did; a "quoted phrase" matches whole words
+        this.messageMatch = message == null ? null : FullTextQuery.toMatchExpression(message, "message", true);
+        this.messageMatcher = message == null ? null : FullTextQuery.toMatcher(message, true);
+        this.rootCause = builder.rootCause;
+        // Root causes are single identifiers, so bare words match as prefixes ("Null" finds NullPointer)
+        this.rootCauseMatcher = rootCause == null ? null : FullTextQuery.toMatcher(rootCause, true);
+        this.templateId = builder.templateId;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    
+    public String getLevel() {
+        return level;
+    }
+
+    // Null when unbounded
+    public Long getFrom() {
+        return from;
+    }
+
+    public Long getTo() {
+        return to;
+    }
+
+    public boolean isEmpty() {
+        return level == null && from == null && to == null && message == null && rootCause == null && templateId == null;
+    }
+
+    // Sort order: id for a plain listing, the full-text index's rowid (the id) when message text is the only
+    // predicate, and (ts, id) otherwise, which the level, root cause, template and ts indexes return unsorted
+    boolean byTimestamp() {
+        return level != null || from != null || to != null || rootCause != null || templateId != null;
+    }
+
+    private boolean fullTextDriven() {
+        return message != null && !byTimestamp();
+    }
+
+    private String[] keyColumns() {
+        return byTimestamp() ? TIMESTAMP_KEY : fullTextDriven() ? FTS_KEY : ID_KEY;
+    }
+
+    int fromDay() {
+        return from == null ? 0 : LogPartitions.dayOf(from);
+    }
+
+    int toDay() {
+        return to == null ? Integer.MAX_VALUE : LogPartitions.dayOf(to);
+    }
+
+    
+    // The predicates by name, e.g. "level+from+to+rootCause"; rootCauses when several root causes match
+    String shape(int rootCauseMatches) {
+        List<String> parts = new ArrayList<>();
+        if (level != null) {
+            parts.add("level");
+        }
+        if (from != null) {
+            parts.add("from");
+        }
+        if (to != null) {
+            parts.add("to");
+        }
+        if (rootCause != null) {
+            parts.add(rootCauseMatches == 1 ? "rootCause" : "rootCauses");
+        }
+        if (templateId != null) {
+            parts.add("template");
+        }
+        if (message != null) {
+            parts.add("message");
+        }
+        return parts.isEmpty() ? "all" : String.join("+", parts);
+    }
+
+    // The statement for this query's shape, built on first use. Rows come in key order, descending when
+    // backward; with a cursor only rows past it, and when limited the row limit is the last parameter.
+    String sql(int rootCauseMatches, boolean hasCursor, boolean forward, boolean limited) {
+        String key = shape(rootCauseMatches) + (hasCursor ? "|cursor" : "") + (forward ? "|asc" : "|desc")
+            + (limited ? "|limit" : "");
+        return SQL_BY_SHAPE.computeIfAbsent(key, k -> buildSQL(rootCauseMatches, hasCursor, forward, limited));
+    }
+
+    private String buildSQL(int rootCauseMatches, boolean hasCursor, boolean forward, boolean limited) {
+        String[] keyColumns = keyColumns();
+        List<String> conditions = new ArrayList<>();
+        if (level != null) {
+            conditions.add(LEVEL_WHERE);
+        }
+        if (from != null) {
+            conditions.add(FROM_WHERE);
+        }
+        if (to != null) {
+            conditions.add(TO_WHERE);
+        }
+        if (rootCause != null) {
+            conditions.add(rootCauseMatches == 1 ? ROOT_CAUSE_WHERE : ROOT_CAUSES_WHERE);
+        }
+        if (templateId != null) {
+            conditions.add(TEMPLATE_WHERE);
+        }
+        if (message != null) {
+            conditions.add(fullTextDriven() ? FTS_WHERE : MESSAGE_WHERE);
+        }
+        if (hasCursor) {
+            boolean composite = keyColumns.length == 2;
+            String key = composite ? "(" + String.join(", ", keyColumns) + ")" : keyColumns[0];
+            conditions.add(key + (forward ? " > " : " < ") + (composite ? "(?, ?)" : "?"));
+        }
+        String order = forward ? String.join(", ", keyColumns) : String.join(" DESC, ", keyColumns) + " DESC";
+        return "SELECT " + PARTITION_VIEW + ".* FROM " + (fullTextDriven() ? FTS_SOURCE : PARTITION_VIEW)
+            + (conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions))
+            + " ORDER BY " + order + (limited ? " LIMIT ?" : "");
+    }
+
+    // Values for the statement's predicates, in order; the cursor key and limit follow them
+    Object[] parameters(List<Integer> rootCauseIds) {
+        List<Object> values = new ArrayList<>();
+        if (level != null) {
+            values.add(level);
+        }
+        if (from != null) {
+            values.add(from);
+        }
+        if (to != null) {
+            values.add(to);
+        }
+        if (rootCause != null) {
+            values.add(rootCauseIds.size() == 1 ? (Object) rootCauseIds.get(0) : rootCauseIds.toString());
+        }
+        if (templateId != null) {
+            values.add(templateId);
+        }
+        if (message != null) {
+            values.add(messageMatch);
+        }
+        return values.toArray();
+    }
+
+    // Ids of the root causes the query matches, from the dictionary; null without a root cause predicate
+    List<Integer> rootCauseIds(Connection conn) throws SQLException {
+        if (rootCause == null) {
+            return null;
+        }
+        List<Integer> ids = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id, name FROM root_causes ORDER BY id")) {
+            while (rs.next()) {
+                if (rootCauseMatcher.test(rs.getString(2))) {
+                    ids.add(rs.getInt(1));
+                }
+            }
+        }
+        return ids;
+    }
+
+    // The same predicates for sealed segments, cheapest first
+    LogSegment.Filter sealedFilter() {
+        List<LogSegment.Filter> filters = new ArrayList<>();
+        if (from != null || to != null) {
+            filters.add(LogSegment.timeRange(from == null ? Long.MIN_VALUE : from, to == null ? Long.MAX_VALUE : to));
+        }
+        if (level != null) {
+            filters.add(LogSegment.level(level));
+        }
+        if (rootCause != null) {
+            filters.add(LogSegment.rootCause(rootCauseMatcher));
+        }
+        if (templateId != null) {
+            filters.add(LogSegment.template(templateId));
+        }
+        if (message != null) {
+            filters.add(LogSegment.message(messageMatcher));
+        }
+        return LogSegment.allOf(filters);
+    }
+
+    
+    // Every built-in query shape on day's partition, for the EXPLAIN QUERY PLAN self-check
+    static Map<String, String> builtInShapes(int day) {
+        Map<String, LogQuery> queries = new LinkedHashMap<>();
+        queries.put("fetchLogsPaginated", ALL);
+        queries.put("searchLogsByLevelPaginated", builder().level("ERROR").build());
+        queries.put("searchLogsByMessagePaginated", builder().message("timeout").build());
+        queries.put("searchLogsByRootCausePaginated", builder().rootCause("Timeout").build());
+        queries.put("searchLogsByDateRangePaginated", builder().between(0, 1).build());
+        queries.put("searchLogsByTemplatePaginated", builder().template(1).build());
+        queries.put("search (level, root cause, time range)",
+            builder().level("ERROR").rootCause("Timeout").between(0, 1).build());
+        queries.put("search (level, message)", builder().level("ERROR").message("timeout").build());
+        Map<String, String> shapes = new LinkedHashMap<>();
+        for (Map.Entry<String, LogQuery> query : queries.entrySet()) {
+            LogQuery q = query.getValue();
+            String name = query.getKey();
+            shapes.put(name + " (first page)", LogPartitions.forPartition(q.sql(1, false, true, true), day));
+            shapes.put(name + " (next page)", LogPartitions.forPartition(q.sql(1, true, true, true), day));
+            shapes.put(name + " (previous page)", LogPartitions.forPartition(q.sql(1, true, false, true), day));
+        }
+        return shapes;
+    }
+
+    
+    // Human-readable predicates, e.g. level = ERROR, root cause 'Timeout', from 2025-10-04 10:00:00
+    public String describe() {
+        if (isEmpty()) {
+            return "all logs";
+        }
+        List<String> parts = new ArrayList<>();
+        if (level != null) {
+            parts.add("level = " + level);
+        }
+        if (from != null) {
+            parts.add("from " + LogTimestamps.format(from));
+        }
+        if (to != null) {
+            parts.add("to " + LogTimestamps.format(to));
+        }
+        if (rootCause != null) {
+            parts.add("root cause '" + rootCause + "'");
+        }
+        if (templateId != null) {
+            parts.add("template #" + templateId);
+        }
+        if (message != null) {
+            parts.add("message '" + message + "'");
+        }
+        return String.join(", ", parts);
+    }
+
+    // The predicates with their values, which name the query's rows
+    String cacheKey() {
+        return level + "|" + from + "|" + to + "|" + message + "|" + rootCause + "|" + templateId;
+    }
+
+    @Override
+    public String toString() {
+        return describe();
+    }
+
+    
+    // Predicates left unset match everything; blank text, or text with nothing to search for, is ignored
+    public static final class Builder {
+        private String level;
+        private Long from;
+        private Long to;
+        private String message;
+        private String rootCause;
+        private Integer templateId;
+
+        private Builder() {
+        }
+
+        public Builder level(String level) {
+            this.level = level == null || level.isBlank() ? null : level.trim();
+            return this;
+        }
+
+        // Epoch millis, inclusive
+        public Builder from(long from) {
+            this.from = from;
+            return this;
+        }
+
+        public Builder to(long to) {
+            this.to = to;
+            return this;
+        }
+
+        public Builder between(long from, long to) {
+            return from(from).to(to);
+        }
+
+        // From hours ago until now on the local clock, as LogAnalyzer.generateSummary counts them, since log
+        // timestamps are wall-clock times
+        public Builder lastHours(int hours) {
+            LocalDateTime now = LocalDateTime.now();
+            return between(LogTimestamps.of(now.minusHours(hours)), LogTimestamps.of(now));
+        }
+
+        public Builder message(String text) {
+            this.message = searchable(text, "message") ? text : null;
+            return this;
+        }
+
+        public Builder rootCause(String text) {
+            this.rootCause = searchable(text, "root_cause") ? text : null;
+            return this;
+        }
+
+        public Builder template(int templateId) {
+            this.templateId = templateId;
+            return this;
+        }
+
+        public LogQuery build() {
+            return new LogQuery(this);
+        }
+
+        private static boolean searchable(String text, String column) {
+            return text != null && FullTextQuery.toMatchExpression(text, column, false) != null;
+        }
+    }
+}
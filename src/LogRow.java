@@ -0,0 +1,21 @@
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+// A stored log as queries return it, from a partition or a sealed segment; rootCause may be null
+public record LogRow(long id, long ts, String level, String message, String rootCause) {
+
+    static LogRow from(ResultSet rs) throws SQLException {
+        return new LogRow(rs.getLong("id"), rs.getLong("ts"), rs.getString("level"), rs.getString("message"),
+            rs.getString("root_cause"));
+    }
+
+    static LogRow from(LogSegment segment, int row) {
+        return new LogRow(segment.id(row), segment.ts(row), segment.level(row), segment.message(row),
+            segment.rootCause(row));
+    }
+
+    // Rough heap footprint: object headers plus two bytes per character
+    long estimatedBytes() {
+        return 160 + 2L * (level.length() + message.length() + (rootCause == null ? 0 : rootCause.length()));
+    }
+}
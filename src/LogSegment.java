@@ -0,0 +1,705 @@
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+// One sealed day of logs in an immutable columnar file, memory-mapped for reads; see LogSegments. Rows are in id
+// order and each column is stored apart, so a scan reads only the columns it needs:
+//   ids and timestamps   4-byte offsets from the day's first id and first millisecond (frame-of-reference deltas)
+//   level                1-byte codes into the segment's level dictionary, plus one bitmap of rows per level
+//   root cause           2-byte codes into the segment's root cause dictionary, 0 for none
+//   template             4-byte template ids
+//   message              4-byte end offsets into a block of UTF-8 text
+//   content hash         sorted, for duplicate checks by binary search
+// The header holds the row count, min/max timestamp and id and the dictionaries, so a query can skip a segment
+// without touching its columns. Rows whose timestamps are out of order also get a (ts, id) sort permutation.
+public final class LogSegment {
+
+    private static final byte[] MAGIC = "LIQSEG1\n".getBytes(StandardCharsets.US_ASCII);
+    private static final int VERSION = 1;
+    private static final int TS_SORTED = 1;
+
+    // Column offsets in the header, in file order; END is the file size
+    private static final int ID = 0;
+    private static final int TS = 1;
+    private static final int LEVEL = 2;
+    private static final int ROOT_CAUSE = 3;
+    private static final int TEMPLATE = 4;
+    private static final int HASH = 5;
+    private static final int TS_ORDER = 6;
+    private static final int LEVEL_BITMAPS = 7;
+    private static final int MESSAGE_ENDS = 8;
+    private static final int MESSAGE_BYTES = 9;
+    private static final int END = 10;
+
+    private final Path file;
+    private final MappedByteBuffer buffer;
+    private final int day;
+    private final int rows;
+    private final boolean tsSorted;
+    private final long minTs;
+    private final long maxTs;
+    private final long maxId;
+    private final long idBase;
+    private final long tsBase;
+    private final String[] levels;
+    // Index 0 is "no root cause"
+    private final String[] rootCauses;
+    private final Map<String, Integer> levelCodes = new HashMap<>();
+    private final long[] offsets = new long[END + 1];
+    private final int bitmapWords;
+
+    
+    private LogSegment(Path file) throws IOException {
+        this.file = file;
+        try (FileChannel channel = FileChannel.open(file)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Segment is larger than 2 GB: " + file);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        byte[] magic = new byte[MAGIC.length];
+        buffer.get(0, magic);
+        if (!Arrays.equals(magic, MAGIC) || buffer.getInt(MAGIC.length) != VERSION) {
+            throw new IOException("Not a log segment: " + file);
+        }
+        int pos = MAGIC.length + 4;
+        day = buffer.getInt(pos);
+        rows = buffer.getInt(pos + 4);
+        tsSorted = (buffer.getInt(pos + 8) & TS_SORTED) != 0;
+        minTs = buffer.getLong(pos + 12);
+        maxTs = buffer.getLong(pos + 20);
+        maxId = buffer.getLong(pos + 28);
+        pos += 36;
+        levels = new String[buffer.getInt(pos)];
+        pos += 4;
+        for (int i = 0; i < levels.length; i++) {
+            int length = buffer.getShort(pos) & 0xFFFF;
+            levels[i] = decode(pos + 2, length);
+            levelCodes.put(levels[i], i);
+            pos += 2 + length;
+        }
+        rootCauses = new String[buffer.getInt(pos) + 1];
+        pos += 4;
+        for (int i = 1; i < rootCauses.length; i++) {
+            int length = buffer.getShort(pos) & 0xFFFF;
+            rootCauses[i] = decode(pos + 2, length);
+            pos += 2 + length;
+        }
+        for (int i = 0; i <= END; i++) {
+            offsets[i] = buffer.getLong(pos + 8 * i);
+        }
+        idBase = day * LogPartitions.IDS_PER_DAY;
+        tsBase = LogPartitions.toDate(day).toEpochDay() * 86_400_000L;
+        bitmapWords = (rows + 63) / 64;
+    }
+
+    public static LogSegment open(Path file) throws IOException {
+        return new LogSegment(file);
+    }
+
+    
+    public Path getFile() {
+        return file;
+    }
+
+    public int getDay() {
+        return day;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public long getMinTs() {
+        return minTs;
+    }
+
+    public long getMaxTs() {
+        return maxTs;
+    }
+
+    public long getMaxId() {
+        return maxId;
+    }
+
+    public long getSizeBytes() {
+        return offsets[END];
+    }
+
+    
+    public long id(int row) {
+        return idBase + (buffer.getInt(column(ID, 4, row)) & 0xFFFFFFFFL);
+    }
+
+    public long ts(int row) {
+        return tsBase + buffer.getInt(column(TS, 4, row));
+    }
+
+    public String level(int row) {
+        return levels[levelCode(row)];
+    }
+
+    // Null when the row has no root cause
+    public String rootCause(int row) {
+        return rootCauses[rootCauseCode(row)];
+    }
+
+    // 0 when the row has no template
+    public int templateId(int row) {
+        return buffer.getInt(column(TEMPLATE, 4, row));
+    }
+
+    public String message(int row) {
+        int start = row == 0 ? 0 : buffer.getInt(column(MESSAGE_ENDS, 4, row - 1));
+        int end = buffer.getInt(column(MESSAGE_ENDS, 4, row));
+        return decode((int) offsets[MESSAGE_BYTES] + start, end - start);
+    }
+
+    // Whether a row with this content hash is stored here
+    public boolean contains(long hash) {
+        int low = 0;
+        int high = rows - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long value = buffer.getLong(column(HASH, 8, mid));
+            if (value < hash) {
+                low = mid + 1;
+            } else if (value > hash) {
+                high = mid - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // The index-th smallest content hash; there is one per row
+    long sortedHash(int index) {
+        return buffer.getLong(column(HASH, 8, index));
+    }
+
+    private int levelCode(int row) {
+        return buffer.get(column(LEVEL, 1, row)) & 0xFF;
+    }
+
+    private int rootCauseCode(int row) {
+        return buffer.getChar(column(ROOT_CAUSE, 2, row));
+    }
+
+    private boolean hasLevel(int code, int row) {
+        long word = buffer.getLong((int) offsets[LEVEL_BITMAPS] + 8 * (code * bitmapWords + (row >>> 6)));
+        return (word & (1L << row)) != 0;
+    }
+
+    private int column(int column, int width, int row) {
+        return (int) offsets[column] + width * row;
+    }
+
+    private String decode(int position, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(position, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    
+    // Row indexes of the rows matching filter, in ascending key order: id, or (ts, id) when byTimestamp. With a
+    // cursor only rows after it (forward) or before it (backward) are returned; backward, the limit rows
+    // closest to the cursor.
+    public int[] select(Filter filter, boolean byTimestamp, boolean forward, boolean hasCursor, long cursorTs,
+                        long cursorId, int limit) {
+        if (limit <= 0 || rows == 0 || !filter.mayMatch(this)) {
+            return new int[0];
+        }
+        boolean permuted = byTimestamp && !tsSorted;
+        int[] found = new int[Math.min(limit, rows)];
+        int count = 0;
+        if (forward) {
+            int position = hasCursor ? bound(byTimestamp, cursorTs, cursorId, true) : 0;
+            for (; position < rows && count < found.length; position++) {
+                int row = permuted ? buffer.getInt(column(TS_ORDER, 4, position)) : position;
+                if (filter.test(this, row)) {
+                    found[count++] = row;
+                }
+            }
+            return Arrays.copyOf(found, count);
+        }
+        int position = (hasCursor ? bound(byTimestamp, cursorTs, cursorId, false) : rows) - 1;
+        for (; position >= 0 && count < found.length; position--) {
+            int row = permuted ? buffer.getInt(column(TS_ORDER, 4, position)) : position;
+            if (filter.test(this, row)) {
+                found[count++] = row;
+            }
+        }
+        int[] ascending = new int[count];
+        for (int i = 0; i < count; i++) {
+            ascending[i] = found[count - 1 - i];
+        }
+        return ascending;
+    }
+
+    // First position in key order whose key is after the cursor (after = true) or not before it
+    private int bound(boolean byTimestamp, long cursorTs, long cursorId, boolean after) {
+        boolean permuted = byTimestamp && !tsSorted;
+        int low = 0;
+        int high = rows;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int row = permuted ? buffer.getInt(column(TS_ORDER, 4, mid)) : mid;
+            int cmp = byTimestamp ? compareKey(ts(row), id(row), cursorTs, cursorId) : Long.compare(id(row), cursorId);
+            if (cmp < 0 || (after && cmp == 0)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    static int compareKey(long ts, long id, long otherTs, long otherId) {
+        int cmp = Long.compare(ts, otherTs);
+        return cmp != 0 ? cmp : Long.compare(id, otherId);
+    }
+
+    
+    // Rows per level, counted from the level bitmaps
+    public Map<String, Long> countByLevel() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (int code = 0; code < levels.length; code++) {
+            long count = 0;
+            int base = (int) offsets[LEVEL_BITMAPS] + 8 * code * bitmapWords;
+            for (int word = 0; word < bitmapWords; word++) {
+                count += Long.bitCount(buffer.getLong(base + 8 * word));
+            }
+            counts.put(levels[code], count);
+        }
+        return counts;
+    }
+
+    // Rows per level and root cause ("" for none) with fromTs <= ts <= toTs. The range is found by binary search
+    // in timestamp order, so only the level and root cause codes of the rows inside it are read.
+    public Map<String, Map<String, Long>> countByLevelAndRootCause(long fromTs, long toTs) {
+        long[][] counts = new long[levels.length][rootCauses.length];
+        if (fromTs <= maxTs && toTs >= minTs) {
+            int first = bound(true, fromTs, Long.MIN_VALUE, true);
+            int last = bound(true, toTs, Long.MAX_VALUE, false);
+            int levelColumn = (int) offsets[LEVEL];
+            int rootCauseColumn = (int) offsets[ROOT_CAUSE];
+            for (int position = first; position < last; position++) {
+                int row = tsSorted ? position : buffer.getInt(column(TS_ORDER, 4, position));
+                counts[buffer.get(levelColumn + row) & 0xFF][buffer.getChar(rootCauseColumn + 2 * row)]++;
+            }
+        }
+        Map<String, Map<String, Long>> result = new LinkedHashMap<>();
+        for (int level = 0; level < levels.length; level++) {
+            for (int rootCause = 0; rootCause < rootCauses.length; rootCause++) {
+                if (counts[level][rootCause] > 0) {
+                    result.computeIfAbsent(levels[level], k -> new LinkedHashMap<>())
+                        .put(rootCause == 0 ? "" : rootCauses[rootCause], counts[level][rootCause]);
+                }
+            }
+        }
+        return result;
+    }
+
+    // Rows per template id, templated rows only
+    public Map<Integer, Long> countByTemplate() {
+        Map<Integer, Long> counts = new HashMap<>();
+        for (int row = 0; row < rows; row++) {
+            int templateId = templateId(row);
+            if (templateId != 0) {
+                counts.merge(templateId, 1L, Long::sum);
+            }
+        }
+        return counts;
+    }
+
+    
+    @Override
+    public String toString() {
+        return String.format("%s: day %d, %d rows, %.1f MB", file.getFileName(), day, rows, offsets[END] / (1024.0 * 1024.0));
+    }
+
+    
+    // Which rows a search wants. mayMatch looks at the header only and lets a whole segment be skipped.
+    public interface Filter {
+        boolean mayMatch(LogSegment segment);
+
+        boolean test(LogSegment segment, int row);
+    }
+
+    public static final Filter ALL = new Filter() {
+        @Override
+        public boolean mayMatch(LogSegment segment) {
+            return true;
+        }
+
+        @Override
+        public boolean test(LogSegment segment, int row) {
+            return true;
+        }
+    };
+
+    // Rows of the level, read from its bitmap; segments without the level are skipped
+    public static Filter level(String level) {
+        return new Filter() {
+            @Override
+            public boolean mayMatch(LogSegment segment) {
+                return segment.levelCodes.containsKey(level);
+            }
+
+            @Override
+            public boolean test(LogSegment segment, int row) {
+                return segment.hasLevel(segment.levelCodes.get(level), row);
+            }
+        };
+    }
+
+    // Rows with from <= ts <= to; segments outside the range are skipped
+    public static Filter timeRange(long from, long to) {
+        return new Filter() {
+            @Override
+            public boolean mayMatch(LogSegment segment) {
+                return from <= segment.maxTs && to >= segment.minTs;
+            }
+
+            @Override
+            public boolean test(LogSegment segment, int row) {
+                long ts = segment.ts(row);
+                return ts >= from && ts <= to;
+            }
+        };
+    }
+
+    public static Filter template(int templateId) {
+        return new Filter() {
+            @Override
+            public boolean mayMatch(LogSegment segment) {
+                return true;
+            }
+
+            @Override
+            public boolean test(LogSegment segment, int row) {
+                return segment.templateId(row) == templateId;
+            }
+        };
+    }
+
+    // Rows whose message matches; every message is decoded, so this is the slowest filter. A null predicate,
+    // from a query without searchable text, matches nothing.
+    public static Filter message(Predicate<String> matches) {
+        return new Filter() {
+            @Override
+            public boolean mayMatch(LogSegment segment) {
+                return matches != null;
+            }
+
+            @Override
+            public boolean test(LogSegment segment, int row) {
+                return matches.test(segment.message(row));
+            }
+        };
+    }
+
+    // Rows whose root cause matches; matches runs once per dictionary entry, not once per row. A null
+    // predicate matches nothing.
+    public static Filter rootCause(Predicate<String> matches) {
+        Map<LogSegment, boolean[]> matching = new IdentityHashMap<>();
+        return new Filter() {
+            @Override
+            public boolean mayMatch(LogSegment segment) {
+                if (matches == null) {
+                    return false;
+                }
+                for (boolean match : codes(segment)) {
+                    if (match) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            @Override
+            public boolean test(LogSegment segment, int row) {
+                return matches != null && codes(segment)[segment.rootCauseCode(row)];
+            }
+
+            // Whether each root cause code of the segment matches, worked out once per segment
+            private boolean[] codes(LogSegment segment) {
+                return matching.computeIfAbsent(segment, s -> {
+                    boolean[] result = new boolean[s.rootCauses.length];
+                    for (int i = 1; i < result.length; i++) {
+                        result[i] = matches.test(s.rootCauses[i]);
+                    }
+                    return result;
+                });
+            }
+        };
+    }
+
+    // Rows matching every filter; a segment is skipped if any filter skips it
+    public static Filter allOf(List<Filter> filters) {
+        if (filters.isEmpty()) {
+            return ALL;
+        }
+        if (filters.size() == 1) {
+            return filters.get(0);
+        }
+        Filter[] all = filters.toArray(new Filter[0]);
+        return new Filter() {
+            @Override
+            public boolean mayMatch(LogSegment segment) {
+                for (Filter filter : all) {
+                    if (!filter.mayMatch(segment)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public boolean test(LogSegment segment, int row) {
+                for (Filter filter : all) {
+                    if (!filter.test(segment, row)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        };
+    }
+
+    
+    // Builds a segment from rows added in ascending id order. Fixed-width columns are kept in memory and messages
+    // are spooled to a side file, so a day of any size is written with about 20 bytes of heap per row.
+    public static final class Writer implements Closeable {
+        private final Path file;
+        private final Path spool;
+        private final int day;
+        private final long idBase;
+        private final long tsBase;
+        private final OutputStream messages;
+        private final Map<String, Integer> levelCodes = new LinkedHashMap<>();
+        private final Map<String, Integer> rootCauseCodes = new LinkedHashMap<>();
+        private int[] ids = new int[1024];
+        private int[] timestamps = new int[1024];
+        private byte[] levelColumn = new byte[1024];
+        private char[] rootCauseColumn = new char[1024];
+        private int[] templates = new int[1024];
+        private int[] messageEnds = new int[1024];
+        private long[] hashes = new long[1024];
+        private int rows;
+        private int hashCount;
+        private long messageBytes;
+        private long lastId = Long.MIN_VALUE;
+        private boolean tsSorted = true;
+        private long minTs = Long.MAX_VALUE;
+        private long maxTs = Long.MIN_VALUE;
+
+        public Writer(Path file, int day) throws IOException {
+            this.file = file;
+            this.spool = file.resolveSibling(file.getFileName() + ".messages");
+            this.day = day;
+            this.idBase = day * LogPartitions.IDS_PER_DAY;
+            this.tsBase = LogPartitions.toDate(day).toEpochDay() * 86_400_000L;
+            this.messages = new BufferedOutputStream(Files.newOutputStream(spool), 1024 * 1024);
+        }
+
+        public void add(long id, long ts, String level, String rootCause, int templateId, String message)
+                throws IOException {
+            if (id <= lastId || id - idBase < 0 || id - idBase > 0xFFFFFFFFL) {
+                throw new IOException("Row id " + id + " is out of order or outside day " + day);
+            }
+            if (ts - tsBase < 0 || ts - tsBase >= 86_400_000L) {
+                throw new IOException("Timestamp " + ts + " of row " + id + " is outside day " + day);
+            }
+            if (rows == ids.length) {
+                grow();
+            }
+            byte[] text = message.getBytes(StandardCharsets.UTF_8);
+            messageBytes += text.length;
+            if (messageBytes > Integer.MAX_VALUE) {
+                throw new IOException("Messages of day " + day + " exceed 2 GB; the day stays in SQLite");
+            }
+            messages.write(text);
+            if (rows > 0 && compareKey(ts, id, tsBase + timestamps[rows - 1], idBase + (ids[rows - 1] & 0xFFFFFFFFL)) < 0) {
+                tsSorted = false;
+            }
+            ids[rows] = (int) (id - idBase);
+            timestamps[rows] = (int) (ts - tsBase);
+            levelColumn[rows] = (byte) code(levelCodes, level, 255, 0);
+            rootCauseColumn[rows] = (char) (rootCause == null ? 0 : code(rootCauseCodes, rootCause, 65_535, 1));
+            templates[rows] = templateId;
+            messageEnds[rows] = (int) messageBytes;
+            minTs = Math.min(minTs, ts);
+            maxTs = Math.max(maxTs, ts);
+            lastId = id;
+            rows++;
+        }
+
+        // Content hashes are kept sorted, apart from the rows, so they may be added in any order
+        public void addHash(long hash) {
+            if (hashCount == hashes.length) {
+                hashes = Arrays.copyOf(hashes, hashes.length * 2);
+            }
+            hashes[hashCount++] = hash;
+        }
+
+        public int getRows() {
+            return rows;
+        }
+
+        private int code(Map<String, Integer> codes, String name, int max, int first) throws IOException {
+            Integer code = codes.get(name);
+            if (code == null) {
+                if (codes.size() + first > max) {
+                    throw new IOException("Too many distinct values for a segment dictionary: " + name);
+                }
+                code = codes.size() + first;
+                codes.put(name, code);
+            }
+            return code;
+        }
+
+        private void grow() {
+            int size = ids.length * 2;
+            ids = Arrays.copyOf(ids, size);
+            timestamps = Arrays.copyOf(timestamps, size);
+            levelColumn = Arrays.copyOf(levelColumn, size);
+            rootCauseColumn = Arrays.copyOf(rootCauseColumn, size);
+            templates = Arrays.copyOf(templates, size);
+            messageEnds = Arrays.copyOf(messageEnds, size);
+        }
+
+        // Writes the file and maps it
+        public LogSegment finish() throws IOException {
+            messages.close();
+            long[] sortedHashes = Arrays.copyOf(hashes, hashCount);
+            Arrays.sort(sortedHashes);
+            if (sortedHashes.length != rows) {
+                throw new IOException("Segment of day " + day + " has " + rows + " rows but " + hashCount + " hashes");
+            }
+            int[] order = tsSorted ? new int[0] : timestampOrder();
+            int words = (rows + 63) / 64;
+
+            ByteArrayOutputStream dictionaries = new ByteArrayOutputStream();
+            DataOutputStream dict = new DataOutputStream(dictionaries);
+            writeNames(dict, levelCodes);
+            writeNames(dict, rootCauseCodes);
+            long[] offsets = new long[END + 1];
+            offsets[ID] = MAGIC.length + 4 + 36 + dictionaries.size() + 8L * (END + 1);
+            offsets[TS] = offsets[ID] + 4L * rows;
+            offsets[LEVEL] = offsets[TS] + 4L * rows;
+            offsets[ROOT_CAUSE] = offsets[LEVEL] + rows;
+            offsets[TEMPLATE] = offsets[ROOT_CAUSE] + 2L * rows;
+            offsets[HASH] = offsets[TEMPLATE] + 4L * rows;
+            offsets[TS_ORDER] = offsets[HASH] + 8L * rows;
+            offsets[LEVEL_BITMAPS] = offsets[TS_ORDER] + 4L * order.length;
+            offsets[MESSAGE_ENDS] = offsets[LEVEL_BITMAPS] + 8L * words * levelCodes.size();
+            offsets[MESSAGE_BYTES] = offsets[MESSAGE_ENDS] + 4L * rows;
+            offsets[END] = offsets[MESSAGE_BYTES] + messageBytes;
+            if (offsets[END] > Integer.MAX_VALUE) {
+                throw new IOException("Segment of day " + day + " would exceed 2 GB; the day stays in SQLite");
+            }
+
+            try (DataOutputStream out = new DataOutputStream(
+                     new BufferedOutputStream(Files.newOutputStream(file), 1024 * 1024))) {
+                out.write(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(day);
+                out.writeInt(rows);
+                out.writeInt(tsSorted ? TS_SORTED : 0);
+                out.writeLong(rows == 0 ? 0 : minTs);
+                out.writeLong(rows == 0 ? 0 : maxTs);
+                out.writeLong(rows == 0 ? idBase : lastId);
+                dictionaries.writeTo(out);
+                for (long offset : offsets) {
+                    out.writeLong(offset);
+                }
+                for (int i = 0; i < rows; i++) {
+                    out.writeInt(ids[i]);
+                }
+                for (int i = 0; i < rows; i++) {
+                    out.writeInt(timestamps[i]);
+                }
+                out.write(levelColumn, 0, rows);
+                for (int i = 0; i < rows; i++) {
+                    out.writeChar(rootCauseColumn[i]);
+                }
+                for (int i = 0; i < rows; i++) {
+                    out.writeInt(templates[i]);
+                }
+                for (long hash : sortedHashes) {
+                    out.writeLong(hash);
+                }
+                for (int row : order) {
+                    out.writeInt(row);
+                }
+                for (int code = 0; code < levelCodes.size(); code++) {
+                    long[] bitmap = new long[words];
+                    for (int i = 0; i < rows; i++) {
+                        if ((levelColumn[i] & 0xFF) == code) {
+                            bitmap[i >>> 6] |= 1L << i;
+                        }
+                    }
+                    for (long word : bitmap) {
+                        out.writeLong(word);
+                    }
+                }
+                for (int i = 0; i < rows; i++) {
+                    out.writeInt(messageEnds[i]);
+                }
+                Files.copy(spool, out);
+            }
+            Files.deleteIfExists(spool);
+            return open(file);
+        }
+
+        // Row indexes sorted by (ts, id); ids ascend with the row index, so a stable sort on ts is enough
+        private int[] timestampOrder() {
+            Integer[] order = new Integer[rows];
+            for (int i = 0; i < rows; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Integer.compare(timestamps[a], timestamps[b]));
+            int[] result = new int[rows];
+            for (int i = 0; i < rows; i++) {
+                result[i] = order[i];
+            }
+            return result;
+        }
+
+        private static void writeNames(DataOutputStream out, Map<String, Integer> codes) throws IOException {
+            out.writeInt(codes.size());
+            for (String name : codes.keySet()) {
+                byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+                if (bytes.length > 0xFFFF) {
+                    throw new IOException("Dictionary entry too long for a segment: " + name.substring(0, 64));
+                }
+                out.writeShort(bytes.length);
+                out.write(bytes);
+            }
+        }
+
+        // Drops the spooled messages; the segment file, if finished, is left to the caller
+        @Override
+        public void close() throws IOException {
+            messages.close();
+            Files.deleteIfExists(spool);
+        }
+    }
+}
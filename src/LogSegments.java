@@ -0,0 +1,293 @@
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+// The cold tier. Day partitions older than logiq.seal.after.days are rewritten as LogSegment files in the
+// segments directory next to the database and dropped from SQLite, which keeps the recent, writable days. The
+// log_segments table lists each sealed day's file; segments never change, so the catalog is read once and kept
+// in memory with every segment mapped. Rollups and template counts are left as they are, so summaries cover
+// both tiers. Logs that arrive for a sealed day go to a new partition numbered after the segment; queries read
+// both, and sealing the day again merges them into a new segment.
+public final class LogSegments {
+
+    static final String CREATE_CATALOG_SQL = "CREATE TABLE IF NOT EXISTS log_segments ("
+        + "day INTEGER PRIMARY KEY, file TEXT NOT NULL, rows INTEGER NOT NULL, min_ts INTEGER NOT NULL, "
+        + "max_ts INTEGER NOT NULL, max_id INTEGER NOT NULL, sealed_at TEXT NOT NULL)";
+    // Days kept in SQLite, counted back from today on the local clock; older partitions are sealed. 0 never seals.
+    private static final int SEAL_AFTER_DAYS = Integer.getInteger("logiq.seal.after.days", 0);
+    static final Path DIRECTORY =
+        Paths.get(System.getProperty("logiq.db", "db/logiq.db")).toAbsolutePath().resolveSibling("segments");
+
+    private static final Metrics.Counter DAYS_SEALED =
+        Metrics.counter("logiq_segments_sealed_total", "Day partitions sealed into segments.");
+    private static final Metrics.Histogram SEAL_LATENCY =
+        Metrics.histogram("logiq_segment_seal_seconds", "Time to seal one day partition, verification included.");
+
+    private static final ConcurrentSkipListMap<Integer, LogSegment> SEGMENTS = new ConcurrentSkipListMap<>();
+    private static volatile boolean loaded;
+
+    private LogSegments() {
+    }
+
+    
+    // The sealed segment of day, or null
+    public static LogSegment get(Connection conn, int day) throws SQLException {
+        ensureLoaded(conn);
+        return SEGMENTS.get(day);
+    }
+
+    // Sealed days in ascending order from fromDay to toDay, inclusive
+    public static NavigableSet<Integer> days(Connection conn, int fromDay, int toDay) throws SQLException {
+        ensureLoaded(conn);
+        return SEGMENTS.subMap(fromDay, true, toDay, true).navigableKeySet();
+    }
+
+    public static Collection<LogSegment> all(Connection conn) throws SQLException {
+        ensureLoaded(conn);
+        return SEGMENTS.values();
+    }
+
+    // Maps every catalogued segment, once per process, and deletes files a failed seal left behind
+    private static synchronized void ensureLoaded(Connection conn) throws SQLException {
+        if (loaded) {
+            return;
+        }
+        List<String> files = new ArrayList<>();
+        try (Statement stmt = conn.createStatement()) {
+            // Before SchemaMigrator has created the catalog there is nothing sealed
+            ResultSet rs = stmt.executeQuery("SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = 'log_segments'");
+            if (rs.next()) {
+                rs = stmt.executeQuery("SELECT day, file FROM log_segments ORDER BY day");
+                while (rs.next()) {
+                    int day = rs.getInt(1);
+                    String file = rs.getString(2);
+                    files.add(file);
+                    try {
+                        SEGMENTS.put(day, LogSegment.open(DIRECTORY.resolve(file)));
+                    } catch (IOException e) {
+                        System.out.println("⚠️ Sealed segment " + file + " could not be opened (" + e.getMessage()
+                            + "); logs of " + LogPartitions.toDate(day) + " are missing from searches.");
+                    }
+                }
+            }
+        }
+        if (Files.isDirectory(DIRECTORY)) {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(DIRECTORY)) {
+                for (Path path : stream) {
+                    if (!files.contains(path.getFileName().toString())) {
+                        Files.deleteIfExists(path);
+                    }
+                }
+            } catch (IOException e) {
+                System.out.println("⚠️ Could not clean up " + DIRECTORY + ": " + e.getMessage());
+            }
+        }
+        loaded = true;
+    }
+
+    
+    // First day kept in SQLite by the sealing policy, or 0 when nothing is sealed
+    public static int sealHorizonDay() {
+        if (SEAL_AFTER_DAYS <= 0) {
+            return 0;
+        }
+        return LogPartitions.toDay(LocalDate.now().minusDays(SEAL_AFTER_DAYS - 1));
+    }
+
+    // Seals every partition older than the sealing period; returns how many
+    public static int applySealPolicy(Connection conn) throws SQLException {
+        int horizon = sealHorizonDay();
+        return horizon == 0 ? 0 : sealBefore(conn, horizon);
+    }
+
+    // Seals every partition before day, one at a time. A day that cannot be sealed stays in SQLite and is
+    // reported; the others are still sealed. Returns how many were.
+    public static int sealBefore(Connection conn, int day) throws SQLException {
+        int sealed = 0;
+        long bytes = 0;
+        long rows = 0;
+        for (int partition : LogPartitions.days(conn, 0, day - 1)) {
+            try {
+                LogSegment segment = seal(conn, partition);
+                sealed++;
+                bytes += segment.getSizeBytes();
+                rows += segment.getRows();
+            } catch (IOException | SQLException e) {
+                System.out.println("⚠️ Could not seal the logs of " + LogPartitions.toDate(partition) + ": "
+                    + e.getMessage() + "; they stay in SQLite.");
+            }
+        }
+        if (sealed > 0) {
+            System.out.printf("🧊 Sealed %d partition(s) before %s: %d rows in %.1f MB of segments.%n",
+                sealed, LogPartitions.toDate(day), rows, bytes / (1024.0 * 1024.0));
+        }
+        return sealed;
+    }
+
+    // Writes day's partition, merged with its earlier segment if it has one, to a new segment; checks its row
+    // count per level against the partition; then, in one transaction, catalogs it and drops the partition.
+    public static LogSegment seal(Connection conn, int day) throws SQLException, IOException {
+        long started = Metrics.startTimer();
+        ensureLoaded(conn);
+        LogSegment previous = SEGMENTS.get(day);
+        Files.createDirectories(DIRECTORY);
+        Path file = DIRECTORY.resolve(LogPartitions.table(day) + "-" + System.currentTimeMillis() + ".seg");
+        Map<String, Long> expected = new HashMap<>();
+        LogSegment segment;
+        try {
+            try (LogSegment.Writer writer = new LogSegment.Writer(file, day)) {
+                if (previous != null) {
+                    for (int row = 0; row < previous.getRows(); row++) {
+                        writer.add(previous.id(row), previous.ts(row), previous.level(row), previous.rootCause(row),
+                            previous.templateId(row), previous.message(row));
+                        writer.addHash(previous.sortedHash(row));
+                    }
+                    previous.countByLevel().forEach((level, count) -> expected.merge(level, count, Long::sum));
+                }
+                copyPartition(conn, day, writer);
+                segment = writer.finish();
+            }
+            try (Statement stmt = conn.createStatement()) {
+                ResultSet rs = stmt.executeQuery("SELECT log_levels.name, COUNT(*) FROM " + LogPartitions.table(day)
+                    + " AS logs JOIN log_levels ON log_levels.id = logs.level_id GROUP BY log_levels.name");
+                while (rs.next()) {
+                    expected.merge(rs.getString(1), rs.getLong(2), Long::sum);
+                }
+            }
+            Map<String, Long> actual = new HashMap<>(segment.countByLevel());
+            actual.values().removeIf(count -> count == 0);
+            if (!actual.equals(expected)) {
+                throw new IOException("segment check failed: rows per level " + actual + ", expected " + expected);
+            }
+        } catch (IOException | SQLException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+
+        boolean autoCommit = conn.getAutoCommit();
+        try {
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement("INSERT OR REPLACE INTO log_segments "
+                     + "(day, file, rows, min_ts, max_ts, max_id, sealed_at) VALUES (?, ?, ?, ?, ?, ?, datetime('now'))")) {
+                pstmt.setInt(1, day);
+                pstmt.setString(2, file.getFileName().toString());
+                pstmt.setInt(3, segment.getRows());
+                pstmt.setLong(4, segment.getMinTs());
+                pstmt.setLong(5, segment.getMaxTs());
+                pstmt.setLong(6, segment.getMaxId());
+                pstmt.executeUpdate();
+                LogPartitions.dropTables(conn, day);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                Files.deleteIfExists(file);
+                throw e;
+            }
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+        SEGMENTS.put(day, segment);
+        if (previous != null) {
+            // Readers still holding it keep their mapping
+            Files.deleteIfExists(previous.getFile());
+        }
+        invalidateCache(day);
+        DAYS_SEALED.increment();
+        SEAL_LATENCY.observeSince(started);
+        return segment;
+    }
+
+    // Adds day's partition rows to writer in id order
+    static void copyPartition(Connection conn, int day, LogSegment.Writer writer)
+            throws SQLException, IOException {
+        String[] levels = DatabaseManager.loadNames(conn, "log_levels");
+        String[] rootCauses = DatabaseManager.loadNames(conn, "root_causes");
+        try (Statement stmt = conn.createStatement()) {
+            ResultSet rs = stmt.executeQuery("SELECT id, ts, level_id, message, root_cause_id, content_hash, template_id FROM "
+                + LogPartitions.table(day) + " ORDER BY id");
+            while (rs.next()) {
+                // NULL root_cause_id and template_id read as 0, which neither dictionary uses
+                writer.add(rs.getLong(1), rs.getLong(2), levels[rs.getInt(3)], rootCauses[rs.getInt(5)],
+                    rs.getInt(7), rs.getString(4));
+                writer.addHash(rs.getLong(6));
+            }
+        }
+    }
+
+    
+    // Deletes every segment before horizon, taking its rows out of the rollups and template counts as
+    // LogPartitions.drop does, one transaction per day; returns how many
+    static int applyRetention(Connection conn, int horizon) throws SQLException {
+        ensureLoaded(conn);
+        List<Integer> expired = new ArrayList<>(SEGMENTS.headMap(horizon).keySet());
+        boolean autoCommit = conn.getAutoCommit();
+        try {
+            conn.setAutoCommit(false);
+            for (int day : expired) {
+                LogSegment segment = SEGMENTS.get(day);
+                try (PreparedStatement templates = conn.prepareStatement("UPDATE log_templates SET count = count - ? WHERE id = ?");
+                     PreparedStatement catalog = conn.prepareStatement("DELETE FROM log_segments WHERE day = ?")) {
+                    LogPartitions.subtractRollups(conn, day);
+                    for (Map.Entry<Integer, Long> count : segment.countByTemplate().entrySet()) {
+                        templates.setLong(1, count.getValue());
+                        templates.setInt(2, count.getKey());
+                        templates.addBatch();
+                    }
+                    templates.executeBatch();
+                    catalog.setInt(1, day);
+                    catalog.executeUpdate();
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+                SEGMENTS.remove(day);
+                try {
+                    Files.deleteIfExists(segment.getFile());
+                } catch (IOException e) {
+                    // Uncatalogued, so it is deleted at the next start
+                }
+                invalidateCache(day);
+            }
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+        return expired.size();
+    }
+
+    private static void invalidateCache(int day) {
+        long from = LogPartitions.toDate(day).toEpochDay() * 86_400_000L;
+        DatabaseManager.getResultCache().invalidate(from, from + 86_400_000L - 1);
+    }
+
+    
+    // Seals every partition before a date (yyyy-MM-dd, default today), whatever logiq.seal.after.days says, e.g.
+    // java -Dlogiq.db=db/logiq.db -cp ... LogSegments 2025-10-06
+    public static void main(String[] args) throws SQLException {
+        DatabaseManager.createLogsTable();
+        LocalDate before = args.length > 0 ? LocalDate.parse(args[0]) : LocalDate.now();
+        try (Connection conn = DatabaseManager.connect()) {
+            sealBefore(conn, LogPartitions.toDay(before));
+            for (LogSegment segment : all(conn)) {
+                System.out.println("🧊 " + segment);
+            }
+        } finally {
+            DatabaseManager.shutdown();
+        }
+    }
+}
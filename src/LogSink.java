@@ -0,0 +1,300 @@
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+// Streams log rows to the console or a file through one large buffer. Rows are written field by field: ids and
+// timestamps are formatted into reusable char arrays and strings are copied straight into the buffer, so
+// writing a row allocates nothing and format strings are never parsed. The caller closes the sink, which
+// flushes it.
+public abstract class LogSink implements Closeable {
+
+    public enum Format {
+        CONSOLE, PLAIN, CSV, NDJSON;
+
+        // By file extension: .csv, .ndjson or .jsonl, anything else is plain text
+        public static Format forPath(String path) {
+            String name = path.toLowerCase(Locale.ROOT);
+            if (name.endsWith(".csv")) {
+                return CSV;
+            }
+            if (name.endsWith(".ndjson") || name.endsWith(".jsonl")) {
+                return NDJSON;
+            }
+            return PLAIN;
+        }
+    }
+
+    private static final int CONSOLE_BUFFER_CHARS = 16 * 1024;
+    private static final int FILE_BUFFER_CHARS = 1024 * 1024;
+    private static final String ANSI_RESET = "\u001B[0m";
+    private static final String ANSI_GREEN = "\u001B[32m";
+    private static final String ANSI_YELLOW = "\u001B[33m";
+    private static final String ANSI_RED = "\u001B[31m";
+
+    protected final Writer out;
+    private final char[] digits = new char[20];
+    // "yyyy-MM-dd HH:mm:ss"; the date part is reformatted only when the day changes
+    private final char[] timestamp = new char[LogTimestamps.LENGTH];
+    private long timestampDay = Long.MIN_VALUE;
+    private long rows;
+
+    protected LogSink(Writer out) {
+        this.out = out;
+    }
+
+    
+    // Colored text on System.out, as it is when the sink is created; closing the sink does not close it
+    public static LogSink console() {
+        PrintStream console = System.out;
+        Writer target = new Writer() {
+            @Override
+            public void write(char[] chars, int offset, int length) {
+                // PrintStream flushes once per buffer, not once per row
+                console.append(CharBuffer.wrap(chars, offset, length));
+            }
+
+            @Override
+            public void flush() {
+                console.flush();
+            }
+
+            @Override
+            public void close() {
+                console.flush();
+            }
+        };
+        return new TextSink(new BufferedWriter(target, CONSOLE_BUFFER_CHARS), true);
+    }
+
+    // UTF-8 file, replaced if it exists; CONSOLE writes the colored text to the file
+    public static LogSink open(Path file, Format format) throws IOException {
+        Writer writer = new BufferedWriter(
+            new OutputStreamWriter(Files.newOutputStream(file), StandardCharsets.UTF_8), FILE_BUFFER_CHARS);
+        switch (format) {
+            case CONSOLE: return new TextSink(writer, true);
+            case PLAIN: return new TextSink(writer, false);
+            case CSV: return new CsvSink(writer);
+            default: return new NdjsonSink(writer);
+        }
+    }
+
+    
+    // rootCause may be null
+    public final void write(long id, long timestampMillis, String level, String message, String rootCause)
+            throws IOException {
+        writeRow(id, timestampMillis, level, message, rootCause);
+        rows++;
+    }
+
+    protected abstract void writeRow(long id, long timestampMillis, String level, String message, String rootCause)
+        throws IOException;
+
+    public long getRows() {
+        return rows;
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    
+    protected final void writeLong(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            out.write(Long.toString(value));
+            return;
+        }
+        boolean negative = value < 0;
+        long rest = Math.abs(value);
+        int pos = digits.length;
+        do {
+            digits[--pos] = (char) ('0' + rest % 10);
+            rest /= 10;
+        } while (rest != 0);
+        if (negative) {
+            digits[--pos] = '-';
+        }
+        out.write(digits, pos, digits.length - pos);
+    }
+
+    // Same text as LogTimestamps.format
+    protected final void writeTimestamp(long millis) throws IOException {
+        long seconds = Math.floorDiv(millis, 1000);
+        long day = Math.floorDiv(seconds, 86_400);
+        if (day != timestampDay) {
+            LogTimestamps.format(day * 86_400_000L).getChars(0, LogTimestamps.LENGTH, timestamp, 0);
+            timestampDay = day;
+        }
+        int secondOfDay = (int) (seconds - day * 86_400);
+        putTwoDigits(11, secondOfDay / 3600);
+        putTwoDigits(14, secondOfDay / 60 % 60);
+        putTwoDigits(17, secondOfDay % 60);
+        out.write(timestamp);
+    }
+
+    private void putTwoDigits(int pos, int value) {
+        timestamp[pos] = (char) ('0' + value / 10);
+        timestamp[pos + 1] = (char) ('0' + value % 10);
+    }
+
+    
+    // The historical console line: ID: 1 | Time: ... | Level: ... | Msg: ... | RootCause: ...
+    private static final class TextSink extends LogSink {
+        private final boolean colored;
+
+        TextSink(Writer out, boolean colored) {
+            super(out);
+            this.colored = colored;
+        }
+
+        @Override
+        protected void writeRow(long id, long timestampMillis, String level, String message, String rootCause)
+                throws IOException {
+            out.write("ID: ");
+            writeLong(id);
+            out.write(" | Time: ");
+            writeTimestamp(timestampMillis);
+            out.write(" | Level: ");
+            String color = colored ? color(level) : null;
+            if (color != null) {
+                out.write(color);
+                out.write(level);
+                out.write(ANSI_RESET);
+            } else {
+                out.write(level);
+            }
+            out.write(" | Msg: ");
+            out.write(message);
+            out.write(" | RootCause: ");
+            out.write(String.valueOf(rootCause));
+            out.write(System.lineSeparator());
+        }
+
+        private static String color(String level) {
+            switch (level) {
+                case "INFO": return ANSI_GREEN;
+                case "WARN": return ANSI_YELLOW;
+                case "ERROR": return ANSI_RED;
+                default: return null;
+            }
+        }
+    }
+
+    
+    // RFC 4180: a header row, CRLF line ends, and fields quoted only when they contain a comma, quote or line break
+    private static final class CsvSink extends LogSink {
+
+        CsvSink(Writer out) throws IOException {
+            super(out);
+            out.write("id,timestamp,level,message,root_cause\r\n");
+        }
+
+        @Override
+        protected void writeRow(long id, long timestampMillis, String level, String message, String rootCause)
+                throws IOException {
+            writeLong(id);
+            out.write(',');
+            writeTimestamp(timestampMillis);
+            out.write(',');
+            writeField(level);
+            out.write(',');
+            writeField(message);
+            out.write(',');
+            if (rootCause != null) {
+                writeField(rootCause);
+            }
+            out.write("\r\n");
+        }
+
+        private void writeField(String value) throws IOException {
+            boolean quote = false;
+            for (int i = 0, n = value.length(); i < n && !quote; i++) {
+                char c = value.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                out.write(value);
+                return;
+            }
+            out.write('"');
+            int start = 0;
+            for (int i = 0, n = value.length(); i < n; i++) {
+                if (value.charAt(i) == '"') {
+                    out.write(value, start, i + 1 - start);
+                    out.write('"');
+                    start = i + 1;
+                }
+            }
+            out.write(value, start, value.length() - start);
+            out.write('"');
+        }
+    }
+
+    
+    // One JSON object per line; a missing root cause is null
+    private static final class NdjsonSink extends LogSink {
+
+        NdjsonSink(Writer out) {
+            super(out);
+        }
+
+        @Override
+        protected void writeRow(long id, long timestampMillis, String level, String message, String rootCause)
+                throws IOException {
+            out.write("{\"id\":");
+            writeLong(id);
+            out.write(",\"timestamp\":\"");
+            writeTimestamp(timestampMillis);
+            out.write("\",\"level\":");
+            writeString(level);
+            out.write(",\"message\":");
+            writeString(message);
+            out.write(",\"root_cause\":");
+            if (rootCause == null) {
+                out.write("null");
+            } else {
+                writeString(rootCause);
+            }
+            out.write("}\n");
+        }
+
+        // Runs of plain characters are copied in one write; quotes, backslashes and control characters are escaped
+        private void writeString(String value) throws IOException {
+            out.write('"');
+            int start = 0;
+            for (int i = 0, n = value.length(); i < n; i++) {
+                char c = value.charAt(i);
+                if (c >= 0x20 && c != '"' && c != '\\') {
+                    continue;
+                }
+                out.write(value, start, i - start);
+                switch (c) {
+                    case '"': out.write("\\\""); break;
+                    case '\\': out.write("\\\\"); break;
+                    case '\n': out.write("\\n"); break;
+                    case '\r': out.write("\\r"); break;
+                    case '\t': out.write("\\t"); break;
+                    default:
+                        out.write("\\u00");
+                        out.write(Character.forDigit(c >> 4, 16));
+                        out.write(Character.forDigit(c & 0xF, 16));
+                }
+                start = i + 1;
+            }
+            out.write(value, start, value.length() - start);
+            out.write('"');
+        }
+    }
+}
@@ -0,0 +1,277 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+// One log file to ingest, plain or gzip-compressed. Compression is detected from the file's first bytes, not its
+// name. Offsets and sizes are in uncompressed bytes. A file is identified by a fingerprint of its first 4 KB, so
+// it is recognized after logrotate renames or compresses it.
+public class LogSource {
+
+    static final int FINGERPRINT_BYTES = 4096;
+    // Plain files are mapped segment by segment, so a drain takes effect between segments
+    private static final long SEGMENT_SIZE = 64L * 1024 * 1024;
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+    private static final int LINE_BUFFER_SIZE = 256 * 1024;
+    // Longer lines are cut here; EventAssembler would truncate them anyway
+    private static final int MAX_LINE_BYTES = (int) Math.min(Integer.MAX_VALUE - 8,
+        Math.max(LINE_BUFFER_SIZE, EventAssembler.MAX_EVENT_BYTES));
+
+    private final Path path;
+    private final boolean compressed;
+    private final long fileSize;
+
+    
+    public LogSource(Path path) throws IOException {
+        this.path = path;
+        this.fileSize = Files.size(path);
+        try (InputStream in = Files.newInputStream(path)) {
+            this.compressed = in.read() == 0x1f && in.read() == 0x8b;
+        }
+    }
+
+    
+    // A file, every regular file in a directory, or the files matching a glob such as logs/app.log* or
+    // archive/**/*.gz. Files are ordered oldest first: by rotation base name, then app.log.3.gz, app.log.2.gz,
+    // app.log.1 and finally app.log.
+    public static List<LogSource> expand(String input) throws IOException {
+        List<Path> paths = new ArrayList<>();
+        int glob = firstGlobChar(input);
+        if (glob < 0) {
+            Path path = Paths.get(input);
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> files = Files.list(path)) {
+                    files.filter(Files::isRegularFile)
+                        .filter(p -> !p.getFileName().toString().startsWith("."))
+                        .forEach(paths::add);
+                }
+            } else {
+                paths.add(path);
+            }
+        } else {
+            int slash = input.lastIndexOf('/', glob);
+            Path base = Paths.get(slash < 0 ? "." : input.substring(0, slash + 1));
+            String pattern = input.substring(slash + 1);
+            PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+            int depth = pattern.contains("**") ? Integer.MAX_VALUE : pattern.split("/").length;
+            if (Files.isDirectory(base)) {
+                try (Stream<Path> files = Files.walk(base, depth)) {
+                    files.filter(Files::isRegularFile)
+                        .filter(p -> matcher.matches(base.relativize(p)))
+                        .forEach(paths::add);
+                }
+            }
+        }
+        paths.sort(Comparator.comparing(LogSource::rotationBase)
+            .thenComparing(Comparator.comparingInt(LogSource::rotationIndex).reversed())
+            .thenComparing(Path::toString));
+        List<LogSource> sources = new ArrayList<>();
+        for (Path path : paths) {
+            sources.add(new LogSource(path));
+        }
+        return sources;
+    }
+
+    private static int firstGlobChar(String input) {
+        for (int i = 0; i < input.length(); i++) {
+            if ("*?[{".indexOf(input.charAt(i)) >= 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // logs/app.log.2.gz -> logs/app.log; names without a rotation number are their own base
+    private static String rotationBase(Path path) {
+        String name = stripGzip(path.toString());
+        int dot = name.lastIndexOf('.');
+        return dot > 0 && isDigits(name, dot + 1) ? name.substring(0, dot) : name;
+    }
+
+    // app.log.2.gz -> 2, app.log -> 0
+    private static int rotationIndex(Path path) {
+        String name = stripGzip(path.getFileName().toString());
+        int dot = name.lastIndexOf('.');
+        if (dot <= 0 || !isDigits(name, dot + 1) || name.length() - dot > 10) {
+            return 0;
+        }
+        return Integer.parseInt(name.substring(dot + 1));
+    }
+
+    private static String stripGzip(String name) {
+        return name.endsWith(".gz") ? name.substring(0, name.length() - 3) : name;
+    }
+
+    private static boolean isDigits(String text, int from) {
+        if (from >= text.length()) {
+            return false;
+        }
+        for (int i = from; i < text.length(); i++) {
+            if (!Character.isDigit(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    
+    public Path getPath() {
+        return path;
+    }
+
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    // Size on disk
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    // Uncompressed size modulo 2^32 as recorded in the gzip trailer, which is exact for single-member files
+    // under 4 GB; the file size for plain files
+    public long getSizeHint() throws IOException {
+        if (!compressed) {
+            return fileSize;
+        }
+        try (FileChannel channel = FileChannel.open(path)) {
+            ByteBuffer trailer = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(trailer, Math.max(0, channel.size() - 4));
+            return trailer.getInt(0) & 0xFFFFFFFFL;
+        }
+    }
+
+    // SHA-256 of the first 4 KB of content, followed by how many bytes that was
+    public String fingerprint() throws IOException {
+        byte[] head;
+        try (InputStream in = open()) {
+            head = in.readNBytes(FINGERPRINT_BYTES);
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(head);
+            return HexFormat.of().formatHex(digest) + ":" + head.length;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    
+    // Visits the lines from uncompressed offset from, which must start a line, to the end of the file, checking
+    // stop between blocks. Returns the offset reached: just past the last line visited, or where it stopped.
+    public long read(long from, MappedLogReader.LineVisitor visitor, BooleanSupplier stop) throws IOException {
+        return compressed ? readCompressed(from, visitor, stop) : readMapped(from, visitor, stop);
+    }
+
+    private long readMapped(long from, MappedLogReader.LineVisitor visitor, BooleanSupplier stop) throws IOException {
+        try (MappedLogReader reader = new MappedLogReader(path)) {
+            long size = reader.size();
+            long start = Math.min(from, size);
+            while (start < size && !stop.getAsBoolean()) {
+                long end = start + SEGMENT_SIZE >= size ? size : reader.nextLineStart(start + SEGMENT_SIZE);
+                reader.forEachLine(start, end, visitor);
+                start = end;
+            }
+            return start;
+        }
+    }
+
+    // Decompresses on the calling thread into a reused line buffer
+    private long readCompressed(long from, MappedLogReader.LineVisitor visitor, BooleanSupplier stop)
+            throws IOException {
+        try (InputStream in = open()) {
+            try {
+                in.skipNBytes(from);
+            } catch (EOFException e) {
+                return from; // shorter than the offset; nothing new to read
+            }
+            byte[] bytes = new byte[LINE_BUFFER_SIZE];
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            long position = from;
+            int filled = 0;
+            boolean skippingRest = false;
+            while (!stop.getAsBoolean()) {
+                int read = in.read(bytes, filled, bytes.length - filled);
+                if (read < 0) {
+                    if (filled > 0) {
+                        if (!skippingRest) {
+                            visitor.visit(buffer, 0, bytes[filled - 1] == '\r' ? filled - 1 : filled);
+                        }
+                        position += filled;
+                    }
+                    break;
+                }
+                filled += read;
+                int lineStart = 0;
+                int i = 0;
+                while (i < filled) {
+                    byte b = bytes[i];
+                    if (b == '\n' || b == '\r') {
+                        // A trailing \r may be the first half of a \r\n split across reads
+                        if (b == '\r' && i + 1 == filled) {
+                            break;
+                        }
+                        if (!skippingRest) {
+                            visitor.visit(buffer, lineStart, i);
+                        }
+                        skippingRest = false;
+                        if (b == '\r' && bytes[i + 1] == '\n') {
+                            i++;
+                        }
+                        lineStart = i + 1;
+                    }
+                    i++;
+                }
+                if (lineStart == 0 && filled == bytes.length) {
+                    if (bytes.length < MAX_LINE_BYTES) {
+                        bytes = Arrays.copyOf(bytes, (int) Math.min((long) bytes.length * 2, MAX_LINE_BYTES));
+                        buffer = ByteBuffer.wrap(bytes);
+                        continue;
+                    }
+                    // Keep the start of an overlong line and drop the rest of it
+                    if (!skippingRest) {
+                        visitor.visit(buffer, 0, filled);
+                        skippingRest = true;
+                    }
+                    lineStart = filled;
+                }
+                position += lineStart;
+                System.arraycopy(bytes, lineStart, bytes, 0, filled - lineStart);
+                filled -= lineStart;
+            }
+            return position;
+        }
+    }
+
+    private InputStream open() throws IOException {
+        InputStream in = Files.newInputStream(path);
+        try {
+            return compressed ? new GZIPInputStream(in, GZIP_BUFFER_SIZE) : in;
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    
+    @Override
+    public String toString() {
+        return path + (compressed ? " (gzip)" : "");
+    }
+}
@@ -0,0 +1,223 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+
+public class LogTailer implements Runnable {
+
+    private static final long POLL_INTERVAL_MS = 200;
+    private static final int MAX_BATCH_BYTES = 1024 * 1024;
+    // A writer may still be adding lines to the last event; it is stored once the file has been quiet this long
+    private static final long OPEN_EVENT_IDLE_MS = 1000;
+
+    private final Path path;
+    private final String checkpointKey;
+    private final ByteBuffer buffer = ByteBuffer.allocate(MAX_BATCH_BYTES);
+    private final List<LogEntry> batch = new ArrayList<>();
+    private final EventAssembler assembler;
+    private volatile boolean running = true;
+
+    private FileChannel channel;
+    private String fileKey;
+    private long position;
+    // Offset stored with each batch: the first line of the open event, which later lines may still extend
+    private long storedOffset;
+    private long eventStart;
+    private long lastReadNanos;
+    private long totalInserted;
+
+    
+    public LogTailer(LogAnalyzer analyzer, String filePath) {
+        this.path = Paths.get(filePath).toAbsolutePath().normalize();
+        this.checkpointKey = path.toString();
+        this.assembler = new EventAssembler(analyzer, batch::add);
+    }
+
+    
+    public void stop() {
+        running = false;
+    }
+
+    
+    @Override
+    public void run() {
+        try {
+            resumeFromCheckpoint();
+            System.out.println("👀 Following " + path + " from offset " + position + " (press Enter to stop)");
+            while (running) {
+                if (channel == null) {
+                    openIfPresent(0);
+                } else {
+                    detectRotationOrTruncation();
+                }
+                if (channel == null || !ingestAvailable()) {
+                    Thread.sleep(POLL_INTERVAL_MS);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.out.println("⚠️ Stopped following " + path + ": " + e.getMessage());
+        } finally {
+            closeChannel();
+            System.out.println("🛑 Follow mode stopped. " + totalInserted + " entries ingested, checkpoint at offset " + storedOffset + ".");
+        }
+    }
+
+    
+    private void resumeFromCheckpoint() throws IOException {
+        IngestCheckpoint checkpoint = DatabaseManager.loadCheckpoint(checkpointKey);
+        openIfPresent(0);
+        if (checkpoint == null || channel == null) {
+            return;
+        }
+        if (!checkpoint.getFileKey().equals(fileKey)) {
+            System.out.println("🔄 " + path + " was rotated since the last checkpoint, starting from the beginning.");
+        } else if (checkpoint.getOffset() > channel.size()) {
+            System.out.println("✂️ " + path + " was truncated since the last checkpoint, starting from the beginning.");
+        } else {
+            position = checkpoint.getOffset();
+            storedOffset = position;
+        }
+    }
+
+    
+    private void detectRotationOrTruncation() throws IOException {
+        String currentKey;
+        try {
+            currentKey = fileKeyOf(path);
+        } catch (NoSuchFileException e) {
+            return; // Rotated away and not yet recreated; keep draining the old file
+        }
+        if (!currentKey.equals(fileKey)) {
+            // Finish the rotated file before switching to the new one
+            while (ingestAvailable()) {
+                // drain
+            }
+            acceptLastLine();
+            flushOpenEvent();
+            System.out.println("🔄 Log rotated, switching to new " + path);
+            closeChannel();
+            openIfPresent(0);
+        } else if (channel.size() < position) {
+            System.out.println("✂️ Log truncated, restarting from the beginning of " + path);
+            flushOpenEvent();
+            position = 0;
+        }
+    }
+
+    
+    // Ingests up to MAX_BATCH_BYTES of complete lines; returns false if there was nothing new. The last event
+    // stays open until the next event starts or the file has been quiet for OPEN_EVENT_IDLE_MS.
+    private boolean ingestAvailable() throws IOException {
+        buffer.clear();
+        int read = channel.read(buffer, position);
+        int lineStart = 0;
+        for (int i = 0; i < read; i++) {
+            byte b = buffer.get(i);
+            if (b == '\n' || b == '\r') {
+                if (b == '\r' && i + 1 == read) {
+                    break; // may be the first half of \r\n still being written
+                }
+                if (assembler.accept(buffer, lineStart, i)) {
+                    eventStart = position + lineStart;
+                }
+                if (b == '\r' && buffer.get(i + 1) == '\n') {
+                    i++;
+                }
+                lineStart = i + 1;
+            }
+        }
+        if (lineStart == 0 && read == MAX_BATCH_BYTES) {
+            // A single line longer than the buffer is ingested as is
+            if (assembler.accept(buffer, 0, read)) {
+                eventStart = position;
+            }
+            lineStart = read;
+        }
+        if (lineStart == 0) {
+            // No complete line yet. A partial last line read again is not activity, or it would keep the open
+            // event from ever being flushed.
+            if (System.nanoTime() - lastReadNanos >= OPEN_EVENT_IDLE_MS * 1_000_000) {
+                flushOpenEvent();
+            }
+            return false;
+        }
+        lastReadNanos = System.nanoTime();
+
+        position += lineStart;
+        store(assembler.hasOpenEvent() ? eventStart : position);
+        return true;
+    }
+
+    // A rotated file is complete, so a last line that ingestAvailable left for its missing line break is taken
+    // as it is
+    private void acceptLastLine() throws IOException {
+        buffer.clear();
+        int read = channel.read(buffer, position);
+        if (read <= 0) {
+            return;
+        }
+        int end = buffer.get(read - 1) == '\r' ? read - 1 : read;
+        if (assembler.accept(buffer, 0, end)) {
+            eventStart = position;
+        }
+        position += read;
+    }
+
+    private void flushOpenEvent() throws IOException {
+        if (assembler.hasOpenEvent()) {
+            assembler.finish();
+            store(position);
+        }
+    }
+
+    // Inserts the assembled events together with the checkpoint
+    private void store(long offset) throws IOException {
+        int inserted = DatabaseManager.insertLogsBatch(batch, new IngestCheckpoint(checkpointKey, fileKey, offset));
+        batch.clear();
+        if (inserted < 0) {
+            throw new IOException("could not store batch and checkpoint");
+        }
+        storedOffset = offset;
+        totalInserted += inserted;
+        if (inserted > 0) {
+            System.out.println("📥 +" + inserted + " entries (offset " + position + ")");
+        }
+    }
+
+    
+    private void openIfPresent(long startPosition) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        fileKey = fileKeyOf(path);
+        position = startPosition;
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // nothing left to read from it
+            }
+            channel = null;
+        }
+    }
+
+    // Inode-based identity where available so rotation is detected even if the size grows past the old offset
+    private static String fileKeyOf(Path path) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        Object key = attributes.fileKey();
+        return key != null ? key.toString() : "created:" + attributes.creationTime().toMillis();
+    }
+}
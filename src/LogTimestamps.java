@@ -0,0 +1,102 @@
+import java.nio.ByteBuffer;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+// Log timestamps carry no zone, so they are stored as the epoch millis of the same wall-clock time in UTC.
+// That keeps the conversion exact in both directions whatever the machine's time zone, and matches
+// SQLite's unixepoch() and strftime(..., 'unixepoch').
+public final class LogTimestamps {
+
+    static final int LENGTH = 19; // yyyy-MM-dd HH:mm:ss
+    private static final int DATE_LENGTH = 10;
+    private static final long INVALID = Long.MIN_VALUE;
+    private static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private LogTimestamps() {
+    }
+
+    
+    // Accepts "yyyy-MM-dd HH:mm:ss", or "yyyy-MM-dd" for midnight
+    public static long parse(CharSequence text) {
+        int length = text.length();
+        if (length != LENGTH && length != DATE_LENGTH) {
+            throw invalid(text);
+        }
+        int[] fields = new int[6];
+        for (int i = 0; i < length; i++) {
+            if (!accept(fields, i, text.charAt(i))) {
+                throw invalid(text);
+            }
+        }
+        long millis = toMillis(fields);
+        if (millis == INVALID) {
+            throw invalid(text);
+        }
+        return millis;
+    }
+
+    // Parses the ASCII bytes of a timestamp in place, without decoding them into a String
+    public static long parse(ByteBuffer buffer, int start, int end) {
+        if (end - start != LENGTH) {
+            throw invalid("at offset " + start);
+        }
+        int[] fields = new int[6];
+        for (int i = 0; i < LENGTH; i++) {
+            if (!accept(fields, i, (char) (buffer.get(start + i) & 0xFF))) {
+                throw invalid("at offset " + start);
+            }
+        }
+        long millis = toMillis(fields);
+        if (millis == INVALID) {
+            throw invalid("at offset " + start);
+        }
+        return millis;
+    }
+
+    
+    // The stored form of a wall-clock time, such as LocalDateTime.now() for the local clock
+    public static long of(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1000 + time.getNano() / 1_000_000;
+    }
+
+    public static String format(long millis) {
+        return FORMAT.format(LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000), 0, ZoneOffset.UTC));
+    }
+
+    
+    // Position i of "yyyy-MM-dd HH:mm:ss" is a separator or a digit; after the year, (i + 1) / 3 - 1
+    // maps the digit to month, day, hour, minute or second
+    private static boolean accept(int[] fields, int i, char c) {
+        switch (i) {
+            case 4: case 7: return c == '-';
+            case 10: return c == ' ';
+            case 13: case 16: return c == ':';
+            default:
+                if (c < '0' || c > '9') {
+                    return false;
+                }
+                int field = i < 4 ? 0 : (i + 1) / 3 - 1;
+                fields[field] = fields[field] * 10 + (c - '0');
+                return true;
+        }
+    }
+
+    private static long toMillis(int[] f) {
+        if (f[3] > 23 || f[4] > 59 || f[5] > 59) {
+            return INVALID;
+        }
+        try {
+            long days = LocalDate.of(f[0], f[1], f[2]).toEpochDay();
+            return ((days * 24 + f[3]) * 60 + f[4]) * 60_000L + f[5] * 1000L;
+        } catch (DateTimeException e) {
+            return INVALID;
+        }
+    }
+
+    private static IllegalArgumentException invalid(Object source) {
+        return new IllegalArgumentException("Invalid log timestamp " + source);
+    }
+}
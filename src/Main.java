@@ -1,3 +1,5 @@
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.Scanner;
@@ -30,40 +32,47 @@ public class Main {
                 System.out.println("5. Search logs by message content");
                 System.out.println("6. Search logs by root cause");
                 System.out.println("7. Search logs by date range");
-                System.out.println("8. Exit");
-                System.out.print("Enter your choice (1-8): ");
+                System.out.println("8. Follow a growing log file (tail mode)");
+                System.out.println("9. Browse message templates");
+                System.out.println("10. Show stats (metrics)");
+                System.out.println("11. Export logs to a file (CSV/NDJSON/text)");
+                System.out.println("12. Search logs with combined filters");
+                System.out.println("13. Exit");
+                System.out.print("Enter your choice (1-13): ");
 
                 String choice = scanner.nextLine();
 
                 switch (choice) {
                     case "1":
-                        System.out.print("Enter log file path: ");
+                        System.out.print("Enter log file path, directory or glob (e.g. logs/app.log*): ");
                         String logFilePath = scanner.nextLine();
+                        System.out.print("Use parallel ingestion? (y/N): ");
+                        boolean parallel = scanner.nextLine().trim().equalsIgnoreCase("y");
                         System.out.println("📂 Parsing and inserting logs...");
-                        analyzer.parseAndInsertLogs(logFilePath, conn);
+                        if (parallel) {
+                            int threads = Integer.getInteger("logiq.ingest.parallelism",
+                                Runtime.getRuntime().availableProcessors());
+                            analyzer.parseAndInsertLogsParallel(logFilePath, conn, threads);
+                        } else {
+                            analyzer.parseAndInsertLogs(logFilePath, conn);
+                        }
                         break;
 
                     case "2":
+                        System.out.print("Summarize the last N hours (blank for all time): ");
+                        String hoursInput = scanner.nextLine().trim();
                         System.out.println("📊 Generating log summary:");
-                        analyzer.generateSummary(conn);
+                        if (hoursInput.isEmpty()) {
+                            analyzer.generateSummary(conn);
+                        } else {
+                            analyzer.generateSummary(conn, Integer.parseInt(hoursInput));
+                        }
                         break;
 
                     case "3":
                         System.out.print("Enter page size: ");
                         int pageSize3 = Integer.parseInt(scanner.nextLine());
-                        int page3 = 0;
-                        while (true) {
-                            int count = DatabaseManager.fetchLogsPaginated(pageSize3, page3 * pageSize3);
-                            if (count == 0 && page3 == 0) {
-                                System.out.println("No logs found.");
-                                break;
-                            }
-                            System.out.print("n=next, p=prev, q=quit: ");
-                            String nav = scanner.nextLine();
-                            if (nav.equalsIgnoreCase("n")) page3++;
-                            else if (nav.equalsIgnoreCase("p") && page3 > 0) page3--;
-                            else break;
-                        }
+                        paginate(scanner, pageSize3, DatabaseManager::fetchLogsPaginated);
                         break;
 
                     case "4":
@@ -72,58 +81,24 @@ public class Main {
                         if (levelInput.equals("ALL")) {
                             System.out.print("Enter page size: ");
                             int pageSize4a = Integer.parseInt(scanner.nextLine());
-                            int page4a = 0;
-                            while (true) {
-                                int count = DatabaseManager.fetchLogsPaginated(pageSize4a, page4a * pageSize4a);
-                                if (count == 0 && page4a == 0) {
-                                    System.out.println("No logs found.");
-                                    break;
-                                }
-                                System.out.print("n=next, p=prev, q=quit: ");
-                                String nav = scanner.nextLine();
-                                if (nav.equalsIgnoreCase("n")) page4a++;
-                                else if (nav.equalsIgnoreCase("p") && page4a > 0) page4a--;
-                                else break;
-                            }
+                            paginate(scanner, pageSize4a, DatabaseManager::fetchLogsPaginated);
                         } else if (levelInput.equals("INFO") || levelInput.equals("WARN") || levelInput.equals("ERROR")) {
                             System.out.print("Enter page size: ");
                             int pageSize4b = Integer.parseInt(scanner.nextLine());
-                            int page4b = 0;
-                            while (true) {
-                                int count = DatabaseManager.searchLogsByLevelPaginated(levelInput, pageSize4b, page4b * pageSize4b);
-                                if (count == 0 && page4b == 0) {
-                                    System.out.println("No logs found.");
-                                    break;
-                                }
-                                System.out.print("n=next, p=prev, q=quit: ");
-                                String nav = scanner.nextLine();
-                                if (nav.equalsIgnoreCase("n")) page4b++;
-                                else if (nav.equalsIgnoreCase("p") && page4b > 0) page4b--;
-                                else break;
-                            }
+                            paginate(scanner, pageSize4b,
+                                (limit, token) -> DatabaseManager.searchLogsByLevelPaginated(levelInput, limit, token));
                         } else {
                             System.out.println("⚠️ Invalid log level. Please enter INFO, WARN, ERROR, or ALL.");
                         }
                         break;
 
                     case "5":
-                        System.out.print("Enter keyword to search in message: ");
+                        System.out.print("Enter keyword to search in message (matches words starting with it): ");
                         String keyword = scanner.nextLine();
                         System.out.print("Enter page size: ");
                         int pageSize5 = Integer.parseInt(scanner.nextLine());
-                        int page5 = 0;
-                        while (true) {
-                            int count = DatabaseManager.searchLogsByMessagePaginated(keyword, pageSize5, page5 * pageSize5);
-                            if (count == 0 && page5 == 0) {
-                                System.out.println("No logs found.");
-                                break;
-                            }
-                            System.out.print("n=next, p=prev, q=quit: ");
-                            String nav = scanner.nextLine();
-                            if (nav.equalsIgnoreCase("n")) page5++;
-                            else if (nav.equalsIgnoreCase("p") && page5 > 0) page5--;
-                            else break;
-                        }
+                        paginate(scanner, pageSize5,
+                            (limit, token) -> DatabaseManager.searchLogsByMessagePaginated(keyword, limit, token));
                         break;
 
                     case "6":
@@ -131,19 +106,8 @@ public class Main {
                         String rootCauseKeyword = scanner.nextLine();
                         System.out.print("Enter page size: ");
                         int pageSize6 = Integer.parseInt(scanner.nextLine());
-                        int page6 = 0;
-                        while (true) {
-                            int count = DatabaseManager.searchLogsByRootCausePaginated(rootCauseKeyword, pageSize6, page6 * pageSize6);
-                            if (count == 0 && page6 == 0) {
-                                System.out.println("No logs found.");
-                                break;
-                            }
-                            System.out.print("n=next, p=prev, q=quit: ");
-                            String nav = scanner.nextLine();
-                            if (nav.equalsIgnoreCase("n")) page6++;
-                            else if (nav.equalsIgnoreCase("p") && page6 > 0) page6--;
-                            else break;
-                        }
+                        paginate(scanner, pageSize6,
+                            (limit, token) -> DatabaseManager.searchLogsByRootCausePaginated(rootCauseKeyword, limit, token));
                         break;
 
                     case "7":
@@ -153,28 +117,91 @@ public class Main {
                         String end = scanner.nextLine();
                         System.out.print("Enter page size: ");
                         int pageSize7 = Integer.parseInt(scanner.nextLine());
-                        int page7 = 0;
-                        while (true) {
-                            int count = DatabaseManager.searchLogsByDateRangePaginated(start, end, pageSize7, page7 * pageSize7);
-                            if (count == 0 && page7 == 0) {
-                                System.out.println("No logs found.");
-                                break;
+                        paginate(scanner, pageSize7,
+                            (limit, token) -> DatabaseManager.searchLogsByDateRangePaginated(start, end, limit, token));
+                        break;
+
+                    case "8":
+                        System.out.print("Enter log file path to follow: ");
+                        String followPath = scanner.nextLine();
+                        LogTailer tailer = new LogTailer(analyzer, followPath);
+                        Thread tailThread = new Thread(tailer, "logiq-tailer");
+                        tailThread.start();
+                        scanner.nextLine();
+                        tailer.stop();
+                        tailThread.join();
+                        break;
+
+                    case "9":
+                        DatabaseManager.printTopTemplates(20);
+                        System.out.print("Enter template id to list its logs (blank to go back): ");
+                        String templateInput = scanner.nextLine().trim();
+                        if (!templateInput.isEmpty()) {
+                            int templateId = Integer.parseInt(templateInput);
+                            System.out.print("Enter page size: ");
+                            int pageSize9 = Integer.parseInt(scanner.nextLine());
+                            paginate(scanner, pageSize9,
+                                (limit, token) -> DatabaseManager.searchLogsByTemplatePaginated(templateId, limit, token));
+                        }
+                        break;
+
+                    case "10":
+                        Metrics.printStats();
+                        if (Metrics.ENABLED) {
+                            System.out.print("Export to a Prometheus text file (blank to skip): ");
+                            String metricsPath = scanner.nextLine().trim();
+                            if (!metricsPath.isEmpty()) {
+                                try {
+                                    Metrics.writePrometheusFile(Paths.get(metricsPath));
+                                    System.out.println("📈 Metrics written to " + metricsPath);
+                                } catch (IOException e) {
+                                    System.out.println("⚠️ Could not write metrics: " + e.getMessage());
+                                }
                             }
-                            System.out.print("n=next, p=prev, q=quit: ");
-                            String nav = scanner.nextLine();
-                            if (nav.equalsIgnoreCase("n")) page7++;
-                            else if (nav.equalsIgnoreCase("p") && page7 > 0) page7--;
-                            else break;
                         }
                         break;
 
-                    case "8":
+                    case "11":
+                        System.out.print("Enter export file path (.csv, .ndjson, or anything else for text): ");
+                        String exportPath = scanner.nextLine().trim();
+                        DatabaseManager.exportLogs(exportPath, LogSink.Format.forPath(exportPath));
+                        break;
+
+                    case "12":
+                        LogQuery.Builder search = LogQuery.builder();
+                        System.out.print("Enter log level (INFO/WARN/ERROR, blank for any): ");
+                        search.level(scanner.nextLine().toUpperCase());
+                        System.out.print("Enter root cause keyword (blank for any): ");
+                        search.rootCause(scanner.nextLine());
+                        System.out.print("Enter message keyword, matching words starting with it (blank for any): ");
+                        search.message(scanner.nextLine());
+                        System.out.print("Enter time: last N hours, START..END, or blank for all time: ");
+                        String timeInput = scanner.nextLine().trim();
+                        try {
+                            if (timeInput.contains("..")) {
+                                String[] bounds = timeInput.split("\\.\\.", 2);
+                                search.between(LogTimestamps.parse(bounds[0].trim()), LogTimestamps.parse(bounds[1].trim()));
+                            } else if (!timeInput.isEmpty()) {
+                                search.lastHours(Integer.parseInt(timeInput));
+                            }
+                        } catch (IllegalArgumentException e) {
+                            System.out.println("⚠️ Invalid time. Enter a number of hours or YYYY-MM-DD HH:MM:SS..YYYY-MM-DD HH:MM:SS.");
+                            break;
+                        }
+                        LogQuery combined = search.build();
+                        System.out.print("Enter page size: ");
+                        int pageSize12 = Integer.parseInt(scanner.nextLine());
+                        paginate(scanner, pageSize12,
+                            (limit, token) -> DatabaseManager.searchPaginated(combined, limit, token));
+                        break;
+
+                    case "13":
                         exit = true;
                         System.out.println("👋 Exiting LogIQ. Goodbye!");
                         break;
 
                     default:
-                        System.out.println("⚠️ Invalid choice. Please enter a number between 1-8.");
+                        System.out.println("⚠️ Invalid choice. Please enter a number between 1-13.");
                 }
             }
 
@@ -186,6 +213,38 @@ public class Main {
             e.printStackTrace();
         }
 
+        DatabaseManager.shutdown();
         System.out.println("\n===== End of LogIQ Session =====");
     }
+
+    
+    private static void paginate(Scanner scanner, int pageSize, Page.Query query) {
+        Page page = query.fetch(pageSize, null);
+        if (page.getCount() == 0) {
+            System.out.println("No logs found.");
+            return;
+        }
+        while (true) {
+            System.out.print("n=next, p=prev, q=quit: ");
+            String nav = scanner.nextLine();
+            String token;
+            if (nav.equalsIgnoreCase("n")) {
+                token = page.getNextToken();
+            } else if (nav.equalsIgnoreCase("p")) {
+                token = page.getPrevToken();
+                if (token == null) {
+                    System.out.println("Already at the first page.");
+                    continue;
+                }
+            } else {
+                break;
+            }
+            Page next = query.fetch(pageSize, token);
+            if (next.getCount() == 0) {
+                System.out.println("No more logs in that direction.");
+                continue;
+            }
+            page = next;
+        }
+    }
 }
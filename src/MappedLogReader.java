@@ -0,0 +1,145 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class MappedLogReader implements AutoCloseable {
+
+    public static final long DEFAULT_WINDOW_SIZE = 256L * 1024 * 1024;
+
+    public interface LineVisitor {
+        void visit(ByteBuffer buffer, int start, int end);
+    }
+
+    public interface LinePredicate {
+        boolean test(ByteBuffer buffer, int start, int end);
+    }
+
+    private final FileChannel channel;
+    private final long windowSize;
+
+    
+    public MappedLogReader(Path path) throws IOException {
+        this(path, DEFAULT_WINDOW_SIZE);
+    }
+
+    public MappedLogReader(Path path, long windowSize) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.windowSize = Math.max(1, Math.min(windowSize, Integer.MAX_VALUE));
+    }
+
+    
+    public long size() throws IOException {
+        return channel.size();
+    }
+
+    
+    // Offset just past the first '\n' at or after position, or the file size
+    public long nextLineStart(long position) throws IOException {
+        long size = channel.size();
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        while (position < size) {
+            probe.clear();
+            int read = channel.read(probe, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    // Like nextLineStart(position), but also skips the lines that match skip, for at most maxSkip bytes past
+    // position. skip sees the first 4 KB of each line at most.
+    public long nextLineStart(long position, LinePredicate skip, long maxSkip) throws IOException {
+        long size = channel.size();
+        long limit = position + maxSkip;
+        long start = nextLineStart(position);
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        while (start < size && start < limit) {
+            probe.clear();
+            int read = channel.read(probe, start);
+            if (read <= 0) {
+                break;
+            }
+            int end = 0;
+            while (end < read && probe.get(end) != '\n' && probe.get(end) != '\r') {
+                end++;
+            }
+            if (!skip.test(probe, 0, end)) {
+                break;
+            }
+            start = nextLineStart(start);
+        }
+        return Math.min(start, size);
+    }
+
+    
+    public long forEachLine(LineVisitor visitor) throws IOException {
+        return forEachLine(0, channel.size(), visitor);
+    }
+
+    
+    public long forEachLine(long from, long to, LineVisitor visitor) throws IOException {
+        long lines = 0;
+        long position = from;
+        long window = windowSize;
+        while (position < to) {
+            long length = Math.min(window, to - position);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            int limit = (int) length;
+            boolean lastWindow = position + length >= to;
+
+            int lineStart = 0;
+            int i = 0;
+            while (i < limit) {
+                byte b = buffer.get(i);
+                if (b == '\n' || b == '\r') {
+                    // A trailing \r may be the first half of a \r\n split across windows
+                    if (b == '\r' && i + 1 == limit && !lastWindow) {
+                        break;
+                    }
+                    visitor.visit(buffer, lineStart, i);
+                    lines++;
+                    if (b == '\r' && i + 1 < limit && buffer.get(i + 1) == '\n') {
+                        i++;
+                    }
+                    lineStart = i + 1;
+                }
+                i++;
+            }
+
+            if (lastWindow) {
+                if (lineStart < limit) {
+                    visitor.visit(buffer, lineStart, limit);
+                    lines++;
+                }
+                break;
+            }
+            if (lineStart == 0) {
+                // Single line longer than the window: remap with a larger window
+                if (window >= Integer.MAX_VALUE) {
+                    throw new IOException("Log line at offset " + position + " exceeds the maximum mapping size");
+                }
+                window = Math.min(window * 2, Integer.MAX_VALUE);
+            } else {
+                window = windowSize;
+            }
+            position += lineStart;
+        }
+        return lines;
+    }
+
+    
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
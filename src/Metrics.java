@@ -0,0 +1,311 @@
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Process-wide counters and latency histograms for the hot paths, kept in lock-free LongAdders and exported in
+// the Prometheus text format. Metrics are registered once, into static fields, and recording is a single adder
+// increment. -Dlogiq.metrics=false turns recording off: ENABLED is a constant, so the JIT drops the
+// instrumentation and a disabled timer does not even read the clock.
+public final class Metrics {
+
+    public static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("logiq.metrics", "true"));
+    // Written at shutdown when set, e.g. into the directory of node_exporter's textfile collector
+    private static final String EXPORT_FILE = System.getProperty("logiq.metrics.file");
+
+    // Histogram bucket upper bounds in nanoseconds: 1-2-5 steps from 10 us to 10 s
+    private static final long[] BOUNDS_NANOS = bounds(10_000L, 10_000_000_000L);
+
+    // Families by name, in registration order; guarded by itself
+    private static final Map<String, Family> FAMILIES = new LinkedHashMap<>();
+
+    private Metrics() {
+    }
+
+    
+    // labels are name, value pairs; registering the same name and labels again returns the same counter
+    public static Counter counter(String name, String help, String... labels) {
+        return (Counter) register(name, help, "counter", labels);
+    }
+
+    public static Histogram histogram(String name, String help, String... labels) {
+        return (Histogram) register(name, help, "histogram", labels);
+    }
+
+    // Start of a span recorded by Histogram.observeSince; 0 when metrics are off
+    public static long startTimer() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    private static Metric register(String name, String help, String type, String... labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be name, value pairs: " + name);
+        }
+        StringBuilder key = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            key.append(key.length() == 0 ? "" : ",")
+                .append(labels[i]).append("=\"").append(escape(labels[i + 1])).append('"');
+        }
+        synchronized (FAMILIES) {
+            Family family = FAMILIES.computeIfAbsent(name, n -> new Family(n, help, type));
+            if (!family.type.equals(type)) {
+                throw new IllegalArgumentException(name + " is already registered as a " + family.type);
+            }
+            return family.children.computeIfAbsent(key.toString(),
+                k -> type.equals("counter") ? new Counter(k) : new Histogram(k));
+        }
+    }
+
+    
+    // Prometheus text exposition format, version 0.0.4
+    public static String toPrometheusText() {
+        StringBuilder out = new StringBuilder();
+        for (Family family : families()) {
+            out.append("# HELP ").append(family.name).append(' ').append(family.help).append('\n');
+            out.append("# TYPE ").append(family.name).append(' ').append(family.type).append('\n');
+            for (Metric metric : family.children()) {
+                metric.writeTo(out, family.name);
+            }
+        }
+        return out.toString();
+    }
+
+    // Replaces the file in one move, so a scraper never reads a partial export
+    public static void writePrometheusFile(Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tmp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try {
+            Files.writeString(tmp, toPrometheusText(), StandardCharsets.UTF_8);
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    // Called on shutdown; exports to -Dlogiq.metrics.file when it is set
+    public static void exportOnExit() {
+        if (!ENABLED || EXPORT_FILE == null) {
+            return;
+        }
+        try {
+            writePrometheusFile(Path.of(EXPORT_FILE));
+            System.out.println("📈 Metrics written to " + EXPORT_FILE);
+        } catch (IOException e) {
+            System.out.println("⚠️ Could not write metrics to " + EXPORT_FILE + ": " + e.getMessage());
+        }
+    }
+
+    // Every metric recorded so far, one per line; unused ones are left out
+    public static void printStats() {
+        if (!ENABLED) {
+            System.out.println("📈 Metrics are disabled (-Dlogiq.metrics=false).");
+            return;
+        }
+        System.out.println("📈 Metrics:");
+        boolean any = false;
+        for (Family family : families()) {
+            for (Metric metric : family.children()) {
+                String name = family.name + (metric.labels.isEmpty() ? "" : "{" + metric.labels + "}");
+                if (metric instanceof Counter counter && counter.get() > 0) {
+                    System.out.printf("  %-64s %,14d%n", name, counter.get());
+                    any = true;
+                } else if (metric instanceof Histogram histogram && histogram.getCount() > 0) {
+                    System.out.printf("  %-64s count=%,d mean=%s p50=%s p99=%s max=%s%n", name, histogram.getCount(),
+                        millis(histogram.getMeanNanos()), millis(histogram.quantileNanos(0.50)),
+                        millis(histogram.quantileNanos(0.99)), millis(histogram.getMaxNanos()));
+                    any = true;
+                }
+            }
+        }
+        if (!any) {
+            System.out.println("  (nothing recorded yet)");
+        }
+    }
+
+    private static List<Family> families() {
+        synchronized (FAMILIES) {
+            return new ArrayList<>(FAMILIES.values());
+        }
+    }
+
+    
+    private static long[] bounds(long fromNanos, long toNanos) {
+        List<Long> bounds = new ArrayList<>();
+        for (long decade = fromNanos; decade <= toNanos; decade *= 10) {
+            for (int step : new int[] { 1, 2, 5 }) {
+                if (decade * step <= toNanos) {
+                    bounds.add(decade * step);
+                }
+            }
+        }
+        return bounds.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static String millis(double nanos) {
+        return String.format(Locale.ROOT, "%.3fms", nanos / 1_000_000.0);
+    }
+
+    private static String seconds(double nanos) {
+        return Double.toString(nanos / 1_000_000_000.0);
+    }
+
+    private static String escape(String labelValue) {
+        return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    
+    private static final class Family {
+        final String name;
+        final String help;
+        final String type;
+        // Children by label set; guarded by FAMILIES
+        final Map<String, Metric> children = new LinkedHashMap<>();
+
+        Family(String name, String help, String type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+
+        List<Metric> children() {
+            synchronized (FAMILIES) {
+                return new ArrayList<>(children.values());
+            }
+        }
+    }
+
+    public abstract static class Metric {
+        // Rendered label set, e.g. method="fetchLogs"; empty without labels
+        final String labels;
+
+        Metric(String labels) {
+            this.labels = labels;
+        }
+
+        abstract void writeTo(StringBuilder out, String name);
+    }
+
+    
+    public static final class Counter extends Metric {
+        private final LongAdder value = new LongAdder();
+
+        private Counter(String labels) {
+            super(labels);
+        }
+
+        public void increment() {
+            if (ENABLED) {
+                value.increment();
+            }
+        }
+
+        public void add(long count) {
+            if (ENABLED) {
+                value.add(count);
+            }
+        }
+
+        public long get() {
+            return value.sum();
+        }
+
+        @Override
+        void writeTo(StringBuilder out, String name) {
+            out.append(name).append(labels.isEmpty() ? "" : "{" + labels + "}").append(' ').append(get()).append('\n');
+        }
+    }
+
+    
+    // Fixed log-scale buckets, one adder each, so recording never locks and never allocates. Quantiles are
+    // estimated as the upper bound of the bucket they fall in, capped by the largest value seen.
+    public static final class Histogram extends Metric {
+        private final LongAdder[] buckets = new LongAdder[BOUNDS_NANOS.length + 1];
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sumNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        private Histogram(String labels) {
+            super(labels);
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        public void observeNanos(long nanos) {
+            if (!ENABLED) {
+                return;
+            }
+            int bucket = 0;
+            while (bucket < BOUNDS_NANOS.length && nanos > BOUNDS_NANOS[bucket]) {
+                bucket++;
+            }
+            buckets[bucket].increment();
+            count.increment();
+            sumNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+
+        // start comes from Metrics.startTimer
+        public void observeSince(long start) {
+            if (ENABLED) {
+                observeNanos(System.nanoTime() - start);
+            }
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public double getMeanNanos() {
+            long n = getCount();
+            return n == 0 ? 0 : (double) sumNanos.sum() / n;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        public long quantileNanos(double quantile) {
+            long n = getCount();
+            if (n == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(quantile * n);
+            long seen = 0;
+            for (int i = 0; i < BOUNDS_NANOS.length; i++) {
+                seen += buckets[i].sum();
+                if (seen >= rank) {
+                    return Math.min(BOUNDS_NANOS[i], getMaxNanos());
+                }
+            }
+            return getMaxNanos();
+        }
+
+        @Override
+        void writeTo(StringBuilder out, String name) {
+            String prefix = labels.isEmpty() ? "" : labels + ",";
+            String suffix = labels.isEmpty() ? "" : "{" + labels + "}";
+            long cumulative = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                cumulative += buckets[i].sum();
+                String le = i < BOUNDS_NANOS.length
+                    ? BigDecimal.valueOf(BOUNDS_NANOS[i], 9).stripTrailingZeros().toPlainString() : "+Inf";
+                out.append(name).append("_bucket{").append(prefix).append("le=\"").append(le).append("\"} ")
+                    .append(cumulative).append('\n');
+            }
+            // The count is the +Inf bucket, so the two agree even while observations are being recorded
+            out.append(name).append("_sum").append(suffix).append(' ').append(seconds(sumNanos.sum())).append('\n');
+            out.append(name).append("_count").append(suffix).append(' ').append(cumulative).append('\n');
+        }
+    }
+}
@@ -0,0 +1,71 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+public class Page {
+
+    public interface Query {
+        Page fetch(int limit, String pageToken);
+    }
+
+    private final int count;
+    private final String nextToken;
+    private final String prevToken;
+
+    
+    public Page(int count, String nextToken, String prevToken) {
+        this.count = count;
+        this.nextToken = nextToken;
+        this.prevToken = prevToken;
+    }
+
+    
+    public int getCount() {
+        return count;
+    }
+
+    // Continues after the last row of this page; null if the page was empty
+    public String getNextToken() {
+        return nextToken;
+    }
+
+    // Continues before the first row of this page; null on the first page
+    public String getPrevToken() {
+        return prevToken;
+    }
+
+    
+    // Tokens are opaque to callers: direction plus the (epoch-millis timestamp, id) key of the boundary row
+    static String encodeToken(boolean forward, long timestamp, long id) {
+        String raw = (forward ? "a" : "b") + "|" + id + "|" + timestamp;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Cursor decodeToken(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 3);
+            if (parts.length != 3 || !(parts[0].equals("a") || parts[0].equals("b"))) {
+                throw new IllegalArgumentException("Malformed page token");
+            }
+            return new Cursor(parts[0].equals("a"), Long.parseLong(parts[2]), Long.parseLong(parts[1]));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid page token: " + token, e);
+        }
+    }
+
+    
+    static class Cursor {
+        final boolean forward;
+        final long timestamp;
+        final long id;
+
+        Cursor(boolean forward, long timestamp, long id) {
+            this.forward = forward;
+            this.timestamp = timestamp;
+            this.id = id;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Run against a scratch database, e.g. java -Dlogiq.db=db/bench.db -cp ... PaginationBenchmark
+public class PaginationBenchmark {
+
+    private static final int[] DEPTHS = { 0, 1_000, 100_000 };
+    private static final int WARMUP_RUNS = 5;
+    private static final int RUNS = 15;
+
+    
+    public static void main(String[] args) throws IOException, SQLException {
+        int pageSize = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        long rows = (long) DEPTHS[DEPTHS.length - 1] * pageSize + pageSize;
+
+        DatabaseManager.createLogsTable();
+        populate(rows, Files.readAllLines(Paths.get("logs/sample.log")));
+
+        System.out.printf("%-10s %16s %16s%n", "page", "OFFSET (ms)", "keyset (ms)");
+        for (int depth : DEPTHS) {
+            long offset = (long) depth * pageSize;
+            double offsetMs = median(() -> offsetPage(pageSize, offset));
+            String token = tokenBefore(offset);
+            double keysetMs = median(() -> DatabaseManager.fetchLogsPaginated(pageSize, token));
+            System.out.printf("%-10d %16.3f %16.3f%n", depth, offsetMs, keysetMs);
+        }
+        DatabaseManager.shutdown();
+    }
+
+    
+    private static void populate(long rows, List<String> sample) throws SQLException {
+        long existing;
+        try (Connection conn = DatabaseManager.connect()) {
+            existing = LogPartitions.rowCount(conn);
+        }
+        if (existing >= rows) {
+            return;
+        }
+        LogAnalyzer analyzer = new LogAnalyzer();
+        DateTimeFormatter format = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        LocalDateTime time = LocalDateTime.of(2025, 10, 4, 0, 0);
+        try (BulkLoader loader = DatabaseManager.openBulkLoader(BulkLoader.DEFAULT_COMMIT_SIZE)) {
+            for (long i = existing; i < rows; i++) {
+                String template = sample.get((int) (i % sample.size()));
+                String line = format.format(time.plusSeconds(i)) + template.substring(Math.min(19, template.length())) + " #" + i;
+                java.nio.ByteBuffer buffer = java.nio.ByteBuffer.wrap(line.getBytes());
+                LogEntry entry = analyzer.parseLine(buffer, 0, buffer.limit());
+                if (entry == null) {
+                    entry = new LogEntry(format.format(time.plusSeconds(i)), "INFO", "Synthetic entry #" + i, null);
+                }
+                loader.add(entry);
+            }
+            loader.finish();
+        }
+    }
+
+    
+    // The pre-keyset query shape, for comparison, over every partition in id order
+    private static void offsetPage(int pageSize, long offset) {
+        try (Connection conn = DatabaseManager.connect();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT * FROM " + allPartitions(conn) + " LIMIT ? OFFSET ?")) {
+            pstmt.setInt(1, pageSize);
+            pstmt.setLong(2, offset);
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                System.out.printf("ID: %d | Time: %s | Level: %s | Msg: %s | RootCause: %s%n", rs.getInt("id"),
+                    rs.getString("timestamp"), rs.getString("level"), rs.getString("message"), rs.getString("root_cause"));
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String tokenBefore(long offset) throws SQLException {
+        if (offset == 0) {
+            return null;
+        }
+        try (Connection conn = DatabaseManager.connect();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT id, ts FROM " + allPartitions(conn) + " LIMIT 1 OFFSET ?")) {
+            pstmt.setLong(1, offset - 1);
+            ResultSet rs = pstmt.executeQuery();
+            return rs.next() ? Page.encodeToken(true, rs.getLong("ts"), rs.getLong("id")) : null;
+        }
+    }
+
+    private static String allPartitions(Connection conn) throws SQLException {
+        List<String> views = new ArrayList<>();
+        for (int day : LogPartitions.days(conn)) {
+            views.add("SELECT * FROM " + LogPartitions.view(day));
+        }
+        return "(" + String.join(" UNION ALL ", views) + " ORDER BY id)";
+    }
+
+    
+    private static double median(Runnable page) {
+        PrintStream console = System.out;
+        double[] millis = new double[RUNS];
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            for (int i = 0; i < WARMUP_RUNS; i++) {
+                page.run(); // warm the statement cache, page cache and JIT
+            }
+            for (int i = 0; i < RUNS; i++) {
+                long start = System.nanoTime();
+                page.run();
+                millis[i] = (System.nanoTime() - start) / 1_000_000.0;
+            }
+        } finally {
+            System.setOut(console);
+        }
+        Arrays.sort(millis);
+        return millis[RUNS / 2];
+    }
+}
@@ -0,0 +1,81 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class QueryPlanCheck {
+
+    // Unfiltered listing reads rows in id order and stops at LIMIT, so its plan is a bounded scan
+    private static final String BOUNDED_SCAN_EXEMPTION = "fetchLogsPaginated (first page)";
+
+    private QueryPlanCheck() {
+    }
+
+    
+    // Search shapes are checked on the newest partition; all partitions share the same indexes
+    public static Map<String, String> builtInQueries(Connection conn) throws SQLException {
+        Map<String, String> queries = new LinkedHashMap<>();
+        List<Integer> days = LogPartitions.days(conn);
+        if (!days.isEmpty()) {
+            queries.putAll(LogQuery.builtInShapes(days.get(days.size() - 1)));
+        }
+        queries.putAll(LogAnalyzer.summaryQueries());
+        return queries;
+    }
+
+    
+    // Returns one message per built-in query whose plan falls back to a full scan of a partition
+    public static List<String> run(Connection conn) throws SQLException {
+        List<String> problems = new ArrayList<>();
+        for (Map.Entry<String, String> query : builtInQueries(conn).entrySet()) {
+            if (query.getKey().equals(BOUNDED_SCAN_EXEMPTION)) {
+                continue;
+            }
+            for (String step : plan(conn, query.getValue())) {
+                if (isFullScan(step)) {
+                    problems.add(query.getKey() + " does a full table scan (" + step + ")");
+                }
+            }
+        }
+        return problems;
+    }
+
+    public static List<String> plan(Connection conn, String sql) throws SQLException {
+        List<String> steps = new ArrayList<>();
+        try (PreparedStatement pstmt = conn.prepareStatement("EXPLAIN QUERY PLAN " + sql)) {
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                steps.add(rs.getString("detail"));
+            }
+        }
+        return steps;
+    }
+
+    private static boolean isFullScan(String step) {
+        return step.startsWith("SCAN logs") && !step.contains("INDEX");
+    }
+
+    
+    public static void main(String[] args) throws SQLException {
+        DatabaseManager.createLogsTable();
+        try (Connection conn = DatabaseManager.connect()) {
+            for (Map.Entry<String, String> query : builtInQueries(conn).entrySet()) {
+                System.out.println(query.getKey());
+                for (String step : plan(conn, query.getValue())) {
+                    System.out.println("    " + step);
+                }
+            }
+            List<String> problems = run(conn);
+            problems.forEach(problem -> System.out.println("❌ " + problem));
+            System.out.println(problems.isEmpty() ? "✅ All built-in queries use an index." : "❌ Query plan check failed.");
+            DatabaseManager.shutdown();
+            if (!problems.isEmpty()) {
+                System.exit(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+import java.nio.ByteBuffer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class RegexLineTokenizer implements LineTokenizer {
+
+    public static final String LOG_REGEX =
+            "(\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2})\\s+(INFO|WARN|ERROR)\\s+(.*)";
+
+    private final Pattern pattern;
+    private final ThreadLocal<Matcher> matchers;
+
+    
+    public RegexLineTokenizer() {
+        this(Pattern.compile(LOG_REGEX));
+    }
+
+    // Groups 1, 2 and 3 must capture the timestamp (yyyy-MM-dd HH:mm:ss), level and message
+    public RegexLineTokenizer(Pattern pattern) {
+        this.pattern = pattern;
+        this.matchers = ThreadLocal.withInitial(() -> pattern.matcher(""));
+    }
+
+    
+    @Override
+    public boolean tokenize(ByteBuffer buffer, int start, int end, LineTokens tokens) {
+        String line = tokens.decode(buffer, start, end, LineTokens.LINE_CHARSET);
+        Matcher matcher = matchers.get().reset(line);
+        if (!matcher.matches()) {
+            return false;
+        }
+        tokens.setDecoded(matcher.group(1), matcher.group(2), matcher.group(3));
+        return true;
+    }
+
+    
+    @Override
+    public String toString() {
+        return "RegexLineTokenizer[" + pattern.pattern() + "]";
+    }
+}
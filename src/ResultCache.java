@@ -0,0 +1,108 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// LRU cache of query results, bounded by the estimated size of what it holds. Each entry records the span of
+// log timestamps its query can read, and every committed write invalidates the entries whose span overlaps the
+// rows it wrote, so a date range over older days survives ingestion of new ones. A write also bumps the
+// generation: a result is only stored if no write committed while it was being computed, so an answer read
+// from a snapshot older than the latest write never enters the cache.
+public class ResultCache<V> {
+
+    // Span of queries that are not limited to a time range
+    public static final long ALL_FROM = Long.MIN_VALUE;
+    public static final long ALL_TO = Long.MAX_VALUE;
+    private static final long ENTRY_OVERHEAD_BYTES = 128;
+
+    private final long maxBytes;
+    private final Map<String, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong generation = new AtomicLong();
+    private long bytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private record Entry<V>(V value, long bytes, long from, long to) {
+    }
+
+    
+    // maxBytes of 0 disables the cache
+    public ResultCache(long maxBytes) {
+        this.maxBytes = Math.max(0, maxBytes);
+    }
+
+    
+    public synchronized V get(String key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value();
+    }
+
+    // Read before running the query whose result is then passed to put
+    public long generation() {
+        return generation.get();
+    }
+
+    // Stores value unless a write committed since generation was read. from and to bound the log timestamps the
+    // query can read; bytes is the estimated size of value.
+    public synchronized void put(String key, V value, long bytes, long from, long to, long generation) {
+        long size = bytes + ENTRY_OVERHEAD_BYTES + 2L * key.length();
+        if (generation != this.generation.get() || size > maxBytes) {
+            return;
+        }
+        Entry<V> previous = entries.put(key, new Entry<>(value, size, from, to));
+        if (previous != null) {
+            this.bytes -= previous.bytes();
+        }
+        this.bytes += size;
+        Iterator<Entry<V>> eldest = entries.values().iterator();
+        while (this.bytes > maxBytes && eldest.hasNext()) {
+            this.bytes -= eldest.next().bytes();
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    // Call after committing rows with timestamps from from to to, or dropping them
+    public synchronized void invalidate(long from, long to) {
+        generation.incrementAndGet();
+        Iterator<Entry<V>> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry<V> entry = it.next();
+            if (entry.from() <= to && from <= entry.to()) {
+                bytes -= entry.bytes();
+                it.remove();
+                invalidations.increment();
+            }
+        }
+    }
+
+    
+    public double getHitRatio() {
+        long lookups = hits.sum() + misses.sum();
+        return lookups == 0 ? 0 : (double) hits.sum() / lookups;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("entries=%d size=%.1f/%.1f KB hits=%d misses=%d hitRatio=%.1f%% invalidations=%d evictions=%d",
+            size(), getBytes() / 1024.0, maxBytes / 1024.0, hits.sum(), misses.sum(), getHitRatio() * 100,
+            invalidations.sum(), evictions.sum());
+    }
+}
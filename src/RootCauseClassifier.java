@@ -0,0 +1,252 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+public class RootCauseClassifier {
+
+    public static final String DEFAULT_RULES_PATH = "config/root_cause_rules.txt";
+
+    // Dense transitions for ASCII; other characters go through the sparse maps
+    private static final int ALPHABET = 128;
+
+    private final RootCauseRule[] rules;
+    private final int[] transitions;
+    private final List<Map<Character, Integer>> sparse;
+    private final int[] failure;
+    private final int[][] outputs;
+    private final LongAdder[] hits;
+    // Lines classified under each rule's root cause; rules sharing a root cause share the counter
+    private final Metrics.Counter[] classified;
+
+    
+    public RootCauseClassifier(List<RootCauseRule> ruleList) {
+        // Rule index order is resolution order: priority desc, then file order
+        List<RootCauseRule> ordered = new ArrayList<>(ruleList);
+        ordered.sort(Comparator.comparingInt(RootCauseRule::getPriority).reversed());
+        this.rules = ordered.toArray(new RootCauseRule[0]);
+        this.hits = new LongAdder[rules.length];
+        for (int i = 0; i < hits.length; i++) {
+            hits[i] = new LongAdder();
+        }
+        this.classified = new Metrics.Counter[rules.length];
+        for (int i = 0; i < classified.length; i++) {
+            classified[i] = Metrics.counter("logiq_classifications_total", "Log lines classified, by root cause.",
+                "root_cause", rules[i].getRootCause());
+        }
+
+        // 1. Trie of all signatures
+        List<Map<Character, Integer>> children = new ArrayList<>();
+        List<List<Integer>> terminal = new ArrayList<>();
+        children.add(new HashMap<>());
+        terminal.add(new ArrayList<>());
+        for (int r = 0; r < rules.length; r++) {
+            int state = 0;
+            for (char c : rules[r].getSignature().toCharArray()) {
+                Integer next = children.get(state).get(c);
+                if (next == null) {
+                    next = children.size();
+                    children.add(new HashMap<>());
+                    terminal.add(new ArrayList<>());
+                    children.get(state).put(c, next);
+                }
+                state = next;
+            }
+            terminal.get(state).add(r);
+        }
+
+        // 2. Failure links and merged outputs, breadth first
+        int states = children.size();
+        this.failure = new int[states];
+        this.outputs = new int[states][];
+        this.transitions = new int[states * ALPHABET];
+        this.sparse = new ArrayList<>(states);
+        for (int s = 0; s < states; s++) {
+            sparse.add(null);
+        }
+        outputs[0] = new int[0];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (Map.Entry<Character, Integer> child : children.get(0).entrySet()) {
+            failure[child.getValue()] = 0;
+            queue.add(child.getValue());
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            List<Integer> own = terminal.get(state);
+            int[] inherited = outputs[failure[state]];
+            int[] merged = new int[own.size() + inherited.length];
+            for (int i = 0; i < own.size(); i++) {
+                merged[i] = own.get(i);
+            }
+            System.arraycopy(inherited, 0, merged, own.size(), inherited.length);
+            Arrays.sort(merged);
+            outputs[state] = merged;
+
+            for (Map.Entry<Character, Integer> child : children.get(state).entrySet()) {
+                int f = failure[state];
+                while (f != 0 && !children.get(f).containsKey(child.getKey())) {
+                    f = failure[f];
+                }
+                Integer target = children.get(f).get(child.getKey());
+                failure[child.getValue()] = (target != null && target != child.getValue()) ? target : 0;
+                queue.add(child.getValue());
+            }
+        }
+
+        // 3. Complete the ASCII transition table (root-first BFS order keeps failure states resolved)
+        List<Integer> order = new ArrayList<>();
+        order.add(0);
+        for (int i = 0; i < order.size(); i++) {
+            order.addAll(children.get(order.get(i)).values());
+        }
+        for (int state : order) {
+            Map<Character, Integer> own = children.get(state);
+            for (int c = 0; c < ALPHABET; c++) {
+                Integer next = own.get((char) c);
+                if (next != null) {
+                    transitions[state * ALPHABET + c] = next;
+                } else {
+                    transitions[state * ALPHABET + c] = state == 0 ? 0 : transitions[failure[state] * ALPHABET + c];
+                }
+            }
+            for (Map.Entry<Character, Integer> child : own.entrySet()) {
+                if (child.getKey() >= ALPHABET) {
+                    if (sparse.get(state) == null) {
+                        sparse.set(state, new HashMap<>());
+                    }
+                    sparse.get(state).put(child.getKey(), child.getValue());
+                }
+            }
+        }
+    }
+
+    
+    public static RootCauseClassifier loadDefault() {
+        Path path = Paths.get(DEFAULT_RULES_PATH);
+        if (Files.isRegularFile(path)) {
+            try {
+                return load(path);
+            } catch (IOException e) {
+                System.out.println("⚠️ Could not read root cause rules from " + path + ", using built-in rules.");
+            }
+        }
+        return new RootCauseClassifier(builtInRules());
+    }
+
+    public static RootCauseClassifier load(Path path) throws IOException {
+        List<RootCauseRule> rules = new ArrayList<>();
+        List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] parts = line.split("\\|", 3);
+            try {
+                if (parts.length != 3) {
+                    throw new IllegalArgumentException("expected 'priority | root cause | signature'");
+                }
+                rules.add(new RootCauseRule(Integer.parseInt(parts[0].trim()), parts[1].trim(), parts[2].trim()));
+            } catch (IllegalArgumentException e) {
+                System.out.println("⚠️ Skipping root cause rule at " + path + ":" + (i + 1) + " (" + e.getMessage() + ")");
+            }
+        }
+        return new RootCauseClassifier(rules);
+    }
+
+    // The original NullPointer / Timeout / IndexOutOfBounds if-chain
+    public static List<RootCauseRule> builtInRules() {
+        List<RootCauseRule> rules = new ArrayList<>();
+        rules.add(new RootCauseRule(300, "NullPointer", "NullPointer"));
+        rules.add(new RootCauseRule(200, "Timeout", "Timeout"));
+        rules.add(new RootCauseRule(100, "IndexOutOfBounds", "IndexOutOfBounds"));
+        return rules;
+    }
+
+    
+    // Single pass over the message; returns the winning root cause or null
+    public String classify(String message) {
+        int best = Integer.MAX_VALUE;
+        int state = 0;
+        for (int i = 0, n = message.length(); i < n; i++) {
+            state = step(state, message.charAt(i));
+            for (int rule : outputs[state]) {
+                hits[rule].increment();
+                if (rule < best) {
+                    best = rule;
+                }
+            }
+        }
+        if (best == Integer.MAX_VALUE) {
+            return null;
+        }
+        classified[best].increment();
+        return rules[best].getRootCause();
+    }
+
+    // Every rule whose signature occurs in the message, in resolution order
+    public List<RootCauseRule> matchAll(String message) {
+        boolean[] matched = new boolean[rules.length];
+        int state = 0;
+        for (int i = 0, n = message.length(); i < n; i++) {
+            state = step(state, message.charAt(i));
+            for (int rule : outputs[state]) {
+                matched[rule] = true;
+            }
+        }
+        List<RootCauseRule> result = new ArrayList<>();
+        for (int r = 0; r < rules.length; r++) {
+            if (matched[r]) {
+                result.add(rules[r]);
+            }
+        }
+        return result;
+    }
+
+    
+    private int step(int state, char c) {
+        if (c < ALPHABET) {
+            return transitions[state * ALPHABET + c];
+        }
+        while (true) {
+            Map<Character, Integer> next = sparse.get(state);
+            Integer target = next == null ? null : next.get(c);
+            if (target != null) {
+                return target;
+            }
+            if (state == 0) {
+                return 0;
+            }
+            state = failure[state];
+        }
+    }
+
+    
+    public int getRuleCount() {
+        return rules.length;
+    }
+
+    // Prints rules hit since the last report and resets their counters
+    public void printHitReport() {
+        boolean any = false;
+        for (int r = 0; r < rules.length; r++) {
+            long count = hits[r].sumThenReset();
+            if (count > 0) {
+                if (!any) {
+                    System.out.println("🧩 Root cause rule hits:");
+                    any = true;
+                }
+                System.out.printf("  %-24s %-32s %d%n", rules[r].getRootCause(), rules[r].getSignature(), count);
+            }
+        }
+    }
+}
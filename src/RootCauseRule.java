@@ -0,0 +1,34 @@
+public class RootCauseRule {
+    private final int priority;
+    private final String rootCause;
+    private final String signature;
+
+    
+    public RootCauseRule(int priority, String rootCause, String signature) {
+        if (signature == null || signature.isEmpty()) {
+            throw new IllegalArgumentException("Root cause rule signature must not be empty");
+        }
+        this.priority = priority;
+        this.rootCause = rootCause;
+        this.signature = signature;
+    }
+
+    
+    public int getPriority() {
+        return priority;
+    }
+
+    public String getRootCause() {
+        return rootCause;
+    }
+
+    public String getSignature() {
+        return signature;
+    }
+
+    
+    @Override
+    public String toString() {
+        return String.format("%d | %s | %s", priority, rootCause, signature);
+    }
+}
@@ -0,0 +1,405 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class SchemaMigrator {
+
+    public interface Step {
+        void apply(Connection conn) throws SQLException;
+    }
+
+    // From this version on logs live in day partitions (see LogPartitions) instead of the logs table
+    static final int PARTITIONED_VERSION = 7;
+
+    private static final List<String> DESCRIPTIONS = new ArrayList<>();
+    private static final List<Step> STEPS = new ArrayList<>();
+
+    // Steps run in order, each in its own transaction; PRAGMA user_version records the last one applied.
+    // Append new steps at the end and never edit one that has shipped.
+    static {
+        add("Secondary indexes for level, root cause and time-ordered queries", conn -> execute(conn,
+            "CREATE INDEX IF NOT EXISTS idx_logs_level_timestamp ON logs (level, timestamp)",
+            "CREATE INDEX IF NOT EXISTS idx_logs_root_cause_timestamp ON logs (root_cause, timestamp)",
+            "CREATE INDEX IF NOT EXISTS idx_logs_timestamp ON logs (timestamp)",
+            "ANALYZE"));
+        add("Per-minute, hour and day summary rollups by level and root cause", conn -> {
+            execute(conn, SummaryRollups.CREATE_SQL);
+            execute(conn, SummaryRollups.backfillSQL());
+        });
+        add("Compact logs rows: epoch-millis timestamps, level and root cause dictionaries", SchemaMigrator::compactLogs);
+        add("Content-hash deduplication key instead of the four-column unique index", SchemaMigrator::hashLogs);
+        add("Message templates mined from every stored message", SchemaMigrator::mineTemplates);
+        add("Day partitions, each with its own indexes and full-text index, replacing the logs table", SchemaMigrator::partitionLogs);
+        add("Manifest of ingested files, keyed by a fingerprint of their first 4 KB", conn -> execute(conn, """
+            CREATE TABLE IF NOT EXISTS ingest_manifest (
+                fingerprint TEXT PRIMARY KEY,
+                path TEXT NOT NULL,
+                compressed INTEGER NOT NULL,
+                bytes INTEGER NOT NULL,
+                entries INTEGER NOT NULL,
+                ingested_at TEXT NOT NULL
+            )
+            """));
+        add("Catalog of sealed day segments, the columnar cold tier", conn -> execute(conn, LogSegments.CREATE_CATALOG_SQL));
+    }
+
+    private SchemaMigrator() {
+    }
+
+    
+    private static void add(String description, Step step) {
+        DESCRIPTIONS.add(description);
+        STEPS.add(step);
+    }
+
+    static void execute(Connection conn, String... statements) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            for (String sql : statements) {
+                stmt.execute(sql);
+            }
+        }
+    }
+
+    
+    // Rebuilds logs with ts in epoch millis (see LogTimestamps) and level and root cause as dictionary codes.
+    // Ids are kept, so logs_fts stays valid; the log_entries view decodes rows back to the original text.
+    private static void compactLogs(Connection conn) throws SQLException {
+        String invalidTimestamp = "strftime('%Y-%m-%d %H:%M:%S', timestamp) IS NOT timestamp";
+        long invalidRows;
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM logs WHERE " + invalidTimestamp)) {
+            invalidRows = rs.getLong(1);
+        }
+        if (invalidRows > 0) {
+            // Timestamps that are not a real date and time cannot be converted; keep those rows aside
+            execute(conn,
+                "CREATE TABLE IF NOT EXISTS logs_invalid_timestamps AS SELECT * FROM logs WHERE " + invalidTimestamp,
+                "DELETE FROM logs WHERE " + invalidTimestamp,
+                "DELETE FROM log_rollups");
+            execute(conn, SummaryRollups.backfillSQL("logs"));
+            System.out.println("⚠️ Moved " + invalidRows + " rows with invalid timestamps to logs_invalid_timestamps.");
+        }
+
+        execute(conn,
+            "CREATE TABLE log_levels (id INTEGER PRIMARY KEY, name TEXT NOT NULL UNIQUE)",
+            "INSERT INTO log_levels (id, name) VALUES (1, 'INFO'), (2, 'WARN'), (3, 'ERROR')",
+            "INSERT OR IGNORE INTO log_levels (name) SELECT DISTINCT level FROM logs",
+            "CREATE TABLE root_causes (id INTEGER PRIMARY KEY, name TEXT NOT NULL UNIQUE)",
+            "INSERT INTO root_causes (name) SELECT DISTINCT root_cause FROM logs WHERE root_cause IS NOT NULL",
+            """
+            CREATE TABLE logs_compact (
+                id INTEGER PRIMARY KEY AUTOINCREMENT,
+                ts INTEGER NOT NULL,
+                level_id INTEGER NOT NULL REFERENCES log_levels (id),
+                message TEXT NOT NULL,
+                root_cause_id INTEGER REFERENCES root_causes (id),
+                UNIQUE (ts, level_id, message, root_cause_id)
+            )
+            """,
+            """
+            INSERT INTO logs_compact (id, ts, level_id, message, root_cause_id)
+            SELECT logs.id, unixepoch(logs.timestamp) * 1000, log_levels.id, logs.message, root_causes.id
+            FROM logs
+            JOIN log_levels ON log_levels.name = logs.level
+            LEFT JOIN root_causes ON root_causes.name = logs.root_cause
+            ORDER BY logs.id
+            """,
+            // Ids skipped by INSERT OR IGNORE stay unused
+            "UPDATE sqlite_sequence SET seq = (SELECT seq FROM sqlite_sequence WHERE name = 'logs') "
+                + "WHERE name = 'logs_compact' AND EXISTS (SELECT 1 FROM sqlite_sequence WHERE name = 'logs')",
+            "DROP TABLE logs",
+            "ALTER TABLE logs_compact RENAME TO logs",
+            "CREATE INDEX idx_logs_level_timestamp ON logs (level_id, ts)",
+            "CREATE INDEX idx_logs_root_cause_timestamp ON logs (root_cause_id, ts)",
+            "CREATE INDEX idx_logs_timestamp ON logs (ts)",
+            """
+            CREATE TRIGGER logs_fts_delete AFTER DELETE ON logs BEGIN
+                DELETE FROM logs_fts WHERE rowid = old.id;
+            END
+            """,
+            """
+            CREATE TRIGGER logs_fts_update AFTER UPDATE OF message, root_cause_id ON logs BEGIN
+                DELETE FROM logs_fts WHERE rowid = old.id;
+                INSERT INTO logs_fts (rowid, message, root_cause)
+                VALUES (new.id, new.message, (SELECT name FROM root_causes WHERE id = new.root_cause_id));
+            END
+            """,
+            // LEFT JOINs keep logs as the outer loop, so filters and ORDER BY on ts and id use the logs indexes
+            """
+            CREATE VIEW log_entries AS
+            SELECT logs.id AS id,
+                   strftime('%Y-%m-%d %H:%M:%S', logs.ts / 1000, 'unixepoch') AS timestamp,
+                   log_levels.name AS level,
+                   logs.message AS message,
+                   root_causes.name AS root_cause,
+                   logs.ts AS ts,
+                   logs.level_id AS level_id,
+                   logs.root_cause_id AS root_cause_id
+            FROM logs
+            LEFT JOIN log_levels ON log_levels.id = logs.level_id
+            LEFT JOIN root_causes ON root_causes.id = logs.root_cause_id
+            """,
+            "ANALYZE");
+    }
+
+    
+    // Replaces the UNIQUE (ts, level_id, message, root_cause_id) index, which held a second copy of every message,
+    // with a unique index on an 8-byte ContentHash. Rows it finds to be duplicates are removed; that includes
+    // repeats with a NULL root cause, which the old index could not see because NULLs never compare equal.
+    private static void hashLogs(Connection conn) throws SQLException {
+        execute(conn,
+            """
+            CREATE TABLE logs_hashed (
+                id INTEGER PRIMARY KEY AUTOINCREMENT,
+                ts INTEGER NOT NULL,
+                level_id INTEGER NOT NULL REFERENCES log_levels (id),
+                message TEXT NOT NULL,
+                root_cause_id INTEGER REFERENCES root_causes (id),
+                content_hash INTEGER NOT NULL
+            )
+            """,
+            "CREATE UNIQUE INDEX idx_logs_content_hash ON logs_hashed (content_hash)");
+
+        // The hash is computed in Java, so rows are copied through the driver rather than INSERT ... SELECT
+        List<Long> duplicates = new ArrayList<>();
+        try (Statement select = conn.createStatement();
+             ResultSet rs = select.executeQuery(
+                 "SELECT id, ts, level_id, message, root_cause_id, level, root_cause FROM log_entries ORDER BY id");
+             PreparedStatement insert = conn.prepareStatement(
+                 "INSERT OR IGNORE INTO logs_hashed (id, ts, level_id, message, root_cause_id, content_hash) "
+                     + "VALUES (?, ?, ?, ?, ?, ?)")) {
+            List<Long> batchIds = new ArrayList<>();
+            while (rs.next()) {
+                long id = rs.getLong(1);
+                long ts = rs.getLong(2);
+                insert.setLong(1, id);
+                insert.setLong(2, ts);
+                insert.setInt(3, rs.getInt(3));
+                insert.setString(4, rs.getString(4));
+                insert.setObject(5, rs.getObject(5));
+                insert.setLong(6, ContentHash.of(ts, rs.getString(6), rs.getString(4), rs.getString(7)));
+                insert.addBatch();
+                batchIds.add(id);
+                if (batchIds.size() == 10_000) {
+                    collectIgnored(insert.executeBatch(), batchIds, duplicates);
+                }
+            }
+            collectIgnored(insert.executeBatch(), batchIds, duplicates);
+        }
+
+        execute(conn,
+            "UPDATE sqlite_sequence SET seq = (SELECT seq FROM sqlite_sequence WHERE name = 'logs') "
+                + "WHERE name = 'logs_hashed' AND EXISTS (SELECT 1 FROM sqlite_sequence WHERE name = 'logs')",
+            // The view refers to logs, and RENAME rejects a schema with a view it cannot resolve
+            "DROP VIEW log_entries",
+            "DROP TABLE logs",
+            "ALTER TABLE logs_hashed RENAME TO logs",
+            "CREATE INDEX idx_logs_level_timestamp ON logs (level_id, ts)",
+            "CREATE INDEX idx_logs_root_cause_timestamp ON logs (root_cause_id, ts)",
+            "CREATE INDEX idx_logs_timestamp ON logs (ts)",
+            """
+            CREATE TRIGGER logs_fts_delete AFTER DELETE ON logs BEGIN
+                DELETE FROM logs_fts WHERE rowid = old.id;
+            END
+            """,
+            """
+            CREATE TRIGGER logs_fts_update AFTER UPDATE OF message, root_cause_id ON logs BEGIN
+                DELETE FROM logs_fts WHERE rowid = old.id;
+                INSERT INTO logs_fts (rowid, message, root_cause)
+                VALUES (new.id, new.message, (SELECT name FROM root_causes WHERE id = new.root_cause_id));
+            END
+            """,
+            """
+            CREATE VIEW log_entries AS
+            SELECT logs.id AS id,
+                   strftime('%Y-%m-%d %H:%M:%S', logs.ts / 1000, 'unixepoch') AS timestamp,
+                   log_levels.name AS level,
+                   logs.message AS message,
+                   root_causes.name AS root_cause,
+                   logs.ts AS ts,
+                   logs.level_id AS level_id,
+                   logs.root_cause_id AS root_cause_id
+            FROM logs
+            LEFT JOIN log_levels ON log_levels.id = logs.level_id
+            LEFT JOIN root_causes ON root_causes.id = logs.root_cause_id
+            """);
+
+        if (!duplicates.isEmpty()) {
+            try (PreparedStatement delete = conn.prepareStatement("DELETE FROM logs_fts WHERE rowid = ?")) {
+                for (long id : duplicates) {
+                    delete.setLong(1, id);
+                    delete.addBatch();
+                }
+                delete.executeBatch();
+            }
+            execute(conn, "DELETE FROM log_rollups");
+            execute(conn, SummaryRollups.backfillSQL("log_entries"));
+            System.out.println("🧹 Removed " + duplicates.size() + " duplicate rows.");
+        }
+        execute(conn, "ANALYZE");
+    }
+
+    private static void collectIgnored(int[] counts, List<Long> batchIds, List<Long> ignored) {
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                ignored.add(batchIds.get(i));
+            }
+        }
+        batchIds.clear();
+    }
+
+    // Adds logs.template_id and mines the stored messages in id order, as if they were ingested again
+    private static void mineTemplates(Connection conn) throws SQLException {
+        execute(conn,
+            "CREATE TABLE log_templates (id INTEGER PRIMARY KEY, template TEXT NOT NULL, count INTEGER NOT NULL)",
+            "ALTER TABLE logs ADD COLUMN template_id INTEGER REFERENCES log_templates (id)");
+
+        TemplateMiner miner = new TemplateMiner();
+        Map<Integer, long[]> counts = new HashMap<>();
+        // Read in keyset batches, so no query on logs is open while its rows are updated
+        try (PreparedStatement select = conn.prepareStatement("SELECT id, message FROM logs WHERE id > ? ORDER BY id LIMIT 10000");
+             PreparedStatement update = conn.prepareStatement("UPDATE logs SET template_id = ? WHERE id = ?")) {
+            long lastId = 0;
+            while (true) {
+                select.setLong(1, lastId);
+                List<long[]> rows = new ArrayList<>();
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        lastId = rs.getLong(1);
+                        rows.add(new long[] { miner.match(rs.getString(2)), lastId });
+                    }
+                }
+                if (rows.isEmpty()) {
+                    break;
+                }
+                for (long[] row : rows) {
+                    counts.computeIfAbsent((int) row[0], k -> new long[1])[0]++;
+                    update.setLong(1, row[0]);
+                    update.setLong(2, row[1]);
+                    update.addBatch();
+                }
+                update.executeBatch();
+            }
+        }
+        try (PreparedStatement insert = conn.prepareStatement(
+                 "INSERT INTO log_templates (id, template, count) VALUES (?, ?, ?)")) {
+            for (Map.Entry<Integer, long[]> e : counts.entrySet()) {
+                insert.setInt(1, e.getKey());
+                insert.setString(2, miner.template(e.getKey()));
+                insert.setLong(3, e.getValue()[0]);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+
+        execute(conn,
+            "CREATE INDEX idx_logs_template_timestamp ON logs (template_id, ts)",
+            "DROP VIEW log_entries",
+            """
+            CREATE VIEW log_entries AS
+            SELECT logs.id AS id,
+                   strftime('%Y-%m-%d %H:%M:%S', logs.ts / 1000, 'unixepoch') AS timestamp,
+                   log_levels.name AS level,
+                   logs.message AS message,
+                   root_causes.name AS root_cause,
+                   logs.ts AS ts,
+                   logs.level_id AS level_id,
+                   logs.root_cause_id AS root_cause_id,
+                   logs.template_id AS template_id,
+                   log_templates.template AS template
+            FROM logs
+            LEFT JOIN log_levels ON log_levels.id = logs.level_id
+            LEFT JOIN root_causes ON root_causes.id = logs.root_cause_id
+            LEFT JOIN log_templates ON log_templates.id = logs.template_id
+            """,
+            "ANALYZE");
+        System.out.println("🧬 Mined " + counts.size() + " message templates.");
+    }
+
+    // Copies logs into one partition per day in id order, so ids are renumbered but keep their order. Rollups
+    // and template counts are unchanged; logs, logs_fts and the log_entries view are dropped afterwards.
+    private static void partitionLogs(Connection conn) throws SQLException {
+        execute(conn, LogPartitions.CREATE_CATALOG_SQL);
+        List<Long> dayStarts = new ArrayList<>();
+        // Walks idx_logs_timestamp from one day to the next
+        try (PreparedStatement next = conn.prepareStatement("SELECT MIN(ts) FROM logs WHERE ts >= ?")) {
+            long from = Long.MIN_VALUE;
+            while (true) {
+                next.setLong(1, from);
+                try (ResultSet rs = next.executeQuery()) {
+                    rs.next();
+                    long ts = rs.getLong(1);
+                    if (rs.wasNull()) {
+                        break;
+                    }
+                    from = Math.floorDiv(ts, 86_400_000L) * 86_400_000L;
+                }
+                dayStarts.add(from);
+                from += 86_400_000L;
+            }
+        }
+        for (long from : dayStarts) {
+            int day = LogPartitions.dayOf(from);
+            LogPartitions.create(conn, day, false);
+            try (PreparedStatement copy = conn.prepareStatement(
+                     "INSERT INTO " + LogPartitions.table(day) + " (id, ts, level_id, message, root_cause_id, content_hash, template_id) "
+                         + "SELECT ? + row_number() OVER (ORDER BY id), ts, level_id, message, root_cause_id, content_hash, template_id "
+                         + "FROM logs WHERE ts >= ? AND ts < ? ORDER BY id")) {
+                copy.setLong(1, day * LogPartitions.IDS_PER_DAY);
+                copy.setLong(2, from);
+                copy.setLong(3, from + 86_400_000L);
+                copy.executeUpdate();
+            }
+            LogPartitions.createSecondaryIndexes(conn, day);
+            LogPartitions.syncFullTextIndex(conn, day);
+        }
+        execute(conn,
+            "DROP VIEW log_entries",
+            "DROP TABLE logs",
+            "DROP TABLE logs_fts",
+            "DELETE FROM sqlite_sequence WHERE name = 'logs'",
+            "ANALYZE");
+        System.out.println("🗓️ Split logs into " + dayStarts.size() + " day partitions.");
+    }
+
+    
+    public static int currentVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    public static int latestVersion() {
+        return STEPS.size();
+    }
+
+    
+    // Brings an existing database up to the latest schema in place
+    public static void migrate(Connection conn) throws SQLException {
+        int version = currentVersion(conn);
+        boolean autoCommit = conn.getAutoCommit();
+        try {
+            conn.setAutoCommit(false);
+            for (int v = version; v < STEPS.size(); v++) {
+                try {
+                    STEPS.get(v).apply(conn);
+                    execute(conn, "PRAGMA user_version = " + (v + 1));
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw new SQLException("Schema migration " + (v + 1) + " failed: " + DESCRIPTIONS.get(v), e);
+                }
+                System.out.println("🔧 Applied schema migration " + (v + 1) + ": " + DESCRIPTIONS.get(v));
+            }
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+public class SummaryRollups {
+
+    // Bucket keys are timestamp prefixes: "yyyy-MM-dd HH:mm", "yyyy-MM-dd HH", "yyyy-MM-dd" and '' for all time
+    static final String MINUTE = "minute";
+    static final String HOUR = "hour";
+    static final String DAY = "day";
+    static final String ALL = "all";
+    private static final String[] GRANULARITIES = { MINUTE, HOUR, DAY, ALL };
+    private static final int[] BUCKET_LENGTHS = { 16, 13, 10, 0 };
+
+    static final String CREATE_SQL = """
+        CREATE TABLE IF NOT EXISTS log_rollups (
+            granularity TEXT NOT NULL,
+            bucket TEXT NOT NULL,
+            level TEXT NOT NULL,
+            root_cause TEXT NOT NULL,
+            count INTEGER NOT NULL,
+            PRIMARY KEY (granularity, bucket, level, root_cause)
+        ) WITHOUT ROWID
+    """;
+
+    private static final String UPSERT_SQL =
+        "INSERT INTO log_rollups (granularity, bucket, level, root_cause, count) VALUES (?, ?, ?, ?, ?) "
+        + "ON CONFLICT (granularity, bucket, level, root_cause) DO UPDATE SET count = count + excluded.count";
+
+    static final String TEMPLATE_UPSERT_SQL =
+        "INSERT INTO log_templates (id, template, count) VALUES (?, ?, ?) "
+        + "ON CONFLICT (id) DO UPDATE SET template = excluded.template, count = count + excluded.count";
+
+    private record Key(String granularity, String bucket, String level, String rootCause) {
+    }
+
+    private record MinuteKey(long minute, String level, String rootCause) {
+    }
+
+    // Rows inserted in the current transaction, counted per epoch minute until flush
+    private final Map<MinuteKey, long[]> pending = new HashMap<>();
+    // and per template; log_templates.count is the all-time rollup by template
+    private final Map<Integer, long[]> pendingTemplates = new HashMap<>();
+
+    
+    // Rebuilds every rollup from the logs table, for databases that predate the rollups
+    static String[] backfillSQL() {
+        return backfillSQL("logs");
+    }
+
+    // The same from source, which needs text timestamp, level and root_cause columns: the logs table before
+    // migration 3, the log_entries view after it
+    static String[] backfillSQL(String source) {
+        String[] statements = new String[GRANULARITIES.length];
+        for (int g = 0; g < GRANULARITIES.length; g++) {
+            String bucket = BUCKET_LENGTHS[g] == 0 ? "''" : "substr(timestamp, 1, " + BUCKET_LENGTHS[g] + ")";
+            statements[g] = "INSERT INTO log_rollups (granularity, bucket, level, root_cause, count) "
+                + "SELECT '" + GRANULARITIES[g] + "', " + bucket + ", level, IFNULL(root_cause, ''), COUNT(*) "
+                + "FROM " + source + " GROUP BY 2, 3, 4";
+        }
+        return statements;
+    }
+
+    
+    public void add(LogEntry entry) {
+        String rootCause = entry.getRootCause() == null ? "" : entry.getRootCause();
+        MinuteKey key = new MinuteKey(Math.floorDiv(entry.getTimestampMillis(), 60_000L), entry.getLevel(), rootCause);
+        pending.computeIfAbsent(key, k -> new long[1])[0]++;
+        if (entry.getTemplateId() != 0) {
+            pendingTemplates.computeIfAbsent(entry.getTemplateId(), k -> new long[1])[0]++;
+        }
+    }
+
+    
+    // Writes the pending counts on conn; call it inside the transaction that inserted the rows
+    public void flush(Connection conn) throws SQLException {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Map<Key, long[]> rows = new HashMap<>();
+        for (Map.Entry<MinuteKey, long[]> e : pending.entrySet()) {
+            MinuteKey minute = e.getKey();
+            String timestamp = LogTimestamps.format(minute.minute() * 60_000L);
+            for (int g = 0; g < GRANULARITIES.length; g++) {
+                Key key = new Key(GRANULARITIES[g], timestamp.substring(0, BUCKET_LENGTHS[g]),
+                    minute.level(), minute.rootCause());
+                rows.computeIfAbsent(key, k -> new long[1])[0] += e.getValue()[0];
+            }
+        }
+        try (PreparedStatement upsert = conn.prepareStatement(UPSERT_SQL)) {
+            for (Map.Entry<Key, long[]> e : rows.entrySet()) {
+                Key key = e.getKey();
+                upsert.setString(1, key.granularity());
+                upsert.setString(2, key.bucket());
+                upsert.setString(3, key.level());
+                upsert.setString(4, key.rootCause());
+                upsert.setLong(5, e.getValue()[0]);
+                upsert.addBatch();
+            }
+            upsert.executeBatch();
+        }
+        pending.clear();
+        flushTemplates(conn);
+    }
+
+    // Also stores the current text of each template, which may have gained wildcards since it was last written
+    private void flushTemplates(Connection conn) throws SQLException {
+        TemplateMiner miner = DatabaseManager.getTemplateMiner();
+        if (pendingTemplates.isEmpty() || miner == null) {
+            pendingTemplates.clear();
+            return;
+        }
+        try (PreparedStatement upsert = conn.prepareStatement(TEMPLATE_UPSERT_SQL)) {
+            for (Map.Entry<Integer, long[]> e : pendingTemplates.entrySet()) {
+                upsert.setInt(1, e.getKey());
+                upsert.setString(2, miner.template(e.getKey()));
+                upsert.setLong(3, e.getValue()[0]);
+                upsert.addBatch();
+            }
+            upsert.executeBatch();
+        }
+        pendingTemplates.clear();
+    }
+}
@@ -0,0 +1,93 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Writes synthetic logs modeled on logs/sample.log: each line is a random sample line whose numbers and quoted
+// names are replaced by random values, so levels, root causes and templates keep the sample's mix while lines
+// stay distinct. Timestamps are spread evenly over the requested days, starting on the sample's day.
+// Usage: java -cp ... SyntheticLogGenerator <output> [lines] [days] [sample]
+public class SyntheticLogGenerator {
+
+    static final LocalDateTime START = LocalDateTime.of(2025, 10, 4, 0, 0);
+    private static final String[] NAMES = { "john", "alice", "bob", "charlie", "dave", "erin", "frank", "grace" };
+
+    private final List<String> bodies = new ArrayList<>();
+    private final Random random;
+
+    
+    // sample lines start with "yyyy-MM-dd HH:mm:ss"; lines without a timestamp are ignored
+    public SyntheticLogGenerator(List<String> sample, long seed) {
+        for (String line : sample) {
+            if (line.length() > LogTimestamps.LENGTH && Character.isDigit(line.charAt(0))) {
+                bodies.add(line.substring(LogTimestamps.LENGTH));
+            }
+        }
+        if (bodies.isEmpty()) {
+            throw new IllegalArgumentException("Sample has no timestamped lines");
+        }
+        this.random = new Random(seed);
+    }
+
+    
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: SyntheticLogGenerator <output> [lines] [days] [sample]");
+            return;
+        }
+        long lines = args.length > 1 ? Long.parseLong(args[1]) : 1_000_000;
+        int days = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        Path sample = Paths.get(args.length > 3 ? args[3] : "logs/sample.log");
+        write(Paths.get(args[0]), Files.readAllLines(sample), lines, days, 42);
+        System.out.println("✅ Wrote " + lines + " synthetic lines over " + days + " days to " + args[0]);
+    }
+
+    public static void write(Path output, List<String> sample, long lines, int days, long seed) throws IOException {
+        SyntheticLogGenerator generator = new SyntheticLogGenerator(sample, seed);
+        long start = START.toEpochSecond(ZoneOffset.UTC) * 1000;
+        double step = (double) days * 86_400_000L / Math.max(1, lines);
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            for (long i = 0; i < lines; i++) {
+                writer.write(generator.line(start + (long) (i * step)));
+                writer.newLine();
+            }
+        }
+    }
+
+    
+    public String line(long timestampMillis) {
+        String body = bodies.get(random.nextInt(bodies.size()));
+        StringBuilder line = new StringBuilder(LogTimestamps.LENGTH + body.length() + 8);
+        line.append(LogTimestamps.format(timestampMillis));
+        int i = 0;
+        while (i < body.length()) {
+            char c = body.charAt(i);
+            if (Character.isDigit(c)) {
+                int end = i;
+                while (end < body.length() && Character.isDigit(body.charAt(end))) {
+                    end++;
+                }
+                // Same number of digits, so thresholds such as "85%" stay plausible
+                line.append(random.nextInt((int) Math.pow(10, Math.min(end - i, 9))));
+                i = end;
+            } else if (c == '\'' && body.indexOf('\'', i + 1) > i) {
+                line.append('\'').append(NAMES[random.nextInt(NAMES.length)]).append('\'');
+                i = body.indexOf('\'', i + 1) + 1;
+            } else {
+                line.append(c);
+                i++;
+            }
+        }
+        return line.toString();
+    }
+}
@@ -0,0 +1,199 @@
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Online template miner after Drain (He et al., ICWS 2017). Messages are split on spaces; tokens with a digit
+// and quoted tokens are masked up front. A fixed-depth tree keyed by token count and then by the first
+// PREFIX_DEPTH tokens leads to a list of at most MAX_TEMPLATES templates, so each message costs a bounded
+// amount of work whatever the number of templates. The message joins the most similar template in that list,
+// whose differing positions become <*>; below SIMILARITY it starts a new template, unless the list is full and
+// it joins the most similar one anyway. Template ids never change once assigned. Each token count has a subtree
+// of its own, and matching locks only that subtree, so parser threads mining messages of different lengths do
+// not wait for each other.
+public class TemplateMiner {
+
+    public static final String WILDCARD = "<*>";
+    private static final int PREFIX_DEPTH = 2;
+    private static final int MAX_CHILDREN = 100;
+    private static final int MAX_TEMPLATES = 100;
+    private static final double SIMILARITY = 0.5;
+
+    private final Map<Integer, Node> byLength = new ConcurrentHashMap<>();
+    private final Map<Integer, Template> byId = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger(1);
+
+    
+    // Rebuilds the tree from the templates stored in log_templates
+    public static TemplateMiner load(Connection conn) throws SQLException {
+        TemplateMiner miner = new TemplateMiner();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id, template FROM log_templates ORDER BY id")) {
+            while (rs.next()) {
+                String text = rs.getString(2);
+                String[] tokens = text.isEmpty() ? new String[0] : text.split(" ");
+                miner.add(new Template(rs.getInt(1), tokens));
+            }
+        }
+        return miner;
+    }
+
+    
+    // Returns the id of the template message belongs to, learning or generalizing one as needed
+    public int match(String message) {
+        String[] tokens = tokenize(message);
+        Node subtree = subtree(tokens);
+        synchronized (subtree) {
+            return match(leaf(subtree, tokens), tokens);
+        }
+    }
+
+    private int match(List<Template> leaf, String[] tokens) {
+        Template best = null;
+        double bestSimilarity = -1;
+        int bestWildcards = -1;
+        for (Template template : leaf) {
+            int equal = 0;
+            int wildcards = 0;
+            for (int i = 0; i < tokens.length; i++) {
+                String token = template.tokens[i];
+                if (token == WILDCARD) {
+                    wildcards++;
+                } else if (token.equals(tokens[i])) {
+                    equal++;
+                }
+            }
+            double similarity = tokens.length == 0 ? 1 : (double) equal / tokens.length;
+            if (similarity > bestSimilarity || (similarity == bestSimilarity && wildcards > bestWildcards)) {
+                best = template;
+                bestSimilarity = similarity;
+                bestWildcards = wildcards;
+            }
+        }
+        if (best != null && (bestSimilarity >= SIMILARITY || leaf.size() >= MAX_TEMPLATES)) {
+            best.merge(tokens);
+            return best.id;
+        }
+        Template template = new Template(nextId.getAndIncrement(), tokens);
+        leaf.add(template);
+        byId.put(template.id, template);
+        return template.id;
+    }
+
+    public String template(int id) {
+        Template template = byId.get(id);
+        return template == null ? null : template.text();
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    
+    // Adds a stored template as is, even to a full leaf, so every stored id keeps matching
+    private void add(Template template) {
+        leaf(subtree(template.tokens), template.tokens).add(template);
+        byId.put(template.id, template);
+        nextId.accumulateAndGet(template.id + 1, Math::max);
+    }
+
+    // The root of the subtree for messages of this many tokens; match() holds its lock while it walks and changes it
+    private Node subtree(String[] tokens) {
+        return byLength.computeIfAbsent(tokens.length, length -> new Node());
+    }
+
+    // Walks one level per prefix token from the subtree root, adding nodes on the way. New tokens take the
+    // <*> branch once a node has MAX_CHILDREN children, so the tree stays small when early tokens vary
+    private List<Template> leaf(Node node, String[] tokens) {
+        for (int depth = 0; depth < Math.min(PREFIX_DEPTH, tokens.length); depth++) {
+            String token = tokens[depth];
+            Node child = node.children.get(token);
+            if (child == null) {
+                if (token == WILDCARD || node.children.size() < MAX_CHILDREN) {
+                    child = new Node();
+                    node.children.put(token, child);
+                } else {
+                    child = node.children.computeIfAbsent(WILDCARD, key -> new Node());
+                }
+            }
+            node = child;
+        }
+        return node.templates;
+    }
+
+    
+    static String[] tokenize(String message) {
+        List<String> tokens = new ArrayList<>();
+        int length = message.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && message.charAt(i) == ' ') {
+                i++;
+            }
+            int start = i;
+            boolean digit = false;
+            while (i < length && message.charAt(i) != ' ') {
+                char c = message.charAt(i);
+                digit |= c >= '0' && c <= '9';
+                i++;
+            }
+            if (i > start) {
+                tokens.add(digit || isQuoted(message, start, i) ? WILDCARD : message.substring(start, i));
+            }
+        }
+        return tokens.toArray(new String[0]);
+    }
+
+    private static boolean isQuoted(String message, int start, int end) {
+        if (end - start < 2) {
+            return false;
+        }
+        char first = message.charAt(start);
+        return (first == '\'' || first == '"') && message.charAt(end - 1) == first;
+    }
+
+    
+    private static class Node {
+        final Map<String, Node> children = new HashMap<>();
+        final List<Template> templates = new ArrayList<>();
+    }
+
+    private static class Template {
+        final int id;
+        final String[] tokens;
+        private String text;
+
+        Template(int id, String[] tokens) {
+            this.id = id;
+            this.tokens = tokens;
+            for (int i = 0; i < tokens.length; i++) {
+                if (tokens[i].equals(WILDCARD)) {
+                    tokens[i] = WILDCARD; // interned, so match() can compare by reference
+                }
+            }
+        }
+
+        // Synchronized with text(), which template() calls without the subtree lock
+        synchronized void merge(String[] message) {
+            for (int i = 0; i < tokens.length; i++) {
+                if (tokens[i] != WILDCARD && !tokens[i].equals(message[i])) {
+                    tokens[i] = WILDCARD;
+                    text = null;
+                }
+            }
+        }
+
+        synchronized String text() {
+            if (text == null) {
+                text = String.join(" ", tokens);
+            }
+            return text;
+        }
+    }
+}
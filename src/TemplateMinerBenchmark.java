@@ -0,0 +1,53 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+public class TemplateMinerBenchmark {
+
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+
+    
+    public static void main(String[] args) throws IOException {
+        String samplePath = args.length > 0 ? args[0] : "logs/sample.log";
+        int lineCount = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+
+        List<String> sample = Files.readAllLines(Paths.get(samplePath));
+        String[] messages = buildInput(sample, lineCount);
+        System.out.printf("Benchmark input: %d messages (from %s)%n", lineCount, samplePath);
+
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            mineAll(messages);
+        }
+        long start = System.nanoTime();
+        int templates = 0;
+        for (int round = 0; round < MEASURED_ROUNDS; round++) {
+            templates = mineAll(messages);
+        }
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        System.out.printf("%-22s %,14.0f lines/s  (%d templates)%n",
+            "TemplateMiner", (double) messages.length * MEASURED_ROUNDS / seconds, templates);
+    }
+
+    
+    // Messages of the sample lines with a varying numeric suffix; each round starts from an empty miner
+    private static String[] buildInput(List<String> sample, int lineCount) {
+        String[] messages = new String[lineCount];
+        for (int i = 0; i < lineCount; i++) {
+            String line = sample.get(i % sample.size());
+            int levelEnd = line.indexOf(' ', Math.min(20, line.length()));
+            String message = levelEnd < 0 ? line : line.substring(levelEnd).trim();
+            messages[i] = message + " #" + i;
+        }
+        return messages;
+    }
+
+    private static int mineAll(String[] messages) {
+        TemplateMiner miner = new TemplateMiner();
+        for (String message : messages) {
+            miner.match(message);
+        }
+        return miner.size();
+    }
+}
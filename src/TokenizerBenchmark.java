@@ -0,0 +1,80 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+public class TokenizerBenchmark {
+
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+
+    
+    public static void main(String[] args) throws IOException {
+        String samplePath = args.length > 0 ? args[0] : "logs/sample.log";
+        int lineCount = args.length > 1 ? Integer.parseInt(args[1]) : 2_000_000;
+
+        List<String> sample = Files.readAllLines(Paths.get(samplePath));
+        int[] starts = new int[lineCount];
+        int[] ends = new int[lineCount];
+        ByteBuffer buffer = buildInput(sample, starts, ends);
+        System.out.printf("Benchmark input: %d lines, %.1f MB (from %s)%n",
+            lineCount, buffer.capacity() / (1024.0 * 1024.0), samplePath);
+
+        double regex = run("RegexLineTokenizer", new RegexLineTokenizer(), buffer, starts, ends);
+        double fixed = run("FixedLayoutTokenizer", new FixedLayoutTokenizer(), buffer, starts, ends);
+        System.out.printf("Speedup: %.2fx%n", fixed / regex);
+    }
+
+    
+    // Repeats the sample lines, varying the seconds field and a sequence suffix
+    private static ByteBuffer buildInput(List<String> sample, int[] starts, int[] ends) {
+        byte[][] lines = new byte[starts.length][];
+        int total = 0;
+        for (int i = 0; i < lines.length; i++) {
+            String line = sample.get(i % sample.size());
+            if (line.length() >= 19 && Character.isDigit(line.charAt(0))) {
+                line = line.substring(0, 17) + String.format("%02d", i % 60) + line.substring(19) + " #" + i;
+            }
+            lines[i] = line.getBytes(StandardCharsets.UTF_8);
+            total += lines[i].length + 1;
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(total);
+        for (int i = 0; i < lines.length; i++) {
+            starts[i] = buffer.position();
+            buffer.put(lines[i]);
+            ends[i] = buffer.position();
+            buffer.put((byte) '\n');
+        }
+        return buffer;
+    }
+
+    
+    private static double run(String name, LineTokenizer tokenizer, ByteBuffer buffer, int[] starts, int[] ends) {
+        LineTokens tokens = new LineTokens();
+        long accepted = 0;
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            accepted = tokenizeAll(tokenizer, buffer, starts, ends, tokens);
+        }
+        long start = System.nanoTime();
+        for (int round = 0; round < MEASURED_ROUNDS; round++) {
+            accepted = tokenizeAll(tokenizer, buffer, starts, ends, tokens);
+        }
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        double linesPerSecond = (double) starts.length * MEASURED_ROUNDS / seconds;
+        System.out.printf("%-22s %,14.0f lines/s  (%d of %d lines accepted)%n",
+            name, linesPerSecond, accepted, starts.length);
+        return linesPerSecond;
+    }
+
+    private static long tokenizeAll(LineTokenizer tokenizer, ByteBuffer buffer, int[] starts, int[] ends, LineTokens tokens) {
+        long accepted = 0;
+        for (int i = 0; i < starts.length; i++) {
+            if (tokenizer.tokenize(buffer, starts[i], ends[i], tokens)) {
+                accepted++;
+            }
+        }
+        return accepted;
+    }
+}
@@ -0,0 +1,122 @@
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+public class AnomalyDetectorTest {
+
+    private static final long START = LogTimestamps.parse("2025-10-04 08:00:00");
+
+    public static void main(String[] args) throws Exception {
+        Check.run("a steady rate never alerts", () -> {
+            Detector detector = new Detector();
+            steady(detector.detector, "ERROR", 0, 2 * 3_600, 1);
+            Check.equal(0L, detector.detector.getAlertCount(), "alerts");
+        });
+
+        Check.run("a burst over the baseline alerts once, and again after it has passed", () -> {
+            Detector detector = new Detector();
+            steady(detector.detector, "ERROR", 0, 20 * 60, 1);
+            steady(detector.detector, "ERROR", 20 * 60, 22 * 60, 10);
+            Check.equal(1L, detector.detector.getAlertCount(), "one alert for a two-minute burst");
+            steady(detector.detector, "ERROR", 22 * 60, 40 * 60, 1);
+            Check.equal(1L, detector.detector.getAlertCount(), "back to normal");
+            steady(detector.detector, "ERROR", 40 * 60, 41 * 60, 10);
+            Check.equal(2L, detector.detector.getAlertCount(), "second burst");
+            String alerts = detector.output();
+            Check.isTrue(alerts.startsWith("🚨 Level ERROR rate "), alerts);
+            Check.isTrue(alerts.contains("in the last 60s: "), alerts);
+            Check.isTrue(alerts.contains("(up to 2025-10-04 08:2"), "time of the first alert: " + alerts);
+        });
+
+        Check.run("nothing alerts before the baseline has had its warm-up", () -> {
+            Detector detector = new Detector();
+            steady(detector.detector, "ERROR", 0, 9 * 60, 10);
+            steady(detector.detector, "ERROR", 9 * 60, 10 * 60, 100);
+            Check.equal(0L, detector.detector.getAlertCount(), "alerts");
+        });
+
+        Check.run("a silent series needs minEvents in its window", () -> {
+            Detector detector = new Detector();
+            // The stream starts here, so the series below has been silent for 20 minutes
+            detector.detector.observe(entry(0, "INFO", null));
+            for (int i = 0; i < 19; i++) {
+                detector.detector.observe(entry(20 * 60, "WARN", null));
+            }
+            Check.equal(0L, detector.detector.getAlertCount(), "19 events");
+            detector.detector.observe(entry(20 * 60 + 1, "WARN", null));
+            Check.equal(1L, detector.detector.getAlertCount(), "20 events");
+            Check.isTrue(detector.output().contains("🚨 Level WARN rate 20.0x baseline in the last 60s: 20 events, 0.0 expected"),
+                detector.output());
+        });
+
+        Check.run("root causes are watched whatever their level; other levels are not", () -> {
+            Detector detector = new Detector();
+            detector.detector.observe(entry(0, "INFO", null));
+            for (int i = 0; i < 50; i++) {
+                detector.detector.observe(entry(20 * 60, "INFO", i < 25 ? "Timeout" : null));
+            }
+            Check.equal(1L, detector.detector.getAlertCount(), "alerts");
+            Check.isTrue(detector.output().startsWith("🚨 Root cause Timeout rate "), detector.output());
+        });
+
+        Check.run("late events are dropped, and a jump back of over an hour starts a new window", () -> {
+            Detector detector = new Detector();
+            detector.detector.observe(entry(0, "INFO", null));
+            detector.detector.observe(entry(20 * 60, "ERROR", null));
+            for (int i = 0; i < 30; i++) {
+                detector.detector.observe(entry(20 * 60 - 120, "ERROR", null)); // older than the window: dropped
+            }
+            for (int i = 0; i < 18; i++) {
+                detector.detector.observe(entry(20 * 60, "ERROR", null));
+            }
+            Check.equal(0L, detector.detector.getAlertCount(), "19 events counted, under minEvents");
+
+            Detector replay = new Detector();
+            steady(replay.detector, "ERROR", 0, 20 * 60, 1);
+            // An older file read after it, at its normal rate and then in a burst
+            steady(replay.detector, "ERROR", -3 * 3_600, -2 * 3_600, 1);
+            Check.equal(0L, replay.detector.getAlertCount(), "the older file's normal rate");
+            steady(replay.detector, "ERROR", -2 * 3_600, -2 * 3_600 + 60, 10);
+            Check.equal(1L, replay.detector.getAlertCount(), "the older file's burst");
+        });
+
+        Check.run("root causes stop being added at the cap, watched levels still count", () -> {
+            Detector detector = new Detector();
+            for (int i = 0; i < 300; i++) {
+                detector.detector.observe(entry(i, "INFO", "Cause " + i));
+            }
+            for (int i = 0; i < 25; i++) {
+                detector.detector.observe(entry(20 * 60, "ERROR", null));
+            }
+            Check.equal("WARN/ERROR and 254 root cause(s), 60s window, alert at 4.0x baseline, 1 alert(s)",
+                detector.detector.toString(), "summary");
+        });
+
+        Check.exit();
+    }
+
+    
+    // A detector as configured by default, writing its alerts to a buffer
+    private static final class Detector {
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        final AnomalyDetector detector = new AnomalyDetector(60, 4, 20, 10, new String[] { "WARN", " ERROR" },
+            new PrintStream(buffer, true, StandardCharsets.UTF_8));
+
+        String output() {
+            return buffer.toString(StandardCharsets.UTF_8);
+        }
+    }
+
+    // perSecond entries of the level every second from second from (inclusive) to to
+    private static void steady(AnomalyDetector detector, String level, long from, long to, int perSecond) {
+        for (long second = from; second < to; second++) {
+            for (int i = 0; i < perSecond; i++) {
+                detector.observe(entry(second, level, null));
+            }
+        }
+    }
+
+    private static LogEntry entry(long second, String level, String rootCause) {
+        return new LogEntry(START + second * 1000, level, "Event at " + second, rootCause);
+    }
+}
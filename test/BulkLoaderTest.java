@@ -0,0 +1,77 @@
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+public class BulkLoaderTest {
+
+    public static void main(String[] args) throws Exception {
+        Check.useTempDatabase();
+        List<LogEntry> day = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            day.add(new LogEntry(LogTimestamps.parse("2025-10-04 09:00:00") + i * 1000L, "INFO", "Request " + i, null));
+        }
+
+        Check.run("rows are committed every commitSize entries, before the load finishes", () -> {
+            try (BulkLoader loader = new BulkLoader(DatabaseManager.connect(), 4, null, null)) {
+                loader.addAll(day.subList(0, 5));
+                Check.equal(4L, rowsSeenByAnotherConnection(), "rows after the first commit");
+                loader.finish();
+                Check.equal(5L, loader.getInserted(), "inserted");
+            }
+            Check.equal(5L, rowsSeenByAnotherConnection(), "rows after finish");
+        });
+
+        Check.run("the database skips duplicates when there is no filter", () -> {
+            try (BulkLoader loader = new BulkLoader(DatabaseManager.connect(), 100, null, null)) {
+                loader.addAll(day.subList(3, 7));
+                loader.add(day.get(6));
+                loader.finish();
+                Check.equal(2L, loader.getInserted(), "inserted");
+                Check.equal(3L, loader.getDuplicates(), "duplicates");
+                Check.equal(0L, loader.getFilteredDuplicates(), "caught by a filter");
+            }
+        });
+
+        Check.run("a filter holding the stored hashes catches duplicates before the insert", () -> {
+            DuplicateFilter filter;
+            try (Connection conn = DatabaseManager.connect()) {
+                filter = DuplicateFilter.load(conn);
+            }
+            try (BulkLoader loader = new BulkLoader(DatabaseManager.connect(), 100, filter, null)) {
+                loader.addAll(day);
+                loader.add(day.get(9));
+                loader.finish();
+                Check.equal(3L, loader.getInserted(), "inserted");
+                Check.equal(8L, loader.getDuplicates(), "duplicates");
+                // The repeat of the last entry is still pending when it comes, so the database catches it
+                Check.equal(7L, loader.getFilteredDuplicates(), "caught by the filter");
+            }
+            Check.equal(10L, rowsSeenByAnotherConnection(), "rows");
+        });
+
+        Check.run("closing an unfinished load keeps its rows and indexes new partitions", () -> {
+            try (BulkLoader loader = new BulkLoader(DatabaseManager.connect(), 100, null, null)) {
+                loader.add(new LogEntry(LogTimestamps.parse("2025-10-05 08:00:00"), "WARN", "Disk usage is above 85%", null));
+            }
+            Check.equal(11L, rowsSeenByAnotherConnection(), "rows");
+            try (Connection conn = DatabaseManager.connect();
+                 Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM sqlite_master WHERE type = 'index' "
+                     + "AND name LIKE '" + LogPartitions.table(20251005) + "%timestamp'")) {
+                Check.equal(4, rs.getInt(1), "secondary indexes");
+            }
+        });
+
+        Check.exit();
+    }
+
+    
+    private static long rowsSeenByAnotherConnection() throws SQLException {
+        try (Connection conn = DatabaseManager.connect()) {
+            return LogPartitions.rowCount(conn);
+        }
+    }
+}
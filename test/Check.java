@@ -0,0 +1,80 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+
+// The assertions behind the tests in this directory. Each XxxTest is a main class that runs its cases through
+// run() and ends with exit(), which fails the JVM when a case failed; see "Tests" in the README.
+final class Check {
+
+    private static int passed;
+    private static int failed;
+
+    private Check() {
+    }
+
+    
+    interface Case {
+        void run() throws Exception;
+    }
+
+    // Runs one case; a failed check or an exception fails it and the next case still runs
+    static void run(String name, Case test) {
+        try {
+            test.run();
+            passed++;
+            System.out.println("  ✅ " + name);
+        } catch (Exception | AssertionError e) {
+            failed++;
+            System.out.println("  ❌ " + name + ": " + e);
+            if (!(e instanceof AssertionError)) {
+                e.printStackTrace(System.out);
+            }
+        }
+    }
+
+    static void exit() {
+        System.out.println(passed + " passed, " + failed + " failed");
+        System.exit(failed == 0 ? 0 : 1);
+    }
+
+    
+    static void equal(Object expected, Object actual, String what) {
+        if (!Objects.deepEquals(expected, actual)) {
+            throw new AssertionError(what + ": expected <" + expected + "> but was <" + actual + ">");
+        }
+    }
+
+    static void isTrue(boolean condition, String what) {
+        if (!condition) {
+            throw new AssertionError(what);
+        }
+    }
+
+    // The exception of the given type that action throws
+    static <T extends Throwable> T fails(Class<T> type, Case action, String what) {
+        try {
+            action.run();
+        } catch (Throwable e) {
+            if (type.isInstance(e)) {
+                return type.cast(e);
+            }
+            throw new AssertionError(what + ": expected " + type.getSimpleName() + " but got " + e, e);
+        }
+        throw new AssertionError(what + ": expected " + type.getSimpleName());
+    }
+
+    
+    static Path tempDir() throws IOException {
+        return Files.createTempDirectory("logiq-test");
+    }
+
+    // Points DatabaseManager at a new, empty database and creates its schema. Call it first: the location is
+    // read once, when DatabaseManager is loaded.
+    static Path useTempDatabase() throws IOException {
+        Path db = tempDir().resolve("logiq.db");
+        System.setProperty("logiq.db", db.toString());
+        DatabaseManager.createLogsTable();
+        return db;
+    }
+}
@@ -0,0 +1,83 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public class ConnectionPoolTest {
+
+    public static void main(String[] args) throws Exception {
+        String url = "jdbc:sqlite:" + Check.tempDir().resolve("pool.db");
+
+        Check.run("a statement prepared again on a returned connection comes from the cache", () -> {
+            try (ConnectionPool pool = new ConnectionPool(url, 2)) {
+                Check.equal(1, selectOne(pool), "first result");
+                Check.equal(1, selectOne(pool), "second result");
+                Check.equal(1L, pool.getStatementCacheMisses(), "misses");
+                Check.equal(1L, pool.getStatementCacheHits(), "hits");
+                Check.equal(1, pool.getOpenConnections(), "connections");
+            }
+        });
+
+        Check.run("the same SQL open twice in one borrow gets a second statement", () -> {
+            try (ConnectionPool pool = new ConnectionPool(url, 1);
+                 Connection conn = pool.borrow();
+                 PreparedStatement outer = conn.prepareStatement("SELECT 1");
+                 PreparedStatement inner = conn.prepareStatement("SELECT 1");
+                 ResultSet a = outer.executeQuery();
+                 ResultSet b = inner.executeQuery()) {
+                Check.equal(1, a.getInt(1), "outer result");
+                Check.equal(1, b.getInt(1), "inner result");
+                Check.equal(2L, pool.getStatementCacheMisses(), "misses");
+            }
+        });
+
+        Check.run("a statement that cannot be reset is dropped from the cache", () -> {
+            try (ConnectionPool pool = new ConnectionPool(url, 1)) {
+                try (Connection conn = pool.borrow()) {
+                    PreparedStatement stmt = conn.prepareStatement("SELECT 1");
+                    // Closing the driver's statement behind the pool's back makes clearParameters fail on return
+                    stmt.unwrap(PreparedStatement.class).close();
+                    stmt.close();
+                }
+                Check.equal(1, selectOne(pool), "result from a fresh statement");
+                Check.equal(0L, pool.getStatementCacheHits(), "hits");
+            }
+        });
+
+        Check.run("connections wait for locks and statements hand out the pooled connection", () -> {
+            try (ConnectionPool pool = new ConnectionPool(url, 1);
+                 Connection conn = pool.borrow();
+                 PreparedStatement stmt = conn.prepareStatement("PRAGMA busy_timeout");
+                 ResultSet rs = stmt.executeQuery()) {
+                Check.isTrue(rs.getInt(1) > 0, "busy timeout set");
+                Check.isTrue(stmt.getConnection() == conn, "statement's connection");
+            }
+        });
+
+        Check.run("a returned connection refuses further use", () -> {
+            try (ConnectionPool pool = new ConnectionPool(url, 1)) {
+                Connection conn = pool.borrow();
+                conn.close();
+                Check.isTrue(conn.isClosed(), "isClosed after close");
+                Check.fails(SQLException.class, () -> conn.prepareStatement("SELECT 1"), "prepare after close");
+            }
+        });
+
+        Check.run("a closed pool lends nothing", () -> {
+            ConnectionPool pool = new ConnectionPool(url, 1);
+            pool.close();
+            Check.fails(SQLException.class, pool::borrow, "borrow after close");
+        });
+
+        Check.exit();
+    }
+
+    
+    private static int selectOne(ConnectionPool pool) throws SQLException {
+        try (Connection conn = pool.borrow();
+             PreparedStatement stmt = conn.prepareStatement("SELECT 1");
+             ResultSet rs = stmt.executeQuery()) {
+            return rs.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+import java.util.HashSet;
+import java.util.Set;
+
+public class ContentHashTest {
+
+    public static void main(String[] args) throws Exception {
+        // Hashes are stored in content_hash, so these values must never change
+        Check.run("hashes of known entries are stable", () -> {
+            Check.equal(0xf815512040f11e88L, ContentHash.of(LogTimestamps.parse("2025-10-04 09:00:01"), "ERROR",
+                "ConnectionTimeout while calling external API", "Timeout"), "classified entry");
+            Check.equal(0x991662a0aec62978L, ContentHash.of(0, "INFO", "", null), "empty message, no root cause");
+            Check.equal(0x2551a7a31d14ed56L, ContentHash.of(-1, "WARN", "Café – ünïcode", ""),
+                "non-ASCII message, empty root cause");
+        });
+
+        Check.run("each field counts on its own", () -> {
+            long base = ContentHash.of(1000, "INFO", "message", "cause");
+            Check.isTrue(base != ContentHash.of(1001, "INFO", "message", "cause"), "timestamp");
+            Check.isTrue(base != ContentHash.of(1000, "WARN", "message", "cause"), "level");
+            Check.isTrue(base != ContentHash.of(1000, "INFO", "Message", "cause"), "message");
+            Check.isTrue(base != ContentHash.of(1000, "INFO", "message", "Cause"), "root cause");
+            Check.isTrue(ContentHash.of(1000, "INFO", "m", null) != ContentHash.of(1000, "INFO", "m", ""),
+                "no root cause differs from an empty one");
+        });
+
+        Check.run("text moved across a field boundary changes the hash", () -> {
+            Check.isTrue(ContentHash.of(0, "INFO", "ab", "c") != ContentHash.of(0, "INFO", "a", "bc"), "short fields");
+            Check.isTrue(ContentHash.of(0, "INFO", "abcd", "efgh") != ContentHash.of(0, "INFO", "abcde", "fgh"),
+                "across a four-character word");
+            Check.isTrue(ContentHash.of(0, "INFO", "a\u0000", null) != ContentHash.of(0, "INFO", "a", null),
+                "trailing NUL");
+        });
+
+        Check.run("similar entries do not collide", () -> {
+            Set<Long> hashes = new HashSet<>();
+            int entries = 0;
+            for (int second = 0; second < 100; second++) {
+                for (int n = 0; n < 2_000; n++) {
+                    hashes.add(ContentHash.of(second * 1000L, "INFO", "Request " + n + " served", null));
+                    entries++;
+                }
+            }
+            Check.equal(entries, hashes.size(), "distinct hashes");
+        });
+
+        Check.exit();
+    }
+}
@@ -0,0 +1,88 @@
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+public class DuplicateFilterTest {
+
+    // The smallest layer holds 2^20 hashes
+    private static final int LAYER = 1 << 20;
+
+    public static void main(String[] args) throws Exception {
+        Check.run("added hashes are always found", () -> {
+            DuplicateFilter filter = new DuplicateFilter(0);
+            SplittableRandom random = new SplittableRandom(1);
+            long[] added = new long[100_000];
+            for (int i = 0; i < added.length; i++) {
+                added[i] = random.nextLong();
+                filter.add(added[i]);
+            }
+            for (long hash : added) {
+                Check.isTrue(filter.mightContain(hash), "hash " + hash);
+            }
+            Check.equal((long) added.length, filter.size(), "size");
+        });
+
+        Check.run("a full layer answers about 1% of new hashes wrongly", () -> {
+            DuplicateFilter filter = new DuplicateFilter(0);
+            SplittableRandom random = new SplittableRandom(2);
+            for (int i = 0; i < LAYER; i++) {
+                filter.add(random.nextLong());
+            }
+            double rate = falsePositiveRate(filter, random);
+            Check.isTrue(rate < 0.015, "false positive rate " + rate);
+        });
+
+        Check.run("growing past a layer adds a larger one and keeps the rate bounded", () -> {
+            DuplicateFilter filter = new DuplicateFilter(0);
+            long firstLayerBytes = filter.memoryBytes();
+            SplittableRandom random = new SplittableRandom(3);
+            List<Long> sample = new ArrayList<>();
+            for (int i = 0; i < 3 * LAYER; i++) {
+                long hash = random.nextLong();
+                filter.add(hash);
+                if (i % 997 == 0) {
+                    sample.add(hash);
+                }
+            }
+            // Layer sizes are rounded up to whole words
+            Check.isTrue(Math.abs(3 * firstLayerBytes - filter.memoryBytes()) <= 8, "the first layer and one twice its size");
+            Check.isTrue(filter.toString().startsWith(3 * LAYER + " hashes in 2 layer(s)"), filter.toString());
+            for (long hash : sample) {
+                Check.isTrue(filter.mightContain(hash), "hash in an older layer");
+            }
+            double rate = falsePositiveRate(filter, random);
+            Check.isTrue(rate < 0.025, "false positive rate over two layers " + rate);
+        });
+
+        Check.run("load reads the hashes of hot partitions and sealed segments", () -> {
+            Check.useTempDatabase();
+            List<LogEntry> entries = List.of(
+                new LogEntry(LogTimestamps.parse("2025-10-03 10:00:00"), "INFO", "Sealed row", null),
+                new LogEntry(LogTimestamps.parse("2025-10-04 10:00:00"), "ERROR", "Hot row", "Timeout"));
+            DatabaseManager.insertLogsBatch(entries);
+            try (Connection conn = DatabaseManager.connect()) {
+                LogSegments.sealBefore(conn, 20251004);
+                DuplicateFilter filter = DuplicateFilter.load(conn);
+                Check.equal(2L, filter.size(), "size");
+                for (LogEntry entry : entries) {
+                    Check.isTrue(filter.mightContain(entry.getContentHash()), entry.getMessage());
+                }
+            }
+        });
+
+        Check.exit();
+    }
+
+    
+    private static double falsePositiveRate(DuplicateFilter filter, SplittableRandom random) {
+        int trials = 200_000;
+        int positives = 0;
+        for (int i = 0; i < trials; i++) {
+            if (filter.mightContain(random.nextLong())) {
+                positives++;
+            }
+        }
+        return positives / (double) trials;
+    }
+}
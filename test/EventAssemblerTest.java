@@ -0,0 +1,110 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+public class EventAssemblerTest {
+
+    private static final LogAnalyzer ANALYZER =
+        new LogAnalyzer(new FixedLayoutTokenizer(), new RootCauseClassifier(RootCauseClassifier.builtInRules()));
+
+    public static void main(String[] args) throws Exception {
+        Check.run("a stack trace joins the event it follows", () -> {
+            List<LogEntry> events = assemble(
+                "2025-10-04 09:00:01 ERROR Request failed",
+                "java.lang.IllegalStateException: handler missing",
+                "\tat com.logiq.core.Engine.run(Engine.java:42)",
+                "    at com.logiq.core.Engine.main(Engine.java:12)",
+                "Caused by: java.net.SocketTimeoutException: Read timed out",
+                "\t... 2 more",
+                "Suppressed: java.io.IOException: close failed",
+                "2025-10-04 09:00:02 INFO  Recovered");
+            Check.equal(2, events.size(), "events");
+            Check.equal(String.join("\n",
+                "Request failed",
+                "java.lang.IllegalStateException: handler missing",
+                "\tat com.logiq.core.Engine.run(Engine.java:42)",
+                "    at com.logiq.core.Engine.main(Engine.java:12)",
+                "Caused by: java.net.SocketTimeoutException: Read timed out",
+                "\t... 2 more",
+                "Suppressed: java.io.IOException: close failed"), events.get(0).getMessage(), "message");
+            Check.equal("Timeout", events.get(0).getRootCause(), "root cause from the trace");
+            Check.equal("Recovered", events.get(1).getMessage(), "next event");
+        });
+
+        Check.run("lines that neither start nor continue an event are dropped", () -> {
+            List<LogEntry> events = assemble(
+                "    at orphan.Frame.before(AnyEvent.java:1)",
+                "2025-10-04 09:00:01 WARN  Disk usage is above 85%",
+                "just some noise",
+                "Exception: not qualified",
+                "",
+                "    at com.logiq.Late.frame(Late.java:3)");
+            Check.equal(1, events.size(), "events");
+            Check.equal("Disk usage is above 85%\n    at com.logiq.Late.frame(Late.java:3)",
+                events.get(0).getMessage(), "noise skipped, the later frame kept");
+        });
+
+        Check.run("exception headers are qualified class names ending in Exception, Error or Throwable", () -> {
+            Check.isTrue(continues("java.lang.OutOfMemoryError"), "alone");
+            Check.isTrue(continues("com.acme.Custom$InnerThrowable: boom"), "nested class with a message");
+            Check.isTrue(!continues("java.lang.Exceptional: no"), "other suffix");
+            Check.isTrue(!continues("RuntimeException: unqualified"), "unqualified");
+            Check.isTrue(!continues("com.acme.SomeException thrown"), "followed by text without a colon");
+            Check.isTrue(continues("..."), "elided frames");
+            Check.isTrue(!continues(""), "empty line");
+        });
+
+        Check.run("the open event is emitted by the next event or by finish", () -> {
+            List<LogEntry> events = new ArrayList<>();
+            EventAssembler assembler = new EventAssembler(ANALYZER, events::add);
+            Check.isTrue(feed(assembler, "2025-10-04 09:00:01 ERROR Failed"), "opens an event");
+            Check.isTrue(!feed(assembler, "\tat a.B.c(B.java:1)"), "continuation does not open one");
+            Check.isTrue(assembler.hasOpenEvent() && events.isEmpty(), "held open");
+            assembler.finish();
+            Check.isTrue(!assembler.hasOpenEvent(), "closed");
+            Check.equal(1, events.size(), "emitted");
+            assembler.finish();
+            Check.equal(1, events.size(), "finish without an open event emits nothing");
+        });
+
+        Check.run("long traces are cut at the maximum event size", () -> {
+            List<LogEntry> events = new ArrayList<>();
+            EventAssembler assembler = new EventAssembler(ANALYZER, events::add, 40);
+            feed(assembler, "2025-10-04 09:00:01 ERROR NullPointerException");
+            for (int i = 0; i < 100; i++) {
+                feed(assembler, "\tat com.logiq.core.Engine.run(Engine.java:" + i + ")");
+            }
+            feed(assembler, "2025-10-04 09:00:02 INFO  Next");
+            assembler.finish();
+            Check.equal("NullPointerException\n\tat com.logiq.core.", events.get(0).getMessage(), "message");
+            Check.equal(40, events.get(0).getMessage().length(), "length");
+            Check.equal("NullPointer", events.get(0).getRootCause(), "root cause");
+            Check.equal("Next", events.get(1).getMessage(), "next event");
+        });
+
+        Check.exit();
+    }
+
+    
+    private static List<LogEntry> assemble(String... lines) {
+        List<LogEntry> events = new ArrayList<>();
+        EventAssembler assembler = new EventAssembler(ANALYZER, events::add);
+        for (String line : lines) {
+            feed(assembler, line);
+        }
+        assembler.finish();
+        return events;
+    }
+
+    private static boolean feed(EventAssembler assembler, String line) {
+        // Surrounding bytes make sure the assembler reads only [start, end)
+        ByteBuffer buffer = ByteBuffer.wrap(("\n" + line + "\n").getBytes(StandardCharsets.UTF_8));
+        return assembler.accept(buffer, 1, buffer.limit() - 1);
+    }
+
+    private static boolean continues(String line) {
+        ByteBuffer buffer = ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+        return EventAssembler.isContinuation(buffer, 0, buffer.limit());
+    }
+}
@@ -0,0 +1,131 @@
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+public class FileSetIngestTest {
+
+    // Enough lines per file for the fingerprint to cover a full 4 KB, so a grown file keeps its fingerprint
+    private static final int LINES = 80;
+    private static final long START = LogTimestamps.parse("2025-10-04 09:00:00");
+
+    public static void main(String[] args) throws Exception {
+        Check.useTempDatabase();
+        Path dir = Check.tempDir();
+        // Rotated oldest first: app.log.2.gz, then app.log.1, then app.log
+        LogSourceTest.gzip(lines(0, LINES), dir.resolve("app.log.2.gz"));
+        Files.writeString(dir.resolve("app.log.1"), lines(LINES, 2 * LINES));
+        Files.writeString(dir.resolve("app.log"), lines(2 * LINES, 3 * LINES));
+
+        Check.run("a directory is stored in rotation order and recorded in the manifest", () -> {
+            ingest(LogSource.expand(dir.toString()));
+            Check.equal(3L * LINES, rows(), "rows");
+            List<Long> timestamps = timestampsById();
+            for (int i = 1; i < timestamps.size(); i++) {
+                Check.isTrue(timestamps.get(i - 1) < timestamps.get(i), "file order at row " + i);
+            }
+            IngestManifestEntry compressed = manifest(dir.resolve("app.log.2.gz"));
+            Check.isTrue(compressed.isCompressed(), "compressed");
+            Check.equal((long) lines(0, LINES).length(), compressed.getBytes(), "uncompressed bytes");
+            Check.equal((long) LINES, compressed.getEntries(), "entries");
+            Check.equal(Files.size(dir.resolve("app.log")), manifest(dir.resolve("app.log")).getBytes(), "plain bytes");
+        });
+
+        Check.run("files already ingested are not read again", () -> {
+            String output = ingest(LogSource.expand(dir.toString()));
+            Check.isTrue(output.contains("All 3 file(s) were already ingested"), output);
+            Check.equal(3L * LINES, rows(), "rows");
+        });
+
+        Check.run("a file that grew is read from where its last ingestion ended", () -> {
+            long before = Files.size(dir.resolve("app.log"));
+            Files.writeString(dir.resolve("app.log"), lines(3 * LINES, 3 * LINES + 20),
+                StandardOpenOption.APPEND);
+            String output = ingest(LogSource.expand(dir.toString()));
+            Check.isTrue(output.contains("resuming at byte " + before), output);
+            Check.isTrue(output.contains("app.log: 20 entries"), "only the new lines are parsed: " + output);
+            IngestManifestEntry grown = manifest(dir.resolve("app.log"));
+            Check.equal(Files.size(dir.resolve("app.log")), grown.getBytes(), "bytes");
+            Check.equal(LINES + 20L, grown.getEntries(), "entries across both ingestions");
+            Check.equal(3L * LINES + 20, rows(), "rows");
+        });
+
+        Check.run("a file compressed on rotation is skipped, or resumed if it grew first", () -> {
+            Path rotated = Files.createDirectories(dir.resolve("rotated"));
+            LogSourceTest.gzip(Files.readString(dir.resolve("app.log")), rotated.resolve("app.log.1.gz"));
+            String output = ingest(LogSource.expand(rotated.toString()));
+            Check.isTrue(output.contains("All 1 file(s) were already ingested"), output);
+
+            LogSourceTest.gzip(Files.readString(dir.resolve("app.log")) + lines(3 * LINES + 20, 3 * LINES + 25),
+                rotated.resolve("app.log.1.gz"));
+            output = ingest(LogSource.expand(rotated.toString()));
+            Check.isTrue(output.contains("resuming at byte " + Files.size(dir.resolve("app.log"))), output);
+            Check.equal(3L * LINES + 25, rows(), "rows");
+        });
+
+        Check.run("a file rewritten shorter is read again from the start", () -> {
+            Path rewritten = dir.resolve("app.log.1");
+            Files.writeString(rewritten, lines(LINES, 2 * LINES - 10));
+            String output = ingest(List.of(new LogSource(rewritten)));
+            Check.isTrue(!output.contains("resuming"), output);
+            IngestManifestEntry entry = manifest(rewritten);
+            Check.equal(Files.size(rewritten), entry.getBytes(), "bytes");
+            Check.equal(LINES - 10L, entry.getEntries(), "entries counted afresh");
+            Check.equal(3L * LINES + 25, rows(), "rows already stored are not duplicated");
+        });
+
+        Check.exit();
+    }
+
+    
+    private static String lines(int from, int to) {
+        StringBuilder text = new StringBuilder();
+        for (int i = from; i < to; i++) {
+            text.append(LogTimestamps.format(START + i * 1000L))
+                .append(" INFO  Request ").append(i).append(" served for tenant acme in ").append(i % 17).append(" ms\n");
+        }
+        return text.toString();
+    }
+
+    // Runs an ingestion and returns what it printed
+    private static String ingest(List<LogSource> sources) throws Exception {
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(captured, true, StandardCharsets.UTF_8));
+        try {
+            new FileSetIngest(new LogAnalyzer(), 2).ingest(sources);
+        } finally {
+            System.setOut(out);
+        }
+        return captured.toString(StandardCharsets.UTF_8);
+    }
+
+    private static IngestManifestEntry manifest(Path file) throws Exception {
+        return DatabaseManager.loadManifestEntry(new LogSource(file).fingerprint());
+    }
+
+    private static long rows() throws Exception {
+        try (Connection conn = DatabaseManager.connect()) {
+            return LogPartitions.rowCount(conn);
+        }
+    }
+
+    private static List<Long> timestampsById() throws Exception {
+        List<Long> timestamps = new ArrayList<>();
+        try (Connection conn = DatabaseManager.connect();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT ts FROM " + LogPartitions.table(20251004) + " ORDER BY id")) {
+            while (rs.next()) {
+                timestamps.add(rs.getLong(1));
+            }
+        }
+        return timestamps;
+    }
+}
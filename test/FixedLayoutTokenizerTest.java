@@ -0,0 +1,85 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+// FixedLayoutTokenizer must accept exactly the lines RegexLineTokenizer accepts and split them the same way
+public class FixedLayoutTokenizerTest {
+
+    private static final String[] EDGE_CASES = {
+        "2025-10-04 09:00:01 INFO  User 'john' logged in",
+        "2025-10-04 09:00:01\tERROR\tTabs around the level",
+        "2025-10-04 09:00:01 WARN",
+        "2025-10-04 09:00:01 WARN ",
+        "2025-10-04 09:00:01 WARN    ",
+        "2025-10-04 09:00:01 WARNING Disk almost full",
+        "2025-10-04 09:00:01 DEBUG Not a level the pattern knows",
+        "2025-10-04 09:00:01INFO No space before the level",
+        "2025-10-04 09:00:01 info Lower case level",
+        "2025-10-04 9:00:01 INFO One-digit hour",
+        "2025/10/04 09:00:01 INFO Slashes",
+        "2025-10-04 09:00:01",
+        "",
+        "    at com.logiq.core.Engine.run(Engine.java:42)",
+        "2025-10-04 09:00:01 ERROR Café unreachable – retrying",
+        "2025-10-04 09:00:01 ERROR Line\u2028separator in the message",
+        "2025-10-04 09:00:01 ERROR Next line\u0085in the message",
+    };
+
+    public static void main(String[] args) throws Exception {
+        Check.run("edge cases are accepted or rejected as the pattern does", () -> {
+            for (String line : EDGE_CASES) {
+                Check.equal(regex(line), fixed(line), "'" + line + "'");
+            }
+        });
+
+        Check.run("every line of the sample log is tokenized as the pattern does", () -> {
+            int events = 0;
+            for (String line : Files.readAllLines(Paths.get("logs/sample.log"))) {
+                String expected = regex(line);
+                Check.equal(expected, fixed(line), "'" + line + "'");
+                events += expected == null ? 0 : 1;
+            }
+            Check.isTrue(events > 0, "the sample has events");
+        });
+
+        Check.run("lines in the middle of a buffer are read from their own offsets", () -> {
+            String text = "2025-10-04 09:00:01 INFO  first\n2025-10-04 09:00:02 ERROR second";
+            ByteBuffer buffer = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+            LineTokens tokens = new LineTokens();
+            int start = text.indexOf('\n') + 1;
+            Check.isTrue(new FixedLayoutTokenizer().tokenize(buffer, start, text.length(), tokens), "accepted");
+            Check.equal("ERROR", tokens.getLevel(), "level");
+            Check.equal("second", tokens.message(buffer), "message");
+            Check.equal(LogTimestamps.parse("2025-10-04 09:00:02"), tokens.timestampMillis(buffer), "timestamp");
+            Check.isTrue(!new FixedLayoutTokenizer().tokenize(buffer, start, start + 19, tokens), "timestamp only");
+        });
+
+        Check.exit();
+    }
+
+    
+    private static String regex(String line) {
+        return tokenize(new RegexLineTokenizer(), line);
+    }
+
+    private static String fixed(String line) {
+        return tokenize(new FixedLayoutTokenizer(), line);
+    }
+
+    // The tokens of line as "timestamp|level|message", or null when it is not an event
+    private static String tokenize(LineTokenizer tokenizer, String line) {
+        ByteBuffer buffer = ByteBuffer.wrap(line.getBytes(LineTokens.LINE_CHARSET));
+        LineTokens tokens = new LineTokens();
+        if (!tokenizer.tokenize(buffer, 0, buffer.limit(), tokens)) {
+            return null;
+        }
+        List<String> parts = new ArrayList<>();
+        parts.add(LogTimestamps.format(tokens.timestampMillis(buffer)));
+        parts.add(tokens.getLevel());
+        parts.add(tokens.message(buffer));
+        return String.join("|", parts);
+    }
+}
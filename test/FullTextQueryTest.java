@@ -0,0 +1,97 @@
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+public class FullTextQueryTest {
+
+    public static void main(String[] args) throws Exception {
+        Check.run("words become quoted terms of one column, prefixes when asked for", () -> {
+            Check.equal("message : (\"disk\" \"usage\")", FullTextQuery.toMatchExpression("disk usage", "message", false),
+                "terms");
+            Check.equal("message : (\"disk\"* \"usage\"*)", FullTextQuery.toMatchExpression("disk usage", "message", true),
+                "prefix terms");
+            Check.equal("message : (\"conn\"*)", FullTextQuery.toMatchExpression("conn*", "message", false),
+                "explicit prefix");
+        });
+
+        Check.run("quoted text is one phrase of whole words and a quote ends a word", () -> {
+            Check.equal("root_cause : (\"low memory\" \"a\"* \"b\")",
+                FullTextQuery.toMatchExpression("\"low memory\" a\"b", "root_cause", true), "phrase");
+            Check.equal("message : (\"low memory\"*)", FullTextQuery.toMatchExpression("\"low memory\"*", "message", false),
+                "prefix phrase");
+        });
+
+        Check.run("input without searchable text has no query", () -> {
+            Check.equal(null, FullTextQuery.toMatchExpression("  \"\" * ", "message", true), "expression");
+            Check.equal(null, FullTextQuery.toMatcher("   ", true), "matcher");
+        });
+
+        Check.run("the matcher tokenizes as FTS5 does: case-insensitive runs of letters and digits", () -> {
+            Check.equal(List.of("connectiontimeout", "retrying", "db", "42"),
+                FullTextQuery.tokenize("ConnectionTimeout: retrying db#42"), "tokens");
+            Predicate<String> phrase = FullTextQuery.toMatcher("\"retrying DB\"", false);
+            Check.isTrue(phrase.test("ConnectionTimeout: retrying db#42"), "phrase across punctuation");
+            Check.isTrue(!phrase.test("db retrying"), "phrase out of order");
+            Check.isTrue(!phrase.test(null), "null text");
+        });
+
+        Check.run("prefix terms match word starts only", () -> {
+            Predicate<String> prefix = FullTextQuery.toMatcher("connection", true);
+            Check.isTrue(prefix.test("ConnectionTimeout while calling external API"), "word start");
+            Check.isTrue(!prefix.test("Reconnection scheduled"), "inside a word");
+            Check.isTrue(!FullTextQuery.toMatcher("connection", false).test("ConnectionTimeout"), "whole word only");
+        });
+
+        Check.useTempDatabase();
+        try (Connection conn = DatabaseManager.connect()) {
+            new LogAnalyzer().parseAndInsertLogs("logs/sample.log", conn);
+        }
+
+        // Message search as the menu offers it: a bare word finds every message with a word starting with it
+        Check.run("a message search for a word finds the messages with a word starting with it", () -> {
+            List<String> expected = new ArrayList<>();
+            for (String line : Files.readAllLines(Paths.get("logs/sample.log"))) {
+                if (line.length() > 26 && FullTextQuery.tokenize(line.substring(26)).stream()
+                        .anyMatch(token -> token.startsWith("connection"))) {
+                    expected.add(line.substring(26).trim());
+                }
+            }
+            Check.equal(5, expected.size(), "ConnectionTimeout lines in the sample");
+            Check.equal(expected, messages(LogQuery.builder().message("Connection").build()), "messages found");
+            Check.equal(List.of("ConnectionTimeout: retrying database connection"),
+                messages(LogQuery.builder().message("\"connection\"").build()), "quoted word");
+            Check.equal(List.of(), messages(LogQuery.builder().message("timeout").build()), "word inside a word");
+        });
+
+        Check.run("a root cause search finds root causes starting with the word", () -> {
+            List<String> rootCauses = new ArrayList<>();
+            for (LogRow row : rows(LogQuery.builder().rootCause("null").build())) {
+                rootCauses.add(row.rootCause());
+            }
+            Check.equal(Collections.nCopies(5, "NullPointer"), rootCauses, "root causes");
+        });
+
+        Check.exit();
+    }
+
+    
+    private static List<LogRow> rows(LogQuery query) throws Exception {
+        List<LogRow> rows = new ArrayList<>();
+        try (LogCursor cursor = DatabaseManager.openCursor(query)) {
+            cursor.forEachRemaining(rows::add);
+        }
+        return rows;
+    }
+
+    private static List<String> messages(LogQuery query) throws Exception {
+        List<String> messages = new ArrayList<>();
+        for (LogRow row : rows(query)) {
+            messages.add(row.message());
+        }
+        return messages;
+    }
+}
@@ -0,0 +1,118 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class IngestPipelineTest {
+
+    private static final long SECOND = 1000;
+
+    public static void main(String[] args) throws Exception {
+        Check.useTempDatabase();
+        Path dir = Check.tempDir();
+        LogAnalyzer analyzer = new LogAnalyzer();
+
+        Check.run("chunks far smaller than an event never split it", () -> {
+            Path file = dir.resolve("traces.log");
+            Files.writeString(file, events("2025-10-01", 300));
+            List<String> expected = assembleSerially(analyzer, file);
+            IngestPipeline pipeline = new IngestPipeline(analyzer, 4, 64);
+            try (BulkLoader loader = DatabaseManager.openBulkLoader(1_000)) {
+                Check.equal(Files.size(file), pipeline.ingest(file, 0, loader), "read to the end");
+                loader.finish();
+            }
+            Check.equal(expected, stored("2025-10-01"), "events in file order");
+        });
+
+        Check.run("stages count bytes, lines and entries, and queues stay bounded", () -> {
+            Path file = dir.resolve("counted.log");
+            Files.writeString(file, events("2025-10-02", 200));
+            IngestPipeline pipeline = new IngestPipeline(analyzer, 2, 256);
+            try (BulkLoader loader = DatabaseManager.openBulkLoader(1_000)) {
+                pipeline.ingest(file, 0, loader);
+                loader.finish();
+            }
+            List<IngestPipeline.Stage> stages = pipeline.getStages();
+            Check.equal(List.of("read", "parse", "write"),
+                stages.stream().map(IngestPipeline.Stage::getName).toList(), "stages");
+            Check.equal(Files.size(file), stages.get(0).getItems(), "bytes read");
+            Check.equal((long) Files.readAllLines(file).size(), stages.get(1).getItems(), "lines parsed");
+            Check.equal(200L, stages.get(2).getItems(), "entries written");
+            for (IngestPipeline.Stage stage : stages.subList(1, 3)) {
+                Check.isTrue(stage.getMaxQueueDepth() <= 4, stage.getName() + " queue depth " + stage.getMaxQueueDepth());
+            }
+            // The writer can return before the parsers have taken their end markers, one per parser
+            Check.isTrue(stages.get(1).getQueueDepth() <= 2, "parse queue holds at most the end markers");
+            Check.equal(0, stages.get(2).getQueueDepth(), "write queue empty at the end");
+        });
+
+        Check.run("ingesting from an offset loads the events after it", () -> {
+            Path file = dir.resolve("resumed.log");
+            String text = events("2025-10-03", 50);
+            Files.writeString(file, text);
+            long from = text.indexOf("2025-10-03 00:00:40");
+            List<String> expected = assembleSerially(analyzer, file);
+            IngestPipeline pipeline = new IngestPipeline(analyzer, 3, 100);
+            try (BulkLoader loader = DatabaseManager.openBulkLoader(1_000)) {
+                pipeline.ingest(file, from, loader);
+                loader.finish();
+            }
+            Check.equal(expected.subList(40, 50), stored("2025-10-03"), "events");
+        });
+
+        Check.run("a drained pipeline reads nothing more and reports it did not finish", () -> {
+            Path file = dir.resolve("drained.log");
+            Files.writeString(file, events("2025-10-04", 20));
+            IngestPipeline pipeline = new IngestPipeline(analyzer, 2, 64);
+            pipeline.drain();
+            try (BulkLoader loader = DatabaseManager.openBulkLoader(1_000)) {
+                Check.equal(-1L, pipeline.ingest(file, 0, loader), "result");
+                loader.finish();
+            }
+            Check.equal(List.of(), stored("2025-10-04"), "events");
+        });
+
+        Check.exit();
+    }
+
+    
+    // count events a second apart on day; every third carries a stack trace longer than the small chunk sizes
+    private static String events(String day, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            String time = LogTimestamps.format(LogTimestamps.parse(day) + i * SECOND);
+            if (i % 3 == 0) {
+                text.append(time).append(" ERROR NullPointerException in request ").append(i).append('\n')
+                    .append("java.lang.NullPointerException: handler was null\n")
+                    .append("\tat com.logiq.core.Engine.run(Engine.java:").append(i).append(")\n")
+                    .append("\tat com.logiq.core.Engine.main(Engine.java:12)\n")
+                    .append("Caused by: java.lang.IllegalStateException: not started\n")
+                    .append("\t... 2 more\n");
+            } else {
+                text.append(time).append(" INFO  Request ").append(i).append(" served")
+                    .append(i % 2 == 0 ? "\r\n" : "\n");
+            }
+        }
+        return text.toString();
+    }
+
+    private static List<String> assembleSerially(LogAnalyzer analyzer, Path file) throws Exception {
+        List<String> messages = new ArrayList<>();
+        EventAssembler assembler = new EventAssembler(analyzer, entry -> messages.add(entry.getMessage()));
+        try (MappedLogReader reader = new MappedLogReader(file)) {
+            reader.forEachLine(assembler::accept);
+        }
+        assembler.finish();
+        return messages;
+    }
+
+    private static List<String> stored(String day) throws Exception {
+        long start = LogTimestamps.parse(day);
+        List<String> messages = new ArrayList<>();
+        try (LogCursor cursor = DatabaseManager.openCursor(
+                LogQuery.builder().between(start, start + 86_400 * SECOND - 1).build())) {
+            cursor.forEachRemaining(row -> messages.add(row.message()));
+        }
+        return messages;
+    }
+}
@@ -0,0 +1,69 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class LogAnalyzerTest {
+
+    public static void main(String[] args) throws Exception {
+        Check.useTempDatabase();
+        // One day of lines, a few MB, so four parsers each get several chunks
+        Path file = Check.tempDir().resolve("day.log");
+        SyntheticLogGenerator.write(file, Files.readAllLines(Paths.get("logs/sample.log")), 60_000, 1, 7);
+        LogAnalyzer analyzer = new LogAnalyzer();
+
+        Check.run("parallel ingestion stores every event once, in file order", () -> {
+            try (Connection conn = DatabaseManager.connect()) {
+                analyzer.parseAndInsertLogsParallel(file.toString(), conn, 4);
+            }
+            Check.equal(new ArrayList<>(eventsOf(file)), storedEvents(), "stored events by id");
+        });
+
+        Check.run("one parser stores only the events the parallel load has not", () -> {
+            Path again = file.resolveSibling("again.log");
+            Files.copy(file, again);
+            Files.writeString(again, "2025-10-04 23:59:59 INFO  Sequential run finished\n", StandardOpenOption.APPEND);
+            try (Connection conn = DatabaseManager.connect()) {
+                analyzer.parseAndInsertLogs(again.toString(), conn);
+            }
+            Check.equal(new ArrayList<>(eventsOf(again)), storedEvents(), "stored events by id");
+        });
+
+        Check.exit();
+    }
+
+    
+    // "timestamp|level|message" of each distinct event line, in file order
+    private static Set<String> eventsOf(Path file) throws Exception {
+        Pattern event = Pattern.compile(RegexLineTokenizer.LOG_REGEX);
+        Set<String> events = new LinkedHashSet<>();
+        for (String line : Files.readAllLines(file)) {
+            Matcher m = event.matcher(line);
+            if (m.matches()) {
+                events.add(m.group(1) + "|" + m.group(2) + "|" + m.group(3));
+            }
+        }
+        return events;
+    }
+
+    private static List<String> storedEvents() throws Exception {
+        List<String> events = new ArrayList<>();
+        try (Connection conn = DatabaseManager.connect();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT timestamp, level, message FROM log_entries_20251004 ORDER BY id")) {
+            while (rs.next()) {
+                events.add(rs.getString(1) + "|" + rs.getString(2) + "|" + rs.getString(3));
+            }
+        }
+        return events;
+    }
+}
@@ -0,0 +1,87 @@
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.TimeZone;
+
+public class LogPartitionsTest {
+
+    // Fourteen hours ahead of UTC, so for most of the day its date is not the UTC date
+    private static final ZoneId ZONE = ZoneId.of("Pacific/Kiritimati");
+
+    public static void main(String[] args) throws Exception {
+        TimeZone.setDefault(TimeZone.getTimeZone(ZONE));
+        System.setProperty("logiq.retention.days", "3");
+        Check.useTempDatabase();
+        LocalDate today = LocalDate.now(ZONE);
+
+        Check.run("days and ids map to each other", () -> {
+            Check.equal(20251004, LogPartitions.dayOf(LogTimestamps.parse("2025-10-04 23:59:59")), "last second of a day");
+            Check.equal(19691231, LogPartitions.dayOf(-1), "before the epoch");
+            Check.equal(20251004, LogPartitions.dayOfId(202510049999999999L), "last id of a day");
+            Check.equal(LocalDate.of(2024, 2, 29), LogPartitions.toDate(LogPartitions.toDay(LocalDate.of(2024, 2, 29))),
+                "round trip");
+        });
+
+        Check.run("the retention horizon counts back from the local date", () -> {
+            Check.equal(LogPartitions.toDay(today.minusDays(2)), LogPartitions.horizonDay(), "horizon");
+        });
+
+        Check.run("entries are stored in the partition of their day, older ones skipped", () -> {
+            DatabaseManager.insertLogsBatch(List.of(
+                entry(today, "INFO", "Today"),
+                entry(today.minusDays(1), "WARN", "Yesterday"),
+                entry(today.minusDays(5), "ERROR", "Before the retention period")));
+            try (Connection conn = DatabaseManager.connect()) {
+                Check.equal(List.of(LogPartitions.toDay(today.minusDays(1)), LogPartitions.toDay(today)),
+                    LogPartitions.days(conn), "partitions");
+                Check.equal(2L, LogPartitions.rowCount(conn), "rows");
+            }
+            Check.equal(LogPartitions.toDay(today) * LogPartitions.IDS_PER_DAY + 1,
+                firstId(LogPartitions.table(LogPartitions.toDay(today))), "first id of today");
+        });
+
+        Check.run("retention drops expired partitions with their tables", () -> {
+            int expired = LogPartitions.toDay(today.minusDays(3));
+            try (Connection conn = DatabaseManager.connect()) {
+                LogPartitions.create(conn, expired, true);
+                Check.equal(1, LogPartitions.applyRetention(conn), "days dropped");
+                Check.equal(2, LogPartitions.days(conn).size(), "partitions left");
+                try (Statement stmt = conn.createStatement();
+                     ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM sqlite_master WHERE name LIKE '%" + expired + "%'")) {
+                    Check.equal(0, rs.getInt(1), "tables, indexes and views of the day");
+                }
+            }
+        });
+
+        Check.run("dropping a day takes its rows out of the all-time rollups", () -> {
+            int yesterday = LogPartitions.toDay(today.minusDays(1));
+            try (Connection conn = DatabaseManager.connect()) {
+                conn.setAutoCommit(false);
+                LogPartitions.drop(conn, yesterday);
+                conn.commit();
+                conn.setAutoCommit(true);
+                Check.equal(1L, LogPartitions.rowCount(conn), "rows in the rollups");
+                Check.equal(List.of(LogPartitions.toDay(today)), LogPartitions.days(conn), "partitions");
+            }
+        });
+
+        Check.exit();
+    }
+
+    
+    // Noon of day as a wall-clock timestamp
+    private static LogEntry entry(LocalDate day, String level, String message) {
+        return new LogEntry(LogTimestamps.parse(day + " 12:00:00"), level, message, null);
+    }
+
+    private static long firstId(String table) throws Exception {
+        try (Connection conn = DatabaseManager.connect();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MIN(id) FROM " + table)) {
+            return rs.getLong(1);
+        }
+    }
+}
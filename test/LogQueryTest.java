@@ -0,0 +1,129 @@
+import java.sql.Connection;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.function.Predicate;
+
+// Runs queries over a sealed day, a day that is both sealed and hot, and a hot day, and compares the rows with
+// the same predicates applied to the entries in memory
+public class LogQueryTest {
+
+    private static final List<LogEntry> STORED = new ArrayList<>();
+
+    public static void main(String[] args) throws Exception {
+        // Far from UTC, so a time range on the wrong clock misses rows written just now
+        TimeZone.setDefault(TimeZone.getTimeZone(ZoneId.of("Pacific/Kiritimati")));
+        Check.useTempDatabase();
+        store(
+            entry("2025-10-02 09:00:00", "INFO", "User 'john' logged in", null),
+            entry("2025-10-02 09:05:00", "ERROR", "ConnectionTimeout while calling external API", "Timeout"),
+            entry("2025-10-03 10:00:00", "ERROR", "NullPointerException at com.logiq.core.Engine.run()", "NullPointer"),
+            entry("2025-10-03 08:00:00", "ERROR", "ConnectionTimeout: retrying database connection", "Timeout"),
+            entry("2025-10-03 08:30:00", "WARN", "Disk usage is above 85%", null));
+        try (Connection conn = DatabaseManager.connect()) {
+            LogSegments.sealBefore(conn, 20251004);
+        }
+        // Rows that arrive after a day was sealed go to a new partition of that day
+        store(
+            entry("2025-10-03 07:00:00", "ERROR", "ReadTimeout from cache server", "Timeout"),
+            entry("2025-10-04 00:00:01", "ERROR", "ConnectionTimeout while sending logs to server", "Timeout"),
+            entry("2025-10-04 12:00:00", "INFO", "Cache cleared", null));
+
+        Check.run("all logs come in id order across sealed and hot days", () -> {
+            Check.equal(expected(e -> true, false), messages(LogQuery.ALL), "messages");
+        });
+
+        Check.run("level, root cause and time range combine, in timestamp order", () -> {
+            long from = LogTimestamps.parse("2025-10-02 09:05:00");
+            long to = LogTimestamps.parse("2025-10-04 00:00:01");
+            LogQuery query = LogQuery.builder().level("ERROR").rootCause("time").between(from, to).build();
+            Check.equal(expected(e -> e.getLevel().equals("ERROR") && "Timeout".equals(e.getRootCause())
+                    && e.getTimestampMillis() >= from && e.getTimestampMillis() <= to, true),
+                messages(query), "messages");
+        });
+
+        Check.run("message text alone comes in id order", () -> {
+            Check.equal(expected(e -> e.getMessage().startsWith("Connection"), false),
+                messages(LogQuery.builder().message("connection").build()), "messages");
+        });
+
+        Check.run("message text with a level comes in timestamp order", () -> {
+            Check.equal(expected(e -> e.getLevel().equals("ERROR") && FullTextQuery.toMatcher("cache", true).test(e.getMessage()),
+                    true),
+                messages(LogQuery.builder().level("ERROR").message("cache").build()), "messages");
+        });
+
+        Check.run("a root cause that matches nothing finds nothing", () -> {
+            Check.equal(List.of(), messages(LogQuery.builder().rootCause("OutOfMemory").build()), "messages");
+        });
+
+        Check.run("queries of one shape share their SQL", () -> {
+            LogQuery a = LogQuery.builder().level("ERROR").rootCause("Timeout").build();
+            LogQuery b = LogQuery.builder().level("WARN").rootCause("Null").build();
+            Check.equal("level+rootCause", a.shape(1), "shape");
+            Check.isTrue(a.sql(1, true, false, true) == b.sql(1, true, false, true), "same statement text");
+            Check.isTrue(!a.sql(2, false, true, true).equals(a.sql(1, false, true, true)), "several root causes differ");
+        });
+
+        Check.run("blank predicates are ignored", () -> {
+            LogQuery query = LogQuery.builder().level(" ").message(" \"\" ").rootCause("").build();
+            Check.isTrue(query.isEmpty(), "empty");
+            Check.equal("all logs", query.describe(), "describe");
+        });
+
+        Check.run("describe names every predicate", () -> {
+            Check.equal("level = ERROR, from 2025-10-04 10:00:00, root cause 'Timeout', template #3, message 'disk'",
+                LogQuery.builder().level("ERROR").from(LogTimestamps.parse("2025-10-04 10:00:00")).rootCause("Timeout")
+                    .template(3).message("disk").build().describe(), "describe");
+        });
+
+        Check.run("the last hours are read on the local clock", () -> {
+            LocalDateTime now = LocalDateTime.now();
+            store(
+                new LogEntry(LogTimestamps.of(now.minusMinutes(30)), "ERROR", "Recent timeout", "Timeout"),
+                new LogEntry(LogTimestamps.of(now.minusHours(3)), "ERROR", "Older timeout", "Timeout"));
+            Check.equal(List.of("Recent timeout"),
+                messages(LogQuery.builder().rootCause("Timeout").lastHours(1).build()), "messages");
+        });
+
+        Check.exit();
+    }
+
+    
+    private static LogEntry entry(String timestamp, String level, String message, String rootCause) {
+        return new LogEntry(LogTimestamps.parse(timestamp), level, message, rootCause);
+    }
+
+    private static void store(LogEntry... entries) {
+        DatabaseManager.insertLogsBatch(List.of(entries));
+        STORED.addAll(List.of(entries));
+    }
+
+    // Messages of the stored entries that match, in (ts, id) order or in id order: by day, then as stored
+    private static List<String> expected(Predicate<LogEntry> matches, boolean byTimestamp) {
+        Comparator<LogEntry> order = byTimestamp
+            ? Comparator.comparingLong(LogEntry::getTimestampMillis)
+            : Comparator.comparingInt(e -> LogPartitions.dayOf(e.getTimestampMillis()));
+        List<String> messages = new ArrayList<>();
+        // List.sort is stable, so entries that tie stay in the order they were stored
+        List<LogEntry> sorted = new ArrayList<>(STORED);
+        sorted.sort(order);
+        for (LogEntry entry : sorted) {
+            if (matches.test(entry)) {
+                messages.add(entry.getMessage());
+            }
+        }
+        return messages;
+    }
+
+    private static List<String> messages(LogQuery query) throws Exception {
+        List<String> messages = new ArrayList<>();
+        try (LogCursor cursor = DatabaseManager.openCursor(query)) {
+            cursor.forEachRemaining(row -> messages.add(row.message()));
+        }
+        return messages;
+    }
+}
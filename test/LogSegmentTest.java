@@ -0,0 +1,206 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+// Checks a written segment against the rows it was built from
+public class LogSegmentTest {
+
+    private static final int DAY = 20251004;
+    private static final long FIRST_ID = DAY * LogPartitions.IDS_PER_DAY + 1;
+    private static final long MIDNIGHT = LogTimestamps.parse("2025-10-04");
+    private static final String[] LEVELS = { "INFO", "WARN", "ERROR", "DEBUG" };
+    private static final String[] ROOT_CAUSES = { null, null, "Timeout", "Database", "Ünïcode" };
+
+    record Row(long id, long ts, String level, String rootCause, int templateId, String message, long hash) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path dir = Check.tempDir();
+        // Ids with gaps and timestamps that go back now and then, as rows that arrive late do
+        Random random = new Random(23);
+        List<Row> rows = new ArrayList<>();
+        long id = FIRST_ID;
+        long ts = MIDNIGHT + 3_600_000;
+        for (int i = 0; i < 300; i++) {
+            id += 1 + random.nextInt(3);
+            ts += random.nextInt(10) == 0 ? -random.nextInt(60_000) : random.nextInt(60_000);
+            rows.add(new Row(id, ts, LEVELS[random.nextInt(i < 200 ? 3 : 4)], ROOT_CAUSES[random.nextInt(ROOT_CAUSES.length)],
+                random.nextInt(4), i % 50 == 0 ? "" : "Request " + i + " → ✓", random.nextLong()));
+        }
+        LogSegment segment = write(dir.resolve("day.seg"), rows);
+
+        Check.run("every column reads back as written", () -> {
+            Check.equal(rows.size(), segment.getRows(), "rows");
+            Check.equal(DAY, segment.getDay(), "day");
+            for (int row = 0; row < rows.size(); row++) {
+                Row expected = rows.get(row);
+                Check.equal(expected.id(), segment.id(row), "id " + row);
+                Check.equal(expected.ts(), segment.ts(row), "ts " + row);
+                Check.equal(expected.level(), segment.level(row), "level " + row);
+                Check.equal(expected.rootCause(), segment.rootCause(row), "root cause " + row);
+                Check.equal(expected.templateId(), segment.templateId(row), "template " + row);
+                Check.equal(expected.message(), segment.message(row), "message " + row);
+            }
+            Check.equal(rows.stream().mapToLong(Row::ts).min().getAsLong(), segment.getMinTs(), "min ts");
+            Check.equal(rows.stream().mapToLong(Row::ts).max().getAsLong(), segment.getMaxTs(), "max ts");
+            Check.equal(rows.get(rows.size() - 1).id(), segment.getMaxId(), "max id");
+            Check.equal(Files.size(segment.getFile()), segment.getSizeBytes(), "size");
+        });
+
+        Check.run("a reopened segment is the same and the message spool is gone", () -> {
+            LogSegment reopened = LogSegment.open(segment.getFile());
+            for (int row = 0; row < rows.size(); row += 7) {
+                Check.equal(segment.message(row), reopened.message(row), "message " + row);
+            }
+            try (Stream<Path> files = Files.list(dir)) {
+                Check.equal(List.of(segment.getFile()), files.toList(), "files");
+            }
+        });
+
+        Check.run("content hashes are found by binary search", () -> {
+            for (Row row : rows) {
+                Check.isTrue(segment.contains(row.hash()), "stored hash " + row.hash());
+            }
+            for (int i = 0; i < 1000; i++) {
+                long other = random.nextLong();
+                Check.equal(rows.stream().anyMatch(row -> row.hash() == other), segment.contains(other), "hash " + other);
+            }
+        });
+
+        Check.run("counts per level, per level and root cause in a range, and per template", () -> {
+            Map<String, Long> levels = new HashMap<>();
+            Map<Integer, Long> templates = new HashMap<>();
+            for (Row row : rows) {
+                levels.merge(row.level(), 1L, Long::sum);
+                if (row.templateId() != 0) {
+                    templates.merge(row.templateId(), 1L, Long::sum);
+                }
+            }
+            Check.equal(levels, new HashMap<>(segment.countByLevel()), "levels");
+            Check.equal(templates, segment.countByTemplate(), "templates");
+            long from = rows.get(40).ts();
+            long to = rows.get(120).ts();
+            Map<String, Map<String, Long>> expected = new TreeMap<>();
+            for (Row row : rows) {
+                if (row.ts() >= from && row.ts() <= to) {
+                    expected.computeIfAbsent(row.level(), k -> new TreeMap<>())
+                        .merge(row.rootCause() == null ? "" : row.rootCause(), 1L, Long::sum);
+                }
+            }
+            Check.equal(expected, sorted(segment.countByLevelAndRootCause(from, to)), "levels and root causes");
+            Check.equal(Map.of(), segment.countByLevelAndRootCause(0, MIDNIGHT), "range before the day");
+        });
+
+        Check.run("select pages through matching rows by id or by timestamp, both ways", () -> {
+            LogSegment.Filter errors = LogSegment.allOf(List.of(LogSegment.level("ERROR"),
+                LogSegment.rootCause(cause -> cause.startsWith("T") || cause.startsWith("D"))));
+            for (boolean byTimestamp : new boolean[] { false, true }) {
+                Comparator<Row> order = byTimestamp
+                    ? Comparator.comparingLong(Row::ts).thenComparingLong(Row::id)
+                    : Comparator.comparingLong(Row::id);
+                List<Row> expected = rows.stream()
+                    .filter(row -> "ERROR".equals(row.level()) && row.rootCause() != null && !row.rootCause().startsWith("Ü"))
+                    .sorted(order).toList();
+                String key = byTimestamp ? "by timestamp" : "by id";
+
+                List<Row> forward = new ArrayList<>();
+                Row cursor = null;
+                int[] page;
+                do {
+                    page = cursor == null ? segment.select(errors, byTimestamp, true, false, 0, 0, 9)
+                        : segment.select(errors, byTimestamp, true, true, cursor.ts(), cursor.id(), 9);
+                    for (int row : page) {
+                        forward.add(rows.get(row));
+                    }
+                    cursor = forward.isEmpty() ? null : forward.get(forward.size() - 1);
+                } while (page.length == 9);
+                Check.equal(expected, forward, "forward " + key);
+
+                List<Row> backward = new ArrayList<>();
+                cursor = null;
+                do {
+                    page = cursor == null ? segment.select(errors, byTimestamp, false, false, 0, 0, 9)
+                        : segment.select(errors, byTimestamp, false, true, cursor.ts(), cursor.id(), 9);
+                    List<Row> rowsOfPage = new ArrayList<>();
+                    for (int row : page) {
+                        rowsOfPage.add(rows.get(row));
+                    }
+                    Check.equal(rowsOfPage.stream().sorted(order).toList(), rowsOfPage, "ascending within a page " + key);
+                    backward.addAll(0, rowsOfPage);
+                    cursor = backward.isEmpty() ? null : backward.get(0);
+                } while (page.length == 9);
+                Check.equal(expected, backward, "backward " + key);
+            }
+        });
+
+        Check.run("header-only filters skip a segment without reading rows", () -> {
+            Check.isTrue(!LogSegment.level("TRACE").mayMatch(segment), "missing level");
+            Check.isTrue(!LogSegment.timeRange(0, MIDNIGHT).mayMatch(segment), "earlier range");
+            Check.isTrue(!LogSegment.rootCause(cause -> cause.equals("Memory")).mayMatch(segment), "missing root cause");
+            Check.isTrue(!LogSegment.message(null).mayMatch(segment), "no searchable text");
+            Check.equal(0, segment.select(LogSegment.level("TRACE"), false, true, false, 0, 0, 10).length, "no rows");
+            Check.equal(10, segment.select(LogSegment.ALL, false, true, false, 0, 0, 10).length, "limit");
+            long expected = rows.stream().filter(row -> row.message().contains("✓") && row.templateId() == 2).count();
+            Check.equal((int) expected, segment.select(LogSegment.allOf(List.of(LogSegment.message(m -> m.contains("✓")),
+                LogSegment.template(2))), false, true, false, 0, 0, 1000).length, "message and template");
+        });
+
+        Check.run("an empty day makes an empty segment", () -> {
+            LogSegment empty = write(dir.resolve("empty/day.seg"), List.of());
+            Check.equal(0, empty.getRows(), "rows");
+            Check.equal(Map.of(), empty.countByLevel(), "levels");
+            Check.isTrue(!empty.contains(0), "hashes");
+            Check.equal(0, empty.select(LogSegment.ALL, true, false, false, 0, 0, 10).length, "select");
+        });
+
+        Check.run("rows out of id order, outside the day or without hashes are refused", () -> {
+            Path bad = dir.resolve("bad.seg");
+            try (LogSegment.Writer writer = new LogSegment.Writer(bad, DAY)) {
+                writer.add(FIRST_ID + 5, MIDNIGHT, "INFO", null, 0, "a");
+                Check.fails(IOException.class, () -> writer.add(FIRST_ID + 5, MIDNIGHT, "INFO", null, 0, "b"), "same id");
+                Check.fails(IOException.class, () -> writer.add(FIRST_ID + LogPartitions.IDS_PER_DAY, MIDNIGHT, "INFO",
+                    null, 0, "b"), "id of the next day");
+                Check.fails(IOException.class, () -> writer.add(FIRST_ID + 6, MIDNIGHT - 1, "INFO", null, 0, "b"),
+                    "timestamp of the day before");
+                Check.fails(IOException.class, () -> writer.add(FIRST_ID + 6, MIDNIGHT + 86_400_000L, "INFO", null, 0,
+                    "b"), "timestamp of the next day");
+                Check.fails(IOException.class, writer::finish, "a row without its hash");
+            }
+            Check.isTrue(!Files.exists(dir.resolve("bad.seg.messages")), "spool removed on close");
+        });
+
+        Check.exit();
+    }
+
+    
+    private static LogSegment write(Path file, List<Row> rows) throws IOException {
+        Files.createDirectories(file.getParent());
+        try (LogSegment.Writer writer = new LogSegment.Writer(file, DAY)) {
+            for (Row row : rows) {
+                writer.add(row.id(), row.ts(), row.level(), row.rootCause(), row.templateId(), row.message());
+            }
+            // Hashes may come in any order
+            long[] hashes = rows.stream().mapToLong(Row::hash).toArray();
+            Arrays.sort(hashes);
+            for (int i = hashes.length - 1; i >= 0; i--) {
+                writer.addHash(hashes[i]);
+            }
+            return writer.finish();
+        }
+    }
+
+    private static Map<String, Map<String, Long>> sorted(Map<String, Map<String, Long>> counts) {
+        Map<String, Map<String, Long>> sorted = new TreeMap<>();
+        counts.forEach((level, byRootCause) -> sorted.put(level, new TreeMap<>(byRootCause)));
+        return sorted;
+    }
+}
@@ -0,0 +1,121 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class LogSegmentsTest {
+
+    public static void main(String[] args) throws Exception {
+        Check.useTempDatabase();
+        List<LogEntry> entries = new ArrayList<>();
+        for (String day : new String[] { "2025-10-01", "2025-10-02", "2025-10-03" }) {
+            for (int i = 0; i < 5; i++) {
+                entries.add(new LogEntry(LogTimestamps.parse(day + " 10:00:00") + i * 60_000L, i == 3 ? "ERROR" : "INFO",
+                    "Job " + i + " of " + day, i == 3 ? "Timeout" : null));
+            }
+        }
+        load(entries);
+
+        Check.run("days before the given one are sealed into segments and leave SQLite", () -> {
+            try (Connection conn = DatabaseManager.connect()) {
+                Check.equal(2, quietly(() -> LogSegments.sealBefore(conn, 20251003)), "sealed");
+                Check.equal(List.of(20251003), LogPartitions.days(conn), "partitions left");
+                Check.equal(List.of(20251001, 20251002), new ArrayList<>(LogSegments.days(conn, 0, Integer.MAX_VALUE)),
+                    "sealed days");
+                Check.equal(List.of(20251002), new ArrayList<>(LogSegments.days(conn, 20251002, 20251010)), "day range");
+                Check.equal(2L, count(conn, "SELECT COUNT(*) FROM log_segments"), "catalogued");
+                try (Stream<Path> files = Files.list(LogSegments.DIRECTORY)) {
+                    Check.equal(2L, files.filter(file -> file.toString().endsWith(".seg")).count(), "segment files");
+                }
+            }
+        });
+
+        Check.run("a segment holds the partition's rows in id order", () -> {
+            try (Connection conn = DatabaseManager.connect()) {
+                LogSegment segment = LogSegments.get(conn, 20251001);
+                Check.equal(5, segment.getRows(), "rows");
+                for (int row = 0; row < 5; row++) {
+                    LogEntry entry = entries.get(row);
+                    Check.equal(entry.getTimestampMillis(), segment.ts(row), "ts " + row);
+                    Check.equal(entry.getMessage(), segment.message(row), "message " + row);
+                    Check.equal(entry.getRootCause(), segment.rootCause(row), "root cause " + row);
+                    Check.isTrue(segment.contains(entry.getContentHash()), "hash " + row);
+                }
+                Check.isTrue(segment.id(0) > 20251001 * LogPartitions.IDS_PER_DAY, "ids of the day");
+                Check.equal(null, LogSegments.get(conn, 20251003), "an unsealed day");
+            }
+        });
+
+        Check.run("queries read sealed and unsealed days together", () -> {
+            Check.equal(15, quietly(() -> DatabaseManager.fetchLogsPaginated(100, null)).getCount(), "all rows");
+            Check.equal(3, quietly(() -> DatabaseManager.searchLogsByLevelPaginated("ERROR", 100, null)).getCount(),
+                "errors");
+            Check.equal(10, quietly(() -> DatabaseManager.searchLogsByDateRangePaginated("2025-10-01", "2025-10-02 23:59:59",
+                100, null)).getCount(), "sealed days only");
+        });
+
+        Check.run("a late row for a sealed day goes after the segment and is merged in when sealed again", () -> {
+            LogEntry late = new LogEntry(LogTimestamps.parse("2025-10-01 09:00:00"), "WARN", "Arrived late", null);
+            try (BulkLoader loader = new BulkLoader(DatabaseManager.connect(), 100, null, null)) {
+                loader.add(entries.get(2));
+                loader.add(late);
+                loader.finish();
+                Check.equal(1L, loader.getInserted(), "inserted");
+                Check.equal(1L, loader.getDuplicates(), "the sealed row is a duplicate");
+            }
+            try (Connection conn = DatabaseManager.connect()) {
+                LogSegment before = LogSegments.get(conn, 20251001);
+                long lateId = count(conn, "SELECT id FROM " + LogPartitions.table(20251001));
+                Check.isTrue(lateId > before.getMaxId(), "id after the segment's");
+
+                LogSegment after = quietly(() -> LogSegments.seal(conn, 20251001));
+                Check.equal(6, after.getRows(), "merged rows");
+                Check.equal(lateId, after.getMaxId(), "max id");
+                Check.equal("Arrived late", after.message(5), "late row last in id order");
+                Check.isTrue(!Files.exists(before.getFile()), "the earlier segment is deleted");
+                Check.isTrue(after == LogSegments.get(conn, 20251001), "catalogued");
+                Check.equal(List.of(20251003), LogPartitions.days(conn), "partition dropped again");
+                // The rows before the segment's first come first in time order
+                int[] byTime = after.select(LogSegment.ALL, true, true, false, 0, 0, 10);
+                Check.equal(5, byTime[0], "earliest row");
+            }
+        });
+
+        Check.exit();
+    }
+
+    
+    private static void load(List<LogEntry> entries) throws Exception {
+        try (BulkLoader loader = new BulkLoader(DatabaseManager.connect(), 100, null, null)) {
+            loader.addAll(entries);
+            loader.finish();
+        }
+    }
+
+    private static long count(Connection conn, String sql) throws Exception {
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.getLong(1);
+        }
+    }
+
+    interface Call<T> {
+        T call() throws Exception;
+    }
+
+    // Runs call without its console output
+    private static <T> T quietly(Call<T> call) throws Exception {
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            return call.call();
+        } finally {
+            System.setOut(out);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class LogSinkTest {
+
+    private static final long TS = LogTimestamps.parse("2025-10-04 09:02:15");
+
+    public static void main(String[] args) throws Exception {
+        Path dir = Check.tempDir();
+
+        Check.run("the file format follows the extension", () -> {
+            Check.equal(LogSink.Format.CSV, LogSink.Format.forPath("out/LOGS.CSV"), "csv");
+            Check.equal(LogSink.Format.NDJSON, LogSink.Format.forPath("logs.jsonl"), "jsonl");
+            Check.equal(LogSink.Format.NDJSON, LogSink.Format.forPath("logs.ndjson"), "ndjson");
+            Check.equal(LogSink.Format.PLAIN, LogSink.Format.forPath("logs.txt"), "anything else");
+        });
+
+        Check.run("CSV quotes only fields that need it and doubles quotes", () -> {
+            Check.equal("id,timestamp,level,message,root_cause\r\n"
+                    + "7,2025-10-04 09:02:15,ERROR,\"Timeout, retrying \"\"db\"\"\",Timeout\r\n"
+                    + "8,2025-10-04 09:02:16,INFO,\"two\nlines\",\r\n",
+                write(dir.resolve("a.csv"), LogSink.Format.CSV), "file");
+        });
+
+        Check.run("NDJSON escapes strings and writes a missing root cause as null", () -> {
+            Check.equal("{\"id\":7,\"timestamp\":\"2025-10-04 09:02:15\",\"level\":\"ERROR\","
+                    + "\"message\":\"Timeout, retrying \\\"db\\\"\",\"root_cause\":\"Timeout\"}\n"
+                    + "{\"id\":8,\"timestamp\":\"2025-10-04 09:02:16\",\"level\":\"INFO\","
+                    + "\"message\":\"two\\nlines\",\"root_cause\":null}\n",
+                write(dir.resolve("a.ndjson"), LogSink.Format.NDJSON), "file");
+        });
+
+        Check.run("plain text keeps the console line without colors", () -> {
+            String nl = System.lineSeparator();
+            Check.equal("ID: 7 | Time: 2025-10-04 09:02:15 | Level: ERROR | Msg: Timeout, retrying \"db\" | RootCause: Timeout" + nl
+                    + "ID: 8 | Time: 2025-10-04 09:02:16 | Level: INFO | Msg: two\nlines | RootCause: null" + nl,
+                write(dir.resolve("a.txt"), LogSink.Format.PLAIN), "file");
+        });
+
+        Check.run("timestamps match LogTimestamps.format across days and before the epoch", () -> {
+            long[] millis = { -1, 0, 86_399_999, 86_400_000, TS, LogTimestamps.parse("2024-02-29 23:59:59") };
+            Path file = dir.resolve("times.csv");
+            try (LogSink sink = LogSink.open(file, LogSink.Format.CSV)) {
+                for (long ts : millis) {
+                    sink.write(0, ts, "INFO", "m", null);
+                }
+            }
+            List<String> lines = Files.readAllLines(file);
+            for (int i = 0; i < millis.length; i++) {
+                Check.equal(LogTimestamps.format(millis[i]), lines.get(i + 1).split(",")[1], "row " + i);
+            }
+        });
+
+        Check.run("the console sink colors levels and leaves System.out open", () -> {
+            String console = captureOutput(() -> {
+                try (LogSink sink = LogSink.console()) {
+                    sink.write(1, TS, "WARN", "Disk usage is above 85%", null);
+                }
+            });
+            Check.isTrue(console.contains("Level: \u001B[33mWARN\u001B[0m |"), "colored level");
+        });
+
+        Check.useTempDatabase();
+        DatabaseManager.insertLogsBatch(List.of(
+            new LogEntry(TS, "ERROR", "ConnectionTimeout while calling external API", "Timeout"),
+            new LogEntry(TS + 1000, "INFO", "Cache cleared", null)));
+
+        Check.run("exportLogs writes every stored row and reports the count", () -> {
+            Path file = dir.resolve("export.csv");
+            String report = captureOutput(() -> DatabaseManager.exportLogs(file.toString(), LogSink.Format.CSV));
+            List<String> lines = Files.readAllLines(file);
+            Check.equal(3, lines.size(), "header and rows");
+            Check.isTrue(lines.get(1).endsWith(",2025-10-04 09:02:15,ERROR,ConnectionTimeout while calling external API,Timeout"),
+                "first row: " + lines.get(1));
+            Check.isTrue(report.contains("Exported 2 logs to " + file), "report: " + report);
+        });
+
+        Check.exit();
+    }
+
+    
+    private static String write(Path file, LogSink.Format format) throws Exception {
+        try (LogSink sink = LogSink.open(file, format)) {
+            sink.write(7, TS, "ERROR", "Timeout, retrying \"db\"", "Timeout");
+            sink.write(8, TS + 1000, "INFO", "two\nlines", null);
+            Check.equal(2L, sink.getRows(), "rows");
+        }
+        return Files.readString(file);
+    }
+
+    // What action prints to System.out
+    private static String captureOutput(Check.Case action) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream original = System.out;
+        System.setOut(new PrintStream(bytes, true, StandardCharsets.UTF_8));
+        try {
+            action.run();
+        } finally {
+            System.setOut(original);
+        }
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,109 @@
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+public class LogSourceTest {
+
+    private static final String TEXT = "first\r\nsecond\nthird line without a break";
+
+    public static void main(String[] args) throws Exception {
+        Path dir = Check.tempDir();
+
+        Check.run("a directory lists its files oldest rotation first, without hidden files", () -> {
+            Path logs = Files.createDirectories(dir.resolve("rotated"));
+            for (String name : new String[] { "app.log", "app.log.1", "app.log.2.gz", "app.log.10.gz", "db.log",
+                    ".hidden", "app.log.backup" }) {
+                Files.writeString(logs.resolve(name), name + "\n");
+            }
+            Files.createDirectories(logs.resolve("nested"));
+            Check.equal(List.of("app.log.10.gz", "app.log.2.gz", "app.log.1", "app.log", "app.log.backup", "db.log"),
+                names(LogSource.expand(logs.toString())), "order");
+        });
+
+        Check.run("globs match relative to their directory, ** across levels", () -> {
+            Path archive = Files.createDirectories(dir.resolve("archive/2025/10"));
+            Files.writeString(archive.resolve("a.log.gz"), "a\n");
+            Files.writeString(dir.resolve("archive/b.log.gz"), "b\n");
+            Files.writeString(dir.resolve("archive/c.txt"), "c\n");
+            Check.equal(List.of("b.log.gz"), names(LogSource.expand(dir + "/archive/*.gz")), "one level");
+            Check.equal(List.of("a.log.gz", "b.log.gz"), names(LogSource.expand(dir + "/archive/**.gz")), "any level");
+            Check.equal(List.of(), names(LogSource.expand(dir + "/missing/*.log")), "missing directory");
+        });
+
+        Path plain = dir.resolve("plain.log");
+        Files.writeString(plain, TEXT);
+        // Compressed under a name that does not say so
+        Path compressed = dir.resolve("compressed.log");
+        gzip(TEXT, compressed);
+
+        Check.run("compression is detected from the content, not the name", () -> {
+            Check.isTrue(!new LogSource(plain).isCompressed(), "plain");
+            Check.isTrue(new LogSource(compressed).isCompressed(), "gzip");
+            Check.equal((long) TEXT.length(), new LogSource(compressed).getSizeHint(), "uncompressed size");
+            Check.equal(Files.size(compressed), new LogSource(compressed).getFileSize(), "size on disk");
+        });
+
+        Check.run("a file keeps its fingerprint when it is compressed", () -> {
+            Check.equal(new LogSource(plain).fingerprint(), new LogSource(compressed).fingerprint(), "fingerprint");
+            Check.isTrue(new LogSource(plain).fingerprint().endsWith(":" + TEXT.length()), "length suffix");
+        });
+
+        Check.run("plain and compressed files read the same lines from any line start", () -> {
+            for (LogSource source : List.of(new LogSource(plain), new LogSource(compressed))) {
+                Check.equal(List.of("first", "second", "third line without a break"), lines(source, 0), source + " from 0");
+                Check.equal(List.of("third line without a break"), lines(source, 14), source + " from 14");
+            }
+        });
+
+        Check.run("an offset past the end reads nothing", () -> {
+            List<String> seen = new ArrayList<>();
+            Check.equal((long) TEXT.length(), new LogSource(plain).read(1000, (buffer, start, end) -> seen.add("line"),
+                () -> false), "plain stops at its size");
+            Check.equal(1000L, new LogSource(compressed).read(1000, (buffer, start, end) -> seen.add("line"),
+                () -> false), "compressed keeps the offset");
+            Check.equal(List.of(), seen, "lines");
+        });
+
+        Check.run("a stop request ends reading between blocks", () -> {
+            List<String> seen = new ArrayList<>();
+            long reached = new LogSource(compressed).read(0, (buffer, start, end) -> seen.add("line"), () -> true);
+            Check.equal(0L, reached, "offset reached");
+            Check.equal(List.of(), seen, "lines");
+        });
+
+        Check.exit();
+    }
+
+    
+    private static List<String> names(List<LogSource> sources) {
+        List<String> names = new ArrayList<>();
+        for (LogSource source : sources) {
+            names.add(source.getPath().getFileName().toString());
+        }
+        return names;
+    }
+
+    private static List<String> lines(LogSource source, long from) throws Exception {
+        List<String> lines = new ArrayList<>();
+        long reached = source.read(from, (buffer, start, end) -> lines.add(string(buffer, start, end)), () -> false);
+        Check.equal((long) TEXT.length(), reached, source + " offset reached");
+        return lines;
+    }
+
+    private static String string(ByteBuffer buffer, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        buffer.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void gzip(String text, Path file) throws Exception {
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
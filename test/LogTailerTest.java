@@ -0,0 +1,132 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+// Follows a real file from a background thread, as the follow menu does, and waits for rows to show up
+public class LogTailerTest {
+
+    private static final long TIMEOUT_MS = 10_000;
+
+    public static void main(String[] args) throws Exception {
+        Check.useTempDatabase();
+        Path dir = Check.tempDir();
+        Path log = dir.resolve("app.log");
+        List<String> expected = new ArrayList<>();
+
+        Check.run("appended lines are stored, and a trace joins the event before it", () -> {
+            append(log, "2025-10-04 09:00:01 INFO  Service started\n");
+            LogTailer tailer = new LogTailer(new LogAnalyzer(), log.toString());
+            Thread thread = start(tailer);
+            try {
+                expected.add("Service started");
+                awaitMessages(expected);
+                append(log, "2025-10-04 09:00:02 ERROR NullPointerException at Engine.run()\n"
+                    + "    at com.logiq.core.Engine.run(Engine.java:42)\n");
+                append(log, "2025-10-04 09:00:03 WARN  Disk usage is above 85%\n");
+                expected.add("NullPointerException at Engine.run()\n    at com.logiq.core.Engine.run(Engine.java:42)");
+                expected.add("Disk usage is above 85%");
+                awaitMessages(expected);
+            } finally {
+                stop(tailer, thread);
+            }
+        });
+
+        Check.run("a restart resumes from the checkpoint without storing lines twice", () -> {
+            IngestCheckpoint checkpoint = DatabaseManager.loadCheckpoint(log.toAbsolutePath().normalize().toString());
+            Check.equal(Files.size(log), checkpoint.getOffset(), "checkpoint offset");
+            append(log, "2025-10-04 09:00:04 INFO  Written while stopped\n");
+            LogTailer tailer = new LogTailer(new LogAnalyzer(), log.toString());
+            Thread thread = start(tailer);
+            try {
+                expected.add("Written while stopped");
+                awaitMessages(expected);
+            } finally {
+                stop(tailer, thread);
+            }
+        });
+
+        Check.run("the last event is stored while the next line is still half written", () -> {
+            LogTailer tailer = new LogTailer(new LogAnalyzer(), log.toString());
+            Thread thread = start(tailer);
+            try {
+                append(log, "2025-10-04 09:00:05 INFO  Stored while a line is half written\n"
+                    + "2025-10-04 09:00:05 INFO  Half");
+                expected.add("Stored while a line is half written");
+                awaitMessages(expected);
+                append(log, " written\n");
+                expected.add("Half written");
+                awaitMessages(expected);
+            } finally {
+                stop(tailer, thread);
+            }
+        });
+
+        Check.run("a rotated file is read to its end, last line included, before the new one", () -> {
+            LogTailer tailer = new LogTailer(new LogAnalyzer(), log.toString());
+            Thread thread = start(tailer);
+            try {
+                append(log, "2025-10-04 09:00:05 ERROR Last line without a line break");
+                Thread.sleep(500);
+                Files.move(log, dir.resolve("app.log.1"));
+                append(log, "2025-10-04 09:00:06 INFO  First line of the new file\n");
+                expected.add("Last line without a line break");
+                expected.add("First line of the new file");
+                awaitMessages(expected);
+            } finally {
+                stop(tailer, thread);
+            }
+        });
+
+        Check.run("a truncated file is read again from its start", () -> {
+            LogTailer tailer = new LogTailer(new LogAnalyzer(), log.toString());
+            Thread thread = start(tailer);
+            try {
+                Thread.sleep(500);
+                Files.writeString(log, "2025-10-04 09:00:07 INFO  After truncation\n");
+                expected.add("After truncation");
+                awaitMessages(expected);
+            } finally {
+                stop(tailer, thread);
+            }
+        });
+
+        Check.exit();
+    }
+
+    
+    private static void append(Path file, String text) throws Exception {
+        Files.writeString(file, text, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private static Thread start(LogTailer tailer) {
+        Thread thread = new Thread(tailer, "log-tailer-test");
+        thread.start();
+        return thread;
+    }
+
+    private static void stop(LogTailer tailer, Thread thread) throws InterruptedException {
+        tailer.stop();
+        thread.join(TIMEOUT_MS);
+    }
+
+    // Polls until the stored messages, in id order, are the expected ones
+    private static void awaitMessages(List<String> expected) throws Exception {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        List<String> stored = messages();
+        while (!stored.equals(expected) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+            stored = messages();
+        }
+        Check.equal(expected, stored, "stored messages");
+    }
+
+    private static List<String> messages() throws Exception {
+        List<String> messages = new ArrayList<>();
+        try (LogCursor cursor = DatabaseManager.openCursor(LogQuery.ALL)) {
+            cursor.forEachRemaining(row -> messages.add(row.message()));
+        }
+        return messages;
+    }
+}
@@ -0,0 +1,62 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+import java.util.TimeZone;
+
+public class LogTimestampsTest {
+
+    private static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    public static void main(String[] args) throws Exception {
+        // The stored form must not depend on the machine's zone
+        TimeZone.setDefault(TimeZone.getTimeZone(ZoneId.of("America/St_Johns")));
+
+        Check.run("parse and format agree with java.time on random wall-clock times", () -> {
+            Random random = new Random(7);
+            for (int i = 0; i < 20_000; i++) {
+                LocalDateTime time = LocalDateTime.ofEpochSecond(random.nextLong(-2_000_000_000L, 5_000_000_000L), 0,
+                    ZoneOffset.UTC);
+                String text = FORMAT.format(time);
+                long millis = LogTimestamps.parse(text);
+                Check.equal(time.toEpochSecond(ZoneOffset.UTC) * 1000, millis, text);
+                Check.equal(text, LogTimestamps.format(millis), "format of " + text);
+                ByteBuffer bytes = ByteBuffer.wrap(("  " + text + "  ").getBytes(StandardCharsets.US_ASCII));
+                Check.equal(millis, LogTimestamps.parse(bytes, 2, 2 + text.length()), "bytes of " + text);
+            }
+        });
+
+        Check.run("a date alone is midnight", () -> {
+            Check.equal(LogTimestamps.parse("2024-02-29 00:00:00"), LogTimestamps.parse("2024-02-29"), "leap day");
+        });
+
+        Check.run("impossible dates and malformed text are rejected", () -> {
+            String[] invalid = {
+                "2025-02-29 10:00:00", "2025-04-31 10:00:00", "2025-13-01 10:00:00", "2025-00-10 10:00:00",
+                "2025-10-04 24:00:00", "2025-10-04 10:60:00", "2025-10-04 10:00:60", "2025-10-04T10:00:00",
+                "2025-10-04 10:00", "2025-10-04 10:00:00.000", "2025-1-04 10:00:00", "２025-10-04", "",
+            };
+            for (String text : invalid) {
+                Check.fails(IllegalArgumentException.class, () -> LogTimestamps.parse(text), "'" + text + "'");
+            }
+            ByteBuffer bytes = ByteBuffer.wrap("2025-10-04 10:00:0x".getBytes(StandardCharsets.US_ASCII));
+            Check.fails(IllegalArgumentException.class, () -> LogTimestamps.parse(bytes, 0, 19), "bytes");
+            Check.fails(IllegalArgumentException.class, () -> LogTimestamps.parse(bytes, 0, 10), "date bytes");
+        });
+
+        Check.run("format drops milliseconds, rounding toward the past", () -> {
+            Check.equal("1970-01-01 00:00:00", LogTimestamps.format(999), "after the epoch");
+            Check.equal("1969-12-31 23:59:59", LogTimestamps.format(-1), "before the epoch");
+        });
+
+        Check.run("of stores a wall-clock time with its milliseconds", () -> {
+            LocalDateTime time = LocalDateTime.of(2025, 10, 4, 9, 0, 1, 250_999_999);
+            Check.equal(LogTimestamps.parse("2025-10-04 09:00:01") + 250, LogTimestamps.of(time), "millis");
+        });
+
+        Check.exit();
+    }
+}
@@ -0,0 +1,77 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class MappedLogReaderTest {
+
+    // CRLF, a lone CR, an empty line, a line longer than the small windows and no final line break
+    private static final String TEXT = "first\r\nsecond\n\nthird\rfourth line is longer than a window\r\nlast";
+    private static final List<String> LINES =
+        List.of("first", "second", "", "third", "fourth line is longer than a window", "last");
+
+    public static void main(String[] args) throws Exception {
+        Path file = Check.tempDir().resolve("lines.log");
+        Files.writeString(file, TEXT);
+
+        Check.run("every window size splits the file into the same lines", () -> {
+            for (long window = 1; window <= TEXT.length() + 1; window++) {
+                try (MappedLogReader reader = new MappedLogReader(file, window)) {
+                    List<String> lines = new ArrayList<>();
+                    long count = reader.forEachLine((buffer, start, end) -> lines.add(string(buffer, start, end)));
+                    Check.equal(LINES, lines, "lines with a window of " + window);
+                    Check.equal((long) LINES.size(), count, "count with a window of " + window);
+                }
+            }
+        });
+
+        Check.run("a range that starts at a line start reads the lines up to its end", () -> {
+            int from = TEXT.indexOf("second");
+            int to = TEXT.indexOf("fourth");
+            try (MappedLogReader reader = new MappedLogReader(file, 4)) {
+                List<String> lines = new ArrayList<>();
+                reader.forEachLine(from, to, (buffer, start, end) -> lines.add(string(buffer, start, end)));
+                Check.equal(List.of("second", "", "third"), lines, "lines");
+            }
+        });
+
+        Check.run("nextLineStart finds the byte after the next line feed", () -> {
+            try (MappedLogReader reader = new MappedLogReader(file)) {
+                Check.equal(7L, reader.nextLineStart(0), "after CRLF");
+                Check.equal(7L, reader.nextLineStart(6), "on the line feed");
+                Check.equal((long) TEXT.indexOf("third"), reader.nextLineStart(14), "empty line");
+                Check.equal(reader.size(), reader.nextLineStart(TEXT.indexOf("last")), "last line");
+            }
+        });
+
+        Check.run("nextLineStart skips matching lines within the limit", () -> {
+            Path indented = file.resolveSibling("indented.log");
+            Files.writeString(indented, "event one\n  at a\n  at b\nevent two\n");
+            MappedLogReader.LinePredicate continuation = (buffer, start, end) -> end > start && buffer.get(start) == ' ';
+            try (MappedLogReader reader = new MappedLogReader(indented)) {
+                Check.equal(24L, reader.nextLineStart(0, continuation, 100), "past the continuation lines");
+                Check.equal(17L, reader.nextLineStart(0, continuation, 12), "stops at the limit");
+            }
+        });
+
+        Check.run("an empty file has no lines", () -> {
+            Path empty = file.resolveSibling("empty.log");
+            Files.writeString(empty, "");
+            try (MappedLogReader reader = new MappedLogReader(empty)) {
+                Check.equal(0L, reader.forEachLine((buffer, start, end) -> { }), "lines");
+                Check.equal(0L, reader.nextLineStart(0), "next line start");
+            }
+        });
+
+        Check.exit();
+    }
+
+    
+    private static String string(ByteBuffer buffer, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        buffer.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,89 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+// The registry is process-wide, so every metric here has a name of its own
+public class MetricsTest {
+
+    public static void main(String[] args) throws Exception {
+        Check.run("registering a name and labels again returns the same metric", () -> {
+            Metrics.Counter a = Metrics.counter("test_registered_total", "Help.", "kind", "a");
+            Check.isTrue(a == Metrics.counter("test_registered_total", "Help.", "kind", "a"), "same labels");
+            Check.isTrue(a != Metrics.counter("test_registered_total", "Help.", "kind", "b"), "other labels");
+            Check.fails(IllegalArgumentException.class, () -> Metrics.histogram("test_registered_total", "Help."),
+                "other type");
+            Check.fails(IllegalArgumentException.class, () -> Metrics.counter("test_odd_total", "Help.", "kind"),
+                "labels without a value");
+        });
+
+        Check.run("concurrent increments are all counted", () -> {
+            Metrics.Counter counter = Metrics.counter("test_concurrent_total", "Help.");
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                Thread thread = new Thread(() -> {
+                    for (int i = 0; i < 100_000; i++) {
+                        counter.increment();
+                    }
+                    counter.add(5);
+                });
+                thread.start();
+                threads.add(thread);
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            Check.equal(8 * 100_005L, counter.get(), "count");
+        });
+
+        Check.run("quantiles are bucket bounds capped by the largest value", () -> {
+            Metrics.Histogram histogram = Metrics.histogram("test_quantile_seconds", "Help.");
+            Check.equal(0L, histogram.quantileNanos(0.5), "empty");
+            for (int i = 0; i < 98; i++) {
+                histogram.observeNanos(15_000); // in the 20 us bucket
+            }
+            histogram.observeNanos(3_000_000);
+            histogram.observeNanos(4_000_000);
+            Check.equal(100L, histogram.getCount(), "count");
+            Check.equal(20_000L, histogram.quantileNanos(0.5), "p50");
+            Check.equal(4_000_000L, histogram.quantileNanos(0.99), "p99 capped by the max");
+            Check.equal(4_000_000L, histogram.getMaxNanos(), "max");
+            Check.equal((98 * 15_000 + 7_000_000) / 100.0, histogram.getMeanNanos(), "mean");
+        });
+
+        Check.run("the Prometheus text has help, type, cumulative buckets, sum and count", () -> {
+            Metrics.Histogram histogram = Metrics.histogram("test_export_seconds", "Latency \"of\" tests.",
+                "method", "say \"hi\"\\now");
+            histogram.observeNanos(10_000);
+            histogram.observeNanos(20_000_000_000L);
+            String text = Metrics.toPrometheusText();
+            String labels = "method=\"say \\\"hi\\\"\\\\now\"";
+            Check.isTrue(text.contains("# HELP test_export_seconds Latency \"of\" tests.\n"
+                + "# TYPE test_export_seconds histogram\n"
+                + "test_export_seconds_bucket{" + labels + ",le=\"0.00001\"} 1\n"
+                + "test_export_seconds_bucket{" + labels + ",le=\"0.00002\"} 1\n"), "first buckets:\n" + text);
+            Check.isTrue(text.contains("test_export_seconds_bucket{" + labels + ",le=\"10\"} 1\n"
+                + "test_export_seconds_bucket{" + labels + ",le=\"+Inf\"} 2\n"
+                + "test_export_seconds_sum{" + labels + "} 20.00001\n"
+                + "test_export_seconds_count{" + labels + "} 2\n"), "last bucket, sum and count");
+            Metrics.counter("test_export_total", "Exported.").add(3);
+            String later = Metrics.toPrometheusText();
+            Check.isTrue(later.indexOf("test_export_seconds") < later.indexOf("test_export_total 3\n"),
+                "families in registration order");
+        });
+
+        Check.run("the export file is replaced whole", () -> {
+            Path dir = Check.tempDir().resolve("metrics");
+            Path file = dir.resolve("logiq.prom");
+            Metrics.writePrometheusFile(file);
+            Metrics.writePrometheusFile(file);
+            Check.equal(Metrics.toPrometheusText(), Files.readString(file), "contents");
+            try (Stream<Path> files = Files.list(dir)) {
+                Check.equal(List.of(file), files.toList(), "no temporary files left");
+            }
+        });
+
+        Check.exit();
+    }
+}
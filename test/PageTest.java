@@ -0,0 +1,112 @@
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class PageTest {
+
+    private static final Pattern ROW_ID = Pattern.compile("ID: (\\d+) \\|");
+
+    public static void main(String[] args) throws Exception {
+        Check.run("tokens decode to the direction and key they were made from", () -> {
+            for (long ts : new long[] { -86_400_000L, 0, LogTimestamps.parse("2025-10-04 09:00:00") }) {
+                Page.Cursor cursor = Page.decodeToken(Page.encodeToken(false, ts, 202510040000000042L));
+                Check.equal(false, cursor.forward, "direction");
+                Check.equal(ts, cursor.timestamp, "timestamp");
+                Check.equal(202510040000000042L, cursor.id, "id");
+            }
+            Check.isTrue(Page.decodeToken(Page.encodeToken(true, 1, 2)).forward, "forward");
+            Check.isTrue(Page.encodeToken(true, 1, 2).matches("[A-Za-z0-9_-]+"), "URL-safe without padding");
+        });
+
+        Check.run("no token means the first page", () -> {
+            Check.equal(null, Page.decodeToken(null), "null");
+            Check.equal(null, Page.decodeToken(""), "empty");
+        });
+
+        Check.run("tampered tokens are rejected", () -> {
+            for (String raw : new String[] { "c|1|2", "a|1", "a|x|2", "a|1|2|3", "a||2" }) {
+                String token = Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+                Check.fails(IllegalArgumentException.class, () -> Page.decodeToken(token), "'" + raw + "'");
+            }
+            Check.fails(IllegalArgumentException.class, () -> Page.decodeToken("not base64!"), "not base64");
+        });
+
+        // Seven rows, three of them sharing a timestamp, so pages have to break ties by id
+        Check.useTempDatabase();
+        long base = LogTimestamps.parse("2025-10-04 09:00:00");
+        List<LogEntry> entries = new ArrayList<>();
+        long[] offsets = { 0, 5, 5, 5, 9, 12, 20 };
+        for (int i = 0; i < offsets.length; i++) {
+            entries.add(new LogEntry(base + offsets[i] * 1000, "INFO", "Row " + i, null));
+        }
+        DatabaseManager.insertLogsBatch(entries);
+        List<Long> allIds = new ArrayList<>();
+        try (LogCursor cursor = DatabaseManager.openCursor(LogQuery.ALL)) {
+            cursor.forEachRemaining(row -> allIds.add(row.id()));
+        }
+
+        Check.run("forward pages cover every row once, in order", () -> {
+            List<Long> seen = new ArrayList<>();
+            String token = null;
+            List<Integer> counts = new ArrayList<>();
+            while (true) {
+                PageResult result = fetch(token);
+                if (result.page.getCount() == 0) {
+                    Check.equal(null, result.page.getNextToken(), "no next token after the end");
+                    break;
+                }
+                counts.add(result.page.getCount());
+                seen.addAll(result.ids);
+                token = result.page.getNextToken();
+            }
+            Check.equal(List.of(3, 3, 1), counts, "page sizes");
+            Check.equal(allIds, seen, "ids");
+        });
+
+        Check.run("the previous token leads back to the page before", () -> {
+            PageResult first = fetch(null);
+            Check.equal(null, first.page.getPrevToken(), "no previous page before the first");
+            PageResult second = fetch(first.page.getNextToken());
+            PageResult third = fetch(second.page.getNextToken());
+            Check.equal(second.ids, fetch(third.page.getPrevToken()).ids, "back from the third page");
+            PageResult back = fetch(second.page.getPrevToken());
+            Check.equal(first.ids, back.ids, "back from the second page");
+            // A full backward page cannot tell whether rows come before it; the page before it is empty
+            Check.equal(0, fetch(back.page.getPrevToken()).page.getCount(), "nothing before the first page");
+        });
+
+        Check.run("an invalid token starts from the first page", () -> {
+            Check.equal(fetch(null).ids, fetch("garbage").ids, "ids");
+        });
+
+        Check.exit();
+    }
+
+    
+    private record PageResult(Page page, List<Long> ids) {
+    }
+
+    // Fetches a page of three through the menu path and reads the ids of the printed rows
+    private static PageResult fetch(String token) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream original = System.out;
+        System.setOut(new PrintStream(bytes, true, StandardCharsets.UTF_8));
+        Page page;
+        try {
+            page = DatabaseManager.fetchLogsPaginated(3, token);
+        } finally {
+            System.setOut(original);
+        }
+        List<Long> ids = new ArrayList<>();
+        Matcher matcher = ROW_ID.matcher(bytes.toString(StandardCharsets.UTF_8));
+        while (matcher.find()) {
+            ids.add(Long.parseLong(matcher.group(1)));
+        }
+        return new PageResult(page, ids);
+    }
+}
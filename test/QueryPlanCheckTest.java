@@ -0,0 +1,48 @@
+import java.sql.Connection;
+import java.util.List;
+import java.util.Map;
+
+public class QueryPlanCheckTest {
+
+    public static void main(String[] args) throws Exception {
+        Check.useTempDatabase();
+        try (Connection conn = DatabaseManager.connect()) {
+            new LogAnalyzer().parseAndInsertLogs("logs/sample.log", conn);
+        }
+
+        Check.run("every built-in query uses an index", () -> {
+            try (Connection conn = DatabaseManager.connect()) {
+                Map<String, String> queries = QueryPlanCheck.builtInQueries(conn);
+                Check.isTrue(queries.containsKey("fetchLogsPaginated (first page)"), "listing included");
+                Check.isTrue(queries.size() > 5, "search shapes and summary queries: " + queries.keySet());
+                Check.equal(List.of(), QueryPlanCheck.run(conn), "problems");
+            }
+        });
+
+        Check.run("plan lists the steps SQLite takes", () -> {
+            try (Connection conn = DatabaseManager.connect()) {
+                String logs = LogPartitions.table(LogPartitions.days(conn).get(0));
+                List<String> steps = QueryPlanCheck.plan(conn, "SELECT id FROM " + logs + " WHERE message = 'x'");
+                Check.equal(List.of("SCAN " + logs), steps, "unindexed column");
+                steps = QueryPlanCheck.plan(conn, "SELECT id FROM " + logs + " WHERE ts > 0 ORDER BY ts");
+                Check.isTrue(steps.get(0).contains("USING") && steps.get(0).contains("INDEX"), "timestamp index: " + steps);
+            }
+        });
+
+        Check.run("a partition without its secondary indexes fails the check", () -> {
+            try (Connection conn = DatabaseManager.connect()) {
+                // Newer than the sample's days, so the search shapes are planned against it
+                LogPartitions.create(conn, 20991231, false);
+                List<String> problems = QueryPlanCheck.run(conn);
+                Check.isTrue(!problems.isEmpty(), "problems reported");
+                for (String problem : problems) {
+                    Check.isTrue(problem.contains("does a full table scan (SCAN logs"), problem);
+                }
+                LogPartitions.createSecondaryIndexes(conn, 20991231);
+                Check.equal(List.of(), QueryPlanCheck.run(conn), "problems once indexed");
+            }
+        });
+
+        Check.exit();
+    }
+}
@@ -0,0 +1,88 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+
+public class ResultCacheTest {
+
+    // Size of an entry with a one-character key and no value bytes
+    private static final long ENTRY = 128 + 2;
+
+    public static void main(String[] args) throws Exception {
+        Check.run("hits and misses are counted", () -> {
+            ResultCache<String> cache = new ResultCache<>(10 * ENTRY);
+            Check.equal(null, cache.get("a"), "miss");
+            cache.put("a", "A", 0, 0, 10, cache.generation());
+            Check.equal("A", cache.get("a"), "hit");
+            Check.equal(0.5, cache.getHitRatio(), "hit ratio");
+            Check.equal(ENTRY, cache.getBytes(), "bytes");
+        });
+
+        Check.run("the least recently used entries are evicted first", () -> {
+            ResultCache<String> cache = new ResultCache<>(3 * ENTRY);
+            for (String key : List.of("a", "b", "c")) {
+                cache.put(key, key, 0, 0, 10, cache.generation());
+            }
+            cache.get("a");
+            cache.put("d", "d", 0, 0, 10, cache.generation());
+            Check.equal(null, cache.get("b"), "least recently used");
+            Check.equal("a", cache.get("a"), "recently read");
+            Check.equal(3, cache.size(), "size");
+            cache.put("a", "A", ENTRY, 0, 10, cache.generation());
+            Check.equal(2, cache.size(), "a larger value evicts two");
+            Check.equal(3 * ENTRY, cache.getBytes(), "bytes after replacing");
+        });
+
+        Check.run("writes invalidate the entries whose span they overlap, bounds included", () -> {
+            ResultCache<String> cache = new ResultCache<>(10 * ENTRY);
+            cache.put("a", "before", 0, 0, 99, cache.generation());
+            cache.put("b", "touching", 0, 100, 199, cache.generation());
+            cache.put("c", "after", 0, 300, 399, cache.generation());
+            cache.put("d", "all", 0, ResultCache.ALL_FROM, ResultCache.ALL_TO, cache.generation());
+            cache.invalidate(199, 250);
+            Check.equal("before", cache.get("a"), "before the write");
+            Check.equal(null, cache.get("b"), "ends where the write starts");
+            Check.equal("after", cache.get("c"), "after the write");
+            Check.equal(null, cache.get("d"), "unbounded");
+            Check.equal(2 * ENTRY, cache.getBytes(), "bytes");
+        });
+
+        Check.run("a result computed across a write is not stored", () -> {
+            ResultCache<String> cache = new ResultCache<>(10 * ENTRY);
+            long generation = cache.generation();
+            cache.invalidate(1000, 2000);
+            cache.put("a", "stale", 0, 0, 10, generation);
+            Check.equal(null, cache.get("a"), "stale result");
+        });
+
+        Check.run("results larger than the cache are not stored", () -> {
+            ResultCache<String> cache = new ResultCache<>(2 * ENTRY);
+            cache.put("a", "a", 0, 0, 10, cache.generation());
+            cache.put("b", "huge", 2 * ENTRY, 0, 10, cache.generation());
+            Check.equal("a", cache.get("a"), "kept");
+            ResultCache<String> disabled = new ResultCache<>(0);
+            disabled.put("a", "a", 0, 0, 10, disabled.generation());
+            Check.equal(0, disabled.size(), "disabled");
+        });
+
+        Check.run("ingesting rows invalidates the cached pages that could show them", () -> {
+            Check.useTempDatabase();
+            ResultCache<?> cache = DatabaseManager.getResultCache();
+            long day = LogTimestamps.parse("2025-10-04");
+            DatabaseManager.insertLogsBatch(List.of(new LogEntry(day, "INFO", "First", null)));
+            PrintStream out = System.out;
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            try {
+                DatabaseManager.searchLogsByDateRangePaginated("2025-10-01", "2025-10-02", 10, null);
+                Check.equal(1, DatabaseManager.fetchLogsPaginated(10, null).getCount(), "first listing");
+                Check.equal(2, cache.size(), "cached pages");
+                DatabaseManager.insertLogsBatch(List.of(new LogEntry(day + 1000, "INFO", "Second", null)));
+                Check.equal(1, cache.size(), "the other day's page is kept");
+                Check.equal(2, DatabaseManager.fetchLogsPaginated(10, null).getCount(), "listing after the insert");
+            } finally {
+                System.setOut(out);
+            }
+        });
+
+        Check.exit();
+    }
+}
@@ -0,0 +1,100 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+public class RootCauseClassifierTest {
+
+    public static void main(String[] args) throws Exception {
+        Check.run("the built-in rules keep the old if-chain precedence", () -> {
+            RootCauseClassifier classifier = new RootCauseClassifier(RootCauseClassifier.builtInRules());
+            Check.equal("NullPointer", classifier.classify("Timeout after NullPointerException"), "NullPointer first");
+            Check.equal("Timeout", classifier.classify("IndexOutOfBounds then ReadTimeout"), "then Timeout");
+            Check.equal("IndexOutOfBounds", classifier.classify("ArrayIndexOutOfBoundsException: 3"), "then IndexOutOfBounds");
+            Check.equal(null, classifier.classify("User 'john' logged in"), "no match");
+            Check.equal(null, classifier.classify(""), "empty message");
+        });
+
+        // Signatures that are suffixes and prefixes of each other, so matches end inside other matches
+        List<RootCauseRule> overlapping = List.of(
+            new RootCauseRule(1, "he", "he"),
+            new RootCauseRule(5, "she", "she"),
+            new RootCauseRule(3, "his", "his"),
+            new RootCauseRule(5, "hers", "hers"),
+            new RootCauseRule(2, "ushers", "ushers"),
+            new RootCauseRule(4, "é", "é"),
+            new RootCauseRule(4, "hé", "hé"));
+        RootCauseClassifier classifier = new RootCauseClassifier(overlapping);
+
+        Check.run("overlapping signatures are all found", () -> {
+            Check.equal(List.of("she", "hers", "é", "hé", "ushers", "he").toString(),
+                rootCauses(classifier.matchAll("ushers hé")).toString(), "matches in resolution order");
+        });
+
+        Check.run("the highest priority wins and ties go to the earlier rule", () -> {
+            Check.equal("she", classifier.classify("ushers"), "she before hers at the same priority");
+            Check.equal("hers", classifier.classify("hers"), "hers over he");
+            Check.equal("é", classifier.classify("hé"), "é before hé at the same priority");
+        });
+
+        Check.run("classification agrees with searching for every signature", () -> {
+            Random random = new Random(42);
+            String alphabet = "hersuié ";
+            for (int n = 0; n < 5_000; n++) {
+                StringBuilder message = new StringBuilder();
+                for (int i = random.nextInt(12); i > 0; i--) {
+                    message.append(alphabet.charAt(random.nextInt(alphabet.length())));
+                }
+                List<RootCauseRule> expected = naiveMatches(overlapping, message.toString());
+                Check.equal(rootCauses(expected), rootCauses(classifier.matchAll(message.toString())), "'" + message + "'");
+                Check.equal(expected.isEmpty() ? null : expected.get(0).getRootCause(),
+                    classifier.classify(message.toString()), "winner for '" + message + "'");
+            }
+        });
+
+        Check.run("a rules file skips comments and malformed lines", () -> {
+            Path file = Check.tempDir().resolve("rules.txt");
+            Files.writeString(file, String.join("\n",
+                "# priority | root cause | signature",
+                "",
+                "50 | OutOfMemory | java.lang.OutOfMemoryError",
+                "high | Broken | priority is not a number",
+                "40 | Missing signature",
+                "40 | Empty |   ",
+                "10 | Pipe | a | b"));
+            RootCauseClassifier loaded = RootCauseClassifier.load(file);
+            Check.equal(2, loaded.getRuleCount(), "rules kept");
+            Check.equal("Pipe", loaded.classify("x a | b y"), "signature keeps its '|'");
+            Check.equal("OutOfMemory", loaded.classify("java.lang.OutOfMemoryError: heap"), "signature with dots");
+        });
+
+        Check.run("an empty signature is rejected", () -> {
+            Check.fails(IllegalArgumentException.class, () -> new RootCauseRule(1, "Empty", ""), "empty signature");
+        });
+
+        Check.exit();
+    }
+
+    
+    // Rules whose signature occurs in message, by priority and then in list order, without the automaton
+    private static List<RootCauseRule> naiveMatches(List<RootCauseRule> rules, String message) {
+        List<RootCauseRule> matches = new ArrayList<>();
+        for (RootCauseRule rule : rules) {
+            if (message.contains(rule.getSignature())) {
+                matches.add(rule);
+            }
+        }
+        matches.sort(Comparator.comparingInt(RootCauseRule::getPriority).reversed());
+        return matches;
+    }
+
+    private static List<String> rootCauses(List<RootCauseRule> rules) {
+        List<String> names = new ArrayList<>();
+        for (RootCauseRule rule : rules) {
+            names.add(rule.getRootCause());
+        }
+        return names;
+    }
+}
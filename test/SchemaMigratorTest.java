@@ -0,0 +1,128 @@
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+// Upgrades a database in the original schema: text timestamps, levels and root causes in one logs table
+public class SchemaMigratorTest {
+
+    private static final String[][] ROWS = {
+        { "2025-10-03 23:59:58", "INFO", "User 'john' logged in", null },
+        { "2025-10-04 00:00:01", "ERROR", "ConnectionTimeout while calling external API", "Timeout" },
+        { "2025-10-03 12:00:00", "WARN", "Disk usage is above 85%", null },
+        { "2025-02-30 10:00:00", "ERROR", "A date that does not exist", "Timeout" },
+        { "2025-10-04 09:01:45", "ERROR", "NullPointerException at com.logiq.core.Engine.run()", "NullPointer" },
+    };
+
+    public static void main(String[] args) throws Exception {
+        Path db = Check.tempDir().resolve("v0.db");
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + db)) {
+            createVersion0(conn);
+        }
+        System.setProperty("logiq.db", db.toString());
+        DatabaseManager.createLogsTable();
+
+        Check.run("every step is applied", () -> {
+            try (Connection conn = DatabaseManager.connect()) {
+                Check.equal(SchemaMigrator.latestVersion(), SchemaMigrator.currentVersion(conn), "user_version");
+                Check.isTrue(!tableExists(conn, "logs") && !tableExists(conn, "logs_fts"), "logs and logs_fts dropped");
+            }
+        });
+
+        Check.run("rows move to their day partitions in id order, renumbered by day", () -> {
+            try (Connection conn = DatabaseManager.connect()) {
+                Check.equal(List.of(20251003, 20251004), LogPartitions.days(conn), "partitions");
+            }
+            List<String> rows = new ArrayList<>();
+            try (LogCursor cursor = DatabaseManager.openCursor(LogQuery.ALL)) {
+                cursor.forEachRemaining(row -> rows.add(row.id() + " " + LogTimestamps.format(row.ts()) + " "
+                    + row.level() + " " + row.rootCause()));
+            }
+            Check.equal(List.of(
+                "202510030000000001 2025-10-03 23:59:58 INFO null",
+                "202510030000000002 2025-10-03 12:00:00 WARN null",
+                "202510040000000001 2025-10-04 00:00:01 ERROR Timeout",
+                "202510040000000002 2025-10-04 09:01:45 ERROR NullPointer"), rows, "rows");
+        });
+
+        Check.run("a row with an impossible timestamp is kept aside", () -> {
+            Check.equal(List.of("A date that does not exist"),
+                strings("SELECT message FROM logs_invalid_timestamps"), "logs_invalid_timestamps");
+        });
+
+        Check.run("rollups count the migrated rows", () -> {
+            Check.equal(List.of("ERROR Timeout 1", "ERROR NullPointer 1", "INFO  1", "WARN  1"),
+                strings("SELECT level || ' ' || root_cause || ' ' || count FROM log_rollups "
+                    + "WHERE granularity = 'all' ORDER BY level, count DESC, root_cause DESC"), "all-time rollups");
+            Check.equal(List.of("2025-10-03 2", "2025-10-04 2"),
+                strings("SELECT bucket || ' ' || SUM(count) FROM log_rollups WHERE granularity = 'day' GROUP BY bucket"),
+                "day rollups");
+        });
+
+        Check.run("migrated messages are in the full-text index", () -> {
+            List<String> found = new ArrayList<>();
+            try (LogCursor cursor = DatabaseManager.openCursor(LogQuery.builder().message("external").build())) {
+                cursor.forEachRemaining(row -> found.add(row.message()));
+            }
+            Check.equal(List.of("ConnectionTimeout while calling external API"), found, "matches");
+        });
+
+        Check.run("migrated messages have templates", () -> {
+            Check.equal(List.of("4"), strings("SELECT SUM(count) FROM log_templates"), "template counts");
+        });
+
+        Check.run("migrating an up-to-date database changes nothing", () -> {
+            try (Connection conn = DatabaseManager.connect()) {
+                SchemaMigrator.migrate(conn);
+                Check.equal(4L, LogPartitions.rowCount(conn), "rows");
+                Check.equal(SchemaMigrator.latestVersion(), SchemaMigrator.currentVersion(conn), "user_version");
+            }
+        });
+
+        Check.exit();
+    }
+
+    
+    private static void createVersion0(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE logs (id INTEGER PRIMARY KEY AUTOINCREMENT, timestamp TEXT NOT NULL, "
+                + "level TEXT NOT NULL, message TEXT NOT NULL, root_cause TEXT, "
+                + "UNIQUE(timestamp, level, message, root_cause))");
+        }
+        try (PreparedStatement insert = conn.prepareStatement(
+                 "INSERT INTO logs (timestamp, level, message, root_cause) VALUES (?, ?, ?, ?)")) {
+            for (String[] row : ROWS) {
+                for (int i = 0; i < row.length; i++) {
+                    insert.setString(i + 1, row[i]);
+                }
+                insert.executeUpdate();
+            }
+        }
+    }
+
+    private static boolean tableExists(Connection conn, String name) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT 1 FROM sqlite_master WHERE name = ?")) {
+            pstmt.setString(1, name);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    private static List<String> strings(String sql) throws SQLException {
+        List<String> values = new ArrayList<>();
+        try (Connection conn = DatabaseManager.connect();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                values.add(rs.getString(1));
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,119 @@
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+// Runs against a bare in-memory database holding only the rollup table
+public class SummaryRollupsTest {
+
+    private static final String[][] ENTRIES = {
+        { "2025-10-04 09:00:01", "ERROR", "Timeout" },
+        { "2025-10-04 09:00:59", "ERROR", "Timeout" },
+        { "2025-10-04 09:01:00", "ERROR", "Timeout" },
+        { "2025-10-04 09:59:59", "INFO", null },
+        { "2025-10-04 10:00:00", "INFO", null },
+        { "2025-10-05 00:00:00", "WARN", null },
+        { "1969-12-31 23:59:59", "ERROR", "NullPointer" },
+    };
+
+    public static void main(String[] args) throws Exception {
+        Check.run("counts land in the minute, hour, day and all-time buckets of each entry", () -> {
+            try (Connection conn = rollupDatabase()) {
+                SummaryRollups rollups = new SummaryRollups();
+                for (String[] entry : ENTRIES) {
+                    rollups.add(new LogEntry(LogTimestamps.parse(entry[0]), entry[1], "m", entry[2]));
+                }
+                rollups.flush(conn);
+                Check.equal(List.of(
+                    "1969-12-31 23:59 ERROR NullPointer 1",
+                    "2025-10-04 09:00 ERROR Timeout 2",
+                    "2025-10-04 09:01 ERROR Timeout 1",
+                    "2025-10-04 09:59 INFO  1",
+                    "2025-10-04 10:00 INFO  1",
+                    "2025-10-05 00:00 WARN  1"), rows(conn, SummaryRollups.MINUTE), "minutes");
+                Check.equal(List.of(
+                    "1969-12-31 23 ERROR NullPointer 1",
+                    "2025-10-04 09 ERROR Timeout 3",
+                    "2025-10-04 09 INFO  1",
+                    "2025-10-04 10 INFO  1",
+                    "2025-10-05 00 WARN  1"), rows(conn, SummaryRollups.HOUR), "hours");
+                Check.equal(List.of(
+                    "1969-12-31 ERROR NullPointer 1",
+                    "2025-10-04 ERROR Timeout 3",
+                    "2025-10-04 INFO  2",
+                    "2025-10-05 WARN  1"), rows(conn, SummaryRollups.DAY), "days");
+                Check.equal(List.of(" ERROR NullPointer 1", " ERROR Timeout 3", " INFO  2", " WARN  1"),
+                    rows(conn, SummaryRollups.ALL), "all time");
+            }
+        });
+
+        Check.run("later flushes add to the stored counts", () -> {
+            try (Connection conn = rollupDatabase()) {
+                SummaryRollups rollups = new SummaryRollups();
+                rollups.add(new LogEntry(LogTimestamps.parse("2025-10-04 09:00:01"), "WARN", "m", null));
+                rollups.flush(conn);
+                rollups.flush(conn);
+                rollups.add(new LogEntry(LogTimestamps.parse("2025-10-04 09:30:00"), "WARN", "m", null));
+                rollups.flush(conn);
+                Check.equal(List.of("2025-10-04 09 WARN  2"), rows(conn, SummaryRollups.HOUR), "hours");
+            }
+        });
+
+        Check.run("the backfill counts a text table the way flush counts entries", () -> {
+            try (Connection flushed = rollupDatabase(); Connection backfilled = rollupDatabase()) {
+                SummaryRollups rollups = new SummaryRollups();
+                try (Statement stmt = backfilled.createStatement()) {
+                    stmt.execute("CREATE TABLE logs (timestamp TEXT, level TEXT, message TEXT, root_cause TEXT)");
+                }
+                try (PreparedStatement insert = backfilled.prepareStatement("INSERT INTO logs VALUES (?, ?, 'm', ?)")) {
+                    for (String[] entry : ENTRIES) {
+                        rollups.add(new LogEntry(LogTimestamps.parse(entry[0]), entry[1], "m", entry[2]));
+                        insert.setString(1, entry[0]);
+                        insert.setString(2, entry[1]);
+                        insert.setString(3, entry[2]);
+                        insert.executeUpdate();
+                    }
+                }
+                rollups.flush(flushed);
+                try (Statement stmt = backfilled.createStatement()) {
+                    for (String sql : SummaryRollups.backfillSQL()) {
+                        stmt.execute(sql);
+                    }
+                }
+                for (String granularity : new String[] { SummaryRollups.MINUTE, SummaryRollups.HOUR, SummaryRollups.DAY, SummaryRollups.ALL }) {
+                    Check.equal(rows(flushed, granularity), rows(backfilled, granularity), granularity);
+                }
+            }
+        });
+
+        Check.exit();
+    }
+
+    
+    private static Connection rollupDatabase() throws SQLException {
+        Connection conn = DriverManager.getConnection("jdbc:sqlite::memory:");
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(SummaryRollups.CREATE_SQL);
+        }
+        return conn;
+    }
+
+    // "bucket level root_cause count" rows of one granularity, sorted
+    private static List<String> rows(Connection conn, String granularity) throws SQLException {
+        List<String> rows = new ArrayList<>();
+        try (PreparedStatement select = conn.prepareStatement("SELECT bucket || ' ' || level || ' ' || root_cause || ' ' "
+                + "|| count FROM log_rollups WHERE granularity = ? ORDER BY bucket, level, root_cause")) {
+            select.setString(1, granularity);
+            try (ResultSet rs = select.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(rs.getString(1));
+                }
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,73 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class SyntheticLogGeneratorTest {
+
+    private static final Pattern LINE = Pattern.compile(RegexLineTokenizer.LOG_REGEX);
+
+    public static void main(String[] args) throws Exception {
+        List<String> sample = Files.readAllLines(Paths.get("logs/sample.log"));
+        Path dir = Check.tempDir();
+
+        Check.run("the same seed writes the same file", () -> {
+            SyntheticLogGenerator.write(dir.resolve("a.log"), sample, 500, 2, 11);
+            SyntheticLogGenerator.write(dir.resolve("b.log"), sample, 500, 2, 11);
+            SyntheticLogGenerator.write(dir.resolve("c.log"), sample, 500, 2, 12);
+            Check.equal(Files.readString(dir.resolve("a.log")), Files.readString(dir.resolve("b.log")), "same seed");
+            Check.isTrue(!Files.readString(dir.resolve("a.log")).equals(Files.readString(dir.resolve("c.log"))),
+                "another seed");
+        });
+
+        Check.run("timestamps are spread evenly over the days from the sample's day", () -> {
+            Path file = dir.resolve("nested/spread.log");
+            SyntheticLogGenerator.write(file, sample, 96, 3, 1);
+            List<String> lines = Files.readAllLines(file);
+            Check.equal(96, lines.size(), "lines");
+            long start = LogTimestamps.parse("2025-10-04");
+            for (int i = 0; i < lines.size(); i++) {
+                long expected = start + i * 45 * 60_000L;
+                Check.equal(LogTimestamps.format(expected), lines.get(i).substring(0, 19), "line " + i);
+            }
+        });
+
+        Check.run("every line is an event shaped like a sample line", () -> {
+            Set<String> shapes = new HashSet<>();
+            for (String line : sample) {
+                Matcher matcher = LINE.matcher(line);
+                if (matcher.matches()) {
+                    shapes.add(shape(matcher));
+                }
+            }
+            SyntheticLogGenerator generator = new SyntheticLogGenerator(sample, 5);
+            Set<String> seen = new HashSet<>();
+            for (int i = 0; i < 5_000; i++) {
+                String line = generator.line(LogTimestamps.parse("2025-10-04 12:00:00"));
+                Matcher matcher = LINE.matcher(line);
+                Check.isTrue(matcher.matches(), "event: " + line);
+                Check.isTrue(shapes.contains(shape(matcher)), "shape of a sample line: " + line);
+                seen.add(shape(matcher));
+            }
+            Check.equal(shapes, seen, "every sample shape is used");
+        });
+
+        Check.run("a sample without timestamped lines is rejected", () -> {
+            Check.fails(IllegalArgumentException.class,
+                () -> new SyntheticLogGenerator(List.of("", "    at com.logiq.Main.main(Main.java:1)"), 1), "sample");
+        });
+
+        Check.exit();
+    }
+
+    
+    // Level and masked message tokens, which ignore the numbers and quoted names the generator replaces
+    private static String shape(Matcher event) {
+        return event.group(2) + " " + Arrays.toString(TemplateMiner.tokenize(event.group(3)));
+    }
+}
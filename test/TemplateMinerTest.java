@@ -0,0 +1,116 @@
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+
+public class TemplateMinerTest {
+
+    public static void main(String[] args) throws Exception {
+        Check.run("numbers and quoted tokens are masked before matching", () -> {
+            Check.equal(new String[] { "User", "<*>", "logged", "in", "from", "<*>" },
+                TemplateMiner.tokenize("  User 'john'  logged in from 10.0.0.7 "), "tokens");
+            Check.equal(new String[] { "\"", "'a", "\"b", "c\"", "<*>" },
+                TemplateMiner.tokenize("\" 'a \"b c\" 'x'"), "quotes only mask a whole token");
+            Check.equal(new String[0], TemplateMiner.tokenize("   "), "blank");
+        });
+
+        Check.run("messages that differ in masked tokens share a template", () -> {
+            TemplateMiner miner = new TemplateMiner();
+            int id = miner.match("User 'john' logged in");
+            Check.equal(id, miner.match("User \"alice\" logged in"), "same template");
+            Check.equal("User <*> logged in", miner.template(id), "text");
+        });
+
+        Check.run("a similar message generalizes the template it joins", () -> {
+            TemplateMiner miner = new TemplateMiner();
+            int id = miner.match("Cache cleared for users");
+            Check.equal("Cache cleared for users", miner.template(id), "before");
+            Check.equal(id, miner.match("Cache cleared for sessions"), "joins");
+            Check.equal("Cache cleared for <*>", miner.template(id), "after");
+            Check.equal(id, miner.match("Cache cleared for tokens"), "matches the wildcard");
+        });
+
+        Check.run("dissimilar messages and different lengths get templates of their own", () -> {
+            TemplateMiner miner = new TemplateMiner();
+            int disk = miner.match("Disk usage is high");
+            int cache = miner.match("Cache was never warmed");
+            int longer = miner.match("Disk usage is high again");
+            Check.isTrue(disk != cache && disk != longer && cache != longer, "three templates");
+            Check.equal(3, miner.size(), "size");
+            Check.equal(null, miner.template(99), "unknown id");
+        });
+
+        Check.run("ids stay the same when many first tokens overflow a tree node", () -> {
+            TemplateMiner miner = new TemplateMiner();
+            int[] ids = new int[250];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = miner.match(word(i) + " service restarted");
+            }
+            for (int i = 0; i < ids.length; i++) {
+                Check.equal(ids[i], miner.match(word(i) + " service restarted"), word(i));
+            }
+        });
+
+        Check.run("a full leaf joins new messages to its most similar template", () -> {
+            TemplateMiner miner = new TemplateMiner();
+            for (int i = 0; i < 150; i++) {
+                String w = word(i);
+                miner.match("Job failed " + w + "a " + w + "b " + w + "c " + w + "d");
+            }
+            Check.equal(100, miner.size(), "templates in the leaf");
+            Check.isTrue(miner.match("Job failed qa qb qc qd") <= 100, "no new id");
+        });
+
+        Check.run("threads mining messages of different lengths get consistent ids", () -> {
+            TemplateMiner miner = new TemplateMiner();
+            int[][] ids = new int[4][500];
+            Thread[] threads = new Thread[ids.length];
+            for (int t = 0; t < threads.length; t++) {
+                int thread = t;
+                threads[t] = new Thread(() -> {
+                    for (int n = 0; n < ids[thread].length; n++) {
+                        ids[thread][n] = miner.match("Batch" + " done".repeat(thread + 1) + " " + n);
+                    }
+                });
+                threads[t].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            Check.equal(ids.length, miner.size(), "one template per length");
+            for (int t = 0; t < ids.length; t++) {
+                for (int id : ids[t]) {
+                    Check.equal(ids[t][0], id, "thread " + t);
+                }
+                Check.equal("Batch" + " done".repeat(t + 1) + " <*>", miner.template(ids[t][0]), "text");
+            }
+        });
+
+        Check.run("a miner loaded from log_templates keeps the ids and continues after them", () -> {
+            try (Connection conn = DriverManager.getConnection("jdbc:sqlite::memory:");
+                 Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE TABLE log_templates (id INTEGER PRIMARY KEY, template TEXT NOT NULL, count INTEGER)");
+                stmt.execute("INSERT INTO log_templates VALUES (3, 'User <*> logged in', 2), (7, 'Cache cleared', 1), "
+                    + "(8, '', 1)");
+                TemplateMiner miner = TemplateMiner.load(conn);
+                Check.equal(3, miner.size(), "size");
+                Check.equal(3, miner.match("User 'bob' logged in"), "wildcard template");
+                Check.equal(7, miner.match("Cache cleared"), "literal template");
+                Check.equal(8, miner.match(""), "empty template");
+                Check.equal(9, miner.match("Something new happened here"), "next id");
+            }
+        });
+
+        Check.exit();
+    }
+
+    
+    // A distinct word without digits, so it is not masked: a, b, ..., z, ba, bb, ...
+    private static String word(int n) {
+        StringBuilder word = new StringBuilder();
+        do {
+            word.insert(0, (char) ('a' + n % 26));
+            n /= 26;
+        } while (n > 0);
+        return word.toString();
+    }
+}